@@ -0,0 +1,91 @@
+package net.paulhertz.glitchsort;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Checks that sorting a row allocates nothing once the sorter is warmed up: lessAt(), exch(),
+ * compExch() and the sorters' own loops must not create objects, with or without channel swapping
+ * and random breaks. The bytes allocated by the current thread, from ThreadMXBean.getThreadAllocatedBytes(),
+ * are read before and after a number of sorts of a row, with nothing else in between, after enough
+ * sorts of the same row that the JIT has compiled the sort and the sorter's buffers are big enough.
+ * Setting up a sort, such as setRandom() with a new stream of random numbers, is not part of the
+ * row sort and happens once, before the sorts are timed. Merge sort is checked in the calling
+ * thread, since its parallel passes create fork/join tasks.
+ * The results are printed as bytes per sort, and if any sort allocated, an exception is thrown
+ * once all combinations have been checked.
+ * Parameters, each a comma separated list, and their defaults:
+ * <pre>
+ *   sorter=QUICK,SHELL,BUBBLE,INSERT,...   all SorterType values
+ *   swap=false,true                        isSwapChannels, swapping RG
+ *   break=off,default                      no random breaks, or the sorter's default breakPoint
+ *   length=1024                            number of pixels in a row
+ *   warmup=2000                            sorts before measuring
+ *   sorts=200                              sorts measured
+ * </pre>
+ * BUBBLE and INSERT take time in the square of the length without random breaks, so longer rows
+ * or more sorts can take minutes.
+ * The JVM has to support thread allocation counting, as HotSpot does.
+ */
+public class AllocationBenchmark {
+
+	public static void main(String[] args) {
+		Bench.Params params = new Bench.Params(args);
+		List<SorterType> sorters = params.getEnums("sorter", SorterType.class);
+		String[] swaps = params.get("swap", "false", "true");
+		String[] breaks = params.get("break", "off", "default");
+		String[] lengths = params.get("length", "1024");
+		int warmups = params.getInt("warmup", 2000);
+		int sorts = params.getInt("sorts", 200);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			throw new UnsupportedOperationException("this JVM can't count the bytes a thread allocates");
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+		// reading the counter may cost something itself, which is subtracted from every measurement
+		long before = threads.getThreadAllocatedBytes(thread);
+		long overhead = threads.getThreadAllocatedBytes(thread) - before;
+		SortSelector selector = new SortSelector();
+		selector.getMerge().setParallel(false);
+		int failures = 0;
+		System.out.println("sorter\tswap\tbreak\tlength\tbytes/sort");
+		for (SorterType type : sorters) {
+			selector.setSorter(type);
+			AbstractColorSorter sorter = selector.sorter;
+			for (String swap : swaps) {
+				for (String brk : breaks) {
+					for (String len : lengths) {
+						int length = Integer.parseInt(len);
+						sorter.setSwapChannels(Boolean.parseBoolean(swap));
+						sorter.setSwap(SwapChannel.RG);
+						sorter.setRandomBreak(!"off".equals(brk));
+						sorter.setRandom(new SeededRandom(SorterBenchmark.BREAK_SEED));
+						int[] input = SorterBenchmark.makeRow(selector, sorter, SorterBenchmark.Shape.PHOTO, length);
+						int[] row = new int[length];
+						for (int i = 0; i < warmups; i++) {
+							System.arraycopy(input, 0, row, 0, length);
+							sorter.sort(row);
+						}
+						before = threads.getThreadAllocatedBytes(thread);
+						for (int i = 0; i < sorts; i++) {
+							System.arraycopy(input, 0, row, 0, length);
+							sorter.sort(row);
+						}
+						long bytes = threads.getThreadAllocatedBytes(thread) - before - overhead;
+						Bench.sink ^= row[0];
+						System.out.println(type +"\t"+ swap +"\t"+ brk +"\t"+ length +"\t"+ (bytes / (double) sorts));
+						if (bytes > 0) failures++;
+					}
+				}
+			}
+		}
+		if (failures > 0) {
+			throw new IllegalStateException(failures +" combinations allocated while sorting a row");
+		}
+		System.out.println("no allocation in any row sort");
+	}
+
+}
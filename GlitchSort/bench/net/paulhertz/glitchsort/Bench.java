@@ -0,0 +1,130 @@
+package net.paulhertz.glitchsort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A small benchmark harness, in the manner of JMH, for timing code without a build system or
+ * extra libraries. Each measurement runs an operation in a loop for a fixed time per iteration,
+ * first for some warmup iterations that are discarded, so the JIT compiler has done its work,
+ * and then for the measured iterations. Results are reported in nanoseconds per operation, as
+ * a mean with the standard deviation over iterations. Operations return an int that is folded
+ * into a sink, so the JIT can't eliminate the work as dead code.
+ * Benchmarks take their parameters from the command line as key=value1,value2,... arguments,
+ * see Params. Warmup and measurement can be set with warmup=n, iterations=n and time=ms.
+ */
+public class Bench {
+	/** an operation to time, i is the number of the call */
+	public interface Op {
+		public int run(int i);
+	}
+
+	/** results of operations end up here, so the JIT can't discard them */
+	public static volatile int sink;
+
+	int warmups = 2;
+	int iterations = 5;
+	long iterationNanos = 100 * 1000000L;
+
+	public Bench(Params params) {
+		warmups = params.getInt("warmup", warmups);
+		iterations = params.getInt("iterations", iterations);
+		iterationNanos = params.getInt("time", (int) (iterationNanos / 1000000L)) * 1000000L;
+	}
+
+	/**
+	 * Times an operation.
+	 * @param op   the operation
+	 * @return     the result of the measured iterations
+	 */
+	public Result measure(Op op) {
+		int calls = 0;
+		int acc = 0;
+		for (int w = 0; w < warmups; w++) {
+			long end = System.nanoTime() + iterationNanos;
+			do {
+				acc ^= op.run(calls++);
+			} while (System.nanoTime() < end);
+		}
+		double[] nanosPerOp = new double[iterations];
+		for (int it = 0; it < iterations; it++) {
+			long ops = 0;
+			long start = System.nanoTime();
+			long end = start + iterationNanos;
+			long now;
+			do {
+				acc ^= op.run(calls++);
+				ops++;
+				now = System.nanoTime();
+			} while (now < end);
+			nanosPerOp[it] = (now - start) / (double) ops;
+		}
+		sink ^= acc;
+		return new Result(nanosPerOp);
+	}
+
+	/**
+	 * Timing of an operation: mean and standard deviation of nanoseconds per operation over iterations.
+	 */
+	public static class Result {
+		public final double mean;
+		public final double stdDev;
+
+		public Result(double[] nanosPerOp) {
+			double sum = 0;
+			for (double t : nanosPerOp) sum += t;
+			mean = sum / nanosPerOp.length;
+			double sq = 0;
+			for (double t : nanosPerOp) sq += (t - mean) * (t - mean);
+			stdDev = nanosPerOp.length > 1 ? Math.sqrt(sq / (nanosPerOp.length - 1)) : 0;
+		}
+
+		public String toString() {
+			return String.format(Locale.US, "%.1f\t%.1f", mean, stdDev);
+		}
+	}
+
+	/**
+	 * Command line parameters in the form key=value1,value2,...
+	 */
+	public static class Params {
+		Map<String, String[]> values = new LinkedHashMap<String, String[]>();
+
+		public Params(String[] args) {
+			for (String arg : args) {
+				int eq = arg.indexOf('=');
+				if (eq < 1) throw new IllegalArgumentException("expected key=value1,value2,... but got "+ arg);
+				values.put(arg.substring(0, eq), arg.substring(eq + 1).split(","));
+			}
+		}
+
+		/**
+		 * @return the values given for key, or the default values if key was not given
+		 */
+		public String[] get(String key, String... defaults) {
+			String[] v = values.get(key);
+			return null == v ? defaults : v;
+		}
+
+		public int getInt(String key, int defaultValue) {
+			String[] v = values.get(key);
+			return null == v ? defaultValue : Integer.parseInt(v[0]);
+		}
+
+		/**
+		 * @return the values given for key as enum constants, or all the constants of the enum if key was not given
+		 */
+		public <E extends Enum<E>> List<E> getEnums(String key, Class<E> type) {
+			String[] v = values.get(key);
+			if (null == v) return Arrays.asList(type.getEnumConstants());
+			List<E> list = new ArrayList<E>();
+			for (String name : v) list.add(Enum.valueOf(type, name.toUpperCase()));
+			return list;
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+package net.paulhertz.glitchsort;
+
+import java.util.Locale;
+
+import net.paulhertz.glitchsort.SorterBenchmark.Shape;
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Compares the geometric countdown that schedules random breaks in AbstractColorSorter.breakTest()
+ * with the test it replaced, which drew a random number in 0..1000 at every step and broke if it was
+ * greater than breakPoint. The per step test is put back in subclasses of the sorters that override
+ * breakTest(). The first table times breakTest() alone, over runs of STEPS steps, and gives the
+ * number of breaks per 1000 steps over many runs, which should be close to 1000 - breakPoint for both
+ * schedulers. The second table times whole sorts of a row with each scheduler and gives the number
+ * of breaks in one sort. The two schedulers draw different random numbers, so the sorted rows are
+ * not the same, only alike. RADIX and MERGE count off their steps with breakSteps() and are left out.
+ * Parameters, each a comma separated list, and their defaults:
+ * <pre>
+ *   sorter=QUICK,SHELL,BUBBLE,INSERT       sorters that break with breakTest()
+ *   scheduler=random,geometric             the per step test, or the countdown
+ *   break=990,996,999.9                    breakPoint values, or default for the sorter's own
+ *   length=1024,4096                       number of pixels in a row
+ *   shape=PHOTO                            kind of input row, see SorterBenchmark
+ *   warmup=2 iterations=5 time=100         see Bench
+ * </pre>
+ */
+public class BreakBenchmark {
+	/** number of calls to breakTest() in one operation of the first table */
+	static final int STEPS = 4096;
+	/** number of runs of STEPS steps to count breaks over */
+	static final int RUNS = 1000;
+
+	public static void main(String[] args) {
+		Bench.Params params = new Bench.Params(args);
+		Bench bench = new Bench(params);
+		String[] sorters = params.get("sorter", "QUICK", "SHELL", "BUBBLE", "INSERT");
+		String[] schedulers = params.get("scheduler", "random", "geometric");
+		String[] breakPoints = params.get("break", "990", "996", "999.9");
+		String[] lengths = params.get("length", "1024", "4096");
+		String[] shapes = params.get("shape", "PHOTO");
+		SortSelector selector = new SortSelector();
+		System.out.println("scheduler\tbreak\tbreaks/1000\tns/op\terror\tns/step");
+		for (String brk : breakPoints) {
+			for (String scheduler : schedulers) {
+				AbstractColorSorter sorter = makeSorter(selector, SorterType.INSERT, scheduler);
+				setBreaks(sorter, brk);
+				StepOp op = new StepOp(sorter);
+				long count = 0;
+				for (int i = 0; i < RUNS; i++) count += op.run(i);
+				Bench.Result r = bench.measure(op);
+				System.out.println(scheduler +"\t"+ brk +"\t"+ String.format(Locale.US, "%.3f", count * 1000.0 / ((long) RUNS * STEPS))
+						+"\t"+ r +"\t"+ String.format(Locale.US, "%.2f", r.mean / STEPS));
+			}
+		}
+		System.out.println();
+		System.out.println("sorter\tscheduler\tbreak\tlength\tshape\tbreaks\tns/op\terror\tns/pixel");
+		for (String name : sorters) {
+			SorterType type = SorterType.valueOf(name.toUpperCase());
+			for (String brk : breakPoints) {
+				for (String len : lengths) {
+					for (String shapeName : shapes) {
+						Shape shape = Shape.valueOf(shapeName.toUpperCase());
+						for (String scheduler : schedulers) {
+							AbstractColorSorter sorter = makeSorter(selector, type, scheduler);
+							sorter.setCompOrder(CompOrder.RGB);
+							sorter.setSwapChannels(false);
+							setBreaks(sorter, brk);
+							int length = Integer.parseInt(len);
+							int[] input = SorterBenchmark.makeRow(selector, sorter, shape, length);
+							SorterBenchmark.SortOp op = new SorterBenchmark.SortOp(sorter, input);
+							sorter.resetCounts();
+							op.run(0);
+							long breaks = sorter.breakCount;
+							Bench.Result r = bench.measure(op);
+							System.out.println(type +"\t"+ scheduler +"\t"+ brk +"\t"+ length +"\t"+ shape +"\t"+ breaks
+									+"\t"+ r +"\t"+ String.format(Locale.US, "%.2f", r.mean / length));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return a new sorter of type, with the geometric countdown of AbstractColorSorter or,
+	 *         for scheduler "random", a random number drawn at every step
+	 */
+	static AbstractColorSorter makeSorter(SortSelector selector, SorterType type, String scheduler) {
+		boolean isPerStep = "random".equals(scheduler);
+		if (!isPerStep && !"geometric".equals(scheduler)) {
+			throw new IllegalArgumentException("scheduler is random or geometric, not "+ scheduler);
+		}
+		switch (type) {
+		case QUICK: {
+			if (!isPerStep) return selector.new QuickSorter();
+			return selector.new QuickSorter() {
+				@Override
+				public boolean breakTest() {
+					return perStepTest(this);
+				}
+			};
+		}
+		case SHELL: {
+			if (!isPerStep) return selector.new ShellSorter();
+			return selector.new ShellSorter() {
+				@Override
+				public boolean breakTest() {
+					return perStepTest(this);
+				}
+			};
+		}
+		case BUBBLE: {
+			if (!isPerStep) return selector.new BubbleSorter();
+			return selector.new BubbleSorter() {
+				@Override
+				public boolean breakTest() {
+					return perStepTest(this);
+				}
+			};
+		}
+		case INSERT: {
+			if (!isPerStep) return selector.new InsertSorter();
+			return selector.new InsertSorter() {
+				@Override
+				public boolean breakTest() {
+					return perStepTest(this);
+				}
+			};
+		}
+		default: {
+			throw new IllegalArgumentException(type +" breaks with breakSteps(), not breakTest()");
+		}
+		}
+	}
+
+	/**
+	 * The break test from before the geometric countdown: draws a random number in the range 0..1000
+	 * and returns true if it is greater than breakPoint.
+	 */
+	static boolean perStepTest(AbstractColorSorter sorter) {
+		if (sorter.breakPoint < sorter.random.random(1000)) {
+			sorter.breakCount++;
+			return true;
+		}
+		return false;
+	}
+
+	/** turns on random breaks at brk, a number or default */
+	static void setBreaks(AbstractColorSorter sorter, String brk) {
+		sorter.setRandomBreak(true);
+		if (!"default".equals(brk)) sorter.setBreakPoint(Float.parseFloat(brk));
+	}
+
+	/**
+	 * Calls breakTest() STEPS times, with the same random numbers for every call of run() with the same i.
+	 */
+	static class StepOp implements Bench.Op {
+		AbstractColorSorter sorter;
+		RandomSource rand = new SeededRandom(SorterBenchmark.BREAK_SEED);
+
+		StepOp(AbstractColorSorter sorter) {
+			this.sorter = sorter;
+		}
+
+		/** @return the number of breaks */
+		public int run(int i) {
+			sorter.setRandom(rand.stream(i & 1023));
+			sorter.resetBreaks();
+			int breaks = 0;
+			for (int s = 0; s < STEPS; s++) {
+				if (sorter.breakTest()) breaks++;
+			}
+			return breaks;
+		}
+	}
+
+}
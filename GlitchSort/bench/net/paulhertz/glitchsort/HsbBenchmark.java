@@ -0,0 +1,170 @@
+package net.paulhertz.glitchsort;
+
+import java.util.List;
+import java.util.Locale;
+
+import net.paulhertz.glitchsort.constants.*;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+
+/**
+ * Compares HsbCodec with the PGraphics methods that GlitchSort.pullChannel() and pushChannel()
+ * called before HsbCodec, for the H, S and L channels. Before timing, HsbCodec is checked against
+ * PGraphics hue(), saturation() and brightness() for all 16M colors and against color(h, s, b, 255)
+ * in colorMode(HSB, 255) for all 16M combinations of h, s and b. Parameters and their defaults:
+ * <pre>
+ *   chan=L,H,S                             channels
+ *   length=65536                           number of pixels
+ *   shape=PHOTO,RANDOM                     rows like a photograph, see SorterBenchmark, or random colors
+ *   check=true                             false skips the exhaustive check, which takes a few seconds
+ *   warmup=2 iterations=5 time=100         see Bench
+ * </pre>
+ * The pull lines time extracting a channel, the push lines time replacing it.
+ */
+public class HsbBenchmark {
+
+	public static void main(String[] args) {
+		Bench.Params params = new Bench.Params(args);
+		Bench bench = new Bench(params);
+		List<ChannelNames> chans = params.getEnums("chan", ChannelNames.class);
+		String[] lengths = params.get("length", "65536");
+		String[] shapes = params.get("shape", "PHOTO", "RANDOM");
+		if (Boolean.parseBoolean(params.get("check", "true")[0])) check();
+		System.out.println("chan\tlength\tshape\tpath\tns/op\terror\tns/pixel");
+		String[] paths = {"pull PGraphics", "pull HsbCodec", "push PGraphics", "push HsbCodec"};
+		for (ChannelNames chan : chans) {
+			if (ChannelNames.R == chan || ChannelNames.G == chan || ChannelNames.B == chan) continue;
+			for (String len : lengths) {
+				for (String shape : shapes) {
+					int length = Integer.parseInt(len);
+					int[] row = "PHOTO".equalsIgnoreCase(shape)
+							? SorterBenchmark.makeRow(null, null, SorterBenchmark.Shape.PHOTO, length) : KeyBenchmark.makeRow(length);
+					Bench.Result[] results = {
+							bench.measure(new PullOp(chan, row, true)), bench.measure(new PullOp(chan, row, false)),
+							bench.measure(new PushOp(chan, row, true)), bench.measure(new PushOp(chan, row, false))
+					};
+					for (int k = 0; k < results.length; k++) {
+						System.out.println(chan +"\t"+ length +"\t"+ shape +"\t"+ paths[k] +"\t"+ results[k] +"\t"
+								+ String.format(Locale.US, "%.2f", results[k].mean / length));
+					}
+				}
+			}
+		}
+	}
+
+	static PGraphics hsbGraphics() {
+		PGraphics g = new PGraphics();
+		g.colorMode(PConstants.HSB, 255);
+		return g;
+	}
+
+	/**
+	 * Throws an exception if HsbCodec and PGraphics disagree anywhere.
+	 */
+	static void check() {
+		PGraphics g = hsbGraphics();
+		for (int rgb = 0; rgb < 1 << 24; rgb++) {
+			int argb = 0xFF000000 | rgb;
+			float h = g.hue(argb), s = g.saturation(argb), b = g.brightness(argb);
+			if (Float.floatToIntBits(h) != Float.floatToIntBits(HsbCodec.hue(argb))
+					|| Float.floatToIntBits(s) != Float.floatToIntBits(HsbCodec.saturation(argb))
+					|| Float.floatToIntBits(b) != Float.floatToIntBits(HsbCodec.brightness(argb))
+					|| Math.round(h) != HsbCodec.hueInt(argb) || Math.round(s) != HsbCodec.saturationInt(argb)
+					|| Math.round(b) != HsbCodec.brightnessInt(argb)
+					|| (Math.round(h) << 16 | Math.round(s) << 8 | Math.round(b)) != HsbCodec.packHsb(argb)) {
+				throw new IllegalStateException("HSB values differ for "+ Integer.toHexString(argb));
+			}
+			int hh = rgb >> 16, ss = (rgb >> 8) & 0xFF, bb = rgb & 0xFF;
+			if (g.color(hh, ss, bb, 255) != HsbCodec.toColor(hh, ss, bb)) {
+				throw new IllegalStateException("colors differ for h "+ hh +" s "+ ss +" b "+ bb);
+			}
+		}
+		System.out.println("HsbCodec and PGraphics agree for all colors");
+	}
+
+	static class PullOp implements Bench.Op {
+		ChannelNames chan;
+		int[] row;
+		float[] buf;
+		boolean isPGraphics;
+		PGraphics g = hsbGraphics();
+
+		PullOp(ChannelNames chan, int[] row, boolean isPGraphics) {
+			this.chan = chan;
+			this.row = row;
+			this.buf = new float[row.length];
+			this.isPGraphics = isPGraphics;
+		}
+
+		public int run(int i) {
+			int n = row.length;
+			if (isPGraphics) {
+				if (ChannelNames.L == chan) for (int k = 0; k < n; k++) buf[k] = g.brightness(row[k]);
+				else if (ChannelNames.H == chan) for (int k = 0; k < n; k++) buf[k] = g.hue(row[k]);
+				else for (int k = 0; k < n; k++) buf[k] = g.saturation(row[k]);
+			}
+			else {
+				if (ChannelNames.L == chan) for (int k = 0; k < n; k++) buf[k] = HsbCodec.brightness(row[k]);
+				else if (ChannelNames.H == chan) for (int k = 0; k < n; k++) buf[k] = HsbCodec.hue(row[k]);
+				else for (int k = 0; k < n; k++) buf[k] = HsbCodec.saturation(row[k]);
+			}
+			return Float.floatToIntBits(buf[i % buf.length]);
+		}
+	}
+
+	static class PushOp implements Bench.Op {
+		ChannelNames chan;
+		int[] row;
+		int[] out;
+		boolean isPGraphics;
+		PGraphics g = hsbGraphics();
+
+		PushOp(ChannelNames chan, int[] row, boolean isPGraphics) {
+			this.chan = chan;
+			this.row = row;
+			this.out = new int[row.length];
+			this.isPGraphics = isPGraphics;
+		}
+
+		public int run(int i) {
+			int n = row.length;
+			// the new component is a made up value from the call number and pixel number
+			if (isPGraphics) {
+				if (ChannelNames.L == chan) {
+					for (int k = 0; k < n; k++) {
+						out[k] = g.color(Math.round(g.hue(row[k])), Math.round(g.saturation(row[k])), (i + k) & 0xFF, 255);
+					}
+				}
+				else if (ChannelNames.H == chan) {
+					for (int k = 0; k < n; k++) {
+						out[k] = g.color((i + k) & 0xFF, Math.round(g.saturation(row[k])), Math.round(g.brightness(row[k])), 255);
+					}
+				}
+				else {
+					for (int k = 0; k < n; k++) {
+						out[k] = g.color(Math.round(g.hue(row[k])), (i + k) & 0xFF, Math.round(g.brightness(row[k])), 255);
+					}
+				}
+			}
+			else {
+				if (ChannelNames.L == chan) {
+					for (int k = 0; k < n; k++) {
+						out[k] = HsbCodec.toColor(HsbCodec.hueInt(row[k]), HsbCodec.saturationInt(row[k]), (i + k) & 0xFF);
+					}
+				}
+				else if (ChannelNames.H == chan) {
+					for (int k = 0; k < n; k++) {
+						out[k] = HsbCodec.toColor((i + k) & 0xFF, HsbCodec.saturationInt(row[k]), HsbCodec.brightnessInt(row[k]));
+					}
+				}
+				else {
+					for (int k = 0; k < n; k++) {
+						out[k] = HsbCodec.toColor(HsbCodec.hueInt(row[k]), (i + k) & 0xFF, HsbCodec.brightnessInt(row[k]));
+					}
+				}
+			}
+			return out[i % out.length];
+		}
+	}
+
+}
@@ -0,0 +1,177 @@
+package net.paulhertz.glitchsort;
+
+import java.awt.Color;
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Compares two ways of calculating sort keys for a row of pixels: ColorKey, which is chosen once
+ * per row for the component order and direction, and the switch on compOrder for every pixel
+ * that AbstractColorSorter.sortKey() used before ColorKey (copied here as switchKey()).
+ * Before timing, every order and direction is checked for identical keys over a million pixels.
+ * Parameters, each a comma separated list, and their defaults:
+ * <pre>
+ *   order=RGB,...,BSH                      all 12 CompOrder values
+ *   asc=false,true                         descending and ascending sorts
+ *   length=4096                            number of pixels in a row
+ *   table=file                             if given, HSB keys come from HsbCodec.useMappedTable(file)
+ *   warmup=2 iterations=5 time=100         see Bench
+ * </pre>
+ */
+public class KeyBenchmark {
+
+	public static void main(String[] args) {
+		Bench.Params params = new Bench.Params(args);
+		Bench bench = new Bench(params);
+		List<CompOrder> orders = params.getEnums("order", CompOrder.class);
+		String[] ascs = params.get("asc", "false", "true");
+		String[] lengths = params.get("length", "4096");
+		String[] table = params.get("table");
+		if (table.length > 0 && !HsbCodec.useMappedTable(new File(table[0]))) return;
+		check();
+		System.out.println("order\tasc\tlength\tpath\tns/op\terror\tns/pixel");
+		for (CompOrder order : orders) {
+			for (String asc : ascs) {
+				for (String len : lengths) {
+					int length = Integer.parseInt(len);
+					boolean isAscending = Boolean.parseBoolean(asc);
+					int[] row = makeRow(length);
+					Bench.Result sw = bench.measure(new SwitchOp(order, isAscending, row));
+					Bench.Result ck = bench.measure(new ColorKeyOp(order, isAscending, row));
+					System.out.println(order +"\t"+ asc +"\t"+ length +"\tswitch\t"+ sw +"\t"+ String.format(Locale.US, "%.2f", sw.mean / length));
+					System.out.println(order +"\t"+ asc +"\t"+ length +"\tColorKey\t"+ ck +"\t"+ String.format(Locale.US, "%.2f", ck.mean / length));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Throws an exception if ColorKey and switchKey() disagree for any order, direction and pixel tested.
+	 */
+	static void check() {
+		int[] row = makeRow(1 << 20);
+		// include pixels that are not opaque, the RGB key keeps their alpha
+		for (int i = 0; i < row.length; i += 7) row[i] &= 0x7FFFFFFF;
+		int[] keys = new int[row.length];
+		float[] hsb = new float[3];
+		for (CompOrder order : CompOrder.values()) {
+			for (int d = 0; d < 2; d++) {
+				boolean isAscending = d == 1;
+				ColorKey.get(order, isAscending).load(row, 0, row.length, keys);
+				for (int i = 0; i < row.length; i++) {
+					if (keys[i] != switchKey(order, isAscending, row[i], hsb)) {
+						throw new IllegalStateException("keys differ for "+ order +" ascending "+ isAscending
+								+" pixel "+ Integer.toHexString(row[i]));
+					}
+				}
+			}
+		}
+		System.out.println("ColorKey and switch keys are identical for all orders and directions");
+	}
+
+	static class SwitchOp implements Bench.Op {
+		CompOrder order;
+		boolean isAscending;
+		int[] row;
+		int[] keys;
+		float[] hsb = new float[3];
+
+		SwitchOp(CompOrder order, boolean isAscending, int[] row) {
+			this.order = order;
+			this.isAscending = isAscending;
+			this.row = row;
+			this.keys = new int[row.length];
+		}
+
+		public int run(int i) {
+			for (int k = 0; k < row.length; k++) {
+				keys[k] = switchKey(order, isAscending, row[k], hsb);
+			}
+			return keys[i % keys.length];
+		}
+	}
+
+	static class ColorKeyOp implements Bench.Op {
+		CompOrder order;
+		boolean isAscending;
+		int[] row;
+		int[] keys;
+
+		ColorKeyOp(CompOrder order, boolean isAscending, int[] row) {
+			this.order = order;
+			this.isAscending = isAscending;
+			this.row = row;
+			this.keys = new int[row.length];
+		}
+
+		public int run(int i) {
+			ColorKey.get(order, isAscending).load(row, 0, row.length, keys);
+			return keys[i % keys.length];
+		}
+	}
+
+	static int[] makeRow(int length) {
+		SeededRandom rand = new SeededRandom(SorterBenchmark.INPUT_SEED);
+		int[] row = new int[length];
+		for (int i = 0; i < length; i++) {
+			row[i] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		return row;
+	}
+
+	/**
+	 * The sort key calculation from AbstractColorSorter.sortKey() before ColorKey.
+	 */
+	static int switchKey(CompOrder compOrder, boolean isAscendingSort, int argb, float[] hsb) {
+		int r = (argb >> 16) & 0xFF;
+		int g = (argb >> 8) & 0xFF;
+		int b = argb & 0xFF;
+		int key = argb;
+		switch(compOrder) {
+		case RGB: {
+			break;
+		}
+		case BRG: {
+			key = AbstractColorSorter.composeColor(b, r, g, 255);
+			break;
+		}
+		case GBR: {
+			key = AbstractColorSorter.composeColor(g, b, r, 255);
+			break;
+		}
+		case GRB: {
+			key = AbstractColorSorter.composeColor(g, r, b, 255);
+			break;
+		}
+		case BGR: {
+			key = AbstractColorSorter.composeColor(b, g, r, 255);
+			break;
+		}
+		case RBG: {
+			key = AbstractColorSorter.composeColor(r, b, g, 255);
+			break;
+		}
+		default: {
+			Color.RGBtoHSB(r, g, b, hsb);
+			int hue = Math.round(hsb[0] * 255);
+			int sat = Math.round(hsb[1] * 255);
+			int bright = Math.round(hsb[2] * 255);
+			switch(compOrder) {
+			case HSB: { key = AbstractColorSorter.composeColor(hue, sat, bright, 255); break; }
+			case HBS: { key = AbstractColorSorter.composeColor(hue, bright, sat, 255); break; }
+			case BHS: { key = AbstractColorSorter.composeColor(bright, hue, sat, 255); break; }
+			case SHB: { key = AbstractColorSorter.composeColor(sat, hue, bright, 255); break; }
+			case BSH: { key = AbstractColorSorter.composeColor(bright, sat, hue, 255); break; }
+			case SBH: { key = AbstractColorSorter.composeColor(sat, bright, hue, 255); break; }
+			default: break;
+			}
+		}
+		}
+		if (isAscendingSort) return ~key;
+		return key;
+	}
+
+}
@@ -0,0 +1,186 @@
+package net.paulhertz.glitchsort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Times PixelRotator against the row by row loops that GlitchEngine.rotateRight(), rotateLeft()
+ * and rotate() used before it (copied here as naive()), on images of 1 to 100 megapixels.
+ * The paths are naive, the old loops; tiled, PixelRotator in the calling thread; parallel,
+ * PixelRotator in the common ForkJoinPool; and inplace, PixelRotator.rotateInPlace(), which is
+ * left out for quarter turns of an image that isn't square. Before timing, every path is checked
+ * for identical pixels against naive() for all eight orientations over a range of small shapes.
+ * Two images of 100 megapixels take 800MB, so run with -Xmx2g or more.
+ * Parameters, each a comma separated list, and their defaults:
+ * <pre>
+ *   mp=1,10,100                           megapixels in the image
+ *   shape=square,wide                     square, or 3:2 landscape
+ *   turn=R90,R180,R270                    Orientation values
+ *   path=naive,tiled,parallel,inplace     ways to turn the image
+ *   warmup=2 iterations=5 time=100        see Bench
+ * </pre>
+ */
+public class RotateBenchmark {
+
+	public static void main(String[] args) {
+		Bench.Params params = new Bench.Params(args);
+		Bench bench = new Bench(params);
+		String[] mps = params.get("mp", "1", "10", "100");
+		String[] shapes = params.get("shape", "square", "wide");
+		List<Orientation> turns = new ArrayList<Orientation>();
+		for (String name : params.get("turn", "R90", "R180", "R270")) turns.add(Orientation.valueOf(name.toUpperCase()));
+		String[] paths = params.get("path", "naive", "tiled", "parallel", "inplace");
+		check();
+		System.out.println("mp\tshape\twidth\theight\tturn\tpath\tns/op\terror\tns/pixel");
+		for (String mp : mps) {
+			for (String shape : shapes) {
+				int n = (int) (Double.parseDouble(mp) * 1000000);
+				int w, h;
+				if ("square".equals(shape)) {
+					w = (int) Math.sqrt(n);
+					h = w;
+				}
+				else {
+					h = (int) Math.sqrt(n * 2 / 3.0);
+					w = h * 3 / 2;
+				}
+				int[] pixels = makeImage(w * h);
+				int[] out = new int[w * h];
+				for (Orientation turn : turns) {
+					for (String path : paths) {
+						if ("inplace".equals(path) && turn.isTransposed() && w != h) continue;
+						Bench.Result r = bench.measure(new RotateOp(path, pixels, w, h, turn, out));
+						System.out.println(mp +"\t"+ shape +"\t"+ w +"\t"+ h +"\t"+ turn +"\t"+ path +"\t"+ r
+								+"\t"+ String.format(Locale.US, "%.2f", r.mean / (w * h)));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Throws an exception if any path gives pixels that differ from naive() for any orientation and shape tested.
+	 */
+	static void check() {
+		int[] sizes = {1, 2, 3, 63, 64, 65, 127, 130, 257, 600};
+		for (int w : sizes) {
+			for (int h : sizes) {
+				int[] pixels = makeImage(w * h);
+				for (Orientation o : Orientation.values()) {
+					int[] expected = naive(pixels, w, h, o);
+					int[] out = new int[w * h];
+					PixelRotator.rotate(pixels, w, h, o, out, false);
+					if (!Arrays.equals(expected, out)) fail("tiled", o, w, h);
+					Arrays.fill(out, 0);
+					PixelRotator.rotate(pixels, w, h, o, out, true);
+					if (!Arrays.equals(expected, out)) fail("parallel", o, w, h);
+					for (int p = 0; p < 2; p++) {
+						int[] copy = pixels.clone();
+						if (PixelRotator.rotateInPlace(copy, w, h, o, 1 == p)) {
+							if (!Arrays.equals(expected, copy)) fail(1 == p ? "parallel inplace" : "inplace", o, w, h);
+						}
+						else if (!o.isTransposed() || w == h) {
+							fail("inplace refused", o, w, h);
+						}
+					}
+				}
+			}
+		}
+		System.out.println("tiled, parallel and in place rotation are identical to row by row rotation for all orientations");
+	}
+
+	static void fail(String path, Orientation o, int w, int h) {
+		throw new IllegalStateException(path +" pixels differ for "+ o +" of "+ w +" x "+ h);
+	}
+
+	static class RotateOp implements Bench.Op {
+		String path;
+		int[] pixels;
+		int width;
+		int height;
+		Orientation turn;
+		int[] out;
+
+		RotateOp(String path, int[] pixels, int width, int height, Orientation turn, int[] out) {
+			this.path = path;
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.turn = turn;
+			this.out = out;
+		}
+
+		public int run(int i) {
+			if ("naive".equals(path)) {
+				return naive(pixels, width, height, turn)[i % pixels.length];
+			}
+			if ("tiled".equals(path)) {
+				PixelRotator.rotate(pixels, width, height, turn, out, false);
+				return out[i % out.length];
+			}
+			if ("parallel".equals(path)) {
+				PixelRotator.rotate(pixels, width, height, turn, out, true);
+				return out[i % out.length];
+			}
+			// turning a square image in place over and over leaves it square, and a half turn keeps any shape
+			PixelRotator.rotateInPlace(pixels, width, height, turn);
+			return pixels[i % pixels.length];
+		}
+	}
+
+	static int[] makeImage(int n) {
+		SeededRandom rand = new SeededRandom(SorterBenchmark.INPUT_SEED);
+		int[] pixels = new int[n];
+		for (int i = 0; i < n; i++) {
+			pixels[i] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		return pixels;
+	}
+
+	/**
+	 * The rotations from GlitchEngine before PixelRotator: rotateRight(), rotateLeft(), the half turn
+	 * of rotate() and, for flips, the loop of Orientation.materialize().
+	 */
+	static int[] naive(int[] pixels, int width, int height, Orientation o) {
+		int[] rotated = new int[width * height];
+		int i = 0;
+		if (Orientation.R0 == o) {
+			System.arraycopy(pixels, 0, rotated, 0, pixels.length);
+		}
+		else if (Orientation.R90 == o) {
+			for (int ry = 0; ry < width; ry++) {
+				for (int rx = 0; rx < height; rx++) {
+					rotated[i++] = pixels[(height - 1 - rx) * width + ry];
+				}
+			}
+		}
+		else if (Orientation.R180 == o) {
+			int n = width * height;
+			for (i = 0; i < n; i++) {
+				rotated[i] = pixels[n - 1 - i];
+			}
+		}
+		else if (Orientation.R270 == o) {
+			for (int ry = width - 1; ry >= 0; ry--) {
+				for (int rx = height - 1; rx >= 0; rx--) {
+					rotated[i++] = pixels[(height - 1 - rx) * width + ry];
+				}
+			}
+		}
+		else {
+			int w = o.width(width, height);
+			int h = o.height(width, height);
+			int xs = o.xStride(width);
+			int ys = o.yStride(width);
+			for (int y = 0, row = o.origin(width, height); y < h; y++, row += ys) {
+				for (int x = 0, p = row; x < w; x++, p += xs) {
+					rotated[i++] = pixels[p];
+				}
+			}
+		}
+		return rotated;
+	}
+
+}
@@ -0,0 +1,74 @@
+package net.paulhertz.glitchsort;
+
+import java.util.List;
+import java.util.Locale;
+
+import net.paulhertz.glitchsort.SorterBenchmark.Shape;
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Compares the gap sequences in ShellGaps by the number of comparisons shell sort makes 
+ * and the time it takes. Parameters, each a comma separated list, and their defaults:
+ * <pre>
+ *   gaps=RATIO,CIURA,TOKUDA,SEDGEWICK,PRATT   all GapSequence values
+ *   ratio=3:9                                 ratio:divisor pairs for RATIO, such as ratio=2:3,3:9,8:13
+ *   order=RGB                                 CompOrder values
+ *   break=off                                 no random breaks, the shell sorter's default breakPoint, or a number
+ *   length=1024,4096,16384                    number of pixels in a row
+ *   shape=PHOTO,RANDOM,SORTED,REVERSE         kind of input row, see SorterBenchmark
+ *   warmup=2 iterations=5 time=100            see Bench
+ * </pre>
+ * Comparisons are counted for one sort of the row, with the same random numbers 
+ * as the first timed sort.
+ */
+public class ShellBenchmark {
+
+	public static void main(String[] args) {
+		Bench.Params params = new Bench.Params(args);
+		Bench bench = new Bench(params);
+		List<GapSequence> seqs = params.getEnums("gaps", GapSequence.class);
+		String[] orders = params.get("order", "RGB");
+		List<Shape> shapes = params.getEnums("shape", Shape.class);
+		String[] ratios = params.get("ratio", "3:9");
+		String[] breaks = params.get("break", "off");
+		String[] lengths = params.get("length", "1024", "4096", "16384");
+		SortSelector selector = new SortSelector();
+		SortSelector.ShellSorter shell = selector.getShell();
+		float defaultBreakPoint = shell.getBreakPoint();
+		System.out.println("gaps\tratio\torder\tbreak\tlength\tshape\tcomparisons\tns/op\terror\tns/pixel");
+		for (GapSequence seq : seqs) {
+			for (String ratio : GapSequence.RATIO == seq ? ratios : new String[] {"-"}) {
+				if (GapSequence.RATIO == seq) {
+					String[] rd = ratio.split(":");
+					shell.setRatio(Integer.parseInt(rd[0]));
+					shell.setDivisor(Integer.parseInt(rd[1]));
+				}
+				shell.setGapSequence(seq);
+				for (String order : orders) {
+					for (String brk : breaks) {
+						for (String len : lengths) {
+							for (Shape shape : shapes) {
+								shell.setCompOrder(CompOrder.valueOf(order.toUpperCase()));
+								shell.setAscendingSort(false);
+								shell.setSwapChannels(false);
+								shell.setRandomBreak(!"off".equals(brk));
+								shell.setBreakPoint("default".equals(brk) || "off".equals(brk)
+										? defaultBreakPoint : Float.parseFloat(brk));
+								int length = Integer.parseInt(len);
+								int[] input = SorterBenchmark.makeRow(selector, shell, shape, length);
+								SorterBenchmark.SortOp op = new SorterBenchmark.SortOp(shell, input);
+								shell.resetCounts();
+								op.run(0);
+								long comparisons = shell.count;
+								Bench.Result r = bench.measure(op);
+								System.out.println(seq +"\t"+ ratio +"\t"+ order +"\t"+ brk +"\t"+ length +"\t"+ shape +"\t"
+										+ comparisons +"\t"+ r +"\t"+ String.format(Locale.US, "%.2f", r.mean / length));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
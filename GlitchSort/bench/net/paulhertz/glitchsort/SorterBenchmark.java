@@ -0,0 +1,159 @@
+package net.paulhertz.glitchsort;
+
+import java.util.List;
+import java.util.Locale;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Benchmarks the sorters in SortSelector on single rows of pixels, with no Processing window.
+ * Parameters, each a comma separated list, and their defaults:
+ * <pre>
+ *   sorter=QUICK,SHELL,BUBBLE,INSERT,...   all SorterType values
+ *   order=RGB,...,BSH                      all 12 CompOrder values
+ *   asc=false,true                         descending and ascending sorts
+ *   swap=false,true                        isSwapChannels, swapping RG
+ *   break=off,default                      no random breaks, the sorter's default breakPoint, or a number
+ *   length=256,1024,4096,16384             number of pixels in a row
+ *   shape=PHOTO,RANDOM,SORTED,REVERSE      kind of input row
+ *   warmup=2 iterations=5 time=100         see Bench
+ * </pre>
+ * For example, from the project directory after Eclipse has compiled it to bin:
+ * <pre>
+ *   java -cp bin:core.jar net.paulhertz.glitchsort.SorterBenchmark sorter=QUICK,SHELL order=HSB length=4096
+ * </pre>
+ * All input is generated from fixed seeds, and each sort gets the same stream of random
+ * numbers for breaks on every run, so runs can be compared with each other.
+ * Output is tab separated, one line per combination of parameters.
+ */
+public class SorterBenchmark {
+	/** seed for input rows */
+	static final long INPUT_SEED = 20130606L;
+	/** seed for random breaks */
+	static final long BREAK_SEED = 42L;
+	/** for the waves in PHOTO rows */
+	static final float PI2 = (float) (2 * Math.PI);
+
+	/** kinds of input row */
+	enum Shape {
+		/** smooth gradients with a little noise, like a row of a photograph */
+		PHOTO,
+		/** uniformly random colors */
+		RANDOM,
+		/** already sorted by the sorter's settings */
+		SORTED,
+		/** sorted by the sorter's settings and then reversed */
+		REVERSE;
+	}
+
+	public static void main(String[] args) {
+		Bench.Params params = new Bench.Params(args);
+		Bench bench = new Bench(params);
+		List<SorterType> sorters = params.getEnums("sorter", SorterType.class);
+		List<CompOrder> orders = params.getEnums("order", CompOrder.class);
+		List<Shape> shapes = params.getEnums("shape", Shape.class);
+		String[] ascs = params.get("asc", "false", "true");
+		String[] swaps = params.get("swap", "false", "true");
+		String[] breaks = params.get("break", "off", "default");
+		String[] lengths = params.get("length", "256", "1024", "4096", "16384");
+		SortSelector selector = new SortSelector();
+		System.out.println("sorter\torder\tasc\tswap\tbreak\tlength\tshape\tns/op\terror\tns/pixel");
+		for (SorterType type : sorters) {
+			selector.setSorter(type);
+			AbstractColorSorter sorter = selector.sorter;
+			float defaultBreakPoint = sorter.getBreakPoint();
+			for (CompOrder order : orders) {
+				for (String asc : ascs) {
+					for (String swap : swaps) {
+						for (String brk : breaks) {
+							for (String len : lengths) {
+								for (Shape shape : shapes) {
+									sorter.setCompOrder(order);
+									sorter.setAscendingSort(Boolean.parseBoolean(asc));
+									sorter.setSwapChannels(Boolean.parseBoolean(swap));
+									sorter.setSwap(SwapChannel.RG);
+									sorter.setRandomBreak(!"off".equals(brk));
+									sorter.setBreakPoint("default".equals(brk) || "off".equals(brk)
+											? defaultBreakPoint : Float.parseFloat(brk));
+									int length = Integer.parseInt(len);
+									int[] input = makeRow(selector, sorter, shape, length);
+									Bench.Result r = bench.measure(new SortOp(sorter, input));
+									System.out.println(type +"\t"+ order +"\t"+ asc +"\t"+ swap +"\t"+ brk +"\t"+ length +"\t"
+											+ shape +"\t"+ r +"\t"+ String.format(Locale.US, "%.2f", r.mean / length));
+								}
+							}
+						}
+					}
+				}
+			}
+			sorter.setBreakPoint(defaultBreakPoint);
+		}
+	}
+
+	/**
+	 * Sorts a fresh copy of the input row, with the same random numbers for breaks for every call.
+	 */
+	static class SortOp implements Bench.Op {
+		AbstractColorSorter sorter;
+		int[] input;
+		int[] row;
+		RandomSource rand = new SeededRandom(BREAK_SEED);
+
+		SortOp(AbstractColorSorter sorter, int[] input) {
+			this.sorter = sorter;
+			this.input = input;
+			this.row = new int[input.length];
+		}
+
+		public int run(int i) {
+			System.arraycopy(input, 0, row, 0, row.length);
+			sorter.setRandom(rand.stream(i & 1023));
+			sorter.sort(row);
+			return row[0] ^ row[row.length - 1];
+		}
+	}
+
+	/**
+	 * Makes an input row. SORTED and REVERSE rows are sorted with the sorter's component order
+	 * and direction, without breaks or channel swapping.
+	 */
+	static int[] makeRow(SortSelector selector, AbstractColorSorter sorter, Shape shape, int length) {
+		SeededRandom rand = new SeededRandom(INPUT_SEED + length);
+		int[] row = new int[length];
+		if (Shape.PHOTO == shape) {
+			// a few overlapping waves per channel, as in a row of a photograph, plus some grain
+			float fr = rand.random(2, 12) * PI2 / length, fg = rand.random(2, 12) * PI2 / length;
+			float fb = rand.random(2, 12) * PI2 / length, fd = rand.random(20, 60) * PI2 / length;
+			for (int x = 0; x < length; x++) {
+				float detail = 24 * (float) Math.sin(x * fd);
+				int r = clamp(128 + 90 * Math.sin(x * fr) + detail + rand.random(-8, 8));
+				int g = clamp(128 + 90 * Math.sin(x * fg + 1) + detail + rand.random(-8, 8));
+				int b = clamp(128 + 90 * Math.sin(x * fb + 2) + detail + rand.random(-8, 8));
+				row[x] = AbstractColorSorter.composeColor(r, g, b, 255);
+			}
+			return row;
+		}
+		for (int x = 0; x < length; x++) {
+			row[x] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		if (Shape.RANDOM == shape) return row;
+		AbstractColorSorter radix = selector.getRadix();
+		radix.setCompOrder(sorter.getCompOrder());
+		radix.setAscendingSort(sorter.isAscendingSort());
+		radix.setRandomBreak(false);
+		radix.sort(row);
+		if (Shape.REVERSE == shape) {
+			for (int i = 0, j = length - 1; i < j; i++, j--) {
+				int t = row[i];
+				row[i] = row[j];
+				row[j] = t;
+			}
+		}
+		return row;
+	}
+
+	static int clamp(double v) {
+		return v < 0 ? 0 : v > 255 ? 255 : (int) v;
+	}
+
+}
@@ -3,7 +3,8 @@
  */
 package net.paulhertz.glitchsort;
 
-import processing.core.*;
+import java.util.Arrays;
+
 import net.paulhertz.glitchsort.constants.*;
 
 /**
@@ -18,138 +19,110 @@ public abstract class AbstractColorSorter implements Sorter {
 	SorterType sorterType;
 	public CompOrder compOrder = CompOrder.RGB;
 	public SwapChannel swap;
+	/** number of comparisons since the last call to resetCounts() */
 	public long count = 0;
+	/** number of exchanges since the last call to resetCounts(), including those that swapped channels */
+	public long exchCount = 0;
+	/** number of exchanges that swapped channels since the last call to resetCounts() */
+	public long swapCount = 0;
+	/** number of random breaks since the last call to resetCounts() */
+	public long breakCount = 0;
 	int testV = 0;
 	int testW = 0;
-	int[] compV;
-	int[] compW;
-	private PApplet app;
+	/** the first pixel in the most recent comparison, used by exch() to swap channels */
+	int compV;
+	/** the second pixel in the most recent comparison, used by exch() to swap channels */
+	int compW;
+	/** sort keys for the pixels being sorted, keys[0] is the key for the pixel at keyBase */
+	int[] keys;
+	/** index of the first pixel in the array being sorted */
+	int keyBase;
+	/** number of steps until the next break, see breakTest() */
+	long breakCountdown;
+	/** natural log of the probability of not breaking at a step, 0 if breaks never happen */
+	double breakLog;
+	/** source of random numbers for breakTest() */
+	RandomSource random = new SeededRandom();
+	/** true if arrays SortingNetwork can handle should be sorted by a network, when channels are not swapped */
+	boolean isNetworkSort = false;
+	/** keys and pixels packed together for a network sort */
+	long[] packed;
+	/** a live sort this sorter is running for, which can pause it at checkpoints, null if the sort runs straight through */
+	LiveSort liveSort;
+	/** records changes to the pixels being sorted, null if they are not recorded */
+	ExchangeLog exchangeLog;
+	/** pixels of a line gathered from an image, see sortStrided() and sortBlock() */
+	int[] linePixels;
 	
-	public AbstractColorSorter(PApplet app) {
-		this.app = app;
+	public AbstractColorSorter() {
 	}
 	
 	// permits many different evaluations of the color values of two pixels.
-	// could be optimized, but then it would be harder to understand
+	// sorters compare precomputed keys with lessAt(), this method is for comparing arbitrary values
 	public boolean less(int v, int w) { 
-	    compV = rgbComponents(v);
-	    compW = rgbComponents(w);
-	    testV = v;
-	    testW = w;
-		switch(compOrder) {
-		case RGB: {
-			break;
-		}
-		case BRG: {
-			testV = composeColor(compV[2], compV[0], compV[1], 255);
-			testW = composeColor(compW[2], compW[0], compW[1], 255);
-			break;
-		}
-		case GBR: {
-			testV = composeColor(compV[1], compV[2], compV[0], 255);
-			testW = composeColor(compW[1], compW[2], compW[0], 255);
-			break;
-		}
-		case GRB: {
-			testV = composeColor(compV[1], compV[0], compV[2], 255);
-			testW = composeColor(compW[1], compW[0], compW[2], 255);
-			break;
-		}
-		case BGR: {
-			testV = composeColor(compV[2], compV[1], compV[0], 255);
-			testW = composeColor(compW[2], compW[1], compW[0], 255);
-			break;
-		}
-		case RBG: {
-			testV = composeColor(compV[0], compV[2], compV[1], 255);
-			testW = composeColor(compW[0], compW[2], compW[1], 255);
-			break;
-		}
-		case HSB: {
-			app.colorMode(PApplet.HSB, 255);
-			int hueV = Math.round(app.hue(v));
-			int brightV = Math.round(app.brightness(v));
-			int satV = Math.round(app.saturation(v));
-			int hueW = Math.round(app.hue(w));
-			int brightW = Math.round(app.brightness(w));
-			int satW = Math.round(app.saturation(w));
-			testV = composeColor(hueV, satV, brightV, 255);
-			testW = composeColor(hueW, satW, brightW, 255);
-			app.colorMode(PApplet.RGB, 255);
-			break;
-		}
-		case HBS: {
-			app.colorMode(PApplet.HSB, 255);
-			int hueV = Math.round(app.hue(v));
-			int brightV = Math.round(app.brightness(v));
-			int satV = Math.round(app.saturation(v));
-			int hueW = Math.round(app.hue(w));
-			int brightW = Math.round(app.brightness(w));
-			int satW = Math.round(app.saturation(w));
-			testV = composeColor(hueV, brightV, satV, 255);
-			testW = composeColor(hueW, brightW, satW, 255);
-			app.colorMode(PApplet.RGB, 255);
-			break;
-		}
-		case BHS: {
-			app.colorMode(PApplet.HSB, 255);
-			int hueV = Math.round(app.hue(v));
-			int brightV = Math.round(app.brightness(v));
-			int satV = Math.round(app.saturation(v));
-			int hueW = Math.round(app.hue(w));
-			int brightW = Math.round(app.brightness(w));
-			int satW = Math.round(app.saturation(w));
-			testV = composeColor(brightV, hueV, satV, 255);
-			testW = composeColor(brightW, hueW, satW, 255);
-			app.colorMode(PApplet.RGB, 255);
-			break;
-		}
-		case SHB: {
-			app.colorMode(PApplet.HSB, 255);
-			int hueV = Math.round(app.hue(v));
-			int brightV = Math.round(app.brightness(v));
-			int satV = Math.round(app.saturation(v));
-			int hueW = Math.round(app.hue(w));
-			int brightW = Math.round(app.brightness(w));
-			int satW = Math.round(app.saturation(w));
-			testV = composeColor(satV, hueV, brightV, 255);
-			testW = composeColor(satW, hueW, brightW, 255);
-			app.colorMode(PApplet.RGB, 255);
-			break;
-		}
-		case BSH: {
-			app.colorMode(PApplet.HSB, 255);
-			int hueV = Math.round(app.hue(v));
-			int brightV = Math.round(app.brightness(v));
-			int satV = Math.round(app.saturation(v));
-			int hueW = Math.round(app.hue(w));
-			int brightW = Math.round(app.brightness(w));
-			int satW = Math.round(app.saturation(w));
-			testV = composeColor(brightV, satV, hueV, 255);
-			testW = composeColor(brightW, satW, hueW, 255);
-			app.colorMode(PApplet.RGB, 255);
-			break;
-		}
-		case SBH: {
-			app.colorMode(PApplet.HSB, 255);
-			int hueV = Math.round(app.hue(v));
-			int brightV = Math.round(app.brightness(v));
-			int satV = Math.round(app.saturation(v));
-			int hueW = Math.round(app.hue(w));
-			int brightW = Math.round(app.brightness(w));
-			int satW = Math.round(app.saturation(w));
-			testV = composeColor(satV, brightV, hueV, 255);
-			testW = composeColor(satW, brightW, hueW, 255);
-			app.colorMode(PApplet.RGB, 255);
-			break;
-		}
-		}
+	    compV = v;
+	    compW = w;
+	    testV = sortKey(v);
+	    testW = sortKey(w);
 		count++;			
-		if (isAscendingSort) return testV > testW;
 		return testV < testW;
-		// return v < w; 
 	} 
 	
+	/**
+	 * Compares the pixels at two indices in an array using the keys precomputed by loadKeys().
+	 * Only valid while a sort is in progress.
+	 * @param a   the array being sorted
+	 * @param i   index of the first pixel
+	 * @param j   index of the second pixel
+	 * @return    true if the first pixel sorts before the second
+	 */
+	boolean lessAt(int[] a, int i, int j) {
+		if (isSwapChannels) {
+			// exch() needs the colors of the most recently compared pixels
+			compV = a[i];
+			compW = a[j];
+		}
+		count++;
+		return keys[i - keyBase] < keys[j - keyBase];
+	}
+	
+	/**
+	 * Compares two precomputed keys, for sorters that hold a pixel and its key outside the array.
+	 * @param kv   key of the first pixel
+	 * @param kw   key of the second pixel
+	 * @return     true if the first key sorts before the second
+	 */
+	boolean lessKey(int kv, int kw) {
+		count++;
+		return kv < kw;
+	}
+	
+	/**
+	 * Calculates a sort key for a pixel, using the current component order and sort direction.
+	 * The key is the pixel's components packed in compOrder, so comparing two keys as ints
+	 * gives the same result as comparing the two colors component by component. For ascending 
+	 * sorts, bits are inverted, so that sorters can always test key(v) < key(w). See ColorKey.
+	 * @param argb   a Processing color
+	 * @return       a sort key for argb 
+	 */
+	public int sortKey(int argb) {
+		return ColorKey.get(compOrder, isAscendingSort).key(argb);
+	}
+	
+	/**
+	 * Calculates sort keys for the pixels from a[l] to a[r], once per sort instead of once per comparison.
+	 * The ColorKey for the component order and direction is chosen once, for all the pixels.
+	 * @param a   an array of pixels
+	 * @param l   the left (lower) index
+	 * @param r   the right (upper) index
+	 */
+	public void loadKeys(int[] a, int l, int r) {
+		int n = r - l + 1;
+		if (null == keys || keys.length < n) keys = new int[n];
+		keyBase = l;
+		ColorKey.get(compOrder, isAscendingSort).load(a, l, n, keys);
+	}
+	
 	/**
 	 * Breaks a Processing color into R, G and B values in an array.
 	 * @param argb   a Processing color as a 32-bit integer 
@@ -189,71 +162,220 @@ public abstract class AbstractColorSorter implements Sorter {
 	
 	public void exch(int[] a, int i, int j) { 
 		if (isSwapChannels) {
+			exchCount++;
+			swapCount++;
+			// unpack the colors of the last two pixels compared, without allocating arrays
+			int vr = (compV >> 16) & 0xFF, vg = (compV >> 8) & 0xFF, vb = compV & 0xFF;
+			int wr = (compW >> 16) & 0xFF, wg = (compW >> 8) & 0xFF, wb = compW & 0xFF;
 			switch (swap) {
 			case RR: {
-				a[i] = composeColor(compW[0], compV[1], compV[2], 255);
-				a[j] = composeColor(compV[0], compW[1], compW[2], 255);
+				a[i] = composeColor(wr, vg, vb, 255);
+				a[j] = composeColor(vr, wg, wb, 255);
 				break;
 			}
 			case RG: {
-				a[i] = composeColor(compW[1], compV[1], compV[2], 255);
-				a[j] = composeColor(compW[0], compV[0], compW[2], 255);
+				a[i] = composeColor(wg, vg, vb, 255);
+				a[j] = composeColor(wr, vr, wb, 255);
 				break;
 			}
 			case RB: {
-				a[i] = composeColor(compW[2], compV[1], compV[2], 255);
-				a[j] = composeColor(compW[0], compW[1], compV[0], 255);
+				a[i] = composeColor(wb, vg, vb, 255);
+				a[j] = composeColor(wr, wg, vr, 255);
 				break;
 			}
 			case GR: {
-				a[i] = composeColor(compV[0], compW[0], compV[2], 255);
-				a[j] = composeColor(compV[1], compW[1], compW[2], 255);
+				a[i] = composeColor(vr, wr, vb, 255);
+				a[j] = composeColor(vg, wg, wb, 255);
 				break;
 			}
 			case GG: {
-				a[i] = composeColor(compV[0], compW[1], compV[2], 255);
-				a[j] = composeColor(compW[0], compV[1], compW[2], 255);
+				a[i] = composeColor(vr, wg, vb, 255);
+				a[j] = composeColor(wr, vg, wb, 255);
 				break;
 			}
 			case GB: {
-				a[i] = composeColor(compV[0], compW[2], compV[2], 255);
-				a[j] = composeColor(compW[0], compW[1], compV[1], 255);
+				a[i] = composeColor(vr, wb, vb, 255);
+				a[j] = composeColor(wr, wg, vg, 255);
 				break;
 			}
 			case BR: {
-				a[i] = composeColor(compV[0], compV[1], compW[0], 255);
-				a[j] = composeColor(compV[2], compW[1], compW[2], 255);
+				a[i] = composeColor(vr, vg, wr, 255);
+				a[j] = composeColor(vb, wg, wb, 255);
 				break;
 			}
 			case BG: {
-				a[i] = composeColor(compV[0], compV[1], compV[2], 255);
-				a[j] = composeColor(compW[0], compW[1], compW[2], 255);
+				a[i] = composeColor(vr, vg, vb, 255);
+				a[j] = composeColor(wr, wg, wb, 255);
 				break;
 			}
 			case BB: {
-				a[i] = composeColor(compV[0], compV[1], compW[1], 255);
-				a[j] = composeColor(compW[0], compW[2], compV[2], 255);
+				a[i] = composeColor(vr, vg, wg, 255);
+				a[j] = composeColor(wr, wb, vb, 255);
 				break;
 			}
 			}
+			// swapping channels changes the colors, so the keys have to be recalculated
+			keys[i - keyBase] = sortKey(a[i]);
+			keys[j - keyBase] = sortKey(a[j]);
+			if (null != exchangeLog) {
+				exchangeLog.set(i, a[i]);
+				exchangeLog.set(j, a[j]);
+			}
 		}
 		else {
 //			the following two lines should also be equivalent to a swap
-/*				a[i] = composeColor(compV[0], compV[1], compV[2], 255);
-			a[j] = composeColor(compW[0], compW[1], compW[2], 255)
+/*				a[i] = composeColor(vr, vg, vb, 255);
+			a[j] = composeColor(wr, wg, wb, 255)
 */				 // swap
-			int t = a[i]; 
-			a[i] = a[j]; 
-			a[j] = t; 
+			swapPixels(a, i, j);
 		}
 	} 
+	
+	/**
+	 * Swaps two pixels and their keys, without swapping channels.
+	 */
+	public void swapPixels(int[] a, int i, int j) {
+		exchCount++;
+		int t = a[i]; 
+		a[i] = a[j]; 
+		a[j] = t; 
+		t = keys[i - keyBase];
+		keys[i - keyBase] = keys[j - keyBase];
+		keys[j - keyBase] = t;
+		if (null != exchangeLog) exchangeLog.swap(i, j);
+	}
 
 	public void compExch(int[] a, int i, int j) { 
-		if (less(a[j], a[i])) exch (a, i, j); 
+		if (lessAt(a, j, i)) exch (a, i, j); 
 	} 
 	
-	// this method is different for each algorithm
-	public abstract void sort(int[] a, int l, int r);
+	// loads the sort keys for the range, then sorts it
+	public void sort(int[] a, int l, int r) {
+		if (r <= l) return;
+		checkpoint();
+		boolean isNetwork = isNetworkSort && !isSwapChannels && SortingNetwork.isNetworkSize(r - l + 1);
+		// sorters that don't write pixels in place have their changes found afterwards
+		int[] before = null != exchangeLog && (isNetwork || !isLoggingInPlace()) ? Arrays.copyOfRange(a, l, r + 1) : null;
+		if (isNetwork) {
+			networkSort(a, l, r);
+		}
+		else {
+			loadKeys(a, l, r);
+			if (isRandomBreak) resetBreaks();
+			sortRange(a, l, r);
+		}
+		if (null != before) exchangeLog.setChanged(a, before, l);
+	}
+	
+	/**
+	 * @return true if sortRange() records all its changes to the pixels in exchangeLog as it makes them, 
+	 *         through exch() and swapPixels() or on its own; false for sorters that work in other arrays
+	 */
+	boolean isLoggingInPlace() {
+		return true;
+	}
+	
+	// this method is different for each algorithm, it can assume the keys for a[l..r] are loaded
+	protected abstract void sortRange(int[] a, int l, int r);
+
+	/**
+	 * Sorts a[l..r] with a sorting network, much faster than the other sorters for small arrays, 
+	 * such as zigzag blocks. A random break stops the network after the current layer.
+	 */
+	void networkSort(int[] a, int l, int r) {
+		int n = r - l + 1;
+		SortingNetwork net = SortingNetwork.get(n);
+		if (null == packed || packed.length < n) packed = new long[SortingNetwork.MAX_SIZE];
+		long[] v = packed;
+		ColorKey ck = ColorKey.get(compOrder, isAscendingSort);
+		for (int i = 0; i < n; i++) {
+			v[i] = SortingNetwork.pack(ck.key(a[l + i]), a[l + i]);
+		}
+		int stop = net.layerCount();
+		if (isRandomBreak) {
+			resetBreaks();
+			for (int layer = 1; layer < stop; layer++) {
+				if (breakTest()) {
+					stop = layer;
+					break;
+				}
+			}
+		}
+		net.sort(v, stop);
+		count += net.layers[stop] / 2;
+		for (int i = 0; i < n; i++) {
+			a[l + i] = (int) v[i];
+		}
+	}
+
+	/**
+	 * Sorts the pixels of a block of an image, rows pixels high and cols pixels wide, as if they 
+	 * were one array, read row by row, see PixelView. The sorters work on consecutive array elements 
+	 * in their inner loops, so the pixels are gathered into an array this sorter keeps for the purpose, 
+	 * sorted there and written back, with no allocation once the array is big enough. Changes are 
+	 * recorded in exchangeLog, if there is one, as the pixels are written back.
+	 * @param pixels    an array of pixels
+	 * @param corner    index of the upper left pixel of the block
+	 * @param xStride   step from a pixel to the next one in its row, may be negative
+	 * @param yStride   step from a pixel to the one below it, may be negative
+	 * @param cols      width of the block
+	 * @param rows      height of the block
+	 */
+	public void sortBlock(int[] pixels, int corner, int xStride, int yStride, int cols, int rows) {
+		int n = cols * rows;
+		if (n < 2) return;
+		if (null == linePixels || linePixels.length < n) linePixels = new int[n];
+		int[] v = linePixels;
+		for (int y = 0, i = 0; y < rows; y++) {
+			for (int x = 0, p = corner + y * yStride; x < cols; x++, p += xStride) {
+				v[i++] = pixels[p];
+			}
+		}
+		ExchangeLog log = exchangeLog;
+		exchangeLog = null;
+		try {
+			sort(v, 0, n - 1);
+		}
+		finally {
+			exchangeLog = log;
+		}
+		for (int y = 0, i = 0; y < rows; y++) {
+			for (int x = 0, p = corner + y * yStride; x < cols; x++, p += xStride, i++) {
+				if (null != log && pixels[p] != v[i]) log.set(p, v[i]);
+				pixels[p] = v[i];
+			}
+		}
+	}
+
+	/**
+	 * Sorts the pixels at pixels[first], pixels[first + stride] ... count of them, as if they were
+	 * one array, such as a column or a diagonal of an image or a row of a turned image, see PixelView. 
+	 * Like sortBlock(), gathers them into an array, sorts it and writes them back.
+	 * @param pixels   an array of pixels
+	 * @param first    index of the first pixel to sort
+	 * @param stride   step from a pixel to the next, may be negative
+	 * @param count    number of pixels to sort
+	 */
+	public void sortStrided(int[] pixels, int first, int stride, int count) {
+		if (count < 2) return;
+		if (null == linePixels || linePixels.length < count) linePixels = new int[count];
+		int[] v = linePixels;
+		for (int i = 0, p = first; i < count; i++, p += stride) {
+			v[i] = pixels[p];
+		}
+		ExchangeLog log = exchangeLog;
+		exchangeLog = null;
+		try {
+			sort(v, 0, count - 1);
+		}
+		finally {
+			exchangeLog = log;
+		}
+		for (int i = 0, p = first; i < count; i++, p += stride) {
+			if (null != log && pixels[p] != v[i]) log.set(p, v[i]);
+			pixels[p] = v[i];
+		}
+	}
 
 	// this convenience method permits sorting of any arbitrary array of ints
 	public void sort(int[] a) {
@@ -284,8 +406,124 @@ public abstract class AbstractColorSorter implements Sorter {
 		this.breakPoint = breakPoint;
 	}
 	
+	/**
+	 * Returns true if the sort should break at this step. The probability of a break at each step is  
+	 * the probability that a random number in the range 0..1000 is greater than breakPoint. Rather 
+	 * than draw a random number at each step, we draw the number of steps until the next break 
+	 * from the equivalent geometric distribution, and count down.
+	 * @return   true if the sort should break (be interrupted) at this step
+	 */
 	public boolean breakTest() {
-		return (breakPoint < app.random(0, 1000));
+		if (breakCountdown > 0) {
+			breakCountdown--;
+			return false;
+		}
+		breakCountdown = nextBreakCountdown();
+		breakCount++;
+		return true;
+	}
+	
+	/**
+	 * Counts off a run of steps at once, for sorters that take many steps without comparing. 
+	 * Equivalent to calling breakTest() once per step, up to max times, and stopping at the first break.
+	 * @param max   the number of steps the sorter wants to take
+	 * @return      the number of steps to take: if less than max, the sort breaks after that many steps
+	 */
+	public long breakSteps(long max) {
+		if (breakCountdown >= max) {
+			breakCountdown -= max;
+			return max;
+		}
+		long steps = breakCountdown;
+		breakCountdown = nextBreakCountdown();
+		breakCount++;
+		return steps;
+	}
+	
+	/**
+	 * Prepares breakTest() for a new sort, using the current breakPoint and random number source.
+	 */
+	public void resetBreaks() {
+		float p = (1000 - breakPoint) / 1000.0f;
+		if (p <= 0) breakLog = 0;
+		else if (p >= 1) breakLog = Double.NEGATIVE_INFINITY;
+		else breakLog = Math.log1p(-p);
+		breakCountdown = nextBreakCountdown();
+	}
+	
+	/**
+	 * @return   the number of steps without a break before the next break, drawn from a geometric distribution 
+	 */
+	long nextBreakCountdown() {
+		// break probability is 0: never break
+		if (breakLog == 0) return Long.MAX_VALUE;
+		// break probability is 1: break at every step
+		if (breakLog == Double.NEGATIVE_INFINITY) return 0;
+		// uniform random double in (0, 1]
+		double u = ((random.nextLong() >>> 11) + 1) * 0x1.0p-53;
+		double k = Math.floor(Math.log(u) / breakLog);
+		return k >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) k;
+	}
+	
+	/**
+	 * Gives a live sort the chance to pause this sort, see LiveSort. Sorters call this at the top 
+	 * of their outer loops, where the pixels are in a state worth showing.
+	 */
+	void checkpoint() {
+		if (null != liveSort) liveSort.checkpoint();
+	}
+	
+	/**
+	 * @param exchangeLog   log to record changes to the pixels in, or null to stop recording
+	 */
+	public void setExchangeLog(ExchangeLog exchangeLog) {
+		this.exchangeLog = exchangeLog;
+	}
+	
+	/**
+	 * @param liveSort   the live sort this sorter is running for, or null
+	 */
+	public void setLiveSort(LiveSort liveSort) {
+		this.liveSort = liveSort;
+	}
+	
+	/**
+	 * @return the source of random numbers for breakTest()
+	 */
+	public RandomSource getRandom() {
+		return random;
+	}
+
+	/**
+	 * Sets the source of random numbers for breakTest(). Giving each row or block of pixels its own 
+	 * stream makes the breaks independent of the order in which rows or blocks are sorted.
+	 * @param random   the RandomSource to set
+	 */
+	public void setRandom(RandomSource random) {
+		this.random = random;
+	}
+	
+	/**
+	 * Applies the settings in a SortConfig to this sorter. Subclasses with settings of their own 
+	 * (such as ShellSorter) override this method to apply them too.
+	 * @param config   the settings to apply
+	 */
+	public void configure(SortConfig config) {
+		this.isRandomBreak = config.isRandomBreak();
+		this.isSwapChannels = config.isSwapChannels();
+		this.isAscendingSort = config.isAscendingSort();
+		this.breakPoint = config.getBreakPoint();
+		this.compOrder = config.getCompOrder();
+		this.swap = config.getSwap();
+		this.isNetworkSort = config.isNetworkSort();
+	}
+	
+	/**
+	 * @return the settings of this sorter as a SortConfig
+	 */
+	public SortConfig getConfig() {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap)
+				.withNetworkSort(isNetworkSort);
 	}
 
 	/**
@@ -320,6 +558,16 @@ public abstract class AbstractColorSorter implements Sorter {
 		return sorterType;
 	}
 	
+	/**
+	 * Sets the counts of comparisons, exchanges and breaks to zero, see SortMetrics.
+	 */
+	public void resetCounts() {
+		count = 0;
+		exchCount = 0;
+		swapCount = 0;
+		breakCount = 0;
+	}
+	
 	/**
 	 * @return the compOrder
 	 */
@@ -348,5 +596,20 @@ public abstract class AbstractColorSorter implements Sorter {
 		this.swap = swap;
 	}
 
+	/**
+	 * @return true if small power-of-two arrays are sorted with a sorting network
+	 */
+	public boolean isNetworkSort() {
+		return isNetworkSort;
+	}
+
+	/**
+	 * @param isNetworkSort   true if arrays of 2, 4, 8 ... 256 pixels should be sorted with a sorting network, 
+	 *                        unless channels are swapped
+	 */
+	public void setNetworkSort(boolean isNetworkSort) {
+		this.isNetworkSort = isNetworkSort;
+	}
+
 }
 
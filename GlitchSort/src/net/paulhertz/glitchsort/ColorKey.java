@@ -0,0 +1,153 @@
+package net.paulhertz.glitchsort;
+
+import net.paulhertz.glitchsort.constants.CompOrder;
+
+/**
+ * Calculates sort keys for one CompOrder and sort direction. A key is a pixel's color components
+ * packed in the order given by the CompOrder, so comparing two keys as ints gives the same result
+ * as comparing two colors component by component. For ascending sorts all the bits of the key
+ * are inverted, so that sorters can always test key(v) < key(w).
+ * Sorters pick a ColorKey once per sort, with get(), rather than testing compOrder and the sort
+ * direction for every pixel. Each subclass has its own loop in load(), so that the JIT compiler
+ * can inline key() into it. ColorKeys have no state of their own and are shared by all threads.
+ */
+abstract class ColorKey {
+	/** xor'ed with keys: 0 for descending sorts, -1 (all bits set) for ascending sorts */
+	final int flip;
+	/** a ColorKey for each CompOrder and direction, see get() */
+	private static final ColorKey[] colorKeys = new ColorKey[2 * CompOrder.values().length];
+	static {
+		for (CompOrder order : CompOrder.values()) {
+			colorKeys[2 * order.ordinal()] = create(order, false);
+			colorKeys[2 * order.ordinal() + 1] = create(order, true);
+		}
+	}
+
+	ColorKey(boolean isAscending) {
+		this.flip = isAscending ? -1 : 0;
+	}
+
+	/**
+	 * @param order         order of color components for comparing pixels
+	 * @param isAscending   true if the sort is in ascending order
+	 * @return              the ColorKey for order and direction
+	 */
+	static ColorKey get(CompOrder order, boolean isAscending) {
+		return colorKeys[2 * order.ordinal() + (isAscending ? 1 : 0)];
+	}
+
+	private static ColorKey create(CompOrder order, boolean isAscending) {
+		switch (order) {
+		case RGB: return new Identity(isAscending);
+		case RBG: return new Permuted(isAscending, 16, 0, 8);
+		case GBR: return new Permuted(isAscending, 8, 0, 16);
+		case GRB: return new Permuted(isAscending, 8, 16, 0);
+		case BRG: return new Permuted(isAscending, 0, 16, 8);
+		case BGR: return new Permuted(isAscending, 0, 8, 16);
+		case HSB: return new Hsb(isAscending, 0, 1, 2);
+		case HBS: return new Hsb(isAscending, 0, 2, 1);
+		case SBH: return new Hsb(isAscending, 1, 2, 0);
+		case SHB: return new Hsb(isAscending, 1, 0, 2);
+		case BHS: return new Hsb(isAscending, 2, 0, 1);
+		case BSH: return new Hsb(isAscending, 2, 1, 0);
+		default: throw new IllegalArgumentException("unknown CompOrder "+ order);
+		}
+	}
+
+	/**
+	 * @param argb   a Processing color
+	 * @return       the sort key for argb
+	 */
+	abstract int key(int argb);
+
+	/**
+	 * Calculates sort keys for n pixels, keys[i] = key(a[l + i]) for i in 0..n-1.
+	 * @param a      an array of pixels
+	 * @param l      index in a of the first pixel
+	 * @param n      number of pixels
+	 * @param keys   array for the keys, at least n long
+	 */
+	abstract void load(int[] a, int l, int n, int[] keys);
+
+	/**
+	 * RGB order: the key is the pixel itself.
+	 */
+	static final class Identity extends ColorKey {
+		Identity(boolean isAscending) {
+			super(isAscending);
+		}
+
+		@Override
+		int key(int argb) {
+			return argb ^ flip;
+		}
+
+		@Override
+		void load(int[] a, int l, int n, int[] keys) {
+			int f = flip;
+			for (int i = 0; i < n; i++) {
+				keys[i] = a[l + i] ^ f;
+			}
+		}
+	}
+
+	/**
+	 * Other orders of R, G and B: the key is opaque, with the components shifted into place.
+	 */
+	static final class Permuted extends ColorKey {
+		/** shifts that take the first, second and third component to the low byte of an int */
+		final int s1, s2, s3;
+
+		Permuted(boolean isAscending, int s1, int s2, int s3) {
+			super(isAscending);
+			this.s1 = s1;
+			this.s2 = s2;
+			this.s3 = s3;
+		}
+
+		@Override
+		int key(int argb) {
+			return (0xFF000000 | ((argb >> s1) & 0xFF) << 16 | ((argb >> s2) & 0xFF) << 8 | ((argb >> s3) & 0xFF)) ^ flip;
+		}
+
+		@Override
+		void load(int[] a, int l, int n, int[] keys) {
+			for (int i = 0; i < n; i++) {
+				keys[i] = key(a[l + i]);
+			}
+		}
+	}
+
+	/**
+	 * Orders of hue, saturation and brightness, with the same values as PApplet hue(),
+	 * saturation() and brightness() in colorMode(HSB, 255), rounded, from HsbCodec.packHsb().
+	 */
+	static final class Hsb extends ColorKey {
+		/** shifts that take the first, second and third component of a packed HSB int to the low byte */
+		final int s1, s2, s3;
+
+		/**
+		 * @param c1, c2, c3   indexes into {hue, saturation, brightness} of the first, second and third components
+		 */
+		Hsb(boolean isAscending, int c1, int c2, int c3) {
+			super(isAscending);
+			this.s1 = 16 - 8 * c1;
+			this.s2 = 16 - 8 * c2;
+			this.s3 = 16 - 8 * c3;
+		}
+
+		@Override
+		int key(int argb) {
+			int hsb = HsbCodec.packHsb(argb);
+			return (0xFF000000 | ((hsb >> s1) & 0xFF) << 16 | ((hsb >> s2) & 0xFF) << 8 | ((hsb >> s3) & 0xFF)) ^ flip;
+		}
+
+		@Override
+		void load(int[] a, int l, int n, int[] keys) {
+			for (int i = 0; i < n; i++) {
+				keys[i] = key(a[l + i]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,226 @@
+package net.paulhertz.glitchsort;
+
+import java.util.ArrayList;
+
+/**
+ * A command string, such as "tktktktk" or "lstlttt", compiled into steps that do less work than
+ * running its characters one by one and give the same image, for GlitchSort.exec() and GlitchSession.exec().
+ * <ul>
+ * <li>A run of 't' and 'T' becomes one turn step, which turns the image once by the net number of
+ * quarter turns: not at all for "tttt" or "tT", once for "ttt".</li>
+ * <li>Commands that only change settings or print, such as '1', 'a' or 'c', don't care which way the
+ * image is turned, so a run of turns carries on past them and its step comes after them: "t1t" turns
+ * the image once, by half a turn, before the next command that needs it.</li>
+ * <li>A command that backs up the image only copies it if a later command reads the undo buffer
+ * ('z' and 'm') before another command backs up over it. The undo buffer is always kept at the end
+ * of the string, so undo works afterwards.</li>
+ * <li>Turn steps move no pixels: they change the Orientation of the image and the undo buffer.
+ * Sorting, zigzag, FFT and shifts work on the turned image; other commands store it upright first.</li>
+ * <li>GlitchSort refreshes the display once, when the plan is done, not after every command.</li>
+ * </ul>
+ * Every 't' and 'T' still reloads and shuffles the row numbers, as GlitchSession.rotatePixels() does.
+ * That costs a few random numbers per row and no pixel copies, and it keeps the random numbers that
+ * sorting and zigzag draw after the turns, and so the image, the same as when the string runs one
+ * character at a time. A plan is immutable and can be shared by threads.
+ */
+public final class CommandPlan {
+	/** commands that back up the image, then change it */
+	static final String BACKS_UP = "gG8dDpPlLkKjJ9,<.>";
+	/**
+	 * commands that read the undo buffer: undo and munge, and, to be safe, commands of the applet
+	 * that open files, run other strings or show the image ('o', 'O', '*', ':', ';', '/', '\', '7', 'f')
+	 */
+	static final String READS_UNDO = "zZmMoO*:;/\\7fF";
+	/** other commands that depend on which way the image is turned, or on the row numbers */
+	static final String TURN_SENSITIVE = "nNuUsSrRyY[]";
+	/** commands that GlitchEngine can run on a turned image, through its strides, see Orientation */
+	static final String ORIENTABLE = "gGlLkKjJ,<.>";
+
+	/** the commands of the steps, 't' for a turn step */
+	private final char[] commands;
+	/** net quarter turns clockwise of each turn step, 0 to 3, 0 for other steps */
+	private final int[] quarterTurns;
+	/** number of 't' and 'T' folded into each turn step, 0 for other steps */
+	private final int[] turnCounts;
+	/** true if the undo buffer written by a command, or turned by a turn step, is read later */
+	private final boolean[] undoLive;
+
+	private CommandPlan(char[] commands, int[] quarterTurns, int[] turnCounts, boolean[] undoLive) {
+		this.commands = commands;
+		this.quarterTurns = quarterTurns;
+		this.turnCounts = turnCounts;
+		this.undoLive = undoLive;
+	}
+
+	/**
+	 * @param cmd   a command string, as GlitchSort.exec() takes it
+	 * @return      a plan for running it
+	 */
+	public static CommandPlan compile(String cmd) {
+		ArrayList<Character> steps = new ArrayList<Character>();
+		ArrayList<Integer> turns = new ArrayList<Integer>();
+		ArrayList<Integer> counts = new ArrayList<Integer>();
+		int pendingTurns = 0;
+		int pendingCount = 0;
+		for (int i = 0; i < cmd.length(); i++) {
+			char ch = cmd.charAt(i);
+			if ('t' == ch || 'T' == ch) {
+				pendingTurns = (pendingTurns + ('t' == ch ? 1 : 3)) % 4;
+				pendingCount++;
+				continue;
+			}
+			if (pendingCount > 0 && !isTurnFree(ch)) {
+				steps.add('t');
+				turns.add(pendingTurns);
+				counts.add(pendingCount);
+				pendingTurns = 0;
+				pendingCount = 0;
+			}
+			steps.add(ch);
+			turns.add(0);
+			counts.add(0);
+		}
+		if (pendingCount > 0) {
+			steps.add('t');
+			turns.add(pendingTurns);
+			counts.add(pendingCount);
+		}
+		int n = steps.size();
+		char[] commands = new char[n];
+		int[] quarterTurns = new int[n];
+		int[] turnCounts = new int[n];
+		boolean[] undoLive = new boolean[n];
+		// walk back from the end, where the undo buffer is live, to find which backups are read
+		boolean isLive = true;
+		for (int i = n - 1; i >= 0; i--) {
+			char ch = steps.get(i);
+			commands[i] = ch;
+			quarterTurns[i] = turns.get(i);
+			turnCounts[i] = counts.get(i);
+			if (turnCounts[i] > 0) {
+				undoLive[i] = isLive;
+			}
+			else if (BACKS_UP.indexOf(ch) > -1) {
+				undoLive[i] = isLive;
+				// the undo buffer before this command is overwritten by it
+				isLive = false;
+			}
+			else if (READS_UNDO.indexOf(ch) > -1) {
+				undoLive[i] = true;
+				isLive = true;
+			}
+			else {
+				undoLive[i] = isLive;
+			}
+		}
+		return new CommandPlan(commands, quarterTurns, turnCounts, undoLive);
+	}
+
+	/**
+	 * @return true if a command neither changes nor reads the image, the undo buffer or the row numbers,
+	 *         so that it gives the same result before or after a turn
+	 */
+	static boolean isTurnFree(char ch) {
+		return BACKS_UP.indexOf(ch) < 0 && READS_UNDO.indexOf(ch) < 0 && TURN_SENSITIVE.indexOf(ch) < 0;
+	}
+
+	/**
+	 * @return true if a command can work on an image that is turned without its pixels having moved, 
+	 *         so that a turn step before it needn't copy the image
+	 */
+	static boolean isOrientable(char ch) {
+		return ORIENTABLE.indexOf(ch) > -1;
+	}
+
+	/**
+	 * @return the number of steps
+	 */
+	public int size() {
+		return commands.length;
+	}
+
+	/**
+	 * @param i   a step
+	 * @return    the command of step i, 't' for a turn step
+	 */
+	public char getCommand(int i) {
+		return commands[i];
+	}
+
+	/**
+	 * @param i   a step
+	 * @return    true if step i is a run of 't' and 'T'
+	 */
+	public boolean isTurn(int i) {
+		return turnCounts[i] > 0;
+	}
+
+	/**
+	 * @param i   a step
+	 * @return    the net quarter turns clockwise of turn step i, 0 to 3
+	 */
+	public int getQuarterTurns(int i) {
+		return quarterTurns[i];
+	}
+
+	/**
+	 * @param i   a step
+	 * @return    the number of 't' and 'T' in turn step i, each of which shuffles the rows
+	 */
+	public int getTurnCount(int i) {
+		return turnCounts[i];
+	}
+
+	/**
+	 * @param i   a step
+	 * @return    for a command that backs up the image, true if it has to copy the image to the undo
+	 *            buffer; for a turn step, true if the undo buffer it turns will be read
+	 */
+	public boolean isUndoLive(int i) {
+		return undoLive[i];
+	}
+
+	/**
+	 * @return the number of commands that back up the image
+	 */
+	public int getBackupCount() {
+		int count = 0;
+		for (int i = 0; i < commands.length; i++) {
+			if (!isTurn(i) && BACKS_UP.indexOf(commands[i]) > -1) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of commands that back up the image and have to copy it
+	 */
+	public int getLiveBackupCount() {
+		int count = 0;
+		for (int i = 0; i < commands.length; i++) {
+			if (!isTurn(i) && BACKS_UP.indexOf(commands[i]) > -1 && undoLive[i]) count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Lists the steps, with a turn step as '@' and its angle, such as "@90", "@180" or "@0" for turns
+	 * that cancel out, and with '~' before commands that don't copy the image to the undo buffer.
+	 * "ltltltlt" gives "~l @90 ~l @90 ~l @90 l @90".
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < commands.length; i++) {
+			if (i > 0) sb.append(' ');
+			if (isTurn(i)) {
+				sb.append('@').append(90 * quarterTurns[i]);
+			}
+			else {
+				if (BACKS_UP.indexOf(commands[i]) > -1 && !undoLive[i]) sb.append('~');
+				sb.append(commands[i]);
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,253 @@
+package net.paulhertz.glitchsort;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Records every change a sort makes to an array of pixels, so that any intermediate state of the
+ * sort can be rebuilt later from the starting pixels without sorting again. Each change is one
+ * operation of two ints: setting a pixel to a value, swapping two pixels, or copying one pixel to
+ * another. Operations are stored in a growable int array, 8 bytes per exchange when channels are
+ * not swapped, and a frame ends after every opsPerFrame operations. Frame 0 is the starting
+ * pixels, and the last frame is the sorted pixels. Pixel indices are limited to 30 bits, which
+ * is a billion pixels. Sorters record into a log with
+ * AbstractColorSorter.setExchangeLog(), see SortSelector.sortLinesLogged().
+ * <p>
+ * A log is written by one thread. Once the sort is done, seek(), getFrame() and writeFrames() may
+ * be called from any number of threads, each with its own array of pixels.
+ */
+public class ExchangeLog {
+	/** operation codes, in the top two bits of the first int of an operation */
+	static final int SET = 0;
+	static final int SWAP = 1 << 30;
+	static final int MOVE = 2 << 30;
+	/** mask for the pixel index in the first int of an operation */
+	static final int INDEX_MASK = (1 << 30) - 1;
+	/** operations, two ints each */
+	private int[] ops = new int[1 << 16];
+	/** number of ints used in ops */
+	private int size;
+	/** positions in ops at which frames end */
+	private int[] frameEnds = new int[256];
+	/** number of frames ended so far */
+	private int frameEndCount;
+	/** number of operations in each frame */
+	private final int opsPerFrame;
+	/** number of operations since the last frame ended */
+	private int opsInFrame;
+
+	/**
+	 * @param opsPerFrame   number of operations in each frame
+	 */
+	public ExchangeLog(int opsPerFrame) {
+		if (opsPerFrame < 1) throw new IllegalArgumentException("opsPerFrame must be at least 1, not "+ opsPerFrame);
+		this.opsPerFrame = opsPerFrame;
+	}
+
+	/**
+	 * Records pixels[i] = v.
+	 */
+	public void set(int i, int v) {
+		add(SET | i, v);
+	}
+
+	/**
+	 * Records an exchange of pixels[i] and pixels[j].
+	 */
+	public void swap(int i, int j) {
+		add(SWAP | i, j);
+	}
+
+	/**
+	 * Records pixels[dst] = pixels[src].
+	 */
+	public void move(int dst, int src) {
+		add(MOVE | dst, src);
+	}
+
+	/**
+	 * Records pixels[i] = v for every i from l to l + before.length - 1 at which pixels[i] differs
+	 * from before[i - l], for sorters that don't record their own changes.
+	 * @param pixels   pixels after a change
+	 * @param before   copy of pixels[l..] before the change
+	 * @param l        index in pixels of before[0]
+	 */
+	public void setChanged(int[] pixels, int[] before, int l) {
+		for (int i = 0; i < before.length; i++) {
+			if (pixels[l + i] != before[i]) set(l + i, pixels[l + i]);
+		}
+	}
+
+	private void add(int a, int b) {
+		if (size + 2 > ops.length) grow();
+		ops[size++] = a;
+		ops[size++] = b;
+		if (++opsInFrame == opsPerFrame) markFrame();
+	}
+
+	private void grow() {
+		int length = (int) Math.min(2L * ops.length, Integer.MAX_VALUE - 8);
+		if (length < size + 2) throw new IllegalStateException("exchange log is full at "+ getOpCount() +" operations");
+		ops = Arrays.copyOf(ops, length);
+	}
+
+	/**
+	 * Ends the current frame early, if it has any operations, for example at the end of a sort.
+	 */
+	public void markFrame() {
+		if (0 == opsInFrame) return;
+		if (frameEndCount == frameEnds.length) frameEnds = Arrays.copyOf(frameEnds, frameEnds.length * 2);
+		frameEnds[frameEndCount++] = size;
+		opsInFrame = 0;
+	}
+
+	/**
+	 * @return the number of frames, including frame 0, the starting pixels, and the frame in progress
+	 */
+	public int getFrameCount() {
+		return frameEndCount + 1 + (opsInFrame > 0 ? 1 : 0);
+	}
+
+	/**
+	 * @return the number of operations recorded
+	 */
+	public int getOpCount() {
+		return size / 2;
+	}
+
+	/**
+	 * @return approximate memory used by the log, in bytes
+	 */
+	public long getMemoryBytes() {
+		return 4L * (ops.length + frameEnds.length);
+	}
+
+	/**
+	 * @return position in ops of the end of frame k
+	 */
+	private int frameEnd(int k) {
+		if (k == 0) return 0;
+		if (k <= frameEndCount) return frameEnds[k - 1];
+		return size;
+	}
+
+	/**
+	 * Changes pixels from frame "from" to frame "to" by applying the operations between them.
+	 * @param pixels   pixels as they are in frame from
+	 * @param from     the current frame
+	 * @param to       the frame wanted, from or later
+	 */
+	public void seek(int[] pixels, int from, int to) {
+		if (to < from || to >= getFrameCount()) {
+			throw new IllegalArgumentException("can't seek from frame "+ from +" to frame "+ to);
+		}
+		int[] o = ops;
+		for (int p = frameEnd(from), end = frameEnd(to); p < end; p += 2) {
+			int a = o[p];
+			int i = a & INDEX_MASK;
+			switch (a & ~INDEX_MASK) {
+			case SET: { pixels[i] = o[p + 1]; break; }
+			case SWAP: { int j = o[p + 1]; int t = pixels[i]; pixels[i] = pixels[j]; pixels[j] = t; break; }
+			default: { pixels[i] = pixels[o[p + 1]]; break; }
+			}
+		}
+	}
+
+	/**
+	 * @param start   the starting pixels, not changed
+	 * @param k       a frame number
+	 * @return        a new array of the pixels in frame k
+	 */
+	public int[] getFrame(int[] start, int k) {
+		int[] pixels = start.clone();
+		seek(pixels, 0, k);
+		return pixels;
+	}
+
+	/**
+	 * Writes frames as PNG files named prefix_0000.png, prefix_0001.png and so on, numbered in
+	 * the order given. The frames are divided into runs, one for each thread, and each thread
+	 * seeks to the first frame of its run and then from frame to frame, so the whole log is
+	 * applied about once, plus once more per thread for getting to the start of its run.
+	 * @param start      the starting pixels
+	 * @param width      width of the image
+	 * @param height     height of the image
+	 * @param frames     frame numbers to write, in increasing order
+	 * @param dir        directory for the files
+	 * @param prefix     beginning of file names
+	 * @param threads    number of threads to use
+	 * @throws IOException   if a file could not be written
+	 */
+	public void writeFrames(final int[] start, final int width, final int height, final int[] frames,
+			final File dir, final String prefix, int threads) throws IOException {
+		threads = Math.max(1, Math.min(threads, frames.length));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int t = 0; t < threads; t++) {
+				final int lo = (int) ((long) frames.length * t / threads);
+				final int hi = (int) ((long) frames.length * (t + 1) / threads);
+				results.add(pool.submit(new Callable<Void>() {
+					public Void call() throws IOException {
+						// the image's own pixel array holds the frame, so nothing is copied to write it
+						BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+						int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+						System.arraycopy(start, 0, pixels, 0, width * height);
+						int current = 0;
+						for (int f = lo; f < hi; f++) {
+							seek(pixels, current, frames[f]);
+							current = frames[f];
+							File file = new File(dir, prefix + String.format("_%04d.png", f));
+							if (!ImageIO.write(image, "png", file)) throw new IOException("no PNG writer for "+ file);
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				try {
+					result.get();
+				}
+				catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+					throw new RuntimeException(e.getCause());
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while writing frames");
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * @param count   the number of frames wanted
+	 * @return        count frame numbers evenly spaced from the first frame to the last,
+	 *                or all the frames if there are no more than count
+	 */
+	public int[] evenFrames(int count) {
+		int n = getFrameCount();
+		if (count >= n) count = n;
+		int[] frames = new int[count];
+		for (int i = 0; i < count; i++) {
+			frames[i] = count == 1 ? n - 1 : (int) ((long) i * (n - 1) / (count - 1));
+		}
+		return frames;
+	}
+
+}
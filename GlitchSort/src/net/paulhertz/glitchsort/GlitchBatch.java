@@ -0,0 +1,292 @@
+package net.paulhertz.glitchsort;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a command string, such as "ltltltlt" or "dzmdzm", on every image in a directory or matching
+ * a pattern, with no Processing window, see GlitchSession. Parameters are given as key=value:
+ * <pre>
+ *   in=photos                  a directory, an image file, or a pattern such as photos/*.jpg,
+ *                              several separated by commas
+ *   cmd=ltltltlt               the command string, as GlitchSort.exec() takes it
+ *   seed=42                    random seed, each image starts from it, default System.nanoTime()
+ *   preset=soft.properties     settings for the commands, see GlitchSession.SETTINGS
+ *   out=glitched               directory for the output files, default the current directory
+ *   threads=8                  number of images glitched at once, default the number of processors
+ *   inflight=8                 most images decoded at once, default threads
+ * </pre>
+ * Any other key is a setting, such as sorter=SHELL or zigzagFloor=16, and overrides the preset.
+ * For example, from the project directory after Eclipse has compiled it to bin:
+ * <pre>
+ *   java -cp bin net.paulhertz.glitchsort.GlitchBatch in=frames/*.png cmd=ltltltlt seed=7 out=glitched
+ * </pre>
+ * Each image is opened, shuffled and glitched from the seed, so the outputs don't depend on the
+ * number of threads or the order the images finish in. Files are named as GlitchSort.saveFile()
+ * names them, with one timestamp for the whole run; the final image is saved unless the command
+ * string ends by saving it. An image in flight holds a few copies of its pixels, the image, the undo
+ * buffer, the snapshot and copies made for writing files and for 'd', so inflight bounds the heap.
+ * Prints a line of timings for each image and the total throughput.
+ */
+public class GlitchBatch {
+	/** file name extensions of the images in a directory */
+	static final List<String> IMAGE_EXTENSIONS = Arrays.asList("jpg", "jpeg", "png", "gif", "bmp");
+
+	/** the command string */
+	final String cmd;
+	/** the command string compiled, shared by the threads */
+	final CommandPlan plan;
+	final long seed;
+	final Map<String, String> settings;
+	final File outputDir;
+	final int threads;
+	final int inflight;
+	/** timestamp in the names of output files */
+	final String timestamp = GlitchSession.timestamp();
+	/** counts for the summary */
+	final AtomicInteger done = new AtomicInteger();
+	final AtomicInteger failed = new AtomicInteger();
+	final AtomicLong pixelCount = new AtomicLong();
+
+	/**
+	 * @param cmd        the command string
+	 * @param seed       the random seed for each image
+	 * @param settings   settings for GlitchSession.configure()
+	 * @param outputDir  directory for the output files
+	 * @param threads    number of worker threads
+	 * @param inflight   most images decoded at once
+	 */
+	public GlitchBatch(String cmd, long seed, Map<String, String> settings, File outputDir, int threads, int inflight) {
+		if (threads < 1 || inflight < 1) throw new IllegalArgumentException("threads and inflight must be at least 1");
+		this.cmd = cmd;
+		this.plan = CommandPlan.compile(cmd);
+		this.seed = seed;
+		this.settings = settings;
+		this.outputDir = outputDir;
+		this.threads = threads;
+		this.inflight = inflight;
+		// check the settings once, here, rather than in every thread
+		new GlitchSession().configure(settings);
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		Map<String, String> params = new LinkedHashMap<String, String>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 1) throw new IllegalArgumentException("expected key=value but got "+ arg);
+			params.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+		String in = params.remove("in");
+		String cmd = params.remove("cmd");
+		if (null == in || null == cmd) {
+			System.err.println("usage: GlitchBatch in=<directory, file or pattern> cmd=<commands> [seed=<n>] "
+					+ "[preset=<file.properties>] [out=<directory>] [threads=<n>] [inflight=<n>] [<setting>=<value> ...]");
+			System.exit(2);
+		}
+		String seedValue = params.remove("seed");
+		long seed = null == seedValue ? System.nanoTime() : Long.parseLong(seedValue);
+		String out = params.remove("out");
+		File outputDir = new File(null == out ? "." : out);
+		String threadsValue = params.remove("threads");
+		int threads = null == threadsValue ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threadsValue);
+		String inflightValue = params.remove("inflight");
+		int inflight = null == inflightValue ? threads : Integer.parseInt(inflightValue);
+		// settings from the preset file, then from the command line
+		Map<String, String> settings = new LinkedHashMap<String, String>();
+		String preset = params.remove("preset");
+		if (null != preset) settings.putAll(loadPreset(new File(preset)));
+		settings.putAll(params);
+		List<File> files = new ArrayList<File>();
+		for (String pattern : in.split(",")) {
+			files.addAll(findImages(pattern.trim()));
+		}
+		if (files.isEmpty()) {
+			System.err.println("no images found in "+ in);
+			System.exit(1);
+		}
+		outputDir.mkdirs();
+		GlitchBatch batch;
+		try {
+			batch = new GlitchBatch(cmd, seed, settings, outputDir, threads, inflight);
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(2);
+			return;
+		}
+		System.out.println("glitching "+ files.size() +" images with \""+ cmd +"\", seed = "+ seed
+				+", "+ threads +" threads, "+ inflight +" images in flight");
+		System.out.println("steps: "+ batch.plan +", "+ batch.plan.getLiveBackupCount() +" of "
+				+ batch.plan.getBackupCount() +" backups copied");
+		boolean isOK = batch.run(files);
+		System.exit(isOK ? 0 : 1);
+	}
+
+	/**
+	 * @return   the settings in a properties file
+	 */
+	static Map<String, String> loadPreset(File file) throws IOException {
+		Properties props = new Properties();
+		InputStream input = new FileInputStream(file);
+		try {
+			props.load(input);
+		}
+		finally {
+			input.close();
+		}
+		Map<String, String> settings = new LinkedHashMap<String, String>();
+		for (String key : props.stringPropertyNames()) {
+			settings.put(key, props.getProperty(key));
+		}
+		return settings;
+	}
+
+	/**
+	 * @param pattern   a directory, a file, or a file name pattern with * and ? in its last part
+	 * @return          the image files in the directory, or the file, or the files that match, sorted by name
+	 */
+	static List<File> findImages(String pattern) {
+		File file = new File(pattern);
+		List<File> found = new ArrayList<File>();
+		if (file.isFile()) {
+			found.add(file);
+			return found;
+		}
+		File dir;
+		PathMatcher matcher = null;
+		if (file.isDirectory()) {
+			dir = file;
+		}
+		else {
+			dir = null == file.getParentFile() ? new File(".") : file.getParentFile();
+			matcher = FileSystems.getDefault().getPathMatcher("glob:"+ file.getName());
+		}
+		File[] list = dir.listFiles();
+		if (null == list) return found;
+		Arrays.sort(list);
+		for (File f : list) {
+			if (!f.isFile()) continue;
+			if (null != matcher) {
+				if (matcher.matches(new File(f.getName()).toPath())) found.add(f);
+			}
+			else {
+				String name = f.getName();
+				int dot = name.lastIndexOf('.');
+				if (dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.US))) found.add(f);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Glitches the files on a pool of threads, with no more than inflight images decoded at once,
+	 * and prints the timings.
+	 * @param files   image files
+	 * @return        true if every image was glitched and saved
+	 */
+	public boolean run(List<File> files) throws InterruptedException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		final Semaphore permits = new Semaphore(inflight);
+		System.out.println("file\twidth\theight\tread ms\tglitch ms\twrite ms\ttotal ms\tsaved as");
+		long t0 = System.nanoTime();
+		try {
+			for (final File file : files) {
+				// wait for an image to finish before decoding another, so the queue holds files, not pixels
+				permits.acquire();
+				pool.execute(new Runnable() {
+					public void run() {
+						try {
+							glitch(file);
+						}
+						finally {
+							permits.release();
+						}
+					}
+				});
+			}
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - t0) / 1e9;
+		double megapixels = pixelCount.get() / 1e6;
+		System.out.println(String.format(Locale.US, "%d images, %.1f megapixels in %.2f s: %.2f images/s, %.2f megapixels/s%s",
+				done.get(), megapixels, seconds, done.get() / seconds, megapixels / seconds,
+				0 == failed.get() ? "" : ", "+ failed.get() +" failed"));
+		return 0 == failed.get();
+	}
+
+	/**
+	 * Opens, glitches and saves one image, and prints its timings.
+	 */
+	void glitch(File file) {
+		try {
+			long t0 = System.nanoTime();
+			GlitchSession session = new GlitchSession();
+			session.configure(settings);
+			session.setOutputDir(outputDir);
+			session.setTimestamp(timestamp);
+			session.setRandomSeed(seed);
+			session.open(file);
+			int w = session.getWidth();
+			int h = session.getHeight();
+			long t1 = System.nanoTime();
+			// files saved by the commands count as writing, not glitching
+			long cmdWriteNanos = 0;
+			for (int i = 0; i < plan.size(); i++) {
+				char ch = plan.getCommand(i);
+				if ('s' == ch || 'S' == ch || '8' == ch) {
+					long t = System.nanoTime();
+					session.step(plan, i);
+					cmdWriteNanos += System.nanoTime() - t;
+				}
+				else {
+					session.step(plan, i);
+				}
+			}
+			// with live sorting on ('7'), the last 'g' may still be sorting
+			session.finishLiveSort();
+			long t2 = System.nanoTime();
+			File saved = null;
+			if (!session.isSaved()) saved = session.saveFile(false);
+			long t3 = System.nanoTime();
+			pixelCount.addAndGet((long) w * h);
+			done.incrementAndGet();
+			System.out.println(file.getName() +"\t"+ w +"\t"+ h +"\t"+ millis(t1 - t0) +"\t"+ millis(t2 - t1 - cmdWriteNanos)
+					+"\t"+ millis(cmdWriteNanos + t3 - t2) +"\t"+ millis(t3 - t0) +"\t"+ (null == saved ? "-" : saved.getName()));
+		}
+		catch (Exception e) {
+			failed.incrementAndGet();
+			System.out.println(file.getName() +"\tfailed: "+ e);
+		}
+		catch (OutOfMemoryError e) {
+			failed.incrementAndGet();
+			System.out.println(file.getName() +"\tfailed: out of memory, try a smaller inflight");
+		}
+	}
+
+	static String millis(long nanos) {
+		return String.format(Locale.US, "%.1f", nanos / 1e6);
+	}
+
+}
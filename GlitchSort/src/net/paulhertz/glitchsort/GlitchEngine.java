@@ -0,0 +1,845 @@
+package net.paulhertz.glitchsort;
+
+import java.util.Arrays;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * The image operations of GlitchSort, on an array of ARGB pixels and its width and height, with no
+ * Processing, Minim or ControlP5 classes anywhere on their path, so they can run in a server or a
+ * batch job as well as in the applet. GlitchSession keeps the image and the settings, points an
+ * engine at the pixels of the image with setImage(), and calls the engine with the settings as
+ * arguments; GlitchSort only displays the session's image. Operations change the
+ * pixels in place. Random numbers come from the RandomSource passed in, so the same operations
+ * from the same seed give the same image here and in the applet.
+ * <p>
+ * The image can be stored turned or flipped, see Orientation and setImage(int[], int, int, Orientation),
+ * so that rotating it costs nothing: sorting, zigzag, the zigzag FFTs and the shifts work on the image
+ * as it is seen, through the stored pixels. The other operations need an image stored upright.
+ * <p>
+ * Sorting is thread-safe, see SortSelector, but an engine keeps an FFT and a color quantizer
+ * between calls, so each thread that glitches images should have its own engine.
+ */
+public class GlitchEngine {
+	/** pixels of the image, ARGB, row by row as stored */
+	private int[] pixels;
+	/** width of the image as seen */
+	private int width;
+	/** height of the image as seen */
+	private int height;
+	/** how the image as seen is turned from the stored pixels */
+	private Orientation orientation = Orientation.R0;
+	/** index in pixels of pixel (0, 0) of the image as seen */
+	private int origin;
+	/** step in pixels from a pixel to the next one in its row, as seen */
+	private int xStride;
+	/** step in pixels from a pixel to the one below it, as seen */
+	private int yStride;
+	/** sorts pixels and keeps their metrics */
+	private final SortSelector sortTool;
+	/** FFT for the current block size, see getFFT() */
+	private PixelFFT fft;
+	/** color quantizer, for reduceColors() */
+	private ImageColorQuantizer quant;
+
+	/**
+	 * @param sortTool   a SortSelector, such as the applet's, so metrics are kept in one place
+	 */
+	public GlitchEngine(SortSelector sortTool) {
+		this.sortTool = sortTool;
+	}
+
+	public GlitchEngine() {
+		this(new SortSelector());
+	}
+
+	/**
+	 * @param pixels   pixels of an image, ARGB
+	 * @param width    width of the image
+	 * @param height   height of the image
+	 */
+	public GlitchEngine(int[] pixels, int width, int height) {
+		this();
+		setImage(pixels, width, height);
+	}
+
+	/**
+	 * Sets the image operations work on. The array is not copied.
+	 * @param pixels   pixels of an image, ARGB, at least width * height of them
+	 * @param width    width of the image
+	 * @param height   height of the image
+	 */
+	public void setImage(int[] pixels, int width, int height) {
+		setImage(pixels, width, height, Orientation.R0);
+	}
+
+	/**
+	 * Sets the image operations work on, stored turned or flipped. The array is not copied.
+	 * @param pixels        pixels of an image, ARGB, at least width * height of them
+	 * @param width         width of the image as stored
+	 * @param height        height of the image as stored
+	 * @param orientation   how the image as seen is turned from the stored pixels
+	 */
+	public void setImage(int[] pixels, int width, int height, Orientation orientation) {
+		if (width < 1 || height < 1 || pixels.length < width * height) {
+			throw new IllegalArgumentException("an image of "+ width +" x "+ height +" can't have "+ pixels.length +" pixels");
+		}
+		this.pixels = pixels;
+		this.width = orientation.width(width, height);
+		this.height = orientation.height(width, height);
+		this.orientation = orientation;
+		origin = orientation.origin(width, height);
+		xStride = orientation.xStride(width);
+		yStride = orientation.yStride(width);
+	}
+
+	/**
+	 * @return the stored pixels, see getOrientation()
+	 */
+	public int[] getPixels() {
+		return pixels;
+	}
+
+	public Orientation getOrientation() {
+		return orientation;
+	}
+
+	/**
+	 * @return width of the image as seen
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return height of the image as seen
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	public SortSelector getSortTool() {
+		return sortTool;
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*              >>> SORTING <<<             */
+	/*                                          */
+	/********************************************/
+
+	/**
+	 * Sorts lines of the image, see SortSelector.sortLines().
+	 * @param config   settings for the sort
+	 * @param view     the lines of the image, rows, squares or diagonals
+	 * @param lines    line numbers, lines[lo] to lines[hi - 1] will be sorted
+	 * @param lo       first index in lines
+	 * @param hi       index in lines after the last line to sort
+	 * @param rand     source of random streams for breaks
+	 * @param log      log to record the sort in, or null
+	 */
+	public void sortLines(SortConfig config, PixelView view, int[] lines, int lo, int hi, RandomSource rand, ExchangeLog log) {
+		checkView(view);
+		if (null != log) sortTool.sortLinesLogged(config, pixels, view, lines, lo, hi, rand, log);
+		else sortTool.sortLines(config, pixels, view, lines, lo, hi, rand);
+	}
+
+	/**
+	 * Prepares a live sort of lines of the image, see SortSelector.sortLinesLive().
+	 * @return   a LiveSort, not yet started
+	 */
+	public LiveSort sortLinesLive(SortConfig config, PixelView view, int[] lines, int lo, int hi, RandomSource rand) {
+		checkView(view);
+		return sortTool.sortLinesLive(config, pixels, view, lines, lo, hi, rand);
+	}
+
+	private void checkView(PixelView view) {
+		if (view.getWidth() != width || view.getHeight() != height || view.getOrientation() != orientation) {
+			throw new IllegalArgumentException("a view of "+ view.getWidth() +" x "+ view.getHeight() +" "+ view.getOrientation()
+					+" doesn't fit an image of "+ width +" x "+ height +" "+ orientation);
+		}
+	}
+
+	/**
+	 * Operations that read the pixels in order call this first.
+	 */
+	private void checkUpright(String op) {
+		if (Orientation.R0 != orientation) {
+			throw new IllegalStateException(op +" needs an image stored upright, not "+ orientation);
+		}
+	}
+
+	/**
+	 * Sorts the pixels in square blocks of order x order pixels, centered in the image, each block
+	 * read in zigzag order, as JPEG reads its blocks. Makes the same calls to rand, in the same order,
+	 * as GlitchSort.zigzag() always has.
+	 * @param config    settings for the sort
+	 * @param order     the width and height of each block
+	 * @param style     RANDOM flips each block's zigzag at random, ALIGN doesn't, PERMUTE rotates
+	 *                  the four orientations in each 2 x 2 cell of blocks
+	 * @param percent   percentage of blocks to sort, chosen at random
+	 * @param rand      source of random numbers
+	 */
+	public void zigzag(SortConfig config, int order, ZigzagStyle style, float percent, RandomSource rand) {
+		Zigzagger zz = new Zigzagger(order);
+		int dw = (width / order);
+		int dh = (height / order);
+		int ow = (width - dw * order) / 2;
+		int oh = (height - dh * order) / 2;
+		// blocks get their own streams of random numbers for breaks, numbered by position
+		RandomSource pass = rand.split();
+		if (ZigzagStyle.PERMUTE != style) {
+			for (int y = 0; y < dh; y++) {
+				for (int x = 0; x < dw; x++) {
+					// a quick way to sort only a determined percentage of cells
+					if (rand.random(100) > (int)(percent)) continue;
+					int mx = x * order + ow;
+					int my = y * order + oh;
+					int[] pix = zz.pluck(pixels, origin, xStride, yStride, mx, my);
+					sortTool.sort(config, pix, pass.stream(y * dw + x));
+					zz.plant(pixels, pix, origin, xStride, yStride, mx, my);
+					if (ZigzagStyle.RANDOM == style) {
+						if (rand.random(1) > 0.5f) {
+							zz.flipX();
+						}
+						if (rand.random(1) > 0.5f) {
+							zz.flipY();
+						}
+					}
+				}
+			}
+		}
+		else {
+			// permute zigzag orientation in 2x2 blocks
+			int[] perm = {0, 1, 2, 3};
+			Zigzagger[] zzList = new Zigzagger[4];
+			zzList[0] = zz;
+			zz = new Zigzagger(order);
+			zz.flipX();
+			zzList[1] = zz;
+			zz = new Zigzagger(order);
+			zz.flipX();
+			zz.flipY();
+			zzList[2] = zz;
+			zz = new Zigzagger(order);
+			zz.flipY();
+			zzList[3] = zz;
+			// offsets of the four blocks in each cell, in the order they are sorted
+			int[] cx = {0, 0, order, order};
+			int[] cy = {0, order, order, 0};
+			int dw2 = dw/2;
+			int dh2 = dh/2;
+			for (int y = 0; y < dh2; y++) {
+				for (int x = 0; x < dw2; x++) {
+					// a quick way to sort only a determined percentage of cells
+					if (rand.random(100) > (int)(percent)) continue;
+					int blockNum = 4 * (y * dw2 + x);
+					shuffle(perm, rand);
+					for (int k = 0; k < 4; k++) {
+						int mx = 2 * x * order + ow + cx[k];
+						int my = 2 * y * order + oh + cy[k];
+						zz = zzList[perm[k]];
+						int[] pix = zz.pluck(pixels, origin, xStride, yStride, mx, my);
+						sortTool.sort(config, pix, pass.stream(blockNum + k));
+						zz.plant(pixels, pix, origin, xStride, yStride, mx, my);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Implements Richard Durstenfeld's version of the Fisher-Yates algorithm, popularized by Donald Knuth.
+	 * see http://en.wikipedia.org/wiki/Fisher-Yates_shuffle
+	 * @param intArray   an array of <code>int</code>s, changed on exit
+	 * @param rand       source of random numbers
+	 */
+	public static void shuffle(int[] intArray, RandomSource rand) {
+		for (int lastPlace = intArray.length - 1; lastPlace > 0; lastPlace--) {
+			// Choose a random location from 0..lastPlace
+			int randLoc = (int) (rand.random(lastPlace + 1));
+			// Swap items in locations randLoc and lastPlace
+			int temp = intArray[randLoc];
+			intArray[randLoc] = intArray[lastPlace];
+			intArray[lastPlace] = temp;
+		}
+	}
+
+	/**
+	 * Draws the random numbers that shuffling the rows of an image after each of count - 1 turns 
+	 * would draw, and shuffles nothing. Turning an image with the rotation commands reloads and 
+	 * shuffles its row numbers, and CommandPlan folds a run of turns into one turn, so only the 
+	 * last turn's shuffle is kept. Every turn before it shuffled rows that the next turn threw away, 
+	 * but its random numbers were drawn from the same source as the sorts that follow. Drawing them 
+	 * here keeps the output of a seeded session identical to turning the image one command at a time.
+	 * GlitchSession.turn() calls this before it shuffles the rows of the turned image.
+	 * @param count    number of turns folded into one
+	 * @param width    width of the image after all the turns
+	 * @param height   height of the image after all the turns
+	 * @param rand     source of random numbers
+	 */
+	public static void skipTurnShuffles(int count, int width, int height, RandomSource rand) {
+		for (int k = 1; k < count; k++) {
+			// after turn k, the image has the shape it ends with if an even number of turns follow
+			int rows = 0 == (count - k) % 2 ? height : width;
+			// the same draws as shuffle() on an array of that many row numbers
+			for (int lastPlace = rows - 1; lastPlace > 0; lastPlace--) {
+				rand.random(lastPlace + 1);
+			}
+		}
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*          >>> PIXEL OPERATIONS <<<        */
+	/*                                          */
+	/********************************************/
+
+	/**
+	 * Composites the image with a snapshot, using an undo buffer as a mask. When the largest absolute
+	 * difference between a pixel in the image and the same pixel in the undo buffer is greater than
+	 * threshold, the pixel from the snapshot is written to the image.
+	 * @param undo          pixels of the undo buffer, the size of the image
+	 * @param snap          pixels of the snapshot, the size of the image
+	 * @param threshold     largest difference in any channel that leaves a pixel as it is
+	 * @param isInverted    if true, pixels that differ by less than threshold are replaced instead
+	 */
+	public void munge(int[] undo, int[] snap, int threshold, boolean isInverted) {
+		checkUpright("munge");
+		int n = width * height;
+		if (undo.length < n || snap.length < n) {
+			throw new IllegalArgumentException("the undo buffer and the snapshot must be the size of the image");
+		}
+		int alpha = 255 << 24;
+		for (int i = 0; i < n; i++) {
+			int src = Math.abs(pixels[i]);
+			int targ = Math.abs(undo[i]);
+			int diff = maxColorDiff(src, targ);
+			if (isInverted) {
+				if (diff < threshold) {
+					pixels[i] = snap[i] | alpha;
+				}
+			}
+			else {
+				if (diff > threshold) {
+					pixels[i] = snap[i] | alpha;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Quantizes the colors in the image with an octree, see ImageColorQuantizer.
+	 * @param colorCount   number of colors, from 2 to 255
+	 */
+	public void reduceColors(int colorCount) {
+		checkUpright("reduceColors");
+		if (null == quant) {
+			quant = new ImageColorQuantizer(colorCount);
+		}
+		else {
+			quant.setColorCount(colorCount);
+		}
+		int n = width * height;
+		int[] px = Arrays.copyOf(pixels, n);
+		quant.quantize(px, width);
+		int alpha = 255 << 24;
+		for (int i = 0; i < n; i++) {
+			// provide the alpha channel, otherwise the image will vanish
+			pixels[i] = px[i] | alpha;
+		}
+	}
+
+	/**
+	 * Implements a basic 3x3 denoise (median) filter. Edges and corners get the mean of the two
+	 * middle values of the pixels around them. Images less than 2 pixels wide or high are not changed.
+	 */
+	public void denoise() {
+		checkUpright("denoise");
+		int w = width;
+		int h = height;
+		if (w < 2 || h < 2) return;
+		int boxW = 3;
+		int medianPos = 4;
+		int[] copy = Arrays.copyOf(pixels, w * h);
+		int[] pix = new int[boxW * boxW];
+		for (int v = 1; v < h - 1; v++) {
+			for (int u = 1; u < w - 1; u++) {
+				int k = 0;
+				for (int j = -1; j <= 1; j++) {
+					for (int i = -1; i <= 1; i++) {
+						pix[k++] = copy[(v + j) * w + u + i];
+					}
+				}
+				Arrays.sort(pix);
+				pixels[v * w + u] = pix[medianPos];
+			}
+		}
+		// prepare array for edges
+		pix = new int[(boxW - 1) * boxW];
+		// left and right edges
+		for (int v = 1; v < h - 1; v++) {
+			int k = 0;
+			for (int j = -1; j <= 1; j++) {
+				for (int i = 0; i <= 1; i++) {
+					pix[k++] = copy[(v + j) * w + i];
+				}
+			}
+			Arrays.sort(pix);
+			pixels[v * w] = meanColor(pix[2], pix[3]);
+			k = 0;
+			for (int j = -1; j <= 1; j++) {
+				for (int i = 0; i <= 1; i++) {
+					pix[k++] = copy[(v + j) * w + w - 1 - i];
+				}
+			}
+			Arrays.sort(pix);
+			pixels[v * w + w - 1] = meanColor(pix[2], pix[3]);
+		}
+		// top and bottom edges
+		for (int u = 1; u < w - 1; u++) {
+			int k = 0;
+			for (int j = 0; j <= 1; j++) {
+				for (int i = -1; i <= 1; i++) {
+					pix[k++] = copy[j * w + u + i];
+				}
+			}
+			Arrays.sort(pix);
+			pixels[u] = meanColor(pix[2], pix[3]);
+			k = 0;
+			for (int j = 0; j <= 1; j++) {
+				for (int i = -1; i <= 1; i++) {
+					pix[k++] = copy[(h - 1 - j) * w + u + i];
+				}
+			}
+			Arrays.sort(pix);
+			pixels[(h - 1) * w + u] = meanColor(pix[2], pix[3]);
+		}
+		// prepare array for corners
+		pix = new int[(boxW - 1) * (boxW - 1)];
+		// do the corners
+		pix[0] = copy[0];
+		pix[1] = copy[w];
+		pix[2] = copy[1];
+		pix[3] = copy[w + 1];
+		Arrays.sort(pix);
+		pixels[0] = meanColor(pix[1], pix[2]);
+		pix[0] = copy[w - 1];
+		pix[1] = copy[w + w - 1];
+		pix[2] = copy[w - 2];
+		pix[3] = copy[w + w - 2];
+		Arrays.sort(pix);
+		pixels[w - 1] = meanColor(pix[1], pix[2]);
+		pix[0] = copy[(h - 1) * w];
+		pix[1] = copy[(h - 2) * w];
+		pix[2] = copy[(h - 1) * w + 1];
+		pix[3] = copy[(h - 2) * w + 1];
+		Arrays.sort(pix);
+		pixels[(h - 1) * w] = meanColor(pix[1], pix[2]);
+		pix[0] = copy[(h - 1) * w + w - 1];
+		pix[1] = copy[(h - 2) * w + w - 1];
+		pix[2] = copy[(h - 1) * w + w - 2];
+		// the applet has always sampled this pixel twice, and the image should not change
+		pix[3] = copy[(h - 1) * w + w - 2];
+		Arrays.sort(pix);
+		pixels[(h - 1) * w + w - 1] = meanColor(pix[1], pix[2]);
+	}
+
+	/**
+	 * Shifts one RGB channel of every row one pixel left, wrapping around at the ends of the rows.
+	 * @param chan   R, G or B
+	 */
+	public void shiftLeft(ChannelNames chan) {
+		int mask = channelMask(chan);
+		int keep = 0xFFFFFF & ~mask;
+		int alpha = 255 << 24;
+		int xs = xStride;
+		for (int y = 0; y < height; y++) {
+			// first and last pixels of the row as seen
+			int l = origin + y * yStride;
+			int r = l + (width - 1) * xs;
+			int temp = pixels[l];
+			for (int u = l; u != r; u += xs) {
+				pixels[u] = alpha | (pixels[u + xs] & mask) | (pixels[u] & keep);
+			}
+			pixels[r] = alpha | (temp & mask) | (pixels[r] & keep);
+		}
+	}
+
+	/**
+	 * Shifts one RGB channel of every row one pixel right, wrapping around at the ends of the rows.
+	 * @param chan   R, G or B
+	 */
+	public void shiftRight(ChannelNames chan) {
+		int mask = channelMask(chan);
+		int keep = 0xFFFFFF & ~mask;
+		int alpha = 255 << 24;
+		int xs = xStride;
+		for (int y = 0; y < height; y++) {
+			int l = origin + y * yStride;
+			int r = l + (width - 1) * xs;
+			int temp = pixels[r];
+			for (int u = r; u != l; u -= xs) {
+				pixels[u] = alpha | (pixels[u - xs] & mask) | (pixels[u] & keep);
+			}
+			pixels[l] = alpha | (temp & mask) | (pixels[l] & keep);
+		}
+	}
+
+	/**
+	 * @return the bits of an ARGB pixel that hold channel chan, R, G or B
+	 */
+	private static int channelMask(ChannelNames chan) {
+		switch (chan) {
+		case R: return 0xFF0000;
+		case G: return 0x00FF00;
+		case B: return 0x0000FF;
+		default: throw new IllegalArgumentException("only R, G and B can be shifted, not "+ chan);
+		}
+	}
+
+
+	/**
+	 * Rotates pixels 90 degrees clockwise, as the 't' command turns the image.
+	 * @param pixels   pixels of an image, not changed
+	 * @param width    width of the image
+	 * @param height   height of the image
+	 * @return         a new array of the pixels of the rotated image, height pixels wide and width high
+	 */
+	public static int[] rotateRight(int[] pixels, int width, int height) {
+		return PixelRotator.rotate(pixels, width, height, Orientation.R90);
+	}
+
+	/**
+	 * Rotates pixels 90 degrees counterclockwise, as the 'T' command turns the image.
+	 * @param pixels   pixels of an image, not changed
+	 * @param width    width of the image
+	 * @param height   height of the image
+	 * @return         a new array of the pixels of the rotated image, height pixels wide and width high
+	 */
+	public static int[] rotateLeft(int[] pixels, int width, int height) {
+		return PixelRotator.rotate(pixels, width, height, Orientation.R270);
+	}
+
+	/**
+	 * Rotates pixels by quarter turns clockwise, in one pass, see PixelRotator.
+	 * @param pixels         pixels of an image, not changed
+	 * @param width          width of the image
+	 * @param height         height of the image
+	 * @param quarterTurns   quarter turns clockwise, 0 to 3
+	 * @return               a new array of the pixels of the rotated image, or pixels if quarterTurns is 0
+	 */
+	public static int[] rotate(int[] pixels, int width, int height, int quarterTurns) {
+		if (quarterTurns < 0 || quarterTurns > 3) {
+			throw new IllegalArgumentException("quarterTurns must be 0 to 3, not "+ quarterTurns);
+		}
+		return PixelRotator.rotate(pixels, width, height, Orientation.get(quarterTurns, false));
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*                >>> FFT <<<               */
+	/*                                          */
+	/********************************************/
+
+	/**
+	 * @param timeSize   number of samples, a power of 2
+	 * @return           an FFT of timeSize samples, the same one as last time if the size is the same
+	 */
+	public PixelFFT getFFT(int timeSize) {
+		if (null == fft || fft.timeSize() != timeSize) fft = new PixelFFT(timeSize);
+		return fft;
+	}
+
+	/**
+	 * Performs a zigzag scan, centered in the image, and passes blocks to an FFT that scales
+	 * ranges of frequency bands, as an equalizer does.
+	 * @param order    the width and height of each block, order * order must be a power of 2
+	 * @param chans    the channels to pass through the FFT, in order
+	 * @param bands    pairs of band numbers, bands[2k] to bands[2k + 1] are scaled by scales[k]
+	 * @param scales   scaling factors, applied in order, negative factors are ignored
+	 */
+	public void eqZigzagFFT(int order, ChannelNames[] chans, int[] bands, float[] scales) {
+		Zigzagger zz = new Zigzagger(order);
+		int dw = (width / order);
+		int dh = (height / order);
+		int ow = (width - dw * order) / 2;
+		int oh = (height - dh * order) / 2;
+		for (int y = 0; y < dh; y++) {
+			for (int x = 0; x < dw; x++) {
+				int mx = x * order + ow;
+				int my = y * order + oh;
+				int[] pix = zz.pluck(pixels, origin, xStride, yStride, mx, my);
+				for (ChannelNames chan : chans) fftEqGlitch(pix, chan, bands, scales);
+				zz.plant(pixels, pix, origin, xStride, yStride, mx, my);
+			}
+		}
+	}
+
+	/**
+	 * Performs an FFT on an array of samples, scales frequencies as eqZigzagFFT() does,
+	 * and modifies the samples.
+	 * @param samples   an array of RGB values, a power of 2 of them
+	 * @param chan      the channel to pass through the FFT
+	 * @param bands     pairs of band numbers, see eqZigzagFFT()
+	 * @param scales    scaling factors for the pairs of bands
+	 * @return          the modified samples
+	 */
+	public int[] fftEqGlitch(int[] samples, ChannelNames chan, int[] bands, float[] scales) {
+		PixelFFT fft = getFFT(samples.length);
+		float[] buf = pullChannel(samples, chan);
+		fft.forward(buf);
+		for (int k = 0; k < scales.length; k++) {
+			for (int j = bands[2 * k]; j <= bands[2 * k + 1]; j++) {
+				fft.scaleBand(j, scales[k]);
+			}
+		}
+		fft.inverse(buf);
+		pushChannel(samples, buf, chan);
+		return samples;
+	}
+
+	/**
+	 * Performs a zigzag scan, centered in the image, and passes blocks to an FFT that uses
+	 * statistical analysis to determine frequency scaling, see fftStatGlitch().
+	 * @param order               the width and height of each block, order * order must be a power of 2
+	 * @param chans               the channels to pass through the FFT, in order
+	 * @param leftBound           left edge of the bands to boost, in standard deviations from the mean
+	 * @param rightBound          right edge of the bands to boost, in standard deviations from the mean
+	 * @param boost               factor for bands between the edges
+	 * @param cut                 factor for bands outside the edges
+	 * @param isLowFrequencyCut   true if band 0, the DC component, should be left out of the statistics
+	 * @return                    min, max, mean, median, standard deviation and skew of the blocks'
+	 *                            amplitudes, averaged over all the blocks
+	 */
+	public float[] statZigzagFFT(int order, ChannelNames[] chans, float leftBound, float rightBound,
+			float boost, float cut, boolean isLowFrequencyCut) {
+		Zigzagger zz = new Zigzagger(order);
+		int dw = (width / order);
+		int dh = (height / order);
+		int totalBlocks = dw * dh;
+		int ow = (width - dw * order) / 2;
+		int oh = (height - dh * order) / 2;
+		float[] stats = new float[6];
+		float[] totals = new float[6];
+		for (int y = 0; y < dh; y++) {
+			for (int x = 0; x < dw; x++) {
+				int mx = x * order + ow;
+				int my = y * order + oh;
+				int[] pix = zz.pluck(pixels, origin, xStride, yStride, mx, my);
+				for (ChannelNames chan : chans) {
+					stats = fftStatGlitch(pix, chan, leftBound, rightBound, boost, cut, isLowFrequencyCut);
+				}
+				// the statistics of the last channel are the ones averaged
+				for (int i = 0; i < totals.length; i++) totals[i] += stats[i];
+				zz.plant(pixels, pix, origin, xStride, yStride, mx, my);
+			}
+		}
+		for (int i = 0; i < totals.length; i++) totals[i] /= totalBlocks;
+		return totals;
+	}
+
+	/**
+	 * Performs an FFT on an array of samples, scales each band by boost if its amplitude lies
+	 * between the edges set by leftBound and rightBound, and by cut if it doesn't, and modifies
+	 * the samples. Edges are given in standard deviations from the mean amplitude: negative
+	 * values are below the mean, positive values above it.
+	 * @return   min, max, mean, median, standard deviation and skew of the amplitudes before scaling
+	 * @see statZigzagFFT(int, ChannelNames[], float, float, float, float, boolean)
+	 */
+	public float[] fftStatGlitch(int[] samples, ChannelNames chan, float leftBound, float rightBound,
+			float boost, float cut, boolean isLowFrequencyCut) {
+		PixelFFT fft = getFFT(samples.length);
+		float[] buf = pullChannel(samples, chan);
+		fft.forward(buf);
+		// ignore first bin, the "DC component" if low frequency is cut
+		int low = (isLowFrequencyCut) ? 1 : 0;
+		float[] stats = fftStat(fft, low, buf.length);
+		float mean = stats[2];
+		float sd = stats[4];
+		int t = samples.length / 2;
+		float leftEdge = leftBound < 0 ? mean - sd * -leftBound : mean + sd * leftBound;
+		float rightEdge = rightBound < 0 ? mean - sd * -rightBound : mean + sd * rightBound;
+		// scale the frequencies in the fft, skipping band 0
+		for (int i = 1; i < t; i++) {
+			float val = fft.getBand(i);
+			if (val < leftEdge || val > rightEdge) fft.scaleBand(i, cut);
+			else fft.scaleBand(i, boost);
+		}
+		fft.inverse(buf);
+		pushChannel(samples, buf, chan);
+		return stats;
+	}
+
+	/**
+	 * Calculates statistics of the amplitudes of bands l to r - 1 of an FFT. Bands past
+	 * the end of the spectrum count as the last band.
+	 * @return   an array of min, max, mean, median, standard deviation and skew
+	 */
+	public static float[] fftStat(PixelFFT fft, int l, int r) {
+		double sum = 0;
+		double squareSum = 0;
+		float[] values = new float[r - l];
+		int index = 0;
+		for (int i = l; i < r; i++) {
+			float val = fft.getBand(i);
+			sum += val;
+			squareSum += val * val;
+			values[index++] = val;
+		}
+		int mid = values.length/2;
+		Arrays.sort(values);
+		float median = (values[mid - 1] + values[mid])/2;
+		float min = values[0];
+		float max = values[values.length -1];
+		float mean = (float) sum/(r - l);
+		float variance = (float) squareSum/(r - l) - mean * mean;
+		float standardDeviation = (float) Math.sqrt(variance);
+		// Pearson's skew measure
+		float skew = 3 * (mean - median)/standardDeviation;
+		return new float[] {min, max, mean, median, standardDeviation, skew};
+	}
+
+	/**
+	 * Divides the spectrum of an FFT into logarithmic equalizer bands, bandsPerOctave bands to the
+	 * octave for octaves octaves down from the Nyquist frequency, merging bands that would cover the
+	 * same FFT bands. GlitchSession.resetFFT() sets its equalizer with these bands.
+	 * @param fft              an FFT of the block size the bands are for
+	 * @param sampleRate       the sample rate the blocks are taken to have
+	 * @param octaves          number of octaves
+	 * @param bandsPerOctave   number of bands in each octave
+	 * @return                 pairs of FFT band numbers from low to high frequency, equalizer band k
+	 *                         covers bands[2k] to bands[2k + 1], the last one ends at the last FFT band
+	 */
+	public static int[] eqBands(PixelFFT fft, float sampleRate, int octaves, int bandsPerOctave) {
+		// upper edges of the frequency bands, from high to low
+		float[] edges = new float[octaves * bandsPerOctave];
+		float hiFreq = sampleRate / 2.0f;
+		int pos = 0;
+		for (int i = 0; i < octaves; i++) {
+			float loFreq = hiFreq * 0.5f;
+			float incFreq = (hiFreq - loFreq) / bandsPerOctave;
+			for (int j = bandsPerOctave; j > 0; j--) {
+				edges[pos++] = loFreq + j * incFreq;
+			}
+			hiFreq = loFreq;
+		}
+		int[] bands = new int[2 * edges.length];
+		int count = 0;
+		int hiBin = 0;
+		int loBin = 0;
+		float freq = fft.indexToFreq(hiBin, sampleRate);
+		for (int k = edges.length - 1; k >= 0; k--) {
+			while (freq < edges[k]) {
+				freq = fft.indexToFreq(hiBin++, sampleRate);
+			}
+			if (0 == count || bands[2 * count - 2] != loBin || bands[2 * count - 1] != hiBin) {
+				bands[2 * count] = loBin;
+				bands[2 * count + 1] = hiBin;
+				count++;
+			}
+			loBin = hiBin;
+		}
+		bands[2 * count - 1] = fft.specSize() - 1;
+		return Arrays.copyOf(bands, 2 * count);
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*              >>> CHANNELS <<<            */
+	/*                                          */
+	/********************************************/
+
+	/**
+	 * Extracts a selected channel from an array of rgb values.
+	 * Hue, saturation and brightness (L) come from HsbCodec, in the range 0..255.
+	 *
+	 * @param samples   rgb values in an array of int
+	 * @param chan      the channel to extract
+	 * @return          the extracted channel values as an array of floats
+	 */
+	public static float[] pullChannel(int[] samples, ChannelNames chan) {
+		float[] buf = new float[samples.length];
+		int i = 0;
+		switch (chan) {
+		case L: {
+			for (int argb : samples) buf[i++] = HsbCodec.brightness(argb);
+			break;
+		}
+		case H: {
+			for (int argb : samples) buf[i++] = HsbCodec.hue(argb);
+			break;
+		}
+		case S: {
+			for (int argb : samples) buf[i++] = HsbCodec.saturation(argb);
+			break;
+		}
+		case R: {
+			for (int argb : samples)  buf[i++] = (argb >> 16) & 0xFF;
+			break;
+		}
+		case G: {
+			for (int argb : samples) buf[i++] = (argb >> 8) & 0xFF;
+			break;
+		}
+		case B: {
+			for (int argb : samples) buf[i++] = argb & 0xFF;
+			break;
+		}
+		}
+		return buf;
+	}
+
+	/**
+	 * Replaces a specified channel in an array of pixel values with a value
+	 * derived from an array of floats and clipped to the range 0..255.
+	 * H, S and L are converted back to rgb with HsbCodec.
+	 *
+	 * @param samples   an array of pixel values
+	 * @param buf       an array of floats
+	 * @param chan      the channel to replace
+	 */
+	public static void pushChannel(int[] samples, float[] buf, ChannelNames chan) {
+		int i = 0;
+		for (float component : buf) {
+			int comp = Math.round((int) component);
+			comp = comp > 255 ? 255 : comp < 0 ? 0 : comp;
+			int argb = samples[i];
+			switch (chan) {
+			case L: { samples[i] = HsbCodec.toColor(HsbCodec.hueInt(argb), HsbCodec.saturationInt(argb), comp); break; }
+			case H: { samples[i] = HsbCodec.toColor(comp, HsbCodec.saturationInt(argb), HsbCodec.brightnessInt(argb)); break; }
+			case S: { samples[i] = HsbCodec.toColor(HsbCodec.hueInt(argb), comp, HsbCodec.brightnessInt(argb)); break; }
+			case R: { samples[i] = 255 << 24 | comp << 16 | ((argb >> 8) & 0xFF) << 8 | argb & 0xFF; break; }
+			case G: { samples[i] = 255 << 24 | ((argb >> 16) & 0xFF) << 16 | comp << 8 | argb & 0xFF; break; }
+			case B: { samples[i] = 255 << 24 | ((argb >> 16) & 0xFF) << 16 | ((argb >> 8) & 0xFF) << 8 | comp & 0xFF; break; }
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Returns the largest difference between the components of two colors.
+	 * If the value returned is 0, colors are identical.
+	 */
+	public static int maxColorDiff(int color1, int color2) {
+		int rDiff = Math.abs(((color1 >> 16) & 0xFF) - ((color2 >> 16) & 0xFF));
+		int gDiff = Math.abs(((color1 >> 8) & 0xFF) - ((color2 >> 8) & 0xFF));
+		int bDiff = Math.abs(((color1) & 0xFF) - ((color2) & 0xFF));
+		return Math.max(Math.max(rDiff, gDiff), bDiff);
+	}
+
+	/**
+	 * @return the mean of two colors, channel by channel, rounded down, with an alpha of 255
+	 */
+	public static int meanColor(int argb1, int argb2) {
+		int r = (int) ((((argb1 >> 16) & 0xFF) + ((argb2 >> 16) & 0xFF)) * 0.5f);
+		int g = (int) ((((argb1 >> 8) & 0xFF) + ((argb2 >> 8) & 0xFF)) * 0.5f);
+		int b = (int) (((argb1 & 0xFF) + (argb2 & 0xFF)) * 0.5f);
+		return 255 << 24 | r << 16 | g << 8 | b;
+	}
+
+}
@@ -0,0 +1,1723 @@
+package net.paulhertz.glitchsort;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * An image and the settings of GlitchSort's key commands, and the interpreter for the commands:
+ * GlitchSort keeps its image here and passes every key command that changes the image or a setting
+ * to decode(), and GlitchBatch runs command strings such as "ltltltlt" or "dzmdzm" in a batch job
+ * with no user interface. A command string run from a seed gives the same image either way.
+ * Settings start at the applet's defaults and can be changed with the setters, as the applet's
+ * control panel does, or by name with set() or configure().
+ * <p>
+ * Commands for the display, the console and file dialogs are the applet's and are ignored here:
+ * space, f, h, v, o, O, ';', '*', ':', '/' and '\'. 'd' compresses the image to JPEG in memory,
+ * 's' and 'S' write PNG files in the output directory, and 'r' and 'R' read the last saved file and
+ * the original file. Undo does nothing until a command has backed up the image, and when munge resizes
+ * the undo buffer or the snapshot, it scales them with bilinear interpolation. Messages the applet
+ * prints to the console go to log(), which does nothing unless a subclass overrides it.
+ * <p>
+ * exec() compiles a string into a CommandPlan first, which turns the image once for a run of 't' and
+ * 'T' and leaves out backups that nothing reads, and gives the same image as decode() run on each
+ * character.
+ * <p>
+ * With live sorting on ('7'), 'g' starts a sort that runs a time slice at a time, see stepLiveSort(),
+ * so the applet can show it in progress. The next command finishes it first, and the image is the
+ * same as without live sorting.
+ * <p>
+ * A session has its own GlitchEngine and SortSelector, so sessions can glitch images in as many
+ * threads as there are sessions, but each session belongs to one thread at a time.
+ */
+public class GlitchSession {
+	/** settings that set() accepts, in the order configure() applies them */
+	public static final String[] SETTINGS = {
+		"sorter", "breakPoint", "compOrder", "ascending", "randomBreak", "swapChannels", "swap",
+		"introSort", "networkSort", "cocktailSort", "bubbleBudget", "parallel", "shellIndex",
+		"sortFormat", "glitchSteps", "cycle", "zigzagStyle", "zigzagFloor", "zigzagCeiling",
+		"zigzagPercent", "zigzagBlockWidth", "mungeThreshold", "mungeInverted", "colorQuantize",
+		"degradeQuality", "shift", "fftBlockWidth", "eq", "eqChannels", "statChannels",
+		"leftBound", "rightBound", "boost", "cut", "lowFrequencyCut"
+	};
+	/** the sample rate the FFT commands take blocks of pixels to have, for dividing them into bands */
+	static final float SAMPLE_RATE = 44100.0f;
+	/** number of octaves in the equalizer */
+	static final int EQ_OCTAVES = 11;
+	/** number of equalizer bands in each octave */
+	static final int BANDS_PER_OCTAVE = 3;
+	/** defaults of the statistical FFT settings, see resetStat() */
+	static final float DEFAULT_LEFT_BOUND = -0.25f;
+	static final float DEFAULT_RIGHT_BOUND = 5.0f;
+	static final float DEFAULT_BOOST = 2.0f;
+	static final float DEFAULT_CUT = 0.5f;
+	/** commands that decode() refuses with no image open, the others only change settings or do nothing */
+	static final String NEEDS_IMAGE = "gG8nNsStTdDpPlLkKjJ9,<.>";
+
+	/** performs the image operations */
+	private final GlitchEngine engine;
+	/** sorts pixels for the engine and keeps their metrics */
+	private final SortSelector sortTool;
+	/** pixels of the image, ARGB, row by row as stored, turned by orientation */
+	private int[] pixels;
+	/** width of the image as seen */
+	private int width;
+	/** height of the image as seen */
+	private int height;
+	/** how the image as seen is turned from pixels, see turn() and upright() */
+	private Orientation orientation = Orientation.R0;
+	/** the undo buffer, null until a command backs up the image */
+	private int[] bakPixels;
+	private int bakWidth;
+	private int bakHeight;
+	private Orientation bakOrientation = Orientation.R0;
+	/** the snapshot, null until 'n' takes one */
+	private int[] snapPixels;
+	private int snapWidth;
+	private int snapHeight;
+	/** the file opened */
+	private File originalFile;
+	/** the most recently saved version of the file, read by 'r' */
+	private File displayFile;
+	/** directory for saved files */
+	private File outputDir = new File(".");
+	/** timestamp for file names */
+	private String timestamp = timestamp();
+	/** number of the next saved file */
+	private int fileCount = 0;
+	/** counts changes to the image, see isSaved() */
+	private int edits = 0;
+	/** value of edits when the image was last saved, -1 if it hasn't been */
+	private int savedEdits = -1;
+	/** seed for rand */
+	private long randomSeed = System.nanoTime();
+	/** source of random numbers for sorting, shuffling and zigzag */
+	private RandomSource rand = new SeededRandom(randomSeed);
+	/** row numbers, shuffled, see sortPixels() */
+	private int[] rowNums;
+	/** line numbers for sorting squares or diagonals, shuffled as rowNums is for rows */
+	private int[] lineNums;
+	/** divisions of the rows for sorting in steps: lower and upper bounds, see setRange() */
+	private int[] rangeLower = new int[0];
+	private int[] rangeUpper = new int[0];
+	/** index of the next division to sort */
+	private int rangeIndex;
+	/** true while a step of a CommandPlan runs whose backup nothing will read, see backup() */
+	private boolean isBackupSkipped = false;
+	/** the live sort in progress, null if there is none */
+	private LiveSort liveSort;
+	/** work to do when liveSort is finished, shuffling the lines it sorted */
+	private Runnable liveSortDone;
+
+	// sort settings
+	CompOrder compOrder = CompOrder.RGB;
+	SwapChannel swap = SwapChannel.RR;
+	SortFormat sortFormat = SortFormat.ROW;
+	ZigzagStyle zigzagStyle = ZigzagStyle.RANDOM;
+	boolean randomBreak = true;
+	boolean isAscendingSort = false;
+	boolean isSwapChannels = false;
+	boolean isIntroSort = false;
+	boolean isNetworkSort = false;
+	boolean isCocktailSort = false;
+	long bubbleBudget = 0;
+	long[] bubbleBudgets = {0, 1 << 20, 1 << 22, 1 << 24, 1 << 26};
+	/** false by default: a batch job keeps its threads busy with images, not rows */
+	boolean isParallelSort = false;
+	float breakPoint;
+	float glitchSteps = 1;
+	boolean isCycleGlitch = false;
+	int[] shellParams = {2,3, 2,5, 3,5, 3,7, 3,9, 4,7, 4,9, 5,7, 5,9, 5,11, 8,13};
+	int shellIndex = 8;
+	GapSequence gapSequence = GapSequence.RATIO;
+	int zigzagFloor = 8;
+	int zigzagCeiling = 64;
+	float zigzagPercent = 100.0f;
+	int zigzagBlockWidth = 128;
+	int movieFrames = 300;
+	int movieOpsPerFrame = 4096;
+	/** threads that write the frames of a movie: one, since a batch job already has a thread for each image */
+	int movieThreads = 1;
+	/** true if 'g' should start a live sort, see stepLiveSort() */
+	boolean isLiveSort = false;
+	// other commands
+	int mungeThreshold = 16;
+	boolean isMungeInverted = false;
+	int colorQuantize = 32;
+	float degradeQuality = 0.125f;
+	/** channel shifted by ',' and '.', R, G or B, or null for none */
+	ChannelNames shiftChannel = ChannelNames.R;
+	// FFT
+	int fftBlockWidth = 64;
+	/** pairs of FFT bands covered by the equalizer bands, low to high, see GlitchEngine.eqBands() */
+	int[] bandList;
+	/** scaling factors for the equalizer bands, 1 leaves a band as it is */
+	float[] eq;
+	ChannelNames[] eqChannels = {ChannelNames.L};
+	ChannelNames[] statChannels = {ChannelNames.L};
+	float leftBound = DEFAULT_LEFT_BOUND;
+	float rightBound = DEFAULT_RIGHT_BOUND;
+	float boost = DEFAULT_BOOST;
+	float cut = DEFAULT_CUT;
+	boolean isLowFrequencyCut = false;
+
+	public GlitchSession() {
+		sortTool = new SortSelector();
+		engine = new GlitchEngine(sortTool);
+		sortTool.setRandomBreak(randomBreak);
+		// starting breakpoints of the sorters that break with breakTest()
+		sortTool.getBubble().setBreakPoint(999);
+		sortTool.getShell().setBreakPoint(996);
+		sortTool.getQuick().setBreakPoint(1);
+		setSorter(SorterType.QUICK);
+		resetFFT(fftBlockWidth);
+	}
+
+	/**
+	 * @return the current date and time as GlitchSort puts it in file names, day, hour, minute and second
+	 */
+	public static String timestamp() {
+		Calendar now = Calendar.getInstance();
+		return String.format("%02d%02d%02d%02d", now.get(Calendar.DAY_OF_MONTH), now.get(Calendar.HOUR_OF_DAY),
+				now.get(Calendar.MINUTE), now.get(Calendar.SECOND));
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*            >>> IMAGE AND FILES <<<       */
+	/*                                          */
+	/********************************************/
+
+	/**
+	 * Opens an image file (JPEG, GIF, PNG or BMP), as GlitchSort does when a file is selected.
+	 * @param file   the file to open
+	 * @throws IOException   if the file can't be read
+	 */
+	public void open(File file) throws IOException {
+		originalFile = file;
+		displayFile = file;
+		loadFile(file);
+	}
+
+	/**
+	 * Loads a file into the image and shuffles the rows.
+	 */
+	private void loadFile(File file) throws IOException {
+		finishLiveSort();
+		log("selected file "+ file.getAbsolutePath());
+		BufferedImage image = readImage(file);
+		width = image.getWidth();
+		height = image.getHeight();
+		pixels = image.getRGB(0, 0, width, height, null, 0, width);
+		orientation = Orientation.R0;
+		edits++;
+		log("image width "+ width +", image height "+ height);
+		resetRowNums(height);
+		setRange(height);
+	}
+
+	/**
+	 * Loads an image file into the snapshot, for the applet's 'O' command.
+	 * @param file   the file to load
+	 * @throws IOException   if the file can't be read
+	 */
+	public void openSnapshot(File file) throws IOException {
+		BufferedImage image = readImage(file);
+		snapWidth = image.getWidth();
+		snapHeight = image.getHeight();
+		snapPixels = image.getRGB(0, 0, snapWidth, snapHeight, null, 0, snapWidth);
+		log("loaded "+ file.getName() +" to snapshot buffer: width = "+ snapWidth +", height = "+ snapHeight);
+	}
+
+	/**
+	 * @return   an image read from a file
+	 * @throws IOException   if the file can't be read
+	 */
+	static BufferedImage readImage(File file) throws IOException {
+		BufferedImage image = ImageIO.read(file);
+		if (null == image) throw new IOException("no image reader for "+ file);
+		return image;
+	}
+
+	/**
+	 * Writes pixels to a PNG file.
+	 * @throws IOException   if the file can't be written
+	 */
+	public static void writePNG(int[] pixels, int width, int height, File file) throws IOException {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		System.arraycopy(pixels, 0, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, width * height);
+		if (!ImageIO.write(image, "png", file)) throw new IOException("no PNG writer for "+ file);
+	}
+
+	/**
+	 * Saves the image to a uniquely named PNG file in the output directory, named for the
+	 * original file, the timestamp and a count.
+	 * @param isCopy   if false, 'r' reverts to the saved file
+	 * @return         the file written
+	 * @throws IOException   if the file can't be written
+	 */
+	public File saveFile(boolean isCopy) throws IOException {
+		finishLiveSort();
+		String[] parts = originalFile.getName().split("\\.");
+		File file = new File(outputDir, parts[0] +"_"+ timestamp +"_"+ fileCount +".png");
+		fileCount++;
+		log((isCopy ? "saving copy to " : "saving to ") + file.getName());
+		upright();
+		writePNG(pixels, width, height, file);
+		if (!isCopy) displayFile = file;
+		savedEdits = edits;
+		return file;
+	}
+
+	/**
+	 * Reverts the image to the last saved file, or to the original file.
+	 */
+	public void revert(boolean toOriginalFile) throws IOException {
+		if (null == displayFile) return;
+		if (toOriginalFile) displayFile = originalFile;
+		loadFile(displayFile);
+		loadRowNums();
+		resetRanger();
+		shuffle(rowNums);
+	}
+
+	/**
+	 * Reports what a command did. GlitchSort prints the messages to the console; a session with no
+	 * user interface ignores them.
+	 * @param msg   a message
+	 */
+	protected void log(String msg) {
+	}
+
+	/**
+	 * @return true if an image has been opened
+	 */
+	public boolean hasImage() {
+		return null != pixels;
+	}
+
+	/**
+	 * @return true if the image has been saved and not changed since
+	 */
+	public boolean isSaved() {
+		return savedEdits == edits;
+	}
+
+	/**
+	 * @return the pixels of the image, row by row as it is seen; while a live sort runs, the array
+	 *         it is sorting, which changes with each call to stepLiveSort()
+	 */
+	public int[] getPixels() {
+		upright();
+		return pixels;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public SortSelector getSortTool() {
+		return sortTool;
+	}
+
+	/**
+	 * @return the engine the commands use, for its FFT, see PixelFFT
+	 */
+	public GlitchEngine getEngine() {
+		return engine;
+	}
+
+	public File getOutputDir() {
+		return outputDir;
+	}
+
+	/**
+	 * @param outputDir   directory for saved files
+	 */
+	public void setOutputDir(File outputDir) {
+		this.outputDir = outputDir;
+	}
+
+	public String getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @param timestamp   the timestamp in the names of saved files, see timestamp()
+	 */
+	public void setTimestamp(String timestamp) {
+		this.timestamp = timestamp;
+	}
+
+	public long getRandomSeed() {
+		return randomSeed;
+	}
+
+	/**
+	 * Restarts the random numbers used by sorting, shuffling and zigzag from a new seed.
+	 * Set it before open() for the rows to be shuffled from the seed too.
+	 * @param seed   the seed to set
+	 */
+	public void setRandomSeed(long seed) {
+		randomSeed = seed;
+		rand = new SeededRandom(seed);
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*              >>> COMMANDS <<<            */
+	/*                                          */
+	/********************************************/
+
+	/**
+	 * Executes a command sequence, compiled into a CommandPlan, which gives the image decode() gives
+	 * for each character in turn with fewer rotations and copies.
+	 * @param cmd   a command sequence, see decode()
+	 * @throws IOException   if a command that reads or writes a file fails
+	 */
+	public void exec(String cmd) throws IOException {
+		exec(CommandPlan.compile(cmd));
+	}
+
+	/**
+	 * Executes a compiled command sequence.
+	 * @param plan   the steps to run
+	 * @throws IOException   if a command that reads or writes a file fails
+	 */
+	public void exec(CommandPlan plan) throws IOException {
+		for (int i = 0; i < plan.size(); i++) {
+			step(plan, i);
+		}
+	}
+
+	/**
+	 * Runs one step of a plan.
+	 * @param plan   a compiled command sequence
+	 * @param i      the step to run
+	 * @throws IOException   if a command that reads or writes a file fails
+	 */
+	public void step(CommandPlan plan, int i) throws IOException {
+		if (plan.isTurn(i)) {
+			finishLiveSort();
+			if (null == pixels) throw new IllegalStateException("no image is open");
+			turn(plan.getQuarterTurns(i), plan.getTurnCount(i));
+			return;
+		}
+		isBackupSkipped = !plan.isUndoLive(i);
+		try {
+			decode(plan.getCommand(i));
+		}
+		finally {
+			isBackupSkipped = false;
+		}
+	}
+
+	/**
+	 * Executes a command sequence, starting from a random seed.
+	 * @param cmd    a command sequence
+	 * @param seed   a random seed
+	 * @throws IOException   if a command that reads or writes a file fails
+	 */
+	public void exec(String cmd, long seed) throws IOException {
+		setRandomSeed(seed);
+		exec(cmd);
+	}
+
+	/**
+	 * Executes the command for a character, the key for it in GlitchSort. Characters that aren't
+	 * commands, and the commands listed in the class comment, are ignored. A live sort in progress
+	 * is finished first. Settings can be changed before an image is open.
+	 * @param ch   a char value representing a command
+	 * @throws IOException   if a command that reads or writes a file fails
+	 * @throws IllegalStateException   if no image is open and the command needs one
+	 */
+	public void decode(char ch) throws IOException {
+		finishLiveSort();
+		if (null == pixels && NEEDS_IMAGE.indexOf(ch) > -1) throw new IllegalStateException("no image is open");
+		if (ch == '1') {
+			setSorter(SorterType.QUICK);             // use quick sort
+		}
+		else if (ch == '2') {
+			setSorter(SorterType.SHELL);             // use shell sort
+		}
+		else if (ch == '3') {
+			setSorter(SorterType.BUBBLE);            // use bubble sort
+		}
+		else if (ch == '4') {
+			setSorter(SorterType.INSERT);            // use insert sort
+		}
+		else if (ch == '5') {
+			setSorter(SorterType.RADIX);             // use radix sort
+		}
+		else if (ch == '6') {
+			setSorter(SorterType.MERGE);             // use merge sort
+		}
+		else if (ch == 'q' || ch == 'Q') {
+			setIntroSort(!isIntroSort);              // toggle safe quick sort
+		}
+		else if (ch == 'e') {
+			log(sortTool.getMetrics().toJSON());     // report sorting metrics
+		}
+		else if (ch == 'E') {
+			sortTool.getMetrics().reset();           // reset sorting metrics
+			log("sorting metrics reset");
+		}
+		else if (ch == 'w' || ch == 'W') {
+			setNetworkSort(!isNetworkSort);          // toggle sorting networks for small blocks
+		}
+		else if (ch == '7') {
+			setLiveSort(!isLiveSort);                // toggle sorting a time slice at a time
+		}
+		else if (ch == '8') {
+			sortMovie();                             // sort and save frames of the sort in progress
+		}
+		else if (ch == '0') {
+			setCocktailSort(!isCocktailSort);        // toggle two-way bubble sort
+		}
+		else if (ch == '(') {
+			stepBubbleBudget();                      // step through bubble sort comparison budgets
+		}
+		else if (ch == '#') {
+			stepSortFormat();                        // sort rows, squares or diagonals
+		}
+		else if (ch == 'g' || ch == 'G') {
+			sortPixels(null);                        // 'g' for glitch: sort with current algorithm
+		}
+		else if (ch == 'n' || ch == 'N') {
+			snap();                                  // copy the image to the snapshot
+		}
+		else if (ch == 'u' || ch == 'U') {
+			unsnap();                                // copy the snapshot to the image
+		}
+		else if (ch == 'b' || ch == 'B') {
+			setRandomBreak(!randomBreak);            // toggle random breaks
+		}
+		else if (ch == 's') {
+			saveFile(false);                         // save to file
+		}
+		else if (ch == 'S') {
+			saveFile(true);                          // save to file as copy
+		}
+		else if (ch == '=' || ch == '+') {
+			int n = CompOrder.values().length;
+			setCompOrder(CompOrder.values()[(compOrder.ordinal() + 1) % n]);
+		}
+		else if (ch == '-' || ch == '_') {
+			int n = CompOrder.values().length;
+			setCompOrder(CompOrder.values()[(compOrder.ordinal() + n - 1) % n]);
+		}
+		else if (ch == 'a' || ch == 'A') {
+			setAscending(!isAscendingSort);          // toggle ascending/descending sort
+		}
+		else if (ch == 'r') {
+			revert(false);                           // reload the last saved file
+		}
+		else if (ch == 'R') {
+			revert(true);                            // reload the original file
+		}
+		else if (ch == 't') {
+			rotatePixels(true);                      // turn 90 degrees right (CW)
+		}
+		else if (ch == 'T') {
+			rotatePixels(false);                     // turn 90 degrees left (CCW)
+		}
+		else if (ch == 'x' || ch == 'X') {
+			setSwapChannels(!isSwapChannels);        // toggle channel swapping (color glitching)
+		}
+		else if (ch == 'c' || ch == 'C') {
+			setSwap(SwapChannel.values()[(swap.ordinal() + 1) % SwapChannel.values().length]);
+		}
+		else if (ch == 'z' || ch == 'Z') {
+			restore();                               // exchange the image and the undo buffer
+		}
+		else if (ch == 'd' || ch == 'D') {
+			degrade();                               // compress as a low quality JPEG
+		}
+		else if (ch == 'm' || ch == 'M') {
+			munge();                                 // composite image and snapshot with undo buffer difference mask
+		}
+		else if (ch == 'i' || ch == 'I') {
+			setMungeInverted(!isMungeInverted);      // invert the difference mask for munge
+		}
+		else if (ch == 'y' || ch == 'Y') {
+			setCycle(!isCycleGlitch);                // in multi-step sort, cycle through all lines in image
+		}
+		else if (ch == 'p' || ch == 'P') {
+			reduceColors();                          // quantize colors
+		}
+		else if (ch == 'l' || ch == 'L') {
+			zigzag();                                // perform a zigzag sort
+		}
+		else if (ch == 'k' || ch == 'K') {
+			statZigzagFFT();                         // FFT with the statistical settings
+		}
+		else if (ch == 'j' || ch == 'J') {
+			eqZigzagFFT();                           // FFT with the equalizer settings
+		}
+		else if (ch == '{') {
+			decShellIndex();                         // step to previous shell sort settings
+		}
+		else if (ch == '}') {
+			incShellIndex();                         // step to next shell sort settings
+		}
+		else if (ch == '[') {
+			setGlitchSteps((int) glitchSteps - 1);   // decrease glitchSteps
+		}
+		else if (ch == ']') {
+			setGlitchSteps((int) glitchSteps + 1);   // increase glitchSteps
+		}
+		else if (ch == '9') {
+			denoise();                               // median filter
+		}
+		else if (ch == ',' || ch == '<') {
+			shiftLeft();                             // shift selected color channel left
+		}
+		else if (ch == '.' || ch == '>') {
+			shiftRight();                            // shift selected color channel right
+		}
+	}
+
+	/**
+	 * Points the engine at the pixels of the image, turned as they are.
+	 */
+	private GlitchEngine engine() {
+		engine.setImage(pixels, storedWidth(), storedHeight(), orientation);
+		return engine;
+	}
+
+	/** width of the pixels as they are stored, height of the image if it is turned a quarter */
+	private int storedWidth() {
+		return orientation.isTransposed() ? height : width;
+	}
+
+	/** height of the pixels as they are stored */
+	private int storedHeight() {
+		return orientation.isTransposed() ? width : height;
+	}
+
+	/**
+	 * Stores the image upright, for operations that read its pixels in order: in place, if the
+	 * image is square or has turned a half turn, see PixelRotator.
+	 */
+	void upright() {
+		if (Orientation.R0 == orientation) return;
+		if (!PixelRotator.rotateInPlace(pixels, storedWidth(), storedHeight(), orientation)) {
+			pixels = orientation.materialize(pixels, storedWidth(), storedHeight());
+		}
+		orientation = Orientation.R0;
+	}
+
+	/**
+	 * Stores the undo buffer upright.
+	 */
+	void uprightUndo() {
+		if (null == bakPixels || Orientation.R0 == bakOrientation) return;
+		int w = bakOrientation.isTransposed() ? bakHeight : bakWidth;
+		int h = bakOrientation.isTransposed() ? bakWidth : bakHeight;
+		if (!PixelRotator.rotateInPlace(bakPixels, w, h, bakOrientation)) {
+			bakPixels = bakOrientation.materialize(bakPixels, w, h);
+		}
+		bakOrientation = Orientation.R0;
+	}
+
+	/**
+	 * Gathers the current sort settings into an immutable SortConfig, which threads that sort can share.
+	 */
+	public SortConfig getSortConfig() {
+		SortSelector.ShellSorter shell = sortTool.getShell();
+		return new SortConfig(sortTool.sorter.getSorterType(), compOrder, isAscendingSort, breakPoint,
+				randomBreak, isSwapChannels, swap)
+				.withShell(shell.ratio, shell.divisor)
+				.withGapSequence(gapSequence)
+				.withIntroSort(isIntroSort)
+				.withNetworkSort(isNetworkSort)
+				.withParallel(isParallelSort)
+				.withBubble(isCocktailSort, bubbleBudget);
+	}
+
+	/**
+	 * Sorts the lines of the image in random order with the current sorter: all of them, or the next
+	 * of glitchSteps divisions when cycling. With live sorting on, and no log, starts a live sort of
+	 * the image stored upright instead, see stepLiveSort().
+	 * @param log   log to record the sort in, or null
+	 */
+	void sortPixels(ExchangeLog log) {
+		final boolean isLive = isLiveSort && null == log;
+		// a live sort is shown as it runs, so it sorts the pixels as they are seen
+		if (isLive) upright();
+		SortConfig config = getSortConfig();
+		sortTool.setCommand("sortPixels");
+		backup();
+		PixelView view = PixelView.get(sortFormat, width, height, zigzagBlockWidth, orientation);
+		final int[] lines;
+		if (SortFormat.ROW == sortFormat) {
+			lines = rowNums;
+		}
+		else {
+			if (null == lineNums || lineNums.length != view.getLineCount()) {
+				lineNums = new int[view.getLineCount()];
+				for (int i = 0; i < lineNums.length; i++) lineNums[i] = i;
+				shuffle(lineNums);
+			}
+			lines = lineNums;
+		}
+		int lo, hi;
+		boolean isShuffleAfter = false;
+		if (isCycleGlitch) {
+			if (rangeIndex >= rangeLower.length) {
+				rangeIndex = 0;
+				shuffle(rowNums);
+				if (lines != rowNums) shuffle(lines);
+				log("starting a new cycle");
+			}
+			int lower = rangeLower[rangeIndex];
+			// the applet sorts to the upper bound of a division, not through it
+			int upper = rangeUpper[rangeIndex];
+			rangeIndex++;
+			lo = (int) ((long) lower * lines.length / rowNums.length);
+			hi = (int) ((long) upper * lines.length / rowNums.length);
+		}
+		else {
+			lo = 0;
+			hi = Math.round(lines.length / glitchSteps);
+			isShuffleAfter = true;
+		}
+		if (isLive) {
+			// the lines are shuffled when the sort is done
+			liveSort = engine().sortLinesLive(config, view, lines, lo, hi, rand.split());
+			liveSortDone = !isShuffleAfter ? null : new Runnable() {
+				public void run() {
+					shuffle(lines);
+				}
+			};
+			return;
+		}
+		engine().sortLines(config, view, lines, lo, hi, rand.split(), log);
+		if (isShuffleAfter) shuffle(lines);
+	}
+
+	/**
+	 * @return true if a live sort is in progress
+	 */
+	public boolean isLiveSortRunning() {
+		return null != liveSort;
+	}
+
+	/**
+	 * Lets the live sort in progress run for a time slice, and ends it when it is done. The pixels
+	 * it has sorted so far can be read when this returns, see getPixels().
+	 * @param budgetNanos   time to sort for, in nanoseconds
+	 * @return              true if there is no live sort in progress any more
+	 */
+	public boolean stepLiveSort(long budgetNanos) {
+		if (null == liveSort) return true;
+		if (liveSort.step(budgetNanos)) endLiveSort();
+		return null == liveSort;
+	}
+
+	/**
+	 * Finishes the live sort in progress at once, if there is one.
+	 */
+	public void finishLiveSort() {
+		if (null == liveSort) return;
+		liveSort.finish();
+		endLiveSort();
+	}
+
+	private void endLiveSort() {
+		LiveSort live = liveSort;
+		Runnable done = liveSortDone;
+		liveSort = null;
+		liveSortDone = null;
+		if (null != live.getFailure()) log("--->> live sort failed: "+ live.getFailure());
+		if (null != done) done.run();
+	}
+
+	/**
+	 * Sorts the pixels as 'g' does, recording the sort, and saves movieFrames frames of the sort in
+	 * progress in a new directory in the output directory, movieThreads frames at a time.
+	 */
+	void sortMovie() throws IOException {
+		// the frames are written from the pixels as they are stored
+		upright();
+		int[] start = pixels.clone();
+		ExchangeLog changes = new ExchangeLog(movieOpsPerFrame);
+		sortPixels(changes);
+		String[] parts = originalFile.getName().split("\\.");
+		File dir = new File(outputDir, parts[0] +"_"+ timestamp +"_"+ fileCount +"_sort");
+		fileCount++;
+		dir.mkdirs();
+		int[] frames = changes.evenFrames(movieFrames);
+		log("recorded "+ changes.getOpCount() +" changes in "+ (changes.getMemoryBytes() / 1024) +" KB, saving "
+				+ frames.length +" of "+ changes.getFrameCount() +" frames to "+ dir.getName());
+		changes.writeFrames(start, width, height, frames, dir, parts[0], movieThreads);
+	}
+
+	/**
+	 * Performs a zigzag sort with blocks of a random size from zigzagFloor to zigzagCeiling,
+	 * and sets zigzagBlockWidth to the size.
+	 */
+	void zigzag() {
+		int order = (int) rand.random(zigzagFloor, zigzagCeiling + 1);
+		zigzagBlockWidth = order;
+		log("zigzagFloor = "+ zigzagFloor +", zigzagCeiling = "+ zigzagCeiling +", order = "+ order);
+		zigzag(order);
+	}
+
+	/**
+	 * Performs a zigzag sort, centered in the image, finishing a live sort in progress first.
+	 * @param order   the width and height of each block of pixels to sort, 0 for zigzagBlockWidth
+	 */
+	public void zigzag(int order) {
+		finishLiveSort();
+		if (null == pixels) throw new IllegalStateException("no image is open");
+		if (0 == order) order = zigzagBlockWidth;
+		log("Zigzag order = "+ order +", "+ zigzagStyle.name() +" zigzag");
+		sortTool.setCommand("zigzag");
+		backup();
+		engine().zigzag(getSortConfig(), order, zigzagStyle, zigzagPercent, rand);
+	}
+
+	/**
+	 * Quantizes the colors of the image to colorQuantize colors.
+	 */
+	void reduceColors() {
+		upright();
+		backup();
+		engine().reduceColors(colorQuantize);
+	}
+
+	/**
+	 * Applies a 3x3 median filter to the image.
+	 */
+	void denoise() {
+		upright();
+		backup();
+		engine().denoise();
+	}
+
+	/**
+	 * Shifts shiftChannel one pixel left, if a channel is selected.
+	 */
+	void shiftLeft() {
+		backup();
+		if (null != shiftChannel) engine().shiftLeft(shiftChannel);
+	}
+
+	/**
+	 * Shifts shiftChannel one pixel right, if a channel is selected.
+	 */
+	void shiftRight() {
+		backup();
+		if (null != shiftChannel) engine().shiftRight(shiftChannel);
+	}
+
+	/**
+	 * Passes blocks of the image, fftBlockWidth pixels on a side, through an FFT that boosts or cuts
+	 * bands by how far their amplitudes lie from the mean, see GlitchEngine.statZigzagFFT().
+	 */
+	void statZigzagFFT() {
+		log("Zigzag order = "+ fftBlockWidth);
+		backup();
+		float[] stats = engine().statZigzagFFT(fftBlockWidth, statChannels, leftBound, rightBound, boost, cut, isLowFrequencyCut);
+		float min = stats[0], max = stats[1], mean = stats[2], median = stats[3], sd = stats[4], skew = stats[5];
+		float leftEdge = leftBound < 0 ? mean - sd * -leftBound : mean + sd * leftBound;
+		float rightEdge = rightBound < 0 ? mean - sd * -rightBound : mean + sd * rightBound;
+		log("---- Average statistical values for image before FFT ----");
+		log("  min = "+ twoPlaces(min) +", max = "+ twoPlaces(max) +", mean = "+ twoPlaces(mean)
+				+", median = "+ twoPlaces(median) +", sd = "+ twoPlaces(sd) +", skew = "+ twoPlaces(skew));
+		log("  leftEdge = "+ twoPlaces(leftEdge) +", rightEdge = "+ twoPlaces(rightEdge)
+				+", leftBound = "+ leftBound +", rightBound = "+ rightBound);
+	}
+
+	/**
+	 * Passes blocks of the image, fftBlockWidth pixels on a side, through an FFT that scales the
+	 * equalizer bands by eq.
+	 */
+	void eqZigzagFFT() {
+		log("Zigzag order = "+ fftBlockWidth);
+		backup();
+		engine().eqZigzagFFT(fftBlockWidth, eqChannels, eqBands(), eqScales());
+	}
+
+	/**
+	 * Glitches one block of pixels, as the applet's audify command does to the block under the mouse:
+	 * with the statistical FFT after 'k', the equalizer FFT after 'j', and otherwise with the current sorter.
+	 * @param block   fftBlockWidth * fftBlockWidth pixels, changed on exit
+	 * @param ch      the last command
+	 */
+	public void glitchBlock(int[] block, char ch) {
+		finishLiveSort();
+		sortTool.setCommand("audify");
+		if ('k' == ch) {
+			engine.fftStatGlitch(block, ChannelNames.L, leftBound, rightBound, boost, cut, isLowFrequencyCut);
+		}
+		else if ('j' == ch) {
+			engine.fftEqGlitch(block, ChannelNames.L, eqBands(), eqScales());
+		}
+		else {
+			sortTool.sort(getSortConfig(), block, rand.split());
+		}
+		edits++;
+	}
+
+	/**
+	 * Averages the amplitudes of the brightness of the image over blocks fftBlockWidth pixels on a side,
+	 * centered in the image, in each equalizer band. The image is not changed.
+	 * @return   the mean amplitude in each band, low to high, in the order of the eq factors
+	 */
+	public double[] analyzeEq() {
+		finishLiveSort();
+		double[] totals = new double[eq.length];
+		if (null == pixels) return totals;
+		upright();
+		int order = fftBlockWidth;
+		PixelFFT fft = engine.getFFT(order * order);
+		Zigzagger zz = new Zigzagger(order);
+		int dw = width / order;
+		int dh = height / order;
+		int blocks = dw * dh;
+		int ow = (width - dw * order) / 2;
+		int oh = (height - dh * order) / 2;
+		for (int y = 0; y < dh; y++) {
+			for (int x = 0; x < dw; x++) {
+				int[] pix = zz.pluck(pixels, width, height, x * order + ow, y * order + oh);
+				fft.forward(GlitchEngine.pullChannel(pix, ChannelNames.L));
+				for (int i = 0; i < totals.length; i++) {
+					int lo = bandList[2 * i];
+					int hi = bandList[2 * i + 1];
+					float sum = 0;
+					for (int j = lo; j <= hi; j++) sum += fft.getBand(j);
+					totals[i] += sum / ((hi - lo + 1) * blocks);
+				}
+			}
+		}
+		return totals;
+	}
+
+	/**
+	 * @return   a number with two decimal places and a point, as the applet's console messages show numbers
+	 */
+	static String twoPlaces(float val) {
+		return String.format(Locale.US, "%.2f", val);
+	}
+
+	/**
+	 * Copies the image to the undo buffer, into the buffer's own array when it is the right size,
+	 * unless the step running says nothing will read the copy.
+	 */
+	void backup() {
+		if (!isBackupSkipped) {
+			if (null != bakPixels && bakPixels.length == pixels.length) {
+				System.arraycopy(pixels, 0, bakPixels, 0, pixels.length);
+			}
+			else {
+				bakPixels = pixels.clone();
+			}
+			bakWidth = width;
+			bakHeight = height;
+			bakOrientation = orientation;
+		}
+		// every command that backs up the image changes it
+		edits++;
+	}
+
+	/**
+	 * Exchanges the image and the undo buffer, each turned as it is.
+	 */
+	void restore() {
+		if (null == bakPixels) return;
+		int[] p = pixels;
+		int w = width;
+		int h = height;
+		Orientation o = orientation;
+		setPixels(bakPixels, bakWidth, bakHeight, bakOrientation);
+		bakPixels = p;
+		bakWidth = w;
+		bakHeight = h;
+		bakOrientation = o;
+	}
+
+	/**
+	 * Copies the image, upright, to the snapshot.
+	 */
+	void snap() {
+		snapPixels = Orientation.R0 == orientation ? pixels.clone()
+				: orientation.materialize(pixels, storedWidth(), storedHeight());
+		snapWidth = width;
+		snapHeight = height;
+		log("took a snapshot of current state");
+	}
+
+	/**
+	 * Copies the snapshot to the image, the undo buffer is not changed.
+	 */
+	void unsnap() {
+		if (null == snapPixels) return;
+		setPixels(snapPixels.clone(), snapWidth, snapHeight, Orientation.R0);
+	}
+
+	/**
+	 * Replaces the image and resets the rows, for undo, unsnap and rotation.
+	 * @param w   width of the image as seen
+	 * @param h   height of the image as seen
+	 * @param o   how the image as seen is turned from newPixels
+	 */
+	private void setPixels(int[] newPixels, int w, int h, Orientation o) {
+		pixels = newPixels;
+		width = w;
+		height = h;
+		orientation = o;
+		edits++;
+		loadRowNums();
+		resetRanger();
+		shuffle(rowNums);
+	}
+
+	/**
+	 * Rotates the image and the undo buffer 90 degrees by changing their orientation: no pixels move.
+	 * @param isTurnRight   true to turn clockwise, false to turn counterclockwise
+	 */
+	void rotatePixels(boolean isTurnRight) {
+		turn(isTurnRight ? 1 : 3, 1);
+	}
+
+	/**
+	 * Does what count calls to rotatePixels() do, turning the image and the undo buffer by their 
+	 * net quarter turns. Only their orientations change, see upright().
+	 * @param quarterTurns   net quarter turns clockwise, 0 to 3
+	 * @param count          number of calls to rotatePixels(), each of which shuffles the rows
+	 */
+	void turn(int quarterTurns, int count) {
+		boolean isTransposed = 1 == quarterTurns % 2;
+		if (null != bakPixels) {
+			bakOrientation = bakOrientation.turn(quarterTurns);
+			if (isTransposed) {
+				int w = bakWidth;
+				bakWidth = bakHeight;
+				bakHeight = w;
+			}
+		}
+		int w = isTransposed ? height : width;
+		int h = isTransposed ? width : height;
+		GlitchEngine.skipTurnShuffles(count, w, h, rand);
+		edits += count - 1;
+		setPixels(pixels, w, h, orientation.turn(quarterTurns));
+	}
+
+	/**
+	 * Composites the image with the snapshot, using the undo buffer as a mask: see GlitchEngine.munge().
+	 * The undo buffer and the snapshot are resized to the size of the image if they differ.
+	 */
+	void munge() {
+		if (null == bakPixels || null == snapPixels) {
+			log("To munge an image you need an undo buffer and a snapshot");
+			return;
+		}
+		upright();
+		uprightUndo();
+		if (bakWidth != width || bakHeight != height) {
+			bakPixels = resize(bakPixels, bakWidth, bakHeight, width, height);
+			bakWidth = width;
+			bakHeight = height;
+		}
+		if (snapWidth != width || snapHeight != height) {
+			snapPixels = resize(snapPixels, snapWidth, snapHeight, width, height);
+			snapWidth = width;
+			snapHeight = height;
+		}
+		edits++;
+		engine().munge(bakPixels, snapPixels, mungeThreshold, isMungeInverted);
+		log("munged -----");
+	}
+
+	/**
+	 * @return   a new array of pixels scaled from w x h to newW x newH with bilinear interpolation
+	 */
+	static int[] resize(int[] p, int w, int h, int newW, int newH) {
+		BufferedImage src = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		System.arraycopy(p, 0, ((DataBufferInt) src.getRaster().getDataBuffer()).getData(), 0, w * h);
+		BufferedImage dst = new BufferedImage(newW, newH, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = dst.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(src, 0, 0, newW, newH, null);
+		g.dispose();
+		return ((DataBufferInt) dst.getRaster().getDataBuffer()).getData();
+	}
+
+	/**
+	 * Degrades the image by compressing it as a JPEG with quality degradeQuality and decompressing it.
+	 */
+	void degrade() throws IOException {
+		upright();
+		backup();
+		log("degrading");
+		Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
+		ImageWriter writer = iter.next();
+		ImageWriteParam iwp = writer.getDefaultWriteParam();
+		iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		iwp.setCompressionQuality(degradeQuality);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		System.arraycopy(pixels, 0, ((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0, width * height);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ImageOutputStream output = ImageIO.createImageOutputStream(bytes);
+		try {
+			writer.setOutput(output);
+			writer.write(null, new IIOImage(image, null, null), iwp);
+		}
+		finally {
+			writer.dispose();
+			output.close();
+		}
+		BufferedImage degraded = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+		degraded.getRGB(0, 0, width, height, pixels, 0, width);
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*            >>> ROWS AND RANGES <<<       */
+	/*                                          */
+	/********************************************/
+
+	void shuffle(int[] intArray) {
+		GlitchEngine.shuffle(intArray, rand);
+	}
+
+	/**
+	 * Sets rowNums to the row numbers of the image, in order.
+	 */
+	void loadRowNums() {
+		rowNums = new int[height];
+		for (int i = 0; i < height; i++) rowNums[i] = i;
+	}
+
+	/**
+	 * Sets rowNums to rowCount row numbers and shuffles them.
+	 */
+	void resetRowNums(int rowCount) {
+		rowNums = new int[rowCount];
+		for (int i = 0; i < rowCount; i++) rowNums[i] = i;
+		shuffle(rowNums);
+	}
+
+	/**
+	 * Divides the rows into glitchSteps divisions and starts at the first.
+	 */
+	void resetRanger() {
+		setRange(height);
+	}
+
+	/**
+	 * Divides rows 0 to upper into glitchSteps divisions of nearly equal size, and starts at the first.
+	 */
+	void setRange(int upper) {
+		int count = (int) glitchSteps;
+		rangeLower = new int[count];
+		rangeUpper = new int[count];
+		int l = 0;
+		float pos = l;
+		float delta = (upper - l) / (float) count;
+		for (int i = 0; i < count; i++) {
+			pos += delta;
+			int u = Math.round(pos) - 1;
+			rangeLower[i] = l;
+			rangeUpper[i] = u;
+			l = u + 1;
+		}
+		rangeIndex = 0;
+	}
+
+
+	/********************************************/
+	/*                                          */
+	/*              >>> SETTINGS <<<            */
+	/*                                          */
+	/********************************************/
+
+	/**
+	 * Changes settings, in the order of SETTINGS, so that a sorter is chosen before its breakpoint is set.
+	 * @param settings   names from SETTINGS and their values, see set()
+	 * @throws IllegalArgumentException   if a name or value is not valid
+	 */
+	public void configure(Map<String, String> settings) {
+		for (String key : settings.keySet()) {
+			if (!Arrays.asList(SETTINGS).contains(key)) throw new IllegalArgumentException("unknown setting "+ key);
+		}
+		for (String key : SETTINGS) {
+			if (settings.containsKey(key)) set(key, settings.get(key));
+		}
+	}
+
+	/**
+	 * Changes a setting. Names are those of the applet's variables; enums are given by name, such as
+	 * sorter=SHELL or swap=RG, and lists of channels or equalizer factors are separated by commas.
+	 * fftBlockWidth is a power of 2 from 8 to 512, and setting it resets eq, so eq comes after it.
+	 * @param key     a name from SETTINGS
+	 * @param value   its new value
+	 * @throws IllegalArgumentException   if the name or the value is not valid
+	 */
+	public void set(String key, String value) {
+		value = value.trim();
+		if ("sorter".equals(key)) {
+			setSorter(SorterType.valueOf(value.toUpperCase()));
+		}
+		else if ("breakPoint".equals(key)) {
+			setBreakPoint(Float.parseFloat(value));
+		}
+		else if ("compOrder".equals(key)) {
+			setCompOrder(CompOrder.valueOf(value.toUpperCase()));
+		}
+		else if ("ascending".equals(key)) {
+			setAscending(Boolean.parseBoolean(value));
+		}
+		else if ("randomBreak".equals(key)) {
+			setRandomBreak(Boolean.parseBoolean(value));
+		}
+		else if ("swapChannels".equals(key)) {
+			setSwapChannels(Boolean.parseBoolean(value));
+		}
+		else if ("swap".equals(key)) {
+			setSwap(SwapChannel.valueOf(value.toUpperCase()));
+		}
+		else if ("introSort".equals(key)) {
+			setIntroSort(Boolean.parseBoolean(value));
+		}
+		else if ("networkSort".equals(key)) {
+			setNetworkSort(Boolean.parseBoolean(value));
+		}
+		else if ("cocktailSort".equals(key)) {
+			setCocktailSort(Boolean.parseBoolean(value));
+		}
+		else if ("bubbleBudget".equals(key)) {
+			setBubbleBudget(Long.parseLong(value));
+		}
+		else if ("parallel".equals(key)) {
+			setParallel(Boolean.parseBoolean(value));
+		}
+		else if ("shellIndex".equals(key)) {
+			setShellIndex(Integer.parseInt(value));
+		}
+		else if ("sortFormat".equals(key)) {
+			setSortFormat(SortFormat.valueOf(value.toUpperCase()));
+		}
+		else if ("glitchSteps".equals(key)) {
+			setGlitchSteps(Integer.parseInt(value));
+		}
+		else if ("cycle".equals(key)) {
+			setCycle(Boolean.parseBoolean(value));
+		}
+		else if ("zigzagStyle".equals(key)) {
+			setZigzagStyle(ZigzagStyle.valueOf(value.toUpperCase()));
+		}
+		else if ("zigzagFloor".equals(key)) {
+			setZigzagRange(Integer.parseInt(value), zigzagCeiling);
+		}
+		else if ("zigzagCeiling".equals(key)) {
+			setZigzagRange(zigzagFloor, Integer.parseInt(value));
+		}
+		else if ("zigzagPercent".equals(key)) {
+			setZigzagPercent(Float.parseFloat(value));
+		}
+		else if ("zigzagBlockWidth".equals(key)) {
+			setZigzagBlockWidth(Integer.parseInt(value));
+		}
+		else if ("mungeThreshold".equals(key)) {
+			setMungeThreshold(Integer.parseInt(value));
+		}
+		else if ("mungeInverted".equals(key)) {
+			setMungeInverted(Boolean.parseBoolean(value));
+		}
+		else if ("colorQuantize".equals(key)) {
+			setColorQuantize(Integer.parseInt(value));
+		}
+		else if ("degradeQuality".equals(key)) {
+			setDegradeQuality(Float.parseFloat(value));
+		}
+		else if ("shift".equals(key)) {
+			setShiftChannel(ChannelNames.valueOf(value.toUpperCase()));
+		}
+		else if ("fftBlockWidth".equals(key)) {
+			setFFTBlockWidth(Integer.parseInt(value));
+		}
+		else if ("eq".equals(key)) {
+			String[] values = value.split(",");
+			if (values.length != eq.length) {
+				throw new IllegalArgumentException("eq needs "+ eq.length +" values for fftBlockWidth "+ fftBlockWidth +", not "+ values.length);
+			}
+			for (int i = 0; i < eq.length; i++) setEq(i, Float.parseFloat(values[i].trim()));
+		}
+		else if ("eqChannels".equals(key)) {
+			setEqChannels(parseChannels(value));
+		}
+		else if ("statChannels".equals(key)) {
+			setStatChannels(parseChannels(value));
+		}
+		else if ("leftBound".equals(key)) {
+			setStatBounds(Float.parseFloat(value), rightBound);
+		}
+		else if ("rightBound".equals(key)) {
+			setStatBounds(leftBound, Float.parseFloat(value));
+		}
+		else if ("boost".equals(key)) {
+			setBoost(Float.parseFloat(value));
+		}
+		else if ("cut".equals(key)) {
+			setCut(Float.parseFloat(value));
+		}
+		else if ("lowFrequencyCut".equals(key)) {
+			setLowFrequencyCut(Boolean.parseBoolean(value));
+		}
+		else {
+			throw new IllegalArgumentException("unknown setting "+ key);
+		}
+	}
+
+	/**
+	 * @return   the channels named in a comma separated list, in the order the FFT commands process
+	 *           them, see orderChannels()
+	 */
+	static ChannelNames[] parseChannels(String value) {
+		ArrayList<ChannelNames> named = new ArrayList<ChannelNames>();
+		for (String name : value.split(",")) {
+			if (name.trim().length() > 0) named.add(ChannelNames.valueOf(name.trim().toUpperCase()));
+		}
+		return orderChannels(named.toArray(new ChannelNames[named.size()]));
+	}
+
+	/**
+	 * @return   the channels given, each once, in the order the FFT commands process them: L, H, S, R, G, B
+	 */
+	static ChannelNames[] orderChannels(ChannelNames... named) {
+		List<ChannelNames> given = Arrays.asList(named);
+		ChannelNames[] order = {ChannelNames.L, ChannelNames.H, ChannelNames.S, ChannelNames.R, ChannelNames.G, ChannelNames.B};
+		ArrayList<ChannelNames> chans = new ArrayList<ChannelNames>(6);
+		for (ChannelNames chan : order) {
+			if (given.contains(chan)) chans.add(chan);
+		}
+		return chans.toArray(new ChannelNames[chans.size()]);
+	}
+
+	/**
+	 * @return   the random numbers the commands draw from, for choices a user interface makes
+	 *           that should repeat with the seed
+	 */
+	public RandomSource getRandom() {
+		return rand;
+	}
+
+	/**
+	 * Sets the sorter, and breakPoint to its breakpoint. Bubble sort with no comparison budget is
+	 * extremely slow unless it breaks, so random breaks are turned on for it.
+	 */
+	public void setSorter(SorterType type) {
+		sortTool.setSorter(type);
+		breakPoint = sortTool.sorter.getBreakPoint();
+		log(type.name() +" sorter loaded");
+		if (type == SorterType.BUBBLE && 0 == bubbleBudget) {
+			log("bubble sort: break set to true");
+			setRandomBreak(true);
+		}
+	}
+
+	/**
+	 * @param newBreakPoint   a value from 1 to 999.9 above which the current sorter breaks at random,
+	 *                        higher values break less often
+	 */
+	public void setBreakPoint(float newBreakPoint) {
+		breakPoint = newBreakPoint;
+		sortTool.sorter.setBreakPoint(breakPoint);
+	}
+
+	public void setCompOrder(CompOrder newCompOrder) {
+		compOrder = newCompOrder;
+		log("Color component order set to "+ compOrder.name());
+	}
+
+	public void setAscending(boolean val) {
+		isAscendingSort = val;
+		log("Ascending sort order is "+ isAscendingSort);
+	}
+
+	public void setRandomBreak(boolean val) {
+		randomBreak = val;
+		sortTool.setRandomBreak(randomBreak);
+		log("randomBreak is "+ randomBreak);
+	}
+
+	/**
+	 * @param val   true if pixels exchanged in sorting should swap the channels set by setSwap()
+	 */
+	public void setSwapChannels(boolean val) {
+		isSwapChannels = val;
+		log("Swap color channels is "+ isSwapChannels);
+	}
+
+	public void setSwap(SwapChannel newSwap) {
+		swap = newSwap;
+		log("swap is "+ swap.name());
+	}
+
+	/**
+	 * @param val   true if quick sort should use median-of-three pivots and fallback sorts,
+	 *              so it won't crawl on rows that are already sorted
+	 */
+	public void setIntroSort(boolean val) {
+		isIntroSort = val;
+		sortTool.getQuick().setIntroSort(isIntroSort);
+		log("Safe quick sort is "+ isIntroSort);
+	}
+
+	/**
+	 * @param val   true if arrays of 2, 4, 8 ... 256 pixels should be sorted with a sorting network
+	 */
+	public void setNetworkSort(boolean val) {
+		isNetworkSort = val;
+		log("Sorting networks are "+ isNetworkSort);
+	}
+
+	/**
+	 * @param val   true if bubble sort should alternate the direction of its passes
+	 */
+	public void setCocktailSort(boolean val) {
+		isCocktailSort = val;
+		sortTool.getBubble().setCocktailSort(isCocktailSort);
+		log("Cocktail bubble sort is "+ isCocktailSort);
+	}
+
+	/**
+	 * @param budget   the most comparisons bubble sort makes in each row, 0 for no limit, in which
+	 *                 case bubble sort breaks at random, see setSorter()
+	 */
+	public void setBubbleBudget(long budget) {
+		bubbleBudget = budget;
+		sortTool.getBubble().setComparisonBudget(bubbleBudget);
+		if (SorterType.BUBBLE == sortTool.sorter.getSorterType() && 0 == bubbleBudget) setRandomBreak(true);
+		log("Bubble sort comparisons per row: "+ (0 == bubbleBudget ? "no limit" : bubbleBudget));
+	}
+
+	/**
+	 * Steps through the values in bubbleBudgets.
+	 */
+	public void stepBubbleBudget() {
+		int i = 0;
+		while (i < bubbleBudgets.length && bubbleBudgets[i] != bubbleBudget) i++;
+		setBubbleBudget(bubbleBudgets[(i + 1) % bubbleBudgets.length]);
+	}
+
+	/**
+	 * @param val   true if lines of pixels should be sorted in parallel, the image is the same either way
+	 */
+	public void setParallel(boolean val) {
+		isParallelSort = val;
+	}
+
+	/**
+	 * @param val   true if 'g' should start a live sort, see stepLiveSort()
+	 */
+	public void setLiveSort(boolean val) {
+		isLiveSort = val;
+		log("Live sorting is "+ isLiveSort);
+	}
+
+	/**
+	 * Sets shell sort settings: indices below shellParams.length select a ratio and divisor pair,
+	 * and the even indices after that select the gap sequences after RATIO, see ShellGaps.
+	 * @param index   an even number, less than shellParams.length + 2 * (GapSequence.values().length - 1)
+	 * @throws IllegalArgumentException   if index is not one of those numbers
+	 */
+	public void setShellIndex(int index) {
+		int end = shellParams.length + 2 * (GapSequence.values().length - 1);
+		if (index < 0 || index % 2 != 0 || index >= end) {
+			throw new IllegalArgumentException("shellIndex must be an even number from 0 to "+ (end - 2) +", not "+ index);
+		}
+		shellIndex = index;
+		if (shellIndex < shellParams.length) {
+			gapSequence = GapSequence.RATIO;
+			sortTool.shell.setRatio(shellParams[shellIndex]);
+			sortTool.shell.setDivisor(shellParams[shellIndex + 1]);
+			sortTool.shell.setGapSequence(gapSequence);
+			log("ShellIndex = "+ shellIndex +", Shellsort ratio = "+ shellParams[shellIndex] +", divisor = "+ shellParams[shellIndex + 1]);
+		}
+		else {
+			gapSequence = GapSequence.values()[1 + (shellIndex - shellParams.length) / 2];
+			sortTool.shell.setGapSequence(gapSequence);
+			log("ShellIndex = "+ shellIndex +", Shellsort gaps = "+ gapSequence);
+		}
+	}
+
+	/**
+	 * Steps to the next shell sort settings.
+	 */
+	public void incShellIndex() {
+		int end = shellParams.length + 2 * (GapSequence.values().length - 1);
+		setShellIndex(shellIndex < end - 2 ? shellIndex + 2 : 0);
+	}
+
+	/**
+	 * Steps to the previous shell sort settings.
+	 */
+	public void decShellIndex() {
+		int end = shellParams.length + 2 * (GapSequence.values().length - 1);
+		setShellIndex(shellIndex > 1 ? shellIndex - 2 : end - 2);
+	}
+
+	/**
+	 * @param format   the lines of pixels 'g' sorts: rows, squares of zigzagBlockWidth pixels on a side,
+	 *                 or diagonals
+	 */
+	public void setSortFormat(SortFormat format) {
+		sortFormat = format;
+		log("Sort format is "+ sortFormat + (SortFormat.SQUARE == sortFormat ? ", "+ zigzagBlockWidth +" pixels" : ""));
+	}
+
+	/**
+	 * Steps through the SortFormat values.
+	 */
+	public void stepSortFormat() {
+		setSortFormat(SortFormat.values()[(sortFormat.ordinal() + 1) % SortFormat.values().length]);
+	}
+
+	/**
+	 * Sets glitchSteps, from 1 to 100, and divides the rows again, finishing a live sort in progress first.
+	 */
+	public void setGlitchSteps(int steps) {
+		steps = steps < 1 ? 1 : (steps > 100 ? 100 : steps);
+		if (steps == glitchSteps) return;
+		finishLiveSort();
+		glitchSteps = steps;
+		if (null != pixels) {
+			setRange(height);
+			log("range intervals set to "+ steps);
+		}
+	}
+
+	/**
+	 * Turns cycling through the rows on or off, finishing a live sort in progress first.
+	 * The rows are shuffled and cycling starts over at the first division.
+	 */
+	public void setCycle(boolean isCycle) {
+		finishLiveSort();
+		isCycleGlitch = isCycle;
+		if (null != rowNums) shuffle(rowNums);
+		if (isCycleGlitch) {
+			rangeIndex = 0;
+			log("range index reset to 0");
+		}
+	}
+
+	public void setZigzagStyle(ZigzagStyle style) {
+		zigzagStyle = style;
+		log("-- zizagStyle = "+ style.name());
+	}
+
+	/**
+	 * @param floor     smallest size of the blocks 'l' sorts
+	 * @param ceiling   largest size of the blocks 'l' sorts
+	 */
+	public void setZigzagRange(int floor, int ceiling) {
+		zigzagFloor = floor;
+		zigzagCeiling = ceiling;
+	}
+
+	/**
+	 * @param percent   percentage of blocks that 'l' sorts, from 1 to 100
+	 */
+	public void setZigzagPercent(float percent) {
+		zigzagPercent = percent;
+	}
+
+	/**
+	 * @param blockWidth   size of the squares 'g' sorts, set by 'l' to the size of its blocks
+	 */
+	public void setZigzagBlockWidth(int blockWidth) {
+		zigzagBlockWidth = blockWidth;
+	}
+
+	/**
+	 * @param threshold   the difference between the image and the undo buffer that munge looks for
+	 */
+	public void setMungeThreshold(int threshold) {
+		mungeThreshold = threshold;
+	}
+
+	/**
+	 * @param val   true if munge should replace pixels within mungeThreshold instead of outside it
+	 */
+	public void setMungeInverted(boolean val) {
+		isMungeInverted = val;
+		log("isMungeInverted = "+ isMungeInverted);
+	}
+
+	/**
+	 * @param colors   the number of colors 'p' reduces the image to, from 2 to 255
+	 */
+	public void setColorQuantize(int colors) {
+		colorQuantize = colors;
+		log("colorQuantize = "+ colorQuantize);
+	}
+
+	/**
+	 * @param quality   JPEG quality for 'd', from 0 to 1
+	 */
+	public void setDegradeQuality(float quality) {
+		degradeQuality = quality;
+		log("degrade quality = "+ twoPlaces(degradeQuality * 100));
+	}
+
+	/**
+	 * @param chan   the channel ',' and '.' shift: R, G or B, or null for none
+	 * @throws IllegalArgumentException   if chan is another channel
+	 */
+	public void setShiftChannel(ChannelNames chan) {
+		if (null != chan && ChannelNames.R != chan && ChannelNames.G != chan && ChannelNames.B != chan) {
+			throw new IllegalArgumentException("shift must be R, G or B, not "+ chan);
+		}
+		shiftChannel = chan;
+	}
+
+	/**
+	 * Sets the size of the blocks the FFT commands take, and divides the spectrum into equalizer
+	 * bands for it, with every eq factor at 1.
+	 * @param w   a power of 2 from 8 to 512
+	 * @throws IllegalArgumentException   if w is not one of those numbers
+	 */
+	public void setFFTBlockWidth(int w) {
+		if (w < 8 || w > 512 || (w & (w - 1)) != 0) {
+			throw new IllegalArgumentException("fftBlockWidth must be a power of 2 from 8 to 512, not "+ w);
+		}
+		resetFFT(w);
+		log("-- fftBlockWidth = "+ fftBlockWidth +", "+ eq.length +" equalizer bands");
+	}
+
+	/**
+	 * @param band     an equalizer band, from 0 to eq.length - 1, low to high
+	 * @param factor   factor to scale the band by, 1 leaves it as it is
+	 */
+	public void setEq(int band, float factor) {
+		eq[band] = factor;
+	}
+
+	/**
+	 * Sets every eq factor to 1.
+	 */
+	public void resetEq() {
+		Arrays.fill(eq, 1);
+	}
+
+	/**
+	 * @param chans   the channels 'j' passes through the FFT, processed in the order of orderChannels()
+	 */
+	public void setEqChannels(ChannelNames... chans) {
+		eqChannels = orderChannels(chans);
+	}
+
+	/**
+	 * @param chans   the channels 'k' passes through the FFT, processed in the order of orderChannels()
+	 */
+	public void setStatChannels(ChannelNames... chans) {
+		statChannels = orderChannels(chans);
+	}
+
+	/**
+	 * @param left    left edge of the bands 'k' boosts, in standard deviations from the mean amplitude
+	 * @param right   right edge of the bands 'k' boosts, in standard deviations from the mean amplitude
+	 */
+	public void setStatBounds(float left, float right) {
+		leftBound = left;
+		rightBound = right;
+	}
+
+	/**
+	 * @param val   factor for the bands 'k' boosts
+	 */
+	public void setBoost(float val) {
+		boost = val;
+	}
+
+	/**
+	 * @param val   factor for the bands 'k' cuts
+	 */
+	public void setCut(float val) {
+		cut = val;
+	}
+
+	/**
+	 * @param val   true if 'k' should leave band 0, the DC component, out of its statistics
+	 */
+	public void setLowFrequencyCut(boolean val) {
+		isLowFrequencyCut = val;
+		log("isLowFrequencyCut = "+ isLowFrequencyCut);
+	}
+
+	/**
+	 * Sets the statistical FFT settings back to their defaults.
+	 */
+	public void resetStat() {
+		setStatBounds(DEFAULT_LEFT_BOUND, DEFAULT_RIGHT_BOUND);
+		setBoost(DEFAULT_BOOST);
+		setCut(DEFAULT_CUT);
+	}
+
+	/**
+	 * Sets the FFT block width and divides the spectrum into equalizer bands for it, with eq at 1.
+	 */
+	void resetFFT(int newSize) {
+		fftBlockWidth = newSize;
+		bandList = GlitchEngine.eqBands(engine.getFFT(fftBlockWidth * fftBlockWidth), SAMPLE_RATE, EQ_OCTAVES, BANDS_PER_OCTAVE);
+		eq = new float[bandList.length / 2];
+		Arrays.fill(eq, 1);
+	}
+
+	/**
+	 * @return   pairs of band numbers covered by the equalizer bands, high to low, the order their factors are applied in
+	 */
+	int[] eqBands() {
+		int n = eq.length;
+		int[] bands = new int[2 * n];
+		for (int i = 0; i < n; i++) {
+			bands[2 * i] = bandList[2 * (n - i - 1)];
+			bands[2 * i + 1] = bandList[2 * (n - i - 1) + 1];
+		}
+		return bands;
+	}
+
+	/**
+	 * @return   the equalizer factors, in the order of eqBands()
+	 */
+	float[] eqScales() {
+		int n = eq.length;
+		float[] scales = new float[n];
+		for (int i = 0; i < n; i++) {
+			scales[i] = eq[n - i - 1];
+		}
+		return scales;
+	}
+
+}
@@ -64,28 +64,22 @@ package net.paulhertz.glitchsort;
 //    fixed this. You can drag it a little bigger.
 // 4. Audify ('/' and '\' is new and still kludgy, but the bugs that would cause a crash in 
 //   1.0b7 pre-release "c" seem to have been fixed.
-// 5. The Minim library routines I use for FFT are now deprecated, but functional. 
+// 5. FFT uses PixelFFT, the Minim library is only used for the audio output of audify.
 // 6. There must be other issues. 
 
 
 import java.awt.Container;
 import java.awt.Frame;
 import java.awt.Rectangle;
-import java.awt.image.BufferedImage;
 import java.io.*;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 
-import javax.imageio.*;
-import javax.imageio.stream.*;
-
 import processing.core.*;
-import ddf.minim.analysis.*;
 import ddf.minim.*;
 
 import controlP5.*;
@@ -115,6 +109,16 @@ import net.paulhertz.glitchsort.constants.*;
 // press '2' to select shell sort
 // press '3' to select bubble sort
 // press '4' to select insert sort
+// press '5' to select radix sort
+// press '6' to select merge sort
+// press 'q' to toggle safe quick sort (median-of-three pivots, no crawling on sorted rows)
+// press 'e' to print sorting metrics (comparisons, exchanges, breaks, time) as JSON, 'E' to reset them
+// press 'w' to toggle sorting networks for zigzag blocks of 2, 4, 8 ... 256 pixels (fast, ignored when swapping channels)
+// press '7' to toggle live sorting: 'g' shows the sort in progress, a few milliseconds of sorting per frame
+// press '8' to sort as 'g' does and save 300 frames of the sort in progress as PNG files in a new folder
+// press '0' to toggle cocktail (two-way) bubble sort
+// press '(' to step through limits on comparisons per row for bubble sort, a bounded alternative to breaks
+// press '#' to step through the lines 'g' sorts: rows, squares the size of zigzag blocks, or diagonals
 // press 'a' to change sort order to ascending or descending
 // press 'b' to toggle random breaks in sorters
 // press 'x' to toggle color channel swapping (glitchy!)
@@ -122,7 +126,7 @@ import net.paulhertz.glitchsort.constants.*;
 // press '+' or '-' to step through color component orderings used for sorting
 // press 'y' to turn glitch cycling on and off (for glitch steps > 1)
 // press '[' or ']' to decrease or increase glitch steps
-// press '{' or '}' to cycle through Shell sort settings
+// press '{' or '}' to cycle through Shell sort settings: ratio and divisor pairs, then the Ciura, Tokuda, Sedgewick and Pratt gaps
 // press 'd' to degrade the image with low quality JPEG compression
 // press UP or DOWN arrow keys to change degrade quality
 // press 'p' to reduce (quantize) the color palette of the image
@@ -167,34 +171,25 @@ import net.paulhertz.glitchsort.constants.*;
 
 @SuppressWarnings("serial")
 public class GlitchSort extends PApplet {
-	/** the current component order to use for sorting */
-	CompOrder compOrder;
-	/** handy variable for stepping through the CompOrder enum */
-	int compOrderIndex = 0;
-	/** the current channel swapping scheme for glitchy color fx */
-	SwapChannel swap = SwapChannel.BB;
-	/** ordering of pixels in subarray to be sorted, relative to source array. Not yet in use. */
-	public static enum SortFormat {ROW, SQUARE, DIAGONAL;}
-	/** current format of pixels to use in sorting a subarray of pixels from an image */
-	SortFormat sortFormat = SortFormat.ROW;
-	/** default is random orientations for zigzag sorting */
-	ZigzagStyle zigzagStyle = ZigzagStyle.RANDOM;
-	/** a SortSelector offers a strategy to manage different sorting algorithms */
-	SortSelector sortTool;
-	/** the most recently saved version of the selected file */
-	File displayFile;
-	/** the original file, selected with the 'open' command */
-	File originalFile;
-	/** the primary image to display and glitch */
+	/** commands that decode() runs in the applet, GlitchSession runs all the others */
+	static final String INTERFACE_COMMANDS = " oOvVhHfF;*:/\\";
+	/** message for a command that needs an image when none is open */
+	static final String NO_IMAGE = "No image is available: press 'o' to open a file";
+	/** channels of the Brightness, Hue, Saturation, Red, Green and Blue checkboxes of the FFT panel */
+	static final ChannelNames[] FFT_CHANNELS = {ChannelNames.L, ChannelNames.H, ChannelNames.S,
+		ChannelNames.R, ChannelNames.G, ChannelNames.B};
+	/** the image, the undo buffer, the snapshot and all the settings, and the commands that change them */
+	GlitchSession session;
+	/** the image to display, sharing its pixels with session, see showImage() */
 	PImage img;
-	/** an image buffer used to undo the most recent operation, usually contains an earlier version of the primary image */
-	PImage bakImg;
 	/** a version of the image scaled to fit the screen dimensions, for display only */
 	PImage fitImg;
-	/** a snapshot of the primary image, used as an extended undo buffer and for the "munge" operation */
-	PImage snapImg;
 	/** true if image should fit screen, otherwise false */
 	boolean isFitToScreen = false;
+	/** true while exec() runs a command string: the display is refreshed once, when it is done */
+	boolean isDisplayDeferred = false;
+	/** true while syncPanel() sets the control panel, so the events it raises don't change the session */
+	boolean isPanelSync = false;
 	/** maximum width for the display window */
 	int maxWindowWidth;
 	/** maximum height for the display window */
@@ -215,114 +210,22 @@ public class GlitchSort extends PApplet {
 	int transY = 0;
 	/** reference to the frame (display window) */
 	Frame myFrame;
-	/** true if sorting is interrupted, causing glitches. if false, horizontal lines of pixels are completely sorted */
-	boolean randomBreak = true;
 	/** true if lots of output to the monitor is desired (useful for debugging) */
 	boolean verbose = false;
-	/** true if pixels values are sorted in ascending numeric order */
-	boolean isAscendingSort = false;
-	/** true if pixels that are exchanged in sorting swap a pair of channels, creating color artifacts */
-	boolean isSwapChannels = false;
-	/** an array of row numbers for the horizontal lines of pixels, used when sorting */
-	int[] rowNums;
-	/** the current row of pixels being sorted */
-	int row = 0;	
-	/** 
-	 * a value from 1..999 that determines how often a sorting method is interrupted.  
-	 * In general, higher values decrease the probability of interruption, and so do more sorting. 
-	 * However, each sorting method behaves differently. Quick sort is sensitive from 1..999. 
-	 * Shell sort seems to do best from 900..999; lower values result in sorting only at the the image edge.
-	 * Bubble sort does well from 990..999: at 999 it will diffuse the pixels. Insert sort seems 
-	 * to be effective from 990..999. 
-	 * TODO: create a more intuitive setting for breakpoint, with greater precision where needed.
-	 */
-	float breakPoint = 500;
-	/** number of partitions of pixel rows, (1/glitchSteps * number of rows) rows of pixels 
-	    are sorted (glitched) each time the sort command is executed */
-	float glitchSteps = 1;
-	/** if true, sorting steps are cyclical: rows will be sorted by successive sort commands
-	    and the order in which rows are sorted will not be shuffled until all rows are sorted. 
-	    if false, the 1/glitchSteps rows are sorted and then the row order is shuffled */
-	boolean isCycleGlitch = false;
-	RangeManager ranger; 
-	RangeManager zigzagRanger; 
-	/** the JPEG quality setting for degrading the image by saving it as a JPEG and then reloading it */
-	float degradeQuality = 0.125f;
-	/** the value below which the maximum absolute difference between color channel values induces munging */
-	int mungeThreshold = 16;
-	/** "munging" compares the current image with the undo buffer. When isMungeInverted is false, 
-	 * pixels outside the difference threshold are replaced with corresponding pixels from the snapshot buffer.
-	 * When isMungeInverted is true, pixels within the threshold are replaced. */
-	boolean isMungeInverted = false;
-	/** Color quantizer, for color reduction, using an octree.  */
-	ImageColorQuantizer quant;
-	/** The number of colors to reduce to, should not exceed 255 limit imposed by octree */
-	int colorQuantize = 32;
-	/** maximum dimension of zigzag sorting block */
-    int zigzagCeiling = 64;
-    /** minimum dimension of zigzag sorting block */
-    int zigzagFloor = 8;
-    /** percentage of blocks that will be zigzag sorted */
-    float zigzagPercent = 100.0f;
-    // ratio and divisor values for Shell sort, feel free to add your own pairs
-    int[] shellParams = {2,3, 2,5, 3,5, 3,7, 3,9, 4,7, 4,9, 5,7, 5,9, 5,11, 8,13};
-    // shell params index
-    int shellIndex = 8;
-    boolean isShiftR = true;
-    boolean isShiftG = false;
-    boolean isShiftB = false;
-    // file count for filenames in sequence
-    int fileCount = 0;
-    // timestamp for filenames
-    String timestamp; 
-   
+	/** milliseconds of sorting per frame for a live sort, see stepLiveSort() */
+	int liveSortMillis = 8;
+
    // FFT
+   /** audio output for audify */
    Minim minim;
-   FFT fft;
-   int zigzagBlockWidth = 128;
-   int fftBlockWidth = 64;
-   int bufferSize;
-   float sampleRate = 44100.0f;
    public float eqMax = 1;
    public float eqMin = -1;
    public float eqScale = 1;
-   public float eqGain = 1;
-   float[] eq;
    //* array to store average amplitude for each range of bands in averaged FFT */
    double[] binTotals;
-   //* array to store band indices in averaged FFT band, has some problems */
-   ArrayList<IntRange> bandList;
-   //* array to store band low and high frequencies for each averaged FFT band */
-   ArrayList<FloatRange> freqList;
-   int minBandWidth = 11;
-   int bandsPerOctave = 3;
-   /** when we call calculateEqBands, the actual number of bands may differ from the internal value  */
-   int calculatedBands;
    /** default maximum number of eq bands */
    int eqBands = 33;
-   boolean isEqGlitchBrightness = true;
-   boolean isEqGlitchHue = false;
-   boolean isEqGlitchSaturation = false;
-   boolean isEqGlitchRed = false;
-   boolean isEqGlitchGreen = false;
-   boolean isEqGlitchBlue = false;
    int eqPos = 0;
-   boolean isStatGlitchBrightness = true;
-   boolean isStatGlitchHue = false;
-   boolean isStatGlitchSaturation = false;
-   boolean isStatGlitchRed = false;
-   boolean isStatGlitchGreen = false;
-   boolean isStatGlitchBlue = false;
-   /** for statistical FFT, number of standard deviations to the left of mean */
-   public float leftBound = -0.25f, defaultLeftBound = leftBound;
-   /** for statistical FFT, number of standard deviations to the right of mean */
-   public float rightBound = 5.0f, defaultRightBound = rightBound;
-   /** factor to multiiply values within left and right bounds of mean */
-   float boost = 2.0f, defaultBoost = boost;
-   /** factor to multiply values outside left and right bounds of mean */
-   float cut = 0.5f, defaultCut = cut;
-   public boolean isLowFrequencyCut = true;
-   float[] audioBuf;
 
    // Control Panel
    ControlP5 controlP5;
@@ -364,16 +267,22 @@ public class GlitchSort extends PApplet {
 		maxWindowHeight = displayHeight - 56;
 		// image to display
 		img = createImage(width, height, ARGB);
-		// image for undo 
-		bakImg = createImage(width, height, ARGB);
-		// the primary tool for sorting
-		sortTool = new SortSelector(this);
-		sortTool.setRandomBreak(randomBreak);
-		// initial order of color channels for sorting
-		compOrder = CompOrder.values()[compOrderIndex];
+		// the image and its buffers, the settings and the commands, reporting to the console
+		session = new GlitchSession() {
+			@Override
+			protected void log(String msg) {
+				println(msg);
+			}
+		};
+		// one image at a time: sort its rows and write movie frames with all the processors
+		session.setParallel(true);
+		session.movieThreads = Runtime.getRuntime().availableProcessors();
+		// Eclipse and Processing have different default paths
+		session.setOutputDir(new File(sketchPath));
 		// initialize number formatters
 		initDecimalFormat();
-		initFFT();
+		// audio output for audify
+		minim = new Minim(this);
 	    // initialize ControlP5 and build our control panels
 		controlP5 = new ControlP5(this);
 		// load Glitch panel
@@ -385,6 +294,11 @@ public class GlitchSort extends PApplet {
 		printHelp();
 		// TODO include version number here
 		println("GlitchSort version 1.0b10, created June 6, 2013, for Processing 2.0");
+		println("random seed = "+ session.getRandomSeed());
+		session.getSortTool().getMetrics().register();
+		// optional table of HSB sort keys for all colors, e.g. -Dglitchsort.hsbTable=/tmp/glitchsort-hsb.table
+		String hsbTable = System.getProperty("glitchsort.hsbTable");
+		if (null != hsbTable) HsbCodec.useMappedTable(new File(hsbTable));
 		// okay now to open an image file
 		chooseFile();
 		// Processing initializes the frame and hands it to you in the "frame" field.
@@ -393,9 +307,6 @@ public class GlitchSort extends PApplet {
 		myFrame.setResizable(true);
 		// the first time around, window won't be resized, a reload should resize it
 		revert(false);
-		// initialize timestamp, used in filename
-	    // timestamp = year() + nf(month(),2) + nf(day(),2) + "-"  + nf(hour(),2) + nf(minute(),2) + nf(second(),2);
-	    timestamp = nf(day(),2) + nf(hour(),2) + nf(minute(),2) + nf(second(),2);
 	}
 	
 	/* (non-Javadoc)
@@ -407,50 +318,6 @@ public class GlitchSort extends PApplet {
 		super.stop();
 	}
 	
-	/**
-	 * Sets up FFT buffer at fftBlockWidth * fftBlockWidth, calls calculateEqBands to calculates the number 
-	 * of equalizer bands available for current buffer size, initializes eq array.
-	 */
-	public void initFFT() {
-	    minim = new Minim(this);
-	    // we process square blocks of pixels as if they were an audio signal
-	    bufferSize = fftBlockWidth * fftBlockWidth;
-	    fft = new FFT(bufferSize, sampleRate);
-	    // we do our own calculation of logarithmic bands
-       	calculateEqBands();
-       	// calculateEqBnds sets the variable calculatedBands
-	    eq = new float[calculatedBands];
-		java.util.Arrays.fill(eq, 0);
-	}
-	
-	/**
-	 * @param newSize   new size for edge of a pixel block, must be a power of 2
-	 */
-	public void resetFFT(int newSize) {
-		fftBlockWidth = newSize;
-		if (true) println("-- fftBlockWidth = "+ fftBlockWidth);
-		// reset the slider, usually redundant call, should have no side effects if broadcast is off
-		Slider s4 = (Slider) controlP5.getController("setFFTBlockWidth"); 
-		s4.setBroadcast(false);
-		s4.setValue((int) Math.sqrt(fftBlockWidth));
-		s4.setBroadcast(true);
-		// redraw the text label for the block size, on our control panel
-		Textlabel l11 = (Textlabel) controlP5.getController("blockSizeLabel");
-		l11.setText("FFT Block Size = "+ fftBlockWidth);
-	    // we process square blocks of pixels as if they were an audio signal
-		bufferSize = fftBlockWidth * fftBlockWidth;
-		fft = new FFT(bufferSize, sampleRate);
-		println("  fft timesize = "+ fft.timeSize());
-	    // we do our own calculation of logarithmic bands
-       	calculateEqBands();
-       	// calculateEqBnds sets the variable calculatedBands for the new size of pixel block
-	    eq = new float[calculatedBands];
-		java.util.Arrays.fill(eq, 0);
-		// create a new equalizer on the FFT control panel
-		// setupEqualizer(eqPos, eqH, eqMax, eqMin);
-		showEqualizerBands();
-	}
-	
 	/**
 	 * initializes the zero place and two place decimal number formatters
 	 */
@@ -496,6 +363,16 @@ public class GlitchSort extends PApplet {
 		println("press '2' to select shell sort");
 		println("press '3' to select bubble sort");
 		println("press '4' to select insert sort");
+		println("press '5' to select radix sort");
+		println("press '6' to select merge sort");
+		println("press 'q' to toggle safe quick sort (median-of-three pivots, no crawling on sorted rows)");
+		println("press 'e' to print sorting metrics (comparisons, exchanges, breaks, time) as JSON, 'E' to reset them");
+		println("press 'w' to toggle sorting networks for zigzag blocks of 2, 4, 8 ... 256 pixels (fast, ignored when swapping channels)");
+		println("press '7' to toggle live sorting: 'g' shows the sort in progress, a few milliseconds of sorting per frame");
+		println("press '8' to sort as 'g' does and save 300 frames of the sort in progress as PNG files in a new folder");
+		println("press '0' to toggle cocktail (two-way) bubble sort");
+		println("press '(' to step through limits on comparisons per row for bubble sort, a bounded alternative to breaks");
+		println("press '#' to step through the lines 'g' sorts: rows, squares the size of zigzag blocks, or diagonals");
 		println("press 'a' to change sort order to ascending or descending");
 		println("press 'b' to toggle random breaks in sorters");
 		println("press 'x' to toggle color channel swapping (glitchy!)");
@@ -503,7 +380,7 @@ public class GlitchSort extends PApplet {
 		println("press '+' or '-' to step through color component orderings used for sorting");
 		println("press 'y' to turn glitch cycling on and off (for glitch steps > 1)");
 		println("press '[' or ']' to decrease or increase glitch steps");
-		println("press '{' or '}' to cycle through Shell sort settings");
+		println("press '{' or '}' to cycle through Shell sort settings: ratio and divisor pairs, then the Ciura, Tokuda, Sedgewick and Pratt gaps");
 		println("press 'd' to degrade the image with low quality JPEG compression");
 		println("press UP or DOWN arrow keys to change degrade quality");
 		println("press 'p' to reduce (quantize) the color palette of the image");
@@ -526,6 +403,7 @@ public class GlitchSort extends PApplet {
 
 	
 	public void draw() {
+		if (session.isLiveSortRunning()) stepLiveSort();
 		if (isFitToScreen) {
 			image(fitImg, 0, 0);
 		}
@@ -536,6 +414,17 @@ public class GlitchSort extends PApplet {
 		trackMouseEq();
 	}
 
+	/**
+	 * Called from draw(): lets the session sort for liveSortMillis, then updates the image so the
+	 * frame shows the sort in progress.
+	 */
+	public void stepLiveSort() {
+		boolean isDone = session.stepLiveSort(liveSortMillis * 1000000L);
+		img.updatePixels();
+		if (isDone) fitPixels(isFitToScreen, false);
+		else if (isFitToScreen) fitPixels(true, true);
+	}
+
 	/**
 	 * Experimental tool for setting a command sequence in variable cmd
 	 */
@@ -569,97 +458,114 @@ public class GlitchSort extends PApplet {
 	}
 
 	/**
-	 * Executes a supplied commend sequence
+	 * Executes a supplied commend sequence, compiled into a CommandPlan: runs of 't' and 'T' turn
+	 * the image once, backups that nothing reads are left out and the display is refreshed at the end.
+	 * The image is the same as when each character is decoded in turn. The session runs the steps,
+	 * except for the commands in INTERFACE_COMMANDS, which decode() runs.
 	 * @param cmd   a command sequence
 	 */
 	public void exec(String cmd) {
-		char[] cycle = cmd.toCharArray();
-		for (char ch : cycle) {
-			decode(ch);
+		CommandPlan plan = CommandPlan.compile(cmd);
+		if (verbose) println("exec "+ plan +", "+ plan.getLiveBackupCount() +" of "+ plan.getBackupCount() +" backups");
+		// anim() calls exec() from a command
+		boolean wasDeferred = isDisplayDeferred;
+		isDisplayDeferred = true;
+		try {
+			for (int i = 0; i < plan.size(); i++) {
+				if (!plan.isTurn(i) && INTERFACE_COMMANDS.indexOf(plan.getCommand(i)) > -1) {
+					decode(plan.getCommand(i));
+				}
+				else {
+					session.step(plan, i);
+				}
+			}
+		}
+		catch (IOException e) {
+			println("--->> "+ e.getMessage());
 		}
+		catch (IllegalStateException e) {
+			println(NO_IMAGE);
+		}
+		finally {
+			isDisplayDeferred = wasDeferred;
+		}
+		if (!isDisplayDeferred) refresh();
 	}
-	
+
+	/**
+	 * Executes a supplied command sequence, starting from a specified random seed.
+	 * Executing the same sequence with the same seed on the same image produces the same result.
+	 * @param cmd    a command sequence
+	 * @param seed   a random seed
+	 */
+	public void exec(String cmd, long seed) {
+		setRandomSeed(seed);
+		exec(cmd);
+	}
+
+	/**
+	 * Restarts the random numbers used by sorting, shuffling and zigzag from a new seed.
+	 * @param seed   the seed to set
+	 */
+	public void setRandomSeed(long seed) {
+		session.setRandomSeed(seed);
+		println("random seed = "+ seed);
+	}
+
 	/**
-	 * Demo method of a brief animation output as PNG files 
+	 * Demo method of a brief animation output as PNG files
 	 */
 	public void anim() {
-		zigzagFloor = 24;
-		zigzagCeiling = 96;
-		this.setAscending(true, false);
-		this.setCompOrder(CompOrder.HSB.ordinal(), false);
-		this.setSwap(SwapChannel.BB, false);
-		this.setIsSwapChannels(true, false);
+		session.setZigzagRange(24, 96);
+		session.setAscending(true);
+		session.setCompOrder(CompOrder.HSB);
+		session.setSwap(SwapChannel.BB);
+		session.setSwapChannels(true);
+		syncPanel();
 		String cmd = "nskl stlttt sttltt stttltmc";
 		for (int i = 0; i < 8; i++) {
 			exec(cmd);
 		}
 	}
 
-	
+
 	/**
 	 * Uses statistical FFT to reduce high frequencies in R, G and B channels. Each channel is
-	 * processed separately at a different scale (64, 32, and 16 pixel wide blocks). The order
+	 * processed separately at a different scale (16, 32, and 64 pixel wide blocks). The order
 	 * of the channels is determined by the current Component Sorting Order settings. If the setting
 	 * uses the RGB channels, that setting determines the channel order; otherwise, a random RGB order
 	 * is used. Once processed, the image is ready to be sharpened again with the statistical FFT
 	 * (key command 'k'). Amazingly, the information trhown out by the lowpass can be reasonably well
 	 * reconstructed, but of course it's glitchy. If the image dimensions are not evenly divisible by 64,
-	 * artifacts will result. 
+	 * artifacts will result.
 	 */
 	public void scaledLowPass() {
-		int savedCompOrderIndex = compOrderIndex;
-		String ordStr = CompOrder.values()[compOrderIndex].toString();
-		if (compOrderIndex > CompOrder.BGR.ordinal()) {
-			ordStr = CompOrder.values()[(int) random(6)].toString();
-		}
-		this.setCompOrder(CompOrder.HSB.ordinal(), false);
-		this.setAscending(true, false);
-		setIsSwapChannels(true, false);
-		this.setSwap(SwapChannel.BB, false);
+		CompOrder savedCompOrder = session.compOrder;
+		String ordStr = savedCompOrder.toString();
+		if (savedCompOrder.ordinal() > CompOrder.BGR.ordinal()) {
+			ordStr = CompOrder.values()[(int) session.getRandom().random(6)].toString();
+		}
+		session.setCompOrder(CompOrder.HSB);
+		session.setAscending(true);
+		session.setSwapChannels(true);
+		session.setSwap(SwapChannel.BB);
 		// exec("t1gttt");
-		setRightBound(-0.5f);
-		setLeftBound(-5f);
-		if (ordStr.charAt(0) == 'R') {
-			setStatChan(false, false, false, true, false, false, false);
-		}
-		else if (ordStr.charAt(0) == 'G') {
-			setStatChan(false, false, false, false, true, false, false);
-		}
-		else {
-			setStatChan(false, false, false, false, false, true, false);
-		}
-		setFFTBlockWidth(4);
-		exec("tktktktk");
-		if (ordStr.charAt(1) == 'R') {
-			setStatChan(false, false, false, true, false, false, false);
-		}
-		else if (ordStr.charAt(1) == 'G') {
-			setStatChan(false, false, false, false, true, false, false);
-		}
-		else {
-			setStatChan(false, false, false, false, false, true, false);
-		}
-		setFFTBlockWidth(5);		
-		exec("tktktktk");
-		if (ordStr.charAt(2) == 'R') {
-			setStatChan(false, false, false, true, false, false, false);
-		}
-		else if (ordStr.charAt(2) == 'G') {
-			setStatChan(false, false, false, false, true, false, false);
-		}
-		else {
-			setStatChan(false, false, false, false, false, true, false);
-		}
-		setFFTBlockWidth(6);		
-		exec("tktktktk");
-		setStatChan(true, false, false, false, false, false, false);
-		setFFTBlockWidth(4);
-		this.resetStat();
-		//exec("tktktktk");		
+		session.setStatBounds(-5f, -0.5f);
+		for (int i = 0; i < 3; i++) {
+			char chan = ordStr.charAt(i);
+			session.setStatChannels('R' == chan ? ChannelNames.R : 'G' == chan ? ChannelNames.G : ChannelNames.B);
+			session.setFFTBlockWidth(16 << i);
+			exec("tktktktk");
+		}
+		session.setStatChannels(ChannelNames.L);
+		session.setFFTBlockWidth(16);
+		session.resetStat();
+		//exec("tktktktk");
 		//exec("tktktktk");
 		//exec("t9t9t9t9t9t9t9t9");
 		// set compOrder back to previous value
-		this.setCompOrder(savedCompOrderIndex, false);
+		session.setCompOrder(savedCompOrder);
+		syncPanel();
 		println("Channel order: "+ ordStr);
 	}
 	
@@ -718,125 +624,35 @@ public class GlitchSort extends PApplet {
 	}
 		
 	/**
-	 * associates characters input from keyboard with commands
+	 * associates characters input from keyboard with commands: the session runs all but the commands
+	 * of the interface, see GlitchSession.decode()
 	 * @param ch   a char value representing a command
 	 */
 	public void decode(char ch) {
+		// commands see the image and random numbers as they are after the sort in progress
+		session.finishLiveSort();
 		if (ch == ' ') {
 			toggleControlPanelVisibility();          // hide and show control panels
 		}
-		else if (ch == '1') {
-			setSorter(SorterType.QUICK, false);      // use quick sort 
-		}
-		else if (ch == '2') {
-			setSorter(SorterType.SHELL, false);      // use shell sort
-		}
-		else if (ch == '3') {
-			setSorter(SorterType.BUBBLE, false);     // use bubble sort
-		}
-		else if (ch == '4') {
-			setSorter(SorterType.INSERT, false);     // use insert sort
-		}
-		else if (ch == 'g' || ch == 'G') {
-			sortPixels();                            // 'g' for glitch: sort with current algorithm
-		}
 		else if (ch == 'o') {
 			openFile();                              // open a new file
 		}
 		else if (ch == 'O') {
 			loadFileToSnapshot();                    // load a file to the snapshot buffer
 		}
-		else if (ch == 'n' || ch == 'N') {
-			snap();                                  // save display to snapshot buffer
-		}
-		else if (ch == 'u' || ch == 'U') {
-			unsnap();                                // copy snapshot buffer to display
-		}
-		else if (ch == 'b' || ch == 'B') {
-			setRandomBreak(!randomBreak, false);     // toggle random break on or off
-		}
 		else if (ch == 'v' || ch == 'V') {
 			//verbose = !verbose;                      // toggle verbose on or off
 			println("verbose is "+ verbose);
 		}
-		else if (ch == 's') {
-			saveFile(false);                         // save to file
-		}
-		else if (ch == 'S') {
-			saveFile(true);                          // save to file as copy
-		}
-		else if (ch == '=' || ch == '+') {
-			int n = (compOrderIndex + 1) % CompOrder.values().length;
-			setCompOrder(n, false);                  // increment compOrderIndex
-		}
-		else if (ch == '-' || ch == '_') {
-			int n = (compOrderIndex + CompOrder.values().length - 1) % CompOrder.values().length;
-			setCompOrder(n, false);                  // decrement compOrderIndex
-		}
-		else if (ch == 'a' || ch == 'A') {
-			// ascending or descending sort
-			setAscending(!isAscendingSort, false);   // toggle ascending/descending sort
-		}
-		else if (ch == 'r') {
-			revert(false);                           // reload display from disk
-		}
-		else if (ch == 'R') {
-			revert(true);                                // reload display from orignal file on disk
-		}
-		else if (ch == 't') {
-			rotatePixels(true);                          // rotate display 90 degrees right (CW)
-		}
-		else if (ch == 'T') {
-			rotatePixels(false);                         // rotate display 90 degrees left (CCW)
-		}
-		else if (ch == 'x' || ch == 'X') {
-			setIsSwapChannels(!isSwapChannels, false);   // toggle channel swapping (color glitching)
-		}
-		else if (ch == 'c' || ch == 'C') {
-			int n = (swap.ordinal() + 1) % SwapChannel.values().length;
-			setSwap(SwapChannel.values()[n], false);     // increment swap channel settings
-		}
-		else if (ch == 'z' || ch == 'Z') {
-			restore();                               // copy undo buffer to display
-		}
 		else if (ch == 'h' || ch == 'H') {
 			printHelp();                             // print help message
 		}
 		else if (ch == 'f' || ch == 'F') {
+			showImage();
 			fitPixels(!isFitToScreen, false);        // toggle display window size to fit to screen or not
 		}
-		else if (ch == 'd' || ch == 'D') {
-			degrade();                               // save and reload JPEG with current compression quality
-		}
-		else if (ch == 'm' || ch == 'M') {
-			munge();                                 // composite display and snapshot with undo buffer difference mask 
-		}
-		else if (ch == 'i' || ch == 'I') {
-			invertMunge(!isMungeInverted, false);    // invert functioning of the difference mask for munge command
-		}
-		else if (ch == 'y' || ch == 'Y') {
-			setCycle(!isCycleGlitch, false);         // in multi-step sort, cycle through all lines in image
-		}
-		else if (ch == 'p' || ch == 'P') {
-			reduceColors();                          // quantize colors
-		}
-		else if (ch == 'l' || ch == 'L') {
-			zigzag();                                // perform a zigzag sort
-		}
-		else if (ch == 'k' || ch == 'K') {
-			statZigzagFFT();                         // perform an FFT using statistical interface settings
-		}
-		else if (ch == 'j' || ch == 'J') {
-			eqZigzagFFT();                           // perform an FFT using equalizer interface settings
-		}
 		else if (ch == ';') {
-			analyzeEq(true);                         // perform analysis of frequencies in image 
-		}
-		else if (ch == '{') {
-			decShellIndex();                         // step to previous shell sort settings
-		}
-		else if (ch == '}') {
-			incShellIndex();                         // step to next shell sort settings
+			analyzeEq(true);                         // perform analysis of frequencies in image
 		}
 		else if (ch == '*') {
 			anim();                                  // save an animation
@@ -844,29 +660,57 @@ public class GlitchSort extends PApplet {
 		else if (ch == ':') {
 			testEq();                                // run a test of the FFT
 		}
-		else if (ch == '[') {
-			incrementGlitchSteps(false);             // increase the glitchSteps value
-		}
-		else if (ch == ']') {
-			incrementGlitchSteps(true);              // decrease the glitchSteps value
-		}
 		else if (ch == '/') {
 			audify();                                // turn on audify
 		}
 		else if (ch == '\\') {
 			audifyOff();                             // turn off audify
 		}
-		else if (ch == '9') {
-			denoise();                              // denoise
+		else {
+			command(ch);                             // sort, glitch, save, undo or change a setting
+		}
+	}
+
+	/**
+	 * Runs a command in the session, then shows the image and the settings, unless exec() is running.
+	 * @param ch   a char value representing a command
+	 */
+	public void command(char ch) {
+		try {
+			session.decode(ch);
 		}
-		else if (ch == ',' || ch == '<') {
-			shiftLeft();                            // shift selected color channel left
+		catch (IOException e) {
+			println("--->> "+ e.getMessage());
 		}
-		else if (ch == '.' || ch == '>') {
-			shiftRight();                           // shift selected color channel right
+		catch (IllegalStateException e) {
+			println(NO_IMAGE);
 		}
+		if (!isDisplayDeferred) refresh();
 	}
-	
+
+	/**
+	 * Shows the session's image and sets the control panel to the session's settings.
+	 */
+	public void refresh() {
+		showImage();
+		syncPanel();
+	}
+
+	/**
+	 * Points img at the pixels of the session's image, upright, and fits it to the display window.
+	 */
+	public void showImage() {
+		if (!session.hasImage()) return;
+		int[] pixels = session.getPixels();
+		if (img.width != session.getWidth() || img.height != session.getHeight()) {
+			img = createImage(session.getWidth(), session.getHeight(), ARGB);
+		}
+		img.pixels = pixels;
+		img.updatePixels();
+		fitPixels(isFitToScreen, false);
+		clipTranslation();
+	}
+
 	/**
 	 * tracks mouse movement over the equalizer in the FFT control panel
 	 */
@@ -888,17 +732,8 @@ public class GlitchSort extends PApplet {
 							if (con.getId() >= 0) {
 								int bin = con.getId();
 								// write out the current amplitude setting from the eq tool
-								if (bin < eq.length) {
-									String legend = "band "+ bin +" = "+ twoPlaces.format(eq[bin]);
-									if (null != binTotals && bin < binTotals.length) {
-										legend += ", bin avg = "+ twoPlaces.format(binTotals[bin]);
-										// legend += ", bins "+ bandList.get(eq.length - bin - 1).toString();
-										// get indices of the range of bands covered by each slider and calculate their center frequency
-										IntRange ir = bandList.get(bin);
-										legend += ", cf = "+ twoPlaces.format((fft.indexToFreq(ir.upper) + fft.indexToFreq(ir.lower)) * 0.5f);
-										// get the scaling value set by the user
-									}
-									((Textlabel)controlP5.getController("eqLabel")).setValue(legend);
+								if (bin < session.eq.length) {
+									((Textlabel)controlP5.getController("eqLabel")).setValue(eqLegend(bin));
 								}
 							}
 						}
@@ -911,6 +746,24 @@ public class GlitchSort extends PApplet {
 		}
 	}
 
+	/**
+	 * @param bin   an equalizer band
+	 * @return      the band's scaling factor and, once the image has been analyzed, its mean amplitude
+	 *              and center frequency
+	 */
+	String eqLegend(int bin) {
+		String legend = "band "+ bin +" = "+ twoPlaces.format(session.eq[bin]);
+		if (null != binTotals && bin < binTotals.length) {
+			legend += ", bin avg = "+ twoPlaces.format(binTotals[bin]);
+			// get indices of the range of bands covered by each slider and calculate their center frequency
+			PixelFFT fft = session.getEngine().getFFT(session.fftBlockWidth * session.fftBlockWidth);
+			float lo = fft.indexToFreq(session.bandList[2 * bin], GlitchSession.SAMPLE_RATE);
+			float hi = fft.indexToFreq(session.bandList[2 * bin + 1], GlitchSession.SAMPLE_RATE);
+			legend += ", cf = "+ twoPlaces.format((hi + lo) * 0.5f);
+		}
+		return legend;
+	}
+
 	
     /********************************************/
     /*                                          */
@@ -995,16 +848,18 @@ public class GlitchSort extends PApplet {
 		r1.setColorForeground(color(120));
 		r1.setColorActive(color(255));
 		r1.setColorLabel(color(255));
-		r1.setItemsPerRow(5);
-		r1.setSpacingColumn(40);
+		r1.setItemsPerRow(6);
+		r1.setSpacingColumn(33);
 		r1.setNoneSelectedAllowed(false);
-		// enum SorterType {QUICK, SHELL, BUBBLE, INSERT;} 
+		// enum SorterType {QUICK, SHELL, BUBBLE, INSERT, RADIX, MERGE;} 
 		int n = 0;
 		labelW = 32;
 		r1.addItem("QUICK", n++);
 		r1.addItem("SHELL", n++);
 		r1.addItem("BUBBLE", n++);
 		r1.addItem("INSERT", n++);
+		r1.addItem("RADIX", n++);
+		r1.addItem("MERGE", n++);
 		setRadioButtonStyle(r1, labelW);
 		/* r1.activate("QUICK"); */ // will throw a (non-fatal but annoying) error, see startup method
 		// sorting checkboxes
@@ -1024,15 +879,15 @@ public class GlitchSort extends PApplet {
 		ch2.activate(1);
 		// breakPoint number box
 		yPos += step;
-		Numberbox n1 = controlP5.addNumberbox("setBreakpoint", breakPoint, 8, yPos, 100, widgetH);
+		Numberbox n1 = controlP5.addNumberbox("setBreakpoint", session.breakPoint, 8, yPos, 100, widgetH);
 		n1.setGroup(settings);
 		n1.setMultiplier(1f);
 		n1.setDecimalPrecision(1);
 		n1.setMin(1.0f);
-		n1.setMax(999.0f);
+		n1.setMax(999.9f);
 		n1.getCaptionLabel().set("");
 		// label for breakPoint number box
-		Textlabel l2 = controlP5.addTextlabel("breakpointLabel", "Breakpoint: " + sortTool.sorter.getSorterType().toString(), 112, yPos + 4);
+		Textlabel l2 = controlP5.addTextlabel("breakpointLabel", "Breakpoint: " + session.getSortTool().sorter.getSorterType().toString(), 112, yPos + 4);
 		l2.setGroup(settings);
 		// glitchSteps slider
 		yPos += step;
@@ -1042,7 +897,7 @@ public class GlitchSort extends PApplet {
 		s1.getCaptionLabel().set("");
 		s1.setSliderMode(Slider.FLEXIBLE);
 		// label for glitchSteps slider
-		Textlabel l3 = controlP5.addTextlabel("glitchStepsLabel", "Steps = "+ (int)glitchSteps, 112, yPos + 4);
+		Textlabel l3 = controlP5.addTextlabel("glitchStepsLabel", "Steps = "+ (int)session.glitchSteps, 112, yPos + 4);
 		l3.setGroup(settings);
 		// cycle checkbox
 		CheckBox ch3 = controlP5.addCheckBox("Glitchmode", 2 * controlPanelWidth/3 + 4, yPos + 2);
@@ -1160,7 +1015,7 @@ public class GlitchSort extends PApplet {
 		setRadioButtonStyle(r6, labelW);
 		r6.setNoneSelectedAllowed(false);
 		// zigzagPercent number box
-		Numberbox n2 = controlP5.addNumberbox("setZigzagPercent", zigzagPercent, 218, yPos, 48, widgetH);
+		Numberbox n2 = controlP5.addNumberbox("setZigzagPercent", session.zigzagPercent, 218, yPos, 48, widgetH);
 		n2.setGroup(settings);
 		n2.setMultiplier(1f);
 		n2.setDecimalPrecision(1);
@@ -1192,13 +1047,13 @@ public class GlitchSort extends PApplet {
 		b10.getCaptionLabel().set("Degrade (d)");
 		// reduce colors slider
 		yPos += step;
-		Slider s3 = controlP5.addSlider("setColorQuantize", 2, 128, colorQuantize, 8, yPos, 127, widgetH);
+		Slider s3 = controlP5.addSlider("setColorQuantize", 2, 128, session.colorQuantize, 8, yPos, 127, widgetH);
 		s3.setGroup(settings);
 		s3.setDecimalPrecision(0);
 		s3.getCaptionLabel().set("");
 		s3.setSliderMode(Slider.FLEXIBLE);
 		// label for color quantize slider
-		Textlabel l9 = controlP5.addTextlabel("colorQuantizeLabel", "Colors = "+ colorQuantize, 137, yPos + 4);
+		Textlabel l9 = controlP5.addTextlabel("colorQuantizeLabel", "Colors = "+ session.colorQuantize, 137, yPos + 4);
 		l9.setGroup(settings);
 		// reduce colors button
 		Button b11 = controlP5.addButton("reduceColors", 0).setPosition(2 * controlPanelWidth/3 + 28, yPos).setSize(60, widgetH);
@@ -1248,7 +1103,7 @@ public class GlitchSort extends PApplet {
 		ch6.setColorForeground(color(233, 233, 0));		
 		// mungeThreshold setting
 		yPos += step;
-		Slider s5 = controlP5.addSlider("setMungeThreshold", 100, 1, mungeThreshold, 8, yPos, 101, widgetH);
+		Slider s5 = controlP5.addSlider("setMungeThreshold", 100, 1, session.mungeThreshold, 8, yPos, 101, widgetH);
 		s5.setGroup(settings);
 		s5.setDecimalPrecision(0);
 		s5.getCaptionLabel().set("");
@@ -1362,11 +1217,11 @@ public class GlitchSort extends PApplet {
 		// use a range slider for bounds
 		yPos += step;
 		// addRange(name, min, max, defaultMin, defaultMax, x, y, w, h) 
-		Range r02 = controlP5.addRange("setStatEqRange", -5.0f, 5.0f, leftBound, rightBound, 8, yPos, 180, widgetH);
+		Range r02 = controlP5.addRange("setStatEqRange", -5.0f, 5.0f, session.leftBound, session.rightBound, 8, yPos, 180, widgetH);
 		r02.setGroup(fftSettings);
 		r02.setDecimalPrecision(2);
-		r02.setLowValue(leftBound);
-		r02.setHighValue(rightBound);
+		r02.setLowValue(session.leftBound);
+		r02.setHighValue(session.rightBound);
 		r02.getCaptionLabel().set("");
 		// label for statistical eQ range slider
 		Textlabel l16 = controlP5.addTextlabel("statEqRangeLabel", "Deviation", 190, yPos + 4);
@@ -1374,7 +1229,7 @@ public class GlitchSort extends PApplet {
 		//------- end slider
 		// number box for boost
 		yPos += step;
-		Numberbox n4 = controlP5.addNumberbox("setBoost", boost, 8, yPos, 40, widgetH);
+		Numberbox n4 = controlP5.addNumberbox("setBoost", session.boost, 8, yPos, 40, widgetH);
 		n4.setGroup(fftSettings);
 		n4.setMultiplier(0.01f);
 		n4.setDecimalPrecision(2);
@@ -1385,7 +1240,7 @@ public class GlitchSort extends PApplet {
 		Textlabel l17 = controlP5.addTextlabel("boostLabel", "IN Scale", 48, yPos + 4);
 		l17.setGroup(fftSettings);
 		// number box for cut
-		Numberbox n5 = controlP5.addNumberbox("setCut", cut, (controlPanelWidth - 8)/3, yPos, 40, widgetH);
+		Numberbox n5 = controlP5.addNumberbox("setCut", session.cut, (controlPanelWidth - 8)/3, yPos, 40, widgetH);
 		n5.setGroup(fftSettings);
 		n5.setMultiplier(0.01f);
 		n5.setDecimalPrecision(2);
@@ -1448,7 +1303,7 @@ public class GlitchSort extends PApplet {
 		s4.setGroup(fftSettings);
 		s4.setDecimalPrecision(0);
 		s4.getCaptionLabel().set("");
-		Textlabel l11 = controlP5.addTextlabel("blockSizeLabel", "FFT Block Size = "+ fftBlockWidth, 76, yPos + 2);
+		Textlabel l11 = controlP5.addTextlabel("blockSizeLabel", "FFT Block Size = "+ session.fftBlockWidth, 76, yPos + 2);
 		l11.setGroup(fftSettings);
 		// move fftSettings into a tab
 		fftSettings.moveTo("FFT");
@@ -1468,8 +1323,7 @@ public class GlitchSort extends PApplet {
 		if (!r1.isInside()) {
 			return;
 		}
-		leftBound = r1.getArrayValue()[0];
-		rightBound = r1.getArrayValue()[1];
+		session.setStatBounds(r1.getArrayValue()[0], r1.getArrayValue()[1]);
     }
 
     /**
@@ -1502,29 +1356,20 @@ public class GlitchSort extends PApplet {
 	}
 	
 	/**
-	 * removes the equalizer from the control panel, currently not used
-	 */
-	public void removeEqualizer() {
-		int lim = eq.length;
-		for (int i = 0; i < lim; i++) {
-			String token = sliderIdentifier + noPlaces.format(i);
-			Slider slider = (Slider) controlP5.getController(token);
-			slider.remove();
-		}
-	}
-
-	/**
-	 * shows equalizer bands used for current FFT block size, hides others
+	 * shows equalizer bands used for current FFT block size, set to the session's eq factors, hides others
 	 */
 	public void showEqualizerBands() {
 		// precautionary coding. The number of eq bins (eq.length) should not excede the max number of bands.
-		int lim = eq.length > eqBands ? eqBands : eq.length;
+		int lim = session.eq.length > eqBands ? eqBands : session.eq.length;
 		for (int i = 0; i < lim; i++) {
 			String token = sliderIdentifier + noPlaces.format(i);
 			Slider slider = (Slider) controlP5.getController(token);
 			slider.setVisible(true);
-			// set value to 0
-			slider.setValue(0);
+			// the inverse of the factor controlEvent() sets for a slider value
+			float factor = session.eq[i];
+			slider.setBroadcast(false);
+			slider.setValue(factor < 1 ? factor - 1 : (factor - 1) / eqScale);
+			slider.setBroadcast(true);
 		}
 		for (int i = lim; i < eqBands; i++) {
 			String token = sliderIdentifier + noPlaces.format(i);
@@ -1555,24 +1400,121 @@ public class GlitchSort extends PApplet {
 	 * Once control panels have been created and drawn, set up initial positions and values
 	 */
 	public void initPanelSettings() {
-		// simplest way to avoid some annoying errors is to set various control panel radio buttons
-		// after panel has been constructed
-		setSorter(SorterType.BUBBLE, false);
-		this.setBreakpoint(999);
-		setSorter(SorterType.SHELL, false);
-		this.setBreakpoint(996);
-		setSorter(SorterType.QUICK, false);
-		this.setBreakpoint(1);
-		setCompOrder(compOrderIndex, false);
-		     setSwap(SwapChannel.RR, false);
-		setEqChan(true, false, false, false, false, false, false);
-		setStatChan(true, false, false, false, false, false, false);
-		setLowFrequencyCut(false, false);
-		Slider s4 = (Slider) controlP5.getController("setFFTBlockWidth"); 
+		Slider s4 = (Slider) controlP5.getController("setFFTBlockWidth");
 		s4.setSliderMode(Slider.FLEXIBLE);
 		s4.setNumberOfTickMarks(7);
-		setZigzagStyle(zigzagStyle, false);
-	} 
+		// simplest way to avoid some annoying errors is to set various control panel radio buttons
+		// after panel has been constructed
+		syncPanel();
+	}
+
+	/**
+	 * Sets the widgets of the control panels to the session's settings, after a command or a change
+	 * of settings in code. The events this raises are ignored, see controlEvent().
+	 */
+	public void syncPanel() {
+		isPanelSync = true;
+		try {
+			SorterType type = session.getSortTool().sorter.getSorterType();
+			((RadioButton) controlP5.getGroup("setSorter")).activate(type.name());
+			setControllerValue("setBreakpoint", session.breakPoint);
+			((Textlabel)controlP5.getController("breakpointLabel")).setValue("Breakpoint: " + type.toString());
+			CheckBox sorting = (CheckBox) controlP5.getGroup("Sorting");
+			setCheck(sorting, 0, session.isAscendingSort);
+			setCheck(sorting, 1, session.randomBreak);
+			setCheck(sorting, 2, session.isSwapChannels);
+			// bubble sort without a comparison budget only makes sense if it breaks, so break is locked
+			sorting.getItem(1).setLock(SorterType.BUBBLE == type && 0 == session.bubbleBudget);
+			setControllerValue("setGlitchSteps", session.glitchSteps);
+			((Textlabel)controlP5.getController("glitchStepsLabel")).setValue("Steps = "+ (int) session.glitchSteps);
+			setCheck((CheckBox) controlP5.getGroup("Glitchmode"), 0, session.isCycleGlitch);
+			((RadioButton) controlP5.getGroup("setCompOrder")).activate(session.compOrder.ordinal());
+			// SwapChannel names are a source and a target channel, R, G or B
+			String swapName = session.swap.name();
+			((RadioButton) controlP5.getGroup("setSourceChannel")).activate(ChannelNames.valueOf(swapName.substring(0, 1)).ordinal());
+			((RadioButton) controlP5.getGroup("setTargetChannel")).activate(ChannelNames.valueOf(swapName.substring(1)).ordinal());
+			Range r01 = (Range) controlP5.getController("setZigzagRange");
+			r01.setBroadcast(false);
+			r01.setLowValue(session.zigzagFloor);
+			r01.setHighValue(session.zigzagCeiling);
+			r01.setBroadcast(true);
+			((RadioButton) controlP5.getGroup("setZigzagStyle")).activate(session.zigzagStyle.ordinal());
+			setControllerValue("setZigzagPercent", session.zigzagPercent);
+			setControllerValue("setQuality", session.degradeQuality * 100);
+			setControllerValue("setColorQuantize", session.colorQuantize);
+			((Textlabel)controlP5.getController("colorQuantizeLabel")).setValue("Colors = "+ session.colorQuantize);
+			RadioButton r5 = (RadioButton) controlP5.getGroup("Shift");
+			if (null == session.shiftChannel) r5.deactivateAll();
+			else r5.activate(session.shiftChannel.ordinal());
+			setCheck((CheckBox) controlP5.getGroup("invertMunge"), 0, session.isMungeInverted);
+			setControllerValue("setMungeThreshold", session.mungeThreshold);
+			// FFT panel, the block size slider is the exponent of the block size
+			setControllerValue("setFFTBlockWidth", Integer.numberOfTrailingZeros(session.fftBlockWidth));
+			((Textlabel)controlP5.getController("blockSizeLabel")).setText("FFT Block Size = "+ session.fftBlockWidth);
+			showEqualizerBands();
+			setChecks((CheckBox) controlP5.getGroup("ChanEq"), session.eqChannels);
+			setChecks((CheckBox) controlP5.getGroup("ChanStat"), session.statChannels);
+			Range r02 = (Range) controlP5.getController("setStatEqRange");
+			r02.setBroadcast(false);
+			r02.setLowValue(session.leftBound);
+			r02.setHighValue(session.rightBound);
+			r02.setArrayValue(0, session.leftBound);
+			r02.setArrayValue(1, session.rightBound);
+			r02.setBroadcast(true);
+			setControllerValue("setBoost", session.boost);
+			setControllerValue("setCut", session.cut);
+			setCheck((CheckBox) controlP5.getGroup("LowFreqCut"), 0, session.isLowFrequencyCut);
+		}
+		finally {
+			isPanelSync = false;
+		}
+	}
+
+	/**
+	 * Sets the value of a controller without calling the method it is named for.
+	 * @param name   name of the controller
+	 * @param val    value to show
+	 */
+	void setControllerValue(String name, float val) {
+		controlP5.Controller<?> con = controlP5.getController(name);
+		con.setBroadcast(false);
+		con.setValue(val);
+		con.setBroadcast(true);
+	}
+
+	/**
+	 * @param cb        a checkbox
+	 * @param item      index of an item in cb
+	 * @param isCheck   true if the item should be checked, false otherwise
+	 */
+	void setCheck(CheckBox cb, int item, boolean isCheck) {
+		if (isCheck) cb.activate(item);
+		else cb.deactivate(item);
+	}
+
+	/**
+	 * Checks the items of a Brightness, Hue, Saturation, Red, Green and Blue checkbox for some channels.
+	 * @param cb      a checkbox with an item for each channel in FFT_CHANNELS
+	 * @param chans   the channels to check, the others are unchecked
+	 */
+	void setChecks(CheckBox cb, ChannelNames[] chans) {
+		List<ChannelNames> checked = Arrays.asList(chans);
+		for (int i = 0; i < FFT_CHANNELS.length; i++) {
+			setCheck(cb, i, checked.contains(FFT_CHANNELS[i]));
+		}
+	}
+
+	/**
+	 * @param checks   values of the items of a checkbox with an item for each channel in FFT_CHANNELS
+	 * @return         the channels checked
+	 */
+	ChannelNames[] checkedChannels(float[] checks) {
+		ArrayList<ChannelNames> chans = new ArrayList<ChannelNames>(FFT_CHANNELS.length);
+		for (int i = 0; i < FFT_CHANNELS.length; i++) {
+			if (1 == (int) checks[i]) chans.add(FFT_CHANNELS[i]);
+		}
+		return chans.toArray(new ChannelNames[chans.size()]);
+	}
 	
 
     /********************************************/
@@ -1592,158 +1534,26 @@ public class GlitchSort extends PApplet {
 	 * reverts display and display buffer to last opened file
 	 */
 	public void revert(boolean toOriginalFile) {
-		if (null != displayFile) {
-			if (toOriginalFile) loadOriginalFile();	
-			else loadFile();
-			if (isFitToScreen) fitPixels(true, false);
-			// reset row numbers and translation
-			loadRowNums();
-			resetRanger();
-			shuffle(rowNums);
-			clipTranslation();
-		}
+		decode(toOriginalFile ? 'R' : 'r');
 	}
-	
+
 	/**
-	 * Sets the value above which the current sort method will randomly interrupt, when randomBreak 
+	 * Sets the value above which the current sort method will randomly interrupt, when randomBreak
 	 * is true (the default). Each sorting method uses a distinct value from 1 to 999. Quick sort
-	 * can use very low values, down to 1.0. The other sorting methods--shell sort, insert sort, 
-	 * bubble sort--generally work best with higher values. 
+	 * can use very low values, down to 1.0. The other sorting methods--shell sort, insert sort,
+	 * bubble sort, radix sort, merge sort--generally work best with higher values.
 	 * @param newBreakPoint   the breakpoint to set
 	 */
 	public void setBreakpoint(float newBreakPoint) {
-		if (newBreakPoint == breakPoint) return;
-		breakPoint = newBreakPoint;
-		sortTool.sorter.setBreakPoint(breakPoint);
-	}
-	
-	/**
-	 * increments shellIndex, changes shell sort settings
-	 */
-	public void incShellIndex() {
-		shellIndex = shellIndex < shellParams.length - 3 ? shellIndex + 2 : 0;
-		int r = shellParams[shellIndex];
-		int d = shellParams[shellIndex + 1];
-		sortTool.shell.setRatio(r);
-		sortTool.shell.setDivisor(d);
-		println("ShellIndex = "+ shellIndex +", Shellsort ratio = "+ r +", divisor = "+ d);
-	}
-	/**
-	 * decrements shellIndex, changes shell sort settings
-	 */
-	public void decShellIndex() {
-		shellIndex = shellIndex > 1 ? shellIndex - 2 : shellParams.length - 2;
-		int r = shellParams[shellIndex];
-		int d = shellParams[shellIndex + 1];
-		sortTool.shell.setRatio(r);
-		sortTool.shell.setDivisor(d);
-		println("ShellIndex = "+ shellIndex +", Shellsort ratio = "+ r +", divisor = "+ d);
-	}
-	
-	/**
-	 * Initializes rowNums array, used in stepped or cyclic sorting, with img.height elements.
-	 */
-	public void loadRowNums() {
-		rowNums = new int[img.height];
-		for (int i = 0; i < img.height; i++) rowNums[i] = i;
-	}
-	
-	/**
-	 * Initializes rowNums array to rowCount elements, shuffles it and sets row value to 0.
-	 */
-	public void resetRowNums(int rowCount) {
-		rowNums = new int[rowCount];
-		for (int i = 0; i < rowCount; i++) rowNums[i] = i;
-		resetRowNums();
-	}
-	/**
-	 * Shuffles rowNums array and sets row value to 0.
-	 */
-	public void resetRowNums() {
-		shuffle(rowNums);
-		row = 0;
-		if (verbose) println("Row numbers shuffled");
-	}
-	
-	/**
-	 * Sets RangeManager stored in ranger to intial settings, with a range of img.height 
-	 * and number of intervals equal to glitchSteps.
-	 */
-	public void resetRanger() {
-		if (null == ranger) {
-			ranger = new RangeManager(img.height, (int) glitchSteps);
-		}
-		else {
-			ranger.resetCurrentIndex();
-			ranger.setRange(img.height);
-			ranger.setNumberOfIntervals((int) glitchSteps);
-		}
-		if (verbose) println("range index reset to 0");
+		if (newBreakPoint == session.breakPoint) return;
+		session.setBreakPoint(newBreakPoint);
 	}
 
-	int rCount = 0;
 	/**
 	 * rotates image and backup image 90 degrees clockwise
 	 */
 	public void rotatePixels(boolean isTurnRight) {
-		if (null == img) return;
-		if (isTurnRight) img = rotateImageRight(img);
-		else img = rotateImageLeft(img);
-		fitPixels(isFitToScreen, false);
-		// rotate undo buffer image, don't rotate snapshot
-		if (null != bakImg) {
-			if (isTurnRight) bakImg = rotateImageRight(bakImg);
-			else bakImg = rotateImageLeft(bakImg);
-		}
-		// load the row numbers
-		loadRowNums();
-		resetRanger();
-		// shuffle the row numbers
-		shuffle(rowNums);
-		// clip translation to image bounds
-		clipTranslation();
-	}
-	
-	/**
-	 * rotates image pixels 90 degrees clockwise
-	 * @param image   the image to rotate
-	 * @return        the rotated image
-	 */
-	public PImage rotateImageRight(PImage image) {
-		// rotate image 90 degrees
-		int h = image.height;
-		int w = image.width;
-		int i = 0;
-		PImage newImage = createImage(h, w, ARGB);
-		newImage.loadPixels();
-		for (int ry = 0; ry < w; ry++) {
-			for (int rx = 0; rx < h; rx++) {
-				newImage.pixels[i++] = image.pixels[(h - 1 - rx) * image.width + ry];
-			}
-		}
-		newImage.updatePixels();
-		return newImage;
-	}
-
-	/**
-	 * rotates image pixels 90 degrees clockwise
-	 * @param image   the image to rotate
-	 * @return        the rotated image
-	 */
-	public PImage rotateImageLeft(PImage image) {
-		// rotate image 90 degrees
-		int h = image.height;
-		int w = image.width;
-		int i = 0;
-		PImage newImage = createImage(h, w, ARGB);
-		newImage.loadPixels();
-		for (int ry = w-1; ry >= 0; ry--) {
-			for (int rx = h-1; rx >= 0; rx--) {
-				newImage.pixels[i++] = image.pixels[(h - 1 - rx) * image.width + ry];
-			}
-		}
-		newImage.updatePixels();
-		return newImage;
+		decode(isTurnRight ? 't' : 'T');
 	}
 	
 	
@@ -1772,434 +1582,99 @@ public class GlitchSort extends PApplet {
 	}
 
 	/**
-	 * Sorts the pixels line by line, in random order, using the current
-	 * sorting method set in sortTool.
-	 * @fix moved loadPixels outside loop
-	 * TODO implement a cycle and row manager class
+	 * Sorts the pixels line by line, in random order, using the current sorting method.
 	 */
 	public void sortPixels() {
-		if (null == img || null == ranger) {
-			println("No image is available for sorting or the ranger is not initialized (sortPixels method)");
-			return;
-		}
-		// TODO implement methods to set sorter values for color swapping, sort order, component order
-		// for the moment, we do it by providing the sortTool with top level access to the GlitchSort instance
-		// and pulling the values from local variables. It would be more efficient to do this only on control panel changes. 
-		sortTool.setControlState();
-		backup();
-		img.loadPixels();
-		this.sortTool.setControlState();
-		if (isCycleGlitch) {
-			IntRange range;
-			if (ranger.hasNext()) {
-				range = ranger.getNext();
-				println(range.toString());
-			} 
-			else {
-				ranger.resetCurrentIndex();
-				range = ranger.getNext();
-				resetRowNums();
-				println("starting a new cycle");
-			}
-			for (int i = range.lower; i < range.upper; i++) {
-				int n = rowNums[i];
-				if (verbose) println("sorting row "+ n +" at index "+ i);
-				row++;
-				int l = n * img.width;
-				int r = l + img.width - 1;
-				sortTool.sort(img.pixels, l, r);
-			}
-		}
-		else {
-			int rowMax = (int)(Math.round(rowNums.length / glitchSteps));
-			for (int i = 0; i < rowMax; i++) {
-				int n = rowNums[i];
-				if (verbose) println("sorting row "+ n);
-				int l = n * img.width;
-				int r = l + img.width - 1;
-				sortTool.sort(img.pixels, l, r);
-			}
-			shuffle(rowNums);
-		}
-		img.updatePixels();
-		fitPixels(isFitToScreen, false);
-	}
-	
-	/**
-	 * Saves a copy of the currently displayed image in img to bakImg.
-	 */
-	public void backup() {
-		bakImg = img.get();
+		decode('g');
 	}
 
 	/**
 	 * Undoes the last command. Not applicable to munge command.
 	 */
 	public void restore() {
-		// store a copy of the current image in tempImg
-		PImage tempImg = img.get();
-		img = bakImg;
-		bakImg = tempImg;
-		// println("--- restore");
-		fitPixels(isFitToScreen, false);
-		// if the display image and the backup image are different sizes, we need to reset rows and translation
-		loadRowNums();
-		resetRanger();
-		shuffle(rowNums);
-		clipTranslation();
+		decode('z');
 	}
-	
+
 	/**
-	 * Saves a copy of the currently displayed image in img to snapImg.
+	 * Saves a copy of the current image to the snapshot.
 	 */
 	public void snap() {
-//		if (null == snapImg) snapImg = createImage(width, height, ARGB);
-//		snapImg.resize(img.width, img.height);
-//		snapImg.copy(img, 0, 0, img.width, img.height, 0, 0, img.width, img.height);
-		snapImg = img.get();
-		println("took a snapshot of current state");
+		decode('n');
 	}
-	
+
 	/**
-	 * copies snapImg to img, undo buffer bakImg is not changed
+	 * copies the snapshot to the image, the undo buffer is not changed
 	 */
 	public void unsnap() {
-		if (null == snapImg) return;
-		img = snapImg.get();
-		fitPixels(isFitToScreen, false);
-		// if the display image and the snapshot image are different sizes, we need to reset rows and translation
-		loadRowNums();
-		resetRanger();
-		shuffle(rowNums);
-		clipTranslation();
+		decode('u');
 	}
-	
+
 	/**
 	 * loads a file into snapshot buffer.
 	 */
 	public void loadFileToSnapshot() {
 		selectInput("Image file for snapshot buffer:", "snapshotFileSelected");
 	}
-	
+
 	public void snapshotFileSelected(File selectedFile) {
 		if (null != selectedFile) {
 			noLoop();
-			File snapFile = selectedFile;
-			// snapImg = createImage(width, height, ARGB);
-			snapImg = loadImage(snapFile.getAbsolutePath()).get();
-			println("loaded "+ snapFile.getName() +" to snapshot buffer: width = "+ snapImg.width +", height = "+ snapImg.height);
+			try {
+				session.openSnapshot(selectedFile);
+			}
+			catch (IOException e) {
+				println("--->> could not load "+ selectedFile.getName() +": "+ e.getMessage());
+			}
 			loop();
 		}
 		else {
 			println("No file was selected");
 		}
 	}
-	
+
 	/**
-	 * Composites the current image (img) with the snapshot (snapImg) using the undo buffer (bakImg)
-	 * as a mask. When the largest absolute difference between a pixel in the image and the same
-	 * pixel in the undo buffer is greater than mungeThreshold, a pixel from the snapshot will be written
-	 * to the image. The undo buffer and the snapshot will be resized to the image dimensions if
-	 * necessary (it's not called "munge" for nothing).
+	 * Composites the current image with the snapshot using the undo buffer as a mask,
+	 * see GlitchEngine.munge().
 	 */
 	public void munge() {
-		if (null == bakImg || null == snapImg) {
-			println("To munge an image you need an undo buffer and a snapshot");
-			return;
-		}
-		if (img.width != bakImg.width || img.height != bakImg.height) {
-			bakImg.resize(img.width, img.height);
-		}
-		if (img.width != snapImg.width || img.height != snapImg.height) {
-			snapImg.resize(img.width, img.height);
-		}
-		img.loadPixels();
-		bakImg.loadPixels();
-		snapImg.loadPixels();
-		int alpha = 255 << 24;
-		for (int i = 0; i < img.pixels.length; i++) {
-			int src = Math.abs(img.pixels[i]);
-			int targ = Math.abs(bakImg.pixels[i]);
-			int diff = maxColorDiff(src, targ);
-			if (isMungeInverted) {
-				if (diff < mungeThreshold) {
-					img.pixels[i] = snapImg.pixels[i] | alpha;
-				}
-				
-			}
-			else {
-				if (diff > mungeThreshold) {
-					img.pixels[i] = snapImg.pixels[i] | alpha;
-				}
-			}
-		}
-		println("munged -----");
-		img.updatePixels();
-		fitPixels(isFitToScreen, false);
+		decode('m');
 	}
-	
+
 
 	/**
-	 * degrades the image by saving it as a low quality JPEG and loading the saved image
+	 * degrades the image with low quality JPEG compression
 	 */
 	public void degrade() {
-		try {
-			backup();
-			println("degrading");
-			degradeImage(img, degradeQuality);
-			if (isFitToScreen) fitPixels(true, false);
-		} catch (IOException e) {
-			// Auto-generated catch block
-			e.printStackTrace();
-		}
+		decode('d');
 	}
-	
+
 	/**
 	 * Quantizes colors in image to a user-specified value between 2 and 255
 	 */
 	public void reduceColors() {
-		BufferedImage im = (BufferedImage) img.getNative();
-		if (null == quant) {
-			quant = new ImageColorQuantizer(colorQuantize);
-		}
-		else {
-			quant.setColorCount(colorQuantize);
-		}
-		quant.filter(im, null);
-		int[] px = quant.pixels;
-		if (px.length != img.pixels.length) {
-			println("---- pixel arrays are not equal (method reduceColors)");
-			return;
-		}
-		backup();
-		img.loadPixels();
-		int alpha = 255 << 24;
-		for (int i = 0; i < px.length; i++) {
-			// provide the alpha channel, otherwise the image will vanish
-			img.pixels[i] = px[i] | alpha;
-		}
-		img.updatePixels();
-		fitPixels(isFitToScreen, false);
+		decode('p');
 	}
-	
+
 	/**
 	 * implements a basic 3x3 denoise (median) filter
-	 * TODO provide generalized filter for any edge dimension, tuned to individual color channels
 	 */
 	public void denoise() {
-		int boxW = 3;
-        int medianPos = 4;
-        backup();
-		PImage imgCopy = img.get();
-		int w = img.width;
-		int h = img.height;
-		int[] pix = new int[boxW * boxW];
-		img.loadPixels();
-		for (int v = 1; v < h - 1; v++) {
-			for (int u = 1; u < w - 1; u++) {
-				int k = 0;
-                for (int j = -1; j <= 1; j++) {
-                    for (int i = -1; i <= 1; i++) {
-                        pix[k] = imgCopy.get(u + i, v + j);
-                        k++;
-                    }
-                }
-                Arrays.sort(pix);
-                img.set(u, v, pix[medianPos]);
-			}
-		}
-		// prepare array for edges
-		pix = new int[(boxW - 1) * boxW];
-		// left edge
-		for (int v = 1; v < h - 1; v++) {
-			int u = 0;
-			int k = 0;
-			for (int j = -1; j <= 1; j++) {
-				for (int i = 0; i <= 1; i++) {
-					pix[k] = imgCopy.get(u + i, v + j);
-					k++;
-				}
-			}
-			Arrays.sort(pix);
-			img.set(u, v, GlitchSort.meanColor(pix[2], pix[3]));
-		}
-		// right edge
-		for (int v = 1; v < h - 1; v++) {
-			int u = w - 1;
-			int k = 0;
-			for (int j = -1; j <= 1; j++) {
-				for (int i = 0; i <= 1; i++) {
-					pix[k] = imgCopy.get(u - i, v + j);
-					k++;
-				}
-			}
-			Arrays.sort(pix);
-			img.set(u, v, GlitchSort.meanColor(pix[2], pix[3]));
-		}
-		// top edge
-		for (int u = 1; u < w - 1; u++) {
-			int v = 0;
-			int k = 0;
-			for (int j = 0; j <= 1; j++) {
-				for (int i = -1; i <= 1; i++) {
-					pix[k] = imgCopy.get(u + i, v + j);
-					k++;
-				}
-			}
-			Arrays.sort(pix);
-			img.set(u, v, GlitchSort.meanColor(pix[2], pix[3]));
-		}
-		// bottom edge 
-		for (int u = 1; u < w - 1; u++) {
-			int v = h - 1;
-			int k = 0;
-			for (int j = 0; j <= 1; j++) {
-				for (int i = -1; i <= 1; i++) {
-					pix[k] = imgCopy.get(u + i, v - j);
-					k++;
-				}
-			}
-			Arrays.sort(pix);
-			img.set(u, v, GlitchSort.meanColor(pix[2], pix[3]));
-		}
-		// prepare array for corners
-		pix = new int[(boxW - 1) * (boxW - 1)];
-		// do the corners
-		pix[0] = imgCopy.get(0, 0);
-		pix[1] = imgCopy.get(0, 1);
-		pix[2] = imgCopy.get(1, 0);
-		pix[3] = imgCopy.get(1, 1);
-		Arrays.sort(pix);
-		img.set(0, 0, GlitchSort.meanColor(pix[1], pix[2]));
-		pix[0] = imgCopy.get(w - 1, 0);
-		pix[1] = imgCopy.get(w - 1, 1);
-		pix[2] = imgCopy.get(w - 2, 0);
-		pix[3] = imgCopy.get(w - 2, 1);
-		Arrays.sort(pix);
-		img.set(w - 1, 0, GlitchSort.meanColor(pix[1], pix[2]));
-		pix[0] = imgCopy.get(0, h - 1);
-		pix[1] = imgCopy.get(0, h - 2);
-		pix[2] = imgCopy.get(1, h - 1);
-		pix[3] = imgCopy.get(1, h - 2);
-		Arrays.sort(pix);
-		img.set(0, h - 1, GlitchSort.meanColor(pix[1], pix[2]));
-		pix[0] = imgCopy.get(w - 1, h - 1);
-		pix[1] = imgCopy.get(w - 1, h - 2);
-		pix[2] = imgCopy.get(w - 2, h - 1);
-		pix[3] = imgCopy.get(w - 2, h - 1);
-		Arrays.sort(pix);
-		img.set(w - 1, h - 1, GlitchSort.meanColor(pix[1], pix[2]));
-		img.updatePixels();
-		fitPixels(isFitToScreen, false);
+		decode('9');
 	}
-	
-	
+
+
 	/**
 	 * Shifts selected RGB color channel one pixel left.
 	 */
 	public void shiftLeft() {
-		backup();
-		img.loadPixels();
-		int c1, c2;
-		// I've unwound the loop so as to check the channel to shift only once
-		if (isShiftR) {
-			for (int i = 0; i < rowNums.length; i++) {
-				int l = i * img.width;
-				int r = l + img.width - 1;
-				int temp = img.pixels[l];
-				for (int u = l + 1; u <= r; u++) {
-					c1 = img.pixels[u];
-					c2 = img.pixels[u - 1];
-					img.pixels[u - 1] = 255 << 24 | ((c1 >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | c2 & 0xFF;
-				}
-				c2 = img.pixels[r];
-				img.pixels[r] = 255 << 24 | ((temp >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | c2 & 0xFF;
-			}
-		}
-		else if (isShiftG) {
-			for (int i = 0; i < rowNums.length; i++) {
-				int l = i * img.width;
-				int r = l + img.width - 1;
-				int temp = img.pixels[l];
-				for (int u = l + 1; u <= r; u++) {
-					c1 = img.pixels[u];
-					c2 = img.pixels[u - 1];
-					img.pixels[u - 1] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((c1 >> 8) & 0xFF) << 8 | c2 & 0xFF;
-				}
-				c2 = img.pixels[r];
-				img.pixels[r] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((temp >> 8) & 0xFF) << 8 | c2 & 0xFF;
-			}
-		}
-		else if (isShiftB) {
-			for (int i = 0; i < rowNums.length; i++) {
-				int l = i * img.width;
-				int r = l + img.width - 1;
-				int temp = img.pixels[l];
-				for (int u = l + 1; u <= r; u++) {
-					c1 = img.pixels[u];
-					c2 = img.pixels[u - 1];
-					img.pixels[u - 1] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | c1 & 0xFF;
-				}
-				c2 = img.pixels[r];
-				img.pixels[r] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | temp & 0xFF;
-			}
-		}
-		img.updatePixels();
-		fitPixels(isFitToScreen, false);
+		decode(',');
 	}
-	
+
 	/**
 	 * Shifts selected RGB channel one pixel right.
 	 */
 	public void shiftRight() {
-		backup();
-		img.loadPixels();
-		int c1, c2;
-		// I've unwound the loop so as to check the channel o shift only once
-		if (isShiftR) {
-			for (int i = 0; i < rowNums.length; i++) {
-				int l = i * img.width;
-				int r = l + img.width - 1;
-				int temp = img.pixels[r];
-				for (int u = r - 1; u >= l; u--) {
-					c1 = img.pixels[u];
-					c2 = img.pixels[u + 1];
-					img.pixels[u + 1] = 255 << 24 | ((c1 >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | c2 & 0xFF;
-				}
-				c2 = img.pixels[l];
-				img.pixels[l] = 255 << 24 | ((temp >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | c2 & 0xFF;
-			}
-		}
-		else if (isShiftG) {
-			for (int i = 0; i < rowNums.length; i++) {
-				int l = i * img.width;
-				int r = l + img.width - 1;
-				int temp = img.pixels[r];
-				for (int u = r - 1; u >= l; u--) {
-					c1 = img.pixels[u];
-					c2 = img.pixels[u + 1];
-					img.pixels[u + 1] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((c1 >> 8) & 0xFF) << 8 | c2 & 0xFF;
-				}
-				c2 = img.pixels[l];
-				img.pixels[l] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((temp >> 8) & 0xFF) << 8 | c2 & 0xFF;
-			}
-		}
-		else if (isShiftB) {
-			for (int i = 0; i < rowNums.length; i++) {
-				int l = i * img.width;
-				int r = l + img.width - 1;
-				int temp = img.pixels[r];
-				for (int u = r - 1; u >= l; u--) {
-					c1 = img.pixels[u];
-					c2 = img.pixels[u + 1];
-					img.pixels[u + 1] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | c1 & 0xFF;
-				}
-				c2 = img.pixels[l];
-				img.pixels[l] = 255 << 24 | ((c2 >> 16) & 0xFF) << 16 | ((c2 >> 8) & 0xFF) << 8 | temp & 0xFF;
-			}
-		}
-		img.updatePixels();
-		fitPixels(isFitToScreen, false);
+		decode('.');
 	}
 	
 	/**
@@ -2215,6 +1690,8 @@ public class GlitchSort extends PApplet {
 	 */
 	public void fitPixels(boolean fitToScreen, boolean isFromControlPanel) {
 		if (!isFromControlPanel) {
+			// exec() refreshes the display when it is done, but a change of fit takes effect now
+			if (isDisplayDeferred && fitToScreen == isFitToScreen) return;
 			if (fitToScreen) ((CheckBox) controlP5.getGroup("fitPixels")).activate(0);
 			else ((CheckBox) controlP5.getGroup("fitPixels")).deactivate(0);
 		}
@@ -2271,451 +1748,77 @@ public class GlitchSort extends PApplet {
     /*                                          */
     /********************************************/
 	
-
 	/**
 	 * Sets glitchSteps.
 	 * @param val   the new value for glitchSteps
 	 */
 	public void setGlitchSteps(float val) {
-		val = val < 1 ? 1 : (val > 100 ? 100 : val);
-		if (val == glitchSteps) return;
-		glitchSteps = val;
-		glitchSteps = (int)  Math.floor(glitchSteps);
-		((Textlabel)controlP5.getController("glitchStepsLabel")).setValue("Steps = "+ (int)glitchSteps);
-		if (null != ranger) {
-			ranger.setNumberOfIntervals((int)glitchSteps);
-			println("range intervals set to "+ (int) glitchSteps);
-		}
-		if (verbose) println("glitchSteps = "+ glitchSteps);
-	}
-	
-	/**
-	 * Sets glitchSteps.
-	 * @param val   the new value for glitchSteps
-	 */
-	public void incrementGlitchSteps(boolean up) {
-		// a workaround to permit us to call setGlitchSteps as a bottleneck method
-		int steps = (int) glitchSteps;
-		if (up) steps++;
-		else steps--;
-		setGlitchSteps(steps);
-		controlP5.getController("setGlitchSteps").setBroadcast(false);
-		controlP5.getController("setGlitchSteps").setValue(glitchSteps);
-		controlP5.getController("setGlitchSteps").setBroadcast(true);
+		session.setGlitchSteps((int) val);
+		((Textlabel)controlP5.getController("glitchStepsLabel")).setValue("Steps = "+ (int) session.glitchSteps);
 	}
-	
-	/**
-	 * Set the value of isGlitchCycle.
-	 * @param isCycle   the value to set isCycleGlitch
-	 * @param isFromControlPanel   true if called from the control panel, false otherwise
-	 */
-	public void setCycle(boolean isCycle, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			if (isCycle) ((CheckBox) controlP5.getGroup("Glitchmode")).activate(0);
-			else ((CheckBox) controlP5.getGroup("Glitchmode")).deactivate(0);
-		}
-		else {
-			isCycleGlitch = isCycle;
-			if (null != rowNums) resetRowNums();
-			// if isCycleGlitch was just set to true, reset ranger's index to 0
-			if (isCycleGlitch && null != ranger) {
-				ranger.resetCurrentIndex();
-				println("range index reset to 0");
-			}
-			if (verbose) println("isCycleGlitch = "+ isCycleGlitch);
-		}
-	}
-	
+
 	/**
 	 * Sets mungeThreshold
-	 * @param val   the desired JPEG quality setting (* 100).
+	 * @param val   the largest difference between the image and the undo buffer that munge ignores
 	 */
 	public void setMungeThreshold(float val) {
-		if ((int) val == mungeThreshold) return;
-		mungeThreshold = (int) val;
-		if (verbose) println("degrade quality = "+ degradeQuality);
+		if ((int) val == session.mungeThreshold) return;
+		session.setMungeThreshold((int) val);
 	}
 
-	
-	/**
-	 * Toggles value of isMungeInverted, changes how difference mask operates in munge operation.
-	 * @param invert
-	 * @param isFromControlPanel
-	 */
-	public void invertMunge(boolean invert, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			if (invert) ((CheckBox) controlP5.getGroup("invertMunge")).activate(0);
-			else ((CheckBox) controlP5.getGroup("invertMunge")).deactivate(0);
-		}
-		else {
-			isMungeInverted = invert;
-			println("isMungeInverted = "+ isMungeInverted);		
-		}
-	}
-	
 	/**
 	 * Sets degradeQuality
 	 * @param val   the desired JPEG quality setting (* 100).
 	 */
 	public void setQuality(float val) {
-		if (val == degradeQuality * 100) return;
-		degradeQuality = val * 0.01f;
-		println("degrade quality = "+ this.twoPlaces.format(degradeQuality * 100));
+		if (val == session.degradeQuality * 100) return;
+		session.setDegradeQuality(val * 0.01f);
 	}
-	
+
 	/**
 	 * Increments or decrements and sets degradeQuality.
 	 * @param up   true if increment, false if decrement
 	 */
 	public void incrementDegradeQuality(boolean up) {
-		// a workaround to permit us to call setQuality as a bottleneck method
-		float q = (degradeQuality * 100);
-		if (up) q++; 
+		float q = (session.degradeQuality * 100);
+		if (up) q++;
 		else q--;
 		setQuality(constrain(q, 0, 100));
-		controlP5.getController("setQuality").setBroadcast(false);
-		controlP5.getController("setQuality").setValue(degradeQuality * 100);
-		controlP5.getController("setQuality").setBroadcast(true);
-	}
-	
-
-	
-	/**
-	 * TODO
-	 * Sets the sorting method (QUICK, SHELL, BUBBLE, INSERT) used by sortTool.
-	 * @param type   the type of sorting method to use
-	 * @param isFromControlPanel   true if call is from a control panel interaction, false otherwise
-	 */
-	public void setSorter(SorterType type, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			((RadioButton) controlP5.getGroup("setSorter")).activate(type.name());
-		}
-		else {
-			sortTool.setSorter(type);
-			breakPoint = sortTool.sorter.getBreakPoint();
-			controlP5.getController("setBreakpoint").setBroadcast(false);
-			controlP5.getController("setBreakpoint").setValue(breakPoint);
-			((Textlabel)controlP5.getController("breakpointLabel")).setValue("Breakpoint: " + sortTool.sorter.getSorterType().toString());
-			controlP5.getController("setBreakpoint").setBroadcast(true);
-			println(type.name() +" sorter loaded");
-		}
-		if (type == SorterType.BUBBLE || type == SorterType.INSERT) {
-			// bubble and insert sorts are extremely slow: it only make sense to use them if they break (glitch)
-			// so we set the break checkbox to true and lock it
-			println("bubble or insert sort: break set to true");
-			setRandomBreak(true, false);
-			((CheckBox) controlP5.getGroup("Sorting")).getItem(1).setLock(true);
-		}
-		else {
-			// unlock the break checkbox
-			((CheckBox) controlP5.getGroup("Sorting")).getItem(1).setLock(false);
-		}
-	}
-
-	/**
-	 * Sets the order of components used to sort pixels.
-	 * @param index   index number of CompOrder values 
-	 * @param isFromControlPanel   true if call is from a control panel interaction, false otherwise
-	 */
-	public void setCompOrder(int index, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			((RadioButton) controlP5.getGroup("setCompOrder")).activate(index);
-		}
-		else {
-			compOrderIndex = index;
-			compOrder = CompOrder.values()[compOrderIndex];
-			println("Color component order set to "+ compOrder.name());
-		}
-	}
-	
-	/**
-	 * @param val   true if sorting should be in ascending order, false otherwise 
-	 * @param isFromControlPanel   true if call is from a control panel interaction, false otherwise
-	 */
-	public void setAscending(boolean val, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			if (val) ((CheckBox) controlP5.getGroup("Sorting")).activate("Ascending");
-			else ((CheckBox) controlP5.getGroup("Sorting")).deactivate("Ascending");
-		}
-		else {
-			if (isAscendingSort == val) return;
-			isAscendingSort = val;
-			println("Ascending sort order is "+ isAscendingSort);
-		}
-	}
-		
-	/**
-	 * @param val   true if random breaks in sorting ("glitches") are desired, false otherwise.
-	 * @param isFromControlPanel   true if call is from a control panel interaction, false otherwise
-	 */
-	public void setRandomBreak(boolean val, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			if (val) ((CheckBox) controlP5.getGroup("Sorting")).activate("Break");
-			else ((CheckBox) controlP5.getGroup("Sorting")).deactivate("Break");
-		}
-		else {
-			if (randomBreak == val) return;
-			randomBreak = val;
-			sortTool.setRandomBreak(randomBreak);
-			println("randomBreak is "+ randomBreak);
-		}
+		syncPanel();
 	}
 
-	/**
-	 * @param val   true if color channels should be swapped when sorting (more glitching). 
-	 * @param isFromControlPanel   true if call is from a control panel interaction, false otherwise
-	 */
-	public void setIsSwapChannels(boolean val, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			if (val) ((CheckBox) controlP5.getGroup("Sorting")).activate("Swap");
-			else ((CheckBox) controlP5.getGroup("Sorting")).deactivate("Swap");
-		}
-		else {
-			if (isSwapChannels == val) return;
-			isSwapChannels = val;
-			println("Swap color channels is "+ isSwapChannels);
-		}
-	}
-	
-	/**
-	 * @param newSwap   the swap value to set, determinse which channels are swapped.
-	 * @param isFromControlPanel   true if call is from a control panel interaction, false otherwise
-	 */
-	public void setSwap(SwapChannel newSwap, boolean isFromControlPanel) {
-		if (swap == newSwap) return;
-		if (!isFromControlPanel) {
-			RadioButton rb1 = (RadioButton)controlP5.getGroup("setSourceChannel");
-			RadioButton rb2 = (RadioButton)controlP5.getGroup("setTargetChannel");
-			switch (newSwap) {
-			case RR: {
-				rb1.activate(0);
-				rb2.activate(0);
-				break;
-			}
-			case RG: {
-				rb1.activate(0);
-				rb2.activate(1);
-				break;
-			}
-			case RB: {
-				rb1.activate(0);
-				rb2.activate(2);
-				break;
-			}
-			case GR: {
-				rb1.activate(1);
-				rb2.activate(0);
-				break;
-			}
-			case GG: {
-				rb1.activate(1);
-				rb2.activate(1);
-				break;
-			}
-			case GB: {
-				rb1.activate(1);
-				rb2.activate(2);
-				break;
-			}
-			case BR: {
-				rb1.activate(2);
-				rb2.activate(0);
-				break;
-			}
-			case BG: {
-				rb1.activate(2);
-				rb2.activate(1);
-				break;
-			}
-			case BB: {
-				rb1.activate(2);
-				rb2.activate(2);
-				break;
-			}
-			}
-		}
-		else {
-			swap = newSwap;
-			println("swap is "+ swap.name());
-		}
-	}
-	
-	public void setZigzagStyle(ZigzagStyle style, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			((RadioButton) controlP5.getGroup("setZigzagStyle")).activate(style.ordinal());
-		}
-		else {
-			zigzagStyle = style;
-			println("-- zizagStyle = "+ style.name());
-		}
-	}	
-	
 	/**
 	 * adjusts control panel text to reflect updated quantization value
 	 * @param val   the current quantization value
 	 */
 	public void setColorQuantize(float val) {
-		if (val == colorQuantize) return;
-		colorQuantize = (int) val;
-		((Textlabel)controlP5.getController("colorQuantizeLabel")).setValue("Colors = "+ colorQuantize);
-		// if (verbose) 
-		println("colorQuantize = "+ colorQuantize);
+		if ((int) val == session.colorQuantize) return;
+		session.setColorQuantize((int) val);
+		((Textlabel)controlP5.getController("colorQuantizeLabel")).setValue("Colors = "+ session.colorQuantize);
 	}
-	
+
 	/**
-	 * Sets colorQuantize.
-	 * @param val   the new value for glitchSteps
+	 * Increments or decrements and sets colorQuantize.
+	 * @param up   true if increment, false if decrement
 	 */
 	public void incrementColorQuantize(boolean up) {
-		// a workaround to permit us to call setGlitchSteps as a bottleneck method
-		int val = (int) colorQuantize;
+		int val = session.colorQuantize;
 		if (up && val < 128) val++;
 		else if (val > 2) val--;
 		setColorQuantize(val);
-		controlP5.getController("setColorQuantize").setBroadcast(false);
-		controlP5.getController("setColorQuantize").setValue(colorQuantize);
-		controlP5.getController("setColorQuantize").setBroadcast(true);
-	}
-	
-	/**
-	 * Sets the values of equalizer-controlled FFT settings.
-	 * @param isBrightness   true if brightness channel is affect by FFT, false otherwise
-	 * @param isHue          true if hue channel is affect by FFT, false otherwise
-	 * @param isSaturation   true if saturation channel is affect by FFT, false otherwise
-	 * @param isRed          true if red channel is affect by FFT, false otherwise
-	 * @param isGreen        true if green channel is affect by FFT, false otherwise
-	 * @param isBlue         true if blue channel is affect by FFT, false otherwise
-	 * @param isFromControlPanel   true if called from the control panel, false otherwise
-	 */
-	public void setEqChan(boolean isBrightness, boolean isHue, boolean isSaturation,
-			boolean isRed, boolean isGreen, boolean isBlue, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			// println("setting equalizer HSB/RGB");
-			if (isBrightness) ((CheckBox) controlP5.getGroup("ChanEq")).activate(0);
-			else ((CheckBox) controlP5.getGroup("ChanEq")).deactivate(0);
-			if (isHue) ((CheckBox) controlP5.getGroup("ChanEq")).activate(1);
-			else ((CheckBox) controlP5.getGroup("ChanEq")).deactivate(1);
-			if (isSaturation) ((CheckBox) controlP5.getGroup("ChanEq")).activate(2);
-			else ((CheckBox) controlP5.getGroup("ChanEq")).deactivate(2);
-			if (isRed) ((CheckBox) controlP5.getGroup("ChanEq")).activate(3);
-			else ((CheckBox) controlP5.getGroup("ChanEq")).deactivate(3);
-			if (isGreen) ((CheckBox) controlP5.getGroup("ChanEq")).activate(4);
-			else ((CheckBox) controlP5.getGroup("ChanEq")).deactivate(4);
-			if (isBlue) ((CheckBox) controlP5.getGroup("ChanEq")).activate(5);
-			else ((CheckBox) controlP5.getGroup("ChanEq")).deactivate(5);
-		}
-		else {
-			isEqGlitchBrightness = isBrightness;
-			isEqGlitchHue = isHue;
-			isEqGlitchSaturation = isSaturation;
-			isEqGlitchRed = isRed;
-			isEqGlitchGreen = isGreen;
-			isEqGlitchBlue = isBlue;
-			if (verbose) 
-			{
-				println("Equalizer FFT: ");
-				print("  Brightness = "+ isEqGlitchBrightness);
-				print(", Hue = "+ isEqGlitchHue);
-				print(", Saturation = "+ isEqGlitchSaturation);
-				print(", Red = "+ isEqGlitchRed);
-				print(", Green = "+ isEqGlitchGreen);
-				println(", Blue = "+ isEqGlitchBlue);
-			}
-		}
-	}
-	
-	/**
-	 * Sets the values of statistically controlled FFT settings.
-	 * @param isBrightness   true if brightness channel is affect by FFT, false otherwise
-	 * @param isHue          true if hue channel is affect by FFT, false otherwise
-	 * @param isSaturation   true if saturation channel is affect by FFT, false otherwise
-	 * @param isRed          true if red channel is affect by FFT, false otherwise
-	 * @param isGreen        true if green channel is affect by FFT, false otherwise
-	 * @param isBlue         true if blue channel is affect by FFT, false otherwise
-	 * @param isFromControlPanel   true if called from the control panel, false otherwise
-	 */
-	public void setStatChan(boolean isBrightness, boolean isHue, boolean isSaturation,
-			boolean isRed, boolean isGreen, boolean isBlue, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			// println("setting statistical HSB/RGB");
-			if (isBrightness) ((CheckBox) controlP5.getGroup("ChanStat")).activate(0);
-			else ((CheckBox) controlP5.getGroup("ChanStat")).deactivate(0);
-			if (isHue) ((CheckBox) controlP5.getGroup("ChanStat")).activate(1);
-			else ((CheckBox) controlP5.getGroup("ChanStat")).deactivate(1);
-			if (isSaturation) ((CheckBox) controlP5.getGroup("ChanStat")).activate(2);
-			else ((CheckBox) controlP5.getGroup("ChanStat")).deactivate(2);
-			if (isRed) ((CheckBox) controlP5.getGroup("ChanStat")).activate(3);
-			else ((CheckBox) controlP5.getGroup("ChanStat")).deactivate(3);
-			if (isGreen) ((CheckBox) controlP5.getGroup("ChanStat")).activate(4);
-			else ((CheckBox) controlP5.getGroup("ChanStat")).deactivate(4);
-			if (isBlue) ((CheckBox) controlP5.getGroup("ChanStat")).activate(5);
-			else ((CheckBox) controlP5.getGroup("ChanStat")).deactivate(5);
-		}
-		else {
-			isStatGlitchBrightness = isBrightness;
-			isStatGlitchHue = isHue;
-			isStatGlitchSaturation = isSaturation;
-			isStatGlitchRed = isRed;
-			isStatGlitchGreen = isGreen;
-			isStatGlitchBlue = isBlue;
-			if (verbose) 
-			{
-				println("Statistical FFT: ");
-				print("  Brightness = "+ isStatGlitchBrightness);
-				print(", Hue = "+ isStatGlitchHue);
-				print(", Saturation = "+ isStatGlitchSaturation);
-				print(", Red = "+ isStatGlitchRed);
-				print(", Green = "+ isStatGlitchGreen);
-				println(", Blue = "+ isStatGlitchBlue);
-			}
-		}
+		syncPanel();
 	}
 
-
 	/**
-	 * Toggles low frequency cut setting in statistical FFT control.
-	 * @param isCut
-	 * @param isFromControlPanel
-	 */
-	public void setLowFrequencyCut(boolean isCut, boolean isFromControlPanel) {
-		if (!isFromControlPanel) {
-			// println("setting statistical HSB/RGB");
-			if (isCut) ((CheckBox) controlP5.getGroup("LowFreqCut")).activate(0);
-			else ((CheckBox) controlP5.getGroup("LowFreqCut")).deactivate(0);
-		}
-		else {
-			isLowFrequencyCut = isCut;
-			println("isLowFrequencyCut = "+ isLowFrequencyCut);
-		}
-	}
-
-	/**
-	 * Sets fftBlockWidth. 
-	 * @param val   the new value for eqGain
+	 * Sets fftBlockWidth to a power of 2.
+	 * @param val   the exponent, from 3 to 9
 	 */
 	public void setFFTBlockWidth(float val) {
 		val = val < 3 ? 3 : (val > 9 ? 9 : val);
 		int temp = (int) Math.pow(2, (int) val);
-		if (temp == fftBlockWidth) return;
-		resetFFT(temp);
-	}
-	
-	/**
-	 * Sets value of leftBound used in statistical FFT interface
-	 * @param newLeftBound
-	 */
-	public void setLeftBound(float newLeftBound) {
-		if (newLeftBound == leftBound) return;
-		leftBound = newLeftBound;
-	}
-
-	/**
-	 * Sets value of rightBound used in statistical FFT interface
-	 * @param newRightBound
-	 */
-	public void setRightBound(float newRightBound) {
-		if (newRightBound == rightBound) return;
-		rightBound = newRightBound;
+		if (temp == session.fftBlockWidth) return;
+		session.setFFTBlockWidth(temp);
+		syncPanel();
 	}
 
 	/**
@@ -2723,57 +1826,51 @@ public class GlitchSort extends PApplet {
 	 * @param newBoost
 	 */
 	public void setBoost(float newBoost) {
-		if (newBoost == boost) return;
-		boost = newBoost;
+		if (newBoost == session.boost) return;
+		session.setBoost(newBoost);
 	}
-	
+
 	/**
 	 * Sets value of cut used in statistical FFT interface
 	 * @param newCut
 	 */
 	public void setCut(float newCut) {
-		if (newCut == cut) return;
-		cut = newCut;
+		if (newCut == session.cut) return;
+		session.setCut(newCut);
 	}
-	
 
-	
+
+
 	/**
 	 * Bottleneck that catches events propagated by control panel, used particularly for radio buttons and checkboxes.
+	 * Sets the session's settings, except while syncPanel() is showing them.
 	 * @param evt   the event from the control panel
 	 */
 	public void controlEvent(ControlEvent evt) {
+		if (isPanelSync) return;
 		if (evt.isGroup()) {
 			if ("setCompOrder".equals(evt.getName())) {
-				setCompOrder((int) evt.getGroup().getValue(), true);
+				session.setCompOrder(CompOrder.values()[(int) evt.getGroup().getValue()]);
 			}
 			else if ("setSorter".equals((evt.getName()))) {
-				SorterType type = SorterType.values()[(int) evt.getGroup().getValue()];
-				setSorter(type, true);
+				session.setSorter(SorterType.values()[(int) evt.getGroup().getValue()]);
+				// show the new sorter's breakpoint, and the break setting bubble sort may have changed
+				syncPanel();
 			}
 			else if ("Sorting".equals(evt.getName())) {
-				int n = (int)(evt.getGroup().getArrayValue()[0]);
-				setAscending(n == 1, true);
-				n = (int)(evt.getGroup().getArrayValue()[1]);
-				setRandomBreak(n == 1, true);
-				n = (int)(evt.getGroup().getArrayValue()[2]);
-				setIsSwapChannels(n == 1, true);
-			}
-			else if ("setSourceChannel".equals(evt.getName())) {
-				int n = (int)(evt.getGroup().getValue());
-				RadioButton rb = (RadioButton)controlP5.getGroup("setTargetChannel");
-				int m = (int) rb.getValue();
+				boolean isAscending = 1 == (int)(evt.getGroup().getArrayValue()[0]);
+				boolean isBreak = 1 == (int)(evt.getGroup().getArrayValue()[1]);
+				boolean isSwap = 1 == (int)(evt.getGroup().getArrayValue()[2]);
+				if (isAscending != session.isAscendingSort) session.setAscending(isAscending);
+				if (isBreak != session.randomBreak) session.setRandomBreak(isBreak);
+				if (isSwap != session.isSwapChannels) session.setSwapChannels(isSwap);
+			}
+			else if ("setSourceChannel".equals(evt.getName()) || "setTargetChannel".equals(evt.getName())) {
+				int n = (int) controlP5.getGroup("setSourceChannel").getValue();
+				int m = (int) controlP5.getGroup("setTargetChannel").getValue();
 				String str = ChannelNames.values()[n].toString() + ChannelNames.values()[m].toString();
 				SwapChannel sc = SwapChannel.valueOf(str);
-				setSwap(sc, true);
-			}
-			else if ("setTargetChannel".equals(evt.getName())) {
-				RadioButton rb = (RadioButton)controlP5.getGroup("setSourceChannel");
-				int n = (int) rb.getValue();
-				int m = (int)(evt.getGroup().getValue());
-				String str = ChannelNames.values()[n].toString() + ChannelNames.values()[m].toString();
-				SwapChannel sc = SwapChannel.valueOf(str);
-				setSwap(sc, true);
+				if (sc != session.swap) session.setSwap(sc);
 			}
 			else if ("fitPixels".equals(evt.getName())) {
 				int n = (int)(evt.getGroup().getArrayValue()[0]);
@@ -2781,45 +1878,33 @@ public class GlitchSort extends PApplet {
 			}
 			else if (("setZigzagStyle").equals(evt.getName())) {
 				ZigzagStyle z = ZigzagStyle.values()[(int) evt.getGroup().getValue()];
-				setZigzagStyle(z, true);				
+				if (z != session.zigzagStyle) session.setZigzagStyle(z);
 			}
 			else if ("invertMunge".equals(evt.getName())) {
-				int n = (int)(evt.getGroup().getArrayValue()[0]);
-				invertMunge(n == 1, true);
+				boolean isInverted = 1 == (int)(evt.getGroup().getArrayValue()[0]);
+				if (isInverted != session.isMungeInverted) session.setMungeInverted(isInverted);
 			}
 			else if ("Glitchmode".equals(evt.getName())) {
-				int n = (int)(evt.getGroup().getArrayValue()[0]);
-				setCycle(n == 1, true);
+				boolean isCycle = 1 == (int)(evt.getGroup().getArrayValue()[0]);
+				if (isCycle != session.isCycleGlitch) session.setCycle(isCycle);
 			}
 			else if ("ChanEq".equals(evt.getName())) {
 				if (verbose) println("ChanEq event");
-				int b = (int)(evt.getGroup().getArrayValue()[0]);
-				int h = (int)(evt.getGroup().getArrayValue()[1]);
-				int s = (int)(evt.getGroup().getArrayValue()[2]);
-				int r = (int)(evt.getGroup().getArrayValue()[3]);
-				int g = (int)(evt.getGroup().getArrayValue()[4]);
-				int bl = (int)(evt.getGroup().getArrayValue()[5]);
-				setEqChan(b == 1, h == 1, s == 1, r == 1, g == 1, bl == 1, true);
+				session.setEqChannels(checkedChannels(evt.getGroup().getArrayValue()));
 			}
 			else if ("ChanStat".equals(evt.getName())) {
 				if (verbose) println("ChanStat event");
-				int b = (int)(evt.getGroup().getArrayValue()[0]);
-				int h = (int)(evt.getGroup().getArrayValue()[1]);
-				int s = (int)(evt.getGroup().getArrayValue()[2]);
-				int r = (int)(evt.getGroup().getArrayValue()[3]);
-				int g = (int)(evt.getGroup().getArrayValue()[4]);
-				int bl = (int)(evt.getGroup().getArrayValue()[5]);
-				setStatChan(b == 1, h == 1, s == 1, r == 1, g == 1, bl == 1, true);
+				session.setStatChannels(checkedChannels(evt.getGroup().getArrayValue()));
 			}
 			else if ("Shift".equals(evt.getName())) {
-				isShiftR = ((int)(evt.getGroup().getArrayValue()[0])) == 1;
-				isShiftG = ((int)(evt.getGroup().getArrayValue()[1])) == 1;
-				isShiftB = ((int)(evt.getGroup().getArrayValue()[2])) == 1;
+				float[] checks = evt.getGroup().getArrayValue();
+				session.setShiftChannel(1 == (int) checks[0] ? ChannelNames.R : 1 == (int) checks[1] ? ChannelNames.G
+						: 1 == (int) checks[2] ? ChannelNames.B : null);
 			}
 			else if ("LowFreqCut".equals(evt.getName())) {
 				if (verbose) println("LowFreqCut event");
-				int cut = (int)(evt.getGroup().getArrayValue()[0]);
-				setLowFrequencyCut(cut == 1, true);
+				boolean isCut = 1 == (int)(evt.getGroup().getArrayValue()[0]);
+				if (isCut != session.isLowFrequencyCut) session.setLowFrequencyCut(isCut);
 			}
 			if (verbose) {
 				print("got an event from "+ evt.getGroup().getName() +"\t");
@@ -2835,20 +1920,13 @@ public class GlitchSort extends PApplet {
 				Slider con = (Slider) evt.getController();
 				int bin = con.getId();
 				float val = con.getValue();
-				if (bin >= 0 && bin < eq.length) {
-					if (val < 0) eq[bin] = val + 1;
-					else eq[bin] = lerp(0, eqScale, val) + 1;
-					String legend = "band "+ bin +" = "+ twoPlaces.format(eq[bin]);
-					if (null != binTotals && bin < binTotals.length) {
-						// TODO : duplicated code here, put it in a function
-						legend += ", bin avg = "+ twoPlaces.format(binTotals[bin]);
-						IntRange ir = bandList.get(bin);
-						legend += ", cf = "+ twoPlaces.format((fft.indexToFreq(ir.upper) + fft.indexToFreq(ir.lower)) * 0.5f);
-					}
-					((Textlabel)controlP5.getController("eqLabel")).setValue(legend);
+				if (bin >= 0 && bin < session.eq.length) {
+					if (val < 0) session.setEq(bin, val + 1);
+					else session.setEq(bin, lerp(0, eqScale, val) + 1);
+					((Textlabel)controlP5.getController("eqLabel")).setValue(eqLegend(bin));
 				}
 			}
-			
+
 		}
 	}
 	
@@ -2859,23 +1937,6 @@ public class GlitchSort extends PApplet {
     /*                                          */
     /********************************************/
 	
-	/**
-	 * Shuffles an array of integers into random order.
-	 * Implements Richard Durstenfeld's version of the Fisher-Yates algorithm, popularized by Donald Knuth.
-	 * see http://en.wikipedia.org/wiki/Fisher-Yates_shuffle
-	 * @param intArray an array of <code>int</code>s, changed on exit
-	 */
-	public void shuffle(int[] intArray) {
-		for (int lastPlace = intArray.length - 1; lastPlace > 0; lastPlace--) {
-			// Choose a random location from 0..lastPlace
-			int randLoc = (int) (random(lastPlace + 1));
-			// Swap items in locations randLoc and lastPlace
-			int temp = intArray[randLoc];
-			intArray[randLoc] = intArray[lastPlace];
-			intArray[lastPlace] = temp;
-		}
-	}
-
 	/**
 	 * Breaks a Processing color into R, G and B values in an array.
 	 * @param argb   a Processing color as a 32-bit integer 
@@ -2919,19 +1980,11 @@ public class GlitchSort extends PApplet {
 	 * @return
 	 */
 	public static int maxColorDiff(int color1, int color2) {
-		int rDiff = Math.abs(((color1 >> 16) & 0xFF) - ((color2 >> 16) & 0xFF));
-		int gDiff = Math.abs(((color1 >> 8) & 0xFF) - ((color2 >> 8) & 0xFF));
-		int bDiff = Math.abs(((color1) & 0xFF) - ((color2) & 0xFF));
-		return Math.max(Math.max(rDiff, gDiff), bDiff);
+		return GlitchEngine.maxColorDiff(color1, color2);
 	}
 	
 	public static int meanColor(int argb1, int argb2) {
-		int[] comp1 = GlitchSort.rgbComponents(argb1);
-		int[] comp2 = GlitchSort.rgbComponents(argb2);
-		for (int i = 0; i < comp1.length; i++) {
-			comp1[i] = (int) ((comp1[i] + comp2[i]) * 0.5f);
-		}
-		return GlitchSort.composeColor(comp1);
+		return GlitchEngine.meanColor(argb1, argb2);
 	}
 	
 
@@ -2945,21 +1998,7 @@ public class GlitchSort extends PApplet {
 	 * saves current image to a uniquely-named file
 	 */
 	public void saveFile(boolean isCopy) {
-	    String shortName = originalFile.getName();
-	    String[] parts = shortName.split("\\.");
-	    // String attributes = compOrder.name();
-	    // if (isSwapChannels) attributes += "_"+ swap.name();
-	    // String fName = parts[0] +"_"+ timestamp +"_"+ attributes +".png";
-	    String fName = parts[0] +"_"+ timestamp +"_"+ fileCount +".png";
-	    fileCount++;
-	    if (!isCopy) println("saving to "+ fName);
-	    else  println("saving copy to "+ fName);
-	    img.save(fName);
-	    if (!isCopy) {
-	    	// Eclipse and Processing have different default paths
-	    	// println("sketchPath = "+ sketchPath);
-	        displayFile = new File(sketchPath +"/"+ fName);
-	    }
+		decode(isCopy ? 'S' : 's');
 	}
 
 	/**
@@ -2968,324 +2007,25 @@ public class GlitchSort extends PApplet {
 	public void chooseFile() {
 		selectInput("Choose an image file.", "displayFileSelected");
 	}
-	
+
 	public void displayFileSelected(File selectedFile) {
-		File oldFile = displayFile;
-		if (null != selectedFile && oldFile != selectedFile) {
+		if (null != selectedFile) {
 			noLoop();
-			displayFile = selectedFile;
-			originalFile = selectedFile;
-			loadFile();
-			if (isFitToScreen) fitPixels(true, false);
+			try {
+				session.open(selectedFile);
+				transX = transY = 0;
+				refresh();
+				analyzeEq(false);
+			}
+			catch (IOException e) {
+				println("--->> could not open "+ selectedFile.getName() +": "+ e.getMessage());
+			}
 			loop();
 		}
 		else {
 			println("No file was selected");
 		}
 	}
-	
-	
-	/**
-	 * loads a file into variable img.
-	 */
-	public void loadFile() {
-		println("\nselected file "+ displayFile.getAbsolutePath());
-		img = loadImage(displayFile.getAbsolutePath());
-		transX = transY = 0;
-		fitPixels(isFitToScreen, false);
-		println("image width "+ img.width +", image height "+ img.height);
-		resetRowNums(img.height);
-		if (null == ranger) {
-			ranger = new RangeManager(img.height, (int) glitchSteps);
-		}
-		else {
-			ranger.setRange(img.height);
-		}
-		analyzeEq(false);
-	}
-
-	/**
-	 * loads original file into variable img.
-	 */
-	public void loadOriginalFile() {
-		println("\noriginal file "+ originalFile.getAbsolutePath());
-		displayFile = originalFile;
-		img = loadImage(displayFile.getAbsolutePath());
-		transX = transY = 0;
-		fitPixels(isFitToScreen, false);
-		println("image width "+ img.width +", image height "+ img.height);
-		resetRowNums(img.height);
-		if (null == ranger) {
-			ranger = new RangeManager(img.height, (int) glitchSteps);
-		}
-		else {
-			ranger.setRange(img.height);
-		}
-		analyzeEq(false);
-	}
-
-	
-    /**
-     * @param image          the image to degrade
-     * @param quality        the desired JPEG quality
-     * @throws IOException   error thrown by file i/o
-     */
-    public void degradeImage(PImage image, float quality) throws IOException {
-    	Iterator<ImageWriter> iter = ImageIO.getImageWritersByFormatName("jpeg");
-    	ImageWriter writer = (ImageWriter)iter.next();
-    	ImageWriteParam iwp = writer.getDefaultWriteParam();
-    	iwp.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
-    	iwp.setCompressionQuality(quality);   	
-    	try {
-    		BufferedImage bi =  (BufferedImage) image.getNative();
-    		String shortName = displayFile.getName();
-    		String[] parts = shortName.split("\\.");
-    		// String fName = parts[0] +"_q"+ Math.round(quality * 100) +".jpg";
-    		// just save one degrade file per image
-    		String fName = parts[0] +"_degrade" +".jpg";
-    		File temp = new File(savePath(fName));
-    		FileImageOutputStream output = new FileImageOutputStream(temp);
-    		writer.setOutput(output);
-    		IIOImage outImage = new IIOImage(bi, null, null);
-    		writer.write(null, outImage, iwp);
-    		writer.dispose();
-    		PImage newImage = loadImage(temp.getAbsolutePath());
-    		img = newImage;
-    		println("degraded "+ fName);
-    	}
-    	catch (FileNotFoundException e) {
-    		println("file not found error " + e);
-    	}
-    	catch (IOException e) {
-    		println("IOException "+ e);
-    	}
-    }
-
- 
-    /********************************************/
-    /*                                          */
-    /*           >>> RANGE MANAGER <<<          */
-    /*                                          */
-    /********************************************/
-    
-    public void testRangeManager() {
-    	int lower = (int)random(10, 100);
-    	lower = 0;
-    	int upper = lower + (int)random(50, 1000);
-    	int count = (int)random(2, 13);
-    	RangeManager rm = new RangeManager(lower, upper, count);
-    	println(rm.toString());
-    }
-    
-    /**
-     * Mini-class for storing bounds of an integer range.
-     *
-     */
-    class IntRange {
-    	int lower;
-    	int upper;
-    	
-    	public IntRange(int lower, int upper) {
-    		this.lower = lower;
-    		this.upper = upper;
-    	}
-    	
-    	public IntRange() {
-    		this(0, 0);
-    	}
-    			
-		public String toString() {
-			return "("+ lower +", "+ upper +")";
-		}
-
-		/* (non-Javadoc)
-		 * @see java.lang.Object#equals(java.lang.Object)
-		 */
-		@Override
-		public boolean equals(Object o) {
-			return o instanceof IntRange && (((IntRange) o).lower == this.lower) && (((IntRange) o).upper == this.upper);
-		}
-
-		/* (non-Javadoc)
-		 * @see java.lang.Object#hashCode()
-		 */
-		@Override
-		public int hashCode() {
-			// cf. Effective Java, 2nd edition, ch. 3, item 9.
-			int result = 17;
-			result = 31 * result + Float.floatToIntBits(lower);
-			result = 31 * result + Float.floatToIntBits(upper);
-			return result;
-		}
-    	
-    }
-    
-    /**
-     * Mini-class for storing bounds of an integer range.
-     *
-     */
-    class FloatRange {
-    	float lower;
-    	float upper;
-    	
-    	public FloatRange(float lower, float upper) {
-    		this.lower = lower;
-    		this.upper = upper;
-    	}
-    	
-    	public FloatRange() {
-    		this(0, 0);
-    	}
-    			
-		public String toString() {
-			return "("+ lower +", "+ upper +")";
-		}
-    	
-		/* (non-Javadoc)
-		 * @see java.lang.Object#equals(java.lang.Object)
-		 */
-		@Override
-		public boolean equals(Object o) {
-			return o instanceof FloatRange && (((FloatRange) o).lower == this.lower) && (((FloatRange) o).upper == this.upper);
-		}
-
-		/* (non-Javadoc)
-		 * @see java.lang.Object#hashCode()
-		 */
-		@Override
-		public int hashCode() {
-			// cf. Effective Java, 2nd edition, ch. 3, item 9.
-			int result = 17;
-			result = 31 * result + Float.floatToIntBits(lower);
-			result = 31 * result + Float.floatToIntBits(upper);
-			return result;
-		}
-
-    }
-    
-    
-    /**
-     * A utility class to assist in stepping through a array divided into a specified number of equal segments.
-     *
-     */
-    class RangeManager {
-    	ArrayList<IntRange> intervals;
-    	Iterator<IntRange> iter;
-    	IntRange intRange;
-    	int numberOfIntervals;
-    	int currentIndex;
-    	
-    	/**
-    	 * Divides an intRange of integers, from a lower bound up to but not including an upper bound,
-    	 * into a given number of equal intervals. 
-    	 * 
-     	 * @param lower   lower index of intRange
-    	 * @param upper   upper index of intRange
-    	 * @param count   number of intervals in which to divide the intRange
-    	 */
-    	public RangeManager(int lower, int upper, int count) {
-    		this.intervals = new ArrayList<IntRange>(count);
-    		this.intRange = new IntRange(lower, upper);
-    		this.setNumberOfIntervals(count);
-    	}
-    	
-    	/**
-    	 * Divides a intRange of integers from 0 up to but not including an upper bound
-    	 * into a given number of equal intervals. The upper bound would typically be 
-    	 * the length of an array.
-    	 * 
-    	 * @param length
-    	 * @param count
-    	 */
-    	public RangeManager(int upper, int count) {
-    		this(0, upper, count);
-    	}
-    	
-    	public Iterator<IntRange> getIter() {
-    		if (null == iter) {
-    			iter = intervals.iterator();
-    		}
-    		return iter;
-    	}
-    	
-    	public IntRange get(int i) {
-    		return intervals.get(i);
-    	}
-    	public IntRange getNext() {
-    		return intervals.get(currentIndex++);
-    	}
-    	public boolean hasNext() {
-    		return currentIndex < numberOfIntervals;
-    	}
- 
-    	public int getCurrentIndex() {
-    		return currentIndex;
-    	}
-    	public void resetCurrentIndex() {
-    		currentIndex = 0;
-    	}
-
-    	public int getUpper() {
-    		return intRange.upper;
-    	}  	
-    	public int getLower() {
-    		return intRange.lower;
-    	}
-    	
-    	/**
-		 * @return the numberOfIntervals
-		 */
-		public int getNumberOfIntervals() {
-			return numberOfIntervals;
-		}
-
-		/**
-		 * Sets the value of numberOfIntervals and creates a new series of intervals.
-		 * @param numberOfIntervals the numberOfIntervals to set
-		 */
-		public void setNumberOfIntervals(int numberOfIntervals) {
-			this.numberOfIntervals = numberOfIntervals;
-			adjustIntervals();
-			resetCurrentIndex();
-		}
-	
-		public void adjustIntervals() {
-			this.intervals.clear();
-    		int u = 0;
-    		int l = getLower();
-    		float pos = l;
-    		float delta = (getUpper() - l) / (float) this.numberOfIntervals;
-    		for (int i = 1; i <= numberOfIntervals; i++) {
-    			pos += delta;
-    			u = Math.round(pos) - 1;
-    			intervals.add(new IntRange(l, u));
-    			l = u + 1;
-    		}
-		}
-		
-		public void setRange(int lower, int upper) {
-	   		this.intRange = new IntRange(lower, upper);
-			adjustIntervals();
-			resetCurrentIndex();
-		}
-		public void setRange(int upper) {
-			setRange(0, upper);
-		}
-
-		@Override
-    	public String toString() {
-    		StringBuffer buf = new StringBuffer();
-    		Iterator<IntRange> it = this.getIter();
-    		buf.append("RangeManager: " + intervals.size() +" intervals from "+ intRange.lower +" to "+ intRange.upper + "\n  ");
-    		while (it.hasNext()) {
-    			IntRange r = it.next();
-    			buf.append(r.toString() + ", ");
-    		}
-    		buf.delete(buf.length() - 2, buf.length() - 1);
-    		return buf.toString();
-    	}
-    	
-    }
  
     
     /********************************************/
@@ -3295,440 +2035,28 @@ public class GlitchSort extends PApplet {
     /********************************************/
 
     /**
-     * Scales a frequency by a factor.
-     * 
-     * @param freq
-     * @param fac
-     */
-    public void fftScaleFreq(float freq, float fac) {
-    	fft.scaleFreq(freq, fac);
-    }
-    
-    
-    
-    /**
-     * Scales an array of frequencies by an array of factors.
-     * @param freqs
-     * @param facs
-     */
-    public void fftScaleFreq(float[] freqs, float[] facs) {
-    	for (int i = 0; i < freqs.length; i++) {
-    		fft.scaleFreq(freqs[i], facs[i]);
-    	}
-    }
-    
-    /**
-     * Scales a single frequency bin (index number) by a factor.
-     * 
-     * @param bin
-     * @param fac
-     */
-    public void fftScaleBin(int bin, float fac) {
-     	fft.scaleBand(bin, fac);
-    }
-    
-    
-    
-    /**
-     * Scales an array of frequency bins (index numbers) by an array of factors.
-     * @param bins
-     * @param facs
-     */
-    public void fftScaleBin(int[] bins, float[] facs) {
-    	for (int i = 0; i < bins.length; i++) {
-    		fft.scaleBand(bins[i], facs[i]);
-    	}
-    }
-    
-    /**
-     * placeholder for future development
-     */
-    public void fftScaleFreqsTest() {
-    	float[] freqs = {};
-    	float[] facs = {};
-     }
-    
-    /*
-     * FORMANTS
-     * i beet 270 2290 3010 
-     * I bit 390 1990 2550
-     * e bet 530 1840 2480
-     * ae bat 660 1720 2410
-     * a father 730 1090 2440
-     * U book 440 1020 2240
-     * u boot 300 870 2240
-     * L but 640 1190 2390
-     * r bird 490 1350 1690
-     * aw bought 570 840 2410
-     *   
-     */
-    
-	/**
-	 * Calculates statistical variables from frequencies in the current FFT and returns then in an array.
-	 * 
-	 * @param l         left bound of bin index numbers
-	 * @param r         right bound of bin index numbers
-	 * @param verbose   true if output to consoles is desired, false otherwise
-	 * @param msg       a message to include with output
-	 * @return          an array of derived values: minimum, maximum, sum, mean, median, standard deviation, skew.
-	 */
-	public float[] fftStat(int l, int r, boolean verbose, String msg) {
-		double sum = 0;
-		double squareSum = 0;
-		float[] values = new float[r - l];
-		int index = 0;
-		for (int i = l; i < r; i++) {
-			float val = fft.getBand(i);
-			sum += val;
-			squareSum += val * val;
-			values[index++] = val;
-		}
-		int mid = values.length/2;
-		java.util.Arrays.sort(values);
-		float median = (values[mid - 1] + values[mid])/2;
-		float min = values[0];
-		float max = values[values.length -1];
-		float mean = (float) sum/(r - l);
-		float variance = (float) squareSum/(r - l) - mean * mean;
-		float standardDeviation = (float) Math.sqrt(variance);
-		// Pearson's skew measure
-		float skew = 3 * (mean - median)/standardDeviation;
-		if (verbose) {
-			println(msg);
-			print("  min = "+ min);
-			print("  max = "+ max);
-			print("  sum = "+ (float) sum);
-			print("  mean = "+ mean);
-			print("  median = "+ median);
-			println("  sd = "+ standardDeviation);
-			println("  skew = "+ skew);
-		}
-		float[] results = new float[6];
-		results[0] = min;
-		results[1] = max;
-		results[2] = mean;
-		results[3] = median;
-		results[4] = standardDeviation;
-		results[5] = skew;
-		return results;
-	}
-    
-	/**
-	 * Extracts a selected channel from an array of rgb values.
-	 * 
-	 * @param samples   rgb values in an array of int
-	 * @param chan      the channel to extract 
-	 * @return          the extracted channel values as an array of floats
-	 */
-	public float[] pullChannel(int[] samples, ChannelNames chan) {
-		// convert sample channel to float array buf
-		float[] buf = new float[samples.length];
-		int i = 0;
-		switch (chan) {
-		case L: {
-			for (int argb : samples) buf[i++] = brightness(argb);
-			break;
-		}
-		case H: {
-			for (int argb : samples) buf[i++] = hue(argb);
-			break;
-		}
-		case S: {
-			for (int argb : samples) buf[i++] = saturation(argb);
-			break;
-		}
-		case R: {
-			for (int argb : samples)  buf[i++] = (argb >> 16) & 0xFF;
-			break;
-		}
-		case G: {
-			for (int argb : samples) buf[i++] = (argb >> 8) & 0xFF;
-			break;
-		}
-		case B: {
-			for (int argb : samples) buf[i++] = argb & 0xFF;
-			break;
-		}
-		}
-		return buf;
-	}
-	
-	/**
-	 * Replaces a specified channel in an array of pixel values with a value 
-	 * derived from an array of floats and clipped to the range 0..255.
-	 * 
-	 * @param samples   an array of pixel values
-	 * @param buf       an array of floats
-	 * @param chan      the channel to replace
-	 */
-	public void pushChannel(int[] samples, float[] buf, ChannelNames chan) {
-		// convert sample channel to float array buf
-		int i = 0;
-		switch (chan) {
-		case L: {
-			colorMode(HSB, 255);
-			for (float component : buf) {
-				int comp = Math.round((int) component); 
-				comp = comp > 255 ? 255 : comp < 0 ? 0 : comp;
-				int argb = samples[i];
-				samples[i++] = color(Math.round(hue(argb)), Math.round(saturation(argb)), comp, 255);
-			}
-			break;
-		}
-		case H: {
-			colorMode(HSB, 255);
-			for (float component : buf) {
-				int comp = Math.round((int) component); 
-				comp = comp > 255 ? 255 : comp < 0 ? 0 : comp;
-				int argb = samples[i];
-				samples[i++] = color(comp, Math.round(saturation(argb)), Math.round(brightness(argb)), 255);
-			}
-			break;
-		}
-		case S: {
-			colorMode(HSB, 255);
-			for (float component : buf) {
-				int comp = Math.round((int) component); 
-				comp = comp > 255 ? 255 : comp < 0 ? 0 : comp;
-				int argb = samples[i];
-				samples[i++] = color(Math.round(hue(argb)), comp, Math.round(brightness(argb)), 255);
-			}
-			break;
-		}
-		case R: {
-			colorMode(RGB, 255);
-			for (float component : buf)  {
-				int comp = Math.round((int) component); 
-				comp = comp > 255 ? 255 : comp < 0 ? 0 : comp;
-				int argb = samples[i];
-				samples[i++] = 255 << 24 | comp << 16 | ((argb >> 8) & 0xFF) << 8 | argb & 0xFF;
-			}
-			break;
-		}
-		case G: {
-			colorMode(RGB, 255);
-			for (float component : buf) {
-				int comp = Math.round((int) component); 
-				comp = comp > 255 ? 255 : comp < 0 ? 0 : comp;
-				int argb = samples[i];
-				samples[i++] = 255 << 24 | ((argb >> 16) & 0xFF) << 16 | comp << 8 | argb & 0xFF;
-			}
-			break;
-		}
-		case B: {
-			colorMode(RGB, 255);
-			for (float component : buf) {
-				int comp = Math.round((int) component); 
-				comp = comp > 255 ? 255 : comp < 0 ? 0 : comp;
-				int argb = samples[i];
-				samples[i++] = 255 << 24 | ((argb >> 16) & 0xFF) << 16 | ((argb >> 8) & 0xFF) << 8 | comp & 0xFF;
-			}
-			break;
-		}
-		}
-	}
-	
-	/**
-	 * Performs an FFT on a supplied array of samples, scales frequencies using settings in the 
-	 * equalizer interface, modifies the samples and also returns the modified samples. 
-	 * 
-	 * @param samples   an array of RGB values
-	 * @param chan      the channel to pass through the FFT
-	 * @return          the modified samples
-	 */
-	public int[] fftEqGlitch(int[] samples, ChannelNames chan) {
-		// convert the selected channel to an array of floats
-		float[] buf = pullChannel(samples, chan);
-		// do a forward transform on the array of floats
-		fft.forward(buf);
-		// scale the frequencies in the fft by user-selected values from the equalizer interface
-		for (int i = 0; i < calculatedBands; i++) {
-			// get indices of the range of bands covered by each slider
-			int pos = eq.length - i - 1;
-			IntRange ir = bandList.get(pos);
-			// get the scaling value set by the user
-			float scale = eq[pos];
-			// scale all bands between lower and upper index
-			for (int j = ir.lower; j <= ir.upper; j++) {
-				fft.scaleBand(j, scale);
-			}
-		}
-		// inverse the transform
-		fft.inverse(buf);
-		pushChannel(samples, buf, chan);
-		return samples;
-	}
-		
-	/**
-     * Performs a zigzag scan, centered in the image, and passes blocks 
+     * Performs a zigzag scan, centered in the image, and passes blocks
      * to an FFT transform that uses a user-supplied equalization curve.
-     * 
-     * @param order   the width/height of each pixel block to sort
      */
     public void eqZigzagFFT() {
-    	int order = (int) Math.sqrt(bufferSize);
-    	this.fftBlockWidth = order;
-    	Zigzagger zz = new Zigzagger(order);
-    	println("Zigzag order = "+ order);
-    	int dw = (img.width / order);
-    	int dh = (img.height / order);
-     	int w = dw * order;
-       	int h = dh * order;
-       	int ow = (img.width - w) / 2;
-       	int oh = (img.height - h) / 2;
- 		backup();
-		img.loadPixels();
-    	for (int y = 0; y < dh; y++) {
-    		for (int x = 0; x < dw; x++) {
-    			int mx = x * order + ow;
-    			int my = y * order + oh;
-//     			if (random(1) > 0.5f) {
-//    				zz.flipX();
-//    			}
-//     			if (random(1) > 0.5f) {
-//    				zz.flipY();
-//    			}
-     			int[] pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-    			// the samples are returned by fftEqGlitch, but they are modified already
-    			if (isEqGlitchBrightness) fftEqGlitch(pix, ChannelNames.L);
-    			if (isEqGlitchHue) fftEqGlitch(pix, ChannelNames.H);
-    			if (isEqGlitchSaturation) fftEqGlitch(pix, ChannelNames.S);
-    			if (isEqGlitchRed) fftEqGlitch(pix, ChannelNames.R);
-    			if (isEqGlitchGreen) fftEqGlitch(pix, ChannelNames.G);
-    			if (isEqGlitchBlue) fftEqGlitch(pix, ChannelNames.B);
-    			zz.plant(img.pixels, pix, img.width, img.height, mx, my);
-    		}
-    	}
-		img.updatePixels();
-		// necessary to call fitPixels to show updated image
-		fitPixels(isFitToScreen, false);
-//		analyzeEq(false);
+    	decode('j');
     }
-    
-	/**
-	 * Performs an FFT on a supplied array of samples, scales frequencies using settings in the 
-	 * statistical interface, modifies the samples and also returns the modified samples. 
-	 * 
-	 * @param samples   an array of RGB values
-	 * @param chan      the channel to pass through the FFT
-	 * @return          the modified samples
-	 */
-	public float[] fftStatGlitch(int[] samples, ChannelNames chan) {
-		// convert the selected channel to an array of floats
-		float[] buf = pullChannel(samples, chan);
-		// do a forward transform on the array of floats
-		fft.forward(buf);
-		// ignore first bin, the "DC component" if low frequency is cut
-		int low = (isLowFrequencyCut) ? 1 : 0;
-		float[] stats = fftStat(low, buf.length, false, "fft "+ chan.name());
-		float min = stats[0];
-		float max = stats[1];
-		float mean = stats[2];
-		float median = stats[3];
-		float sd = stats[4];
-		float skew = stats[5];
-		int t = samples.length / 2;
-		// typical values: left = 0.5f, right = 2.0f
-//		float leftEdge = mean - sd * leftBound;
-//		float rightEdge = mean + sd * rightBound;
-		float leftEdge = leftBound < 0 ? mean - sd * -leftBound : mean + sd * leftBound;
-		float rightEdge = rightBound < 0 ? mean - sd * -rightBound : mean + sd * rightBound;
-//		println("min = "+ min +", max = "+ max +", mean = "+ mean +", median = "+ median +", sd = " + sd  +", skew = "+ skew +", leftBound = "+ leftBound +", rightBound = "+ rightBound);		
-//		println("-- leftEdge = "+ leftEdge +", rightEdge = "+ rightEdge	);
-		// scale the frequencies in the fft, skipping band 0
-		for (int i = 1; i < t; i++) {
-			float val = fft.getBand(i);
-			// frequencies whose amplitudes lie outside the bounds are scaled by the cut value
-			if (val < leftEdge || val > rightEdge) fft.scaleBand(i, cut);
-			// frequencies whose amplitudes lie inside the bounds are scaled by the boost value
-			else {
-				fft.scaleBand(i, boost);
-			}
-		}
-		// inverse the transform
-		fft.inverse(buf);
-		pushChannel(samples, buf, chan);
-		return stats;
-	}
-    
+
 	/**
-     * Performs a zigzag scan, centered in the image, and passes blocks 
+     * Performs a zigzag scan, centered in the image, and passes blocks
      * to an FFT transform that uses statistical analysis to determine frequency scaling.
-     * 
-     * @param order   the width/height of each pixel block to sort
      */
     public void statZigzagFFT() {
-    	int order = (int) Math.sqrt(bufferSize);
-    	this.fftBlockWidth = order;
-    	// eliminate fft averaging, don't need it
-	    // fft.logAverages(minBandWidth, bandsPerOctave);
-    	Zigzagger zz = new Zigzagger(order);
-    	println("Zigzag order = "+ order);
-    	int dw = (img.width / order);
-    	int dh = (img.height / order);
-    	int totalBlocks = dw * dh;
-     	int w = dw * order;
-       	int h = dh * order;
-       	int ow = (img.width - w) / 2;
-       	int oh = (img.height - h) / 2;
-       	float min = 0, max = 0, mean = 0, median = 0, sd = 0, skew = 0;
-       	float[] stats = new float[6];
- 		backup();
-		img.loadPixels();
-    	for (int y = 0; y < dh; y++) {
-    		for (int x = 0; x < dw; x++) {
-    			int mx = x * order + ow;
-    			int my = y * order + oh;
-//     			if (random(1) > 0.5f) {
-//    				zz.flipX();
-//    			}
-//     			if (random(1) > 0.5f) {
-//    				zz.flipY();
-//    			}
-    			int[] pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-    			if (isStatGlitchBrightness) stats = fftStatGlitch(pix, ChannelNames.L);
-    			if (isStatGlitchHue) stats = fftStatGlitch(pix, ChannelNames.H);
-    			if (isStatGlitchSaturation) stats = fftStatGlitch(pix, ChannelNames.S);
-    			if (isStatGlitchRed) stats = fftStatGlitch(pix, ChannelNames.R);
-    			if (isStatGlitchGreen) stats = fftStatGlitch(pix, ChannelNames.G);
-    			if (isStatGlitchBlue) stats = fftStatGlitch(pix, ChannelNames.B);
-    			min += stats[0];
-    			max += stats[1];
-    			mean += stats[2];
-    			median += stats[3];
-    			sd += stats[4];
-    			skew += stats[5];
-    			zz.plant(img.pixels, pix, img.width, img.height, mx, my);
-    		}
-    	}
-    	min /= totalBlocks;
-    	max /= totalBlocks;
-    	mean /= totalBlocks;
-    	median /= totalBlocks;
-    	sd /= totalBlocks;
-    	skew /= totalBlocks;
-		float leftEdge = leftBound < 0 ? mean - sd * -leftBound : mean + sd * leftBound;
-		float rightEdge = rightBound < 0 ? mean - sd * -rightBound : mean + sd * rightBound;
-		println("---- Average statistical values for image before FFT ----");
-		println("  min = "+ twoPlaces.format(min) +", max = "+ twoPlaces.format(max) +", mean = "+ twoPlaces.format(mean) 
-				+", median = "+ twoPlaces.format(median) +", sd = " + twoPlaces.format(sd)  +", skew = "+ twoPlaces.format(skew));		
-		println("  leftEdge = "+ twoPlaces.format(leftEdge) +", rightEdge = "+ twoPlaces.format(rightEdge) +", leftBound = "+ leftBound +", rightBound = "+ rightBound);
-		img.updatePixels();
-		// necessary to call fitPixels to show updated image
-		fitPixels(isFitToScreen, false);
-//		analyzeEq(false);
+    	decode('k');
     }
 
-    
+
     /**
      * Resets equalizer FFT controls
      */
     public void resetEq() {
-		for (int i = 0; i < eq.length; i++) {
-			String token = sliderIdentifier + noPlaces.format(i);
-			Slider slider = (Slider) controlP5.getController(token);
-			slider.setValue(0);
-		}
+    	session.resetEq();
+    	syncPanel();
 		analyzeEq(false);
     }
 
@@ -3736,243 +2064,50 @@ public class GlitchSort extends PApplet {
      * Resets statistical FFT controls
      */
     public void resetStat() {
-		Range r02 = (Range) controlP5.getController("setStatEqRange");
-		r02.setBroadcast(false);
-		r02.setLowValue(defaultLeftBound);
-		r02.setHighValue(defaultRightBound);
-		r02.setArrayValue(0, defaultLeftBound);
-		r02.setArrayValue(1, defaultRightBound);
-		rightBound = defaultRightBound;
-		leftBound = defaultLeftBound;
-		r02.setBroadcast(true);
-    	Numberbox n4 = (Numberbox) controlP5.getController("setBoost");
-    	n4.setValue(defaultBoost);
-    	Numberbox n5 = (Numberbox) controlP5.getController("setCut");
-    	n5.setValue(defaultCut);
-   }
-      
+    	session.resetStat();
+    	syncPanel();
+    }
+
     /**
      * parameterless method that ControlP5 button calls (a workaround)
      */
     public void analyzeEqBands() {
      	analyzeEq(true);
     }
-     
-    // TODO calculate accurate center frequency values for the bands we actually have
+
     /**
-     * Examines display buffer Brightness channel and outputs mean 
-     * amplitudes of frequency bands shown in equalizer.
-     * 
+     * Examines display buffer Brightness channel and stores the mean amplitudes of the
+     * frequency bands shown in equalizer in binTotals, for the equalizer legend.
+     *
      * @param isPrintToConsole   if true, prints information to console
      */
     public void analyzeEq(boolean isPrintToConsole) {
-    	int order = (int) Math.sqrt(bufferSize);
-    	this.fftBlockWidth = order;
-//    	if (8 != order && 16 != order && 32 != order && 64 != order && 128 != order && 256 != order && 512 != order) {
-//    		println("block size must be 8, 16, 32, 64, 128, 256 or 512 for FFT glitching");
-//    		return;
-//    	}
-    	Zigzagger zz = new Zigzagger(order);
-    	// calculate how many complete blocks will fit horizontally and vertically
-    	int dw = (img.width / order);
-    	int dh = (img.height / order);
-    	int howManyBlocks =  dw * dh;
-    	// calculate the number of pixels in the vertical and horizontal block extents
-     	int w = dw * order;
-       	int h = dh * order;
-       	// calculate offsets towards the center, if blocks don't completely cover the image
-       	int ow = (img.width - w) / 2;
-       	int oh = (img.height - h) / 2;
-		img.loadPixels();
-		int blockNum = 0;
-		binTotals = new double[calculatedBands];
-		// minimum brightness value in image
-		float min = -1;
-		// maximum brightness value in image
-		float max = 0;
-		java.util.Arrays.fill(binTotals, 0);
-    	for (int y = 0; y < dh; y++) {
-    		for (int x = 0; x < dw; x++) {
-    			int mx = x * order + ow;
-    			int my = y * order + oh;
-    			int[] pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-    			float[] buf = new float[pix.length];
-    			colorMode(HSB, 255);
-    			// load buf with brightness values from block at mx, my
-    			for (int i = 0; i < pix.length; i++) {
-    				int c = pix[i];
-    				buf[i] = brightness(c);
-    				if (verbose) println(pix[i]);
-    			}
-    			fft.forward(buf);
-    			float[] stats = fftStat(0, buf.length, false, "fft brightness in frequency domain");
-    			if (min == -1) min = stats[0];
-    			else if (min > stats[0]) min = stats[0];
-    			if (max < stats[1]) max = stats[1];
-    			// sum the values in each band in our band list and stash the mean value in binTotals
-     		   	for (int i = 0; i < calculatedBands; i++) {
-     		   		IntRange ir = bandList.get(i);
-     		   		float sum = 0;
-     				for (int j = ir.lower; j <= ir.upper; j++) {
-     					sum += fft.getBand(j);
-     				}
-     				// divide sum by (number of bins in band i) *  (total number of blocks)
-    		   		binTotals[i] += sum/((ir.upper - ir.lower + 1) * howManyBlocks);
-    	    	}
-     		   blockNum++;
-    		}
-    	}
+    	binTotals = session.analyzeEq();
     	if (isPrintToConsole) {
-    		println("--- "+ blockNum +" blocks read, min = "+ min +", max = "+ max);
-    		for (int i = 0; i <calculatedBands; i++) {
-    			// divide the accumlated mean values from each block's band ranges
-    			// by the total number of blocks to get the normalized average over the image
+    		println("--- mean amplitudes in "+ session.fftBlockWidth +" x "+ session.fftBlockWidth +" blocks");
+    		for (int i = 0; i < binTotals.length; i++) {
      			println("  band "+ i +": "+ twoPlaces.format(binTotals[i]));
     		}
     	}
     }
-    
-    // TODO output accurate center frequency values 
-    /**
-     * Calculates avaialable frequency bands for current FFT buffer, returns an array of integer ranges
-     * representing frequency bin index numbers. Sets calculatedBands to size of bandList array.
-     * 
-     * @return   array of integer ranges corresponding to frequency bin index numbers
-     */
-    public ArrayList<IntRange> calculateEqBands() {
-    	bandList = new ArrayList<IntRange>();
-    	int slots = minBandWidth * (bandsPerOctave);
-    	ArrayList<FloatRange> freqList = new ArrayList<FloatRange>(slots);
-    	// we can obtain frequencies up to the Nyquist limit, which is half the sample rate
-    	float hiFreq = sampleRate / 2.0f, loFreq = 0;
-    	// bandsPerOctave = 3
-    	FloatRange fr;
-    	int pos = slots - 1;
-    	for (int i = 0; i < minBandWidth; i++) {
-    		loFreq = hiFreq * 0.5f;
-    		float incFreq = (hiFreq - loFreq)/bandsPerOctave;
-    		// inner loop could be more efficient
-    		for (int j = bandsPerOctave; j > 0; j--) {
-    	   		fr = new FloatRange(loFreq + (j - 1) * incFreq, loFreq + j * incFreq);
-         		freqList.add(fr);
-    		}
-     		hiFreq = loFreq;
-    	}
-    	// reverse the frequency list, it should go from low to high
-    	for (int left = 0, right = freqList.size() - 1; left < right; left++, right--) {
-    	    // exchange the first and last
-    	    FloatRange temp = freqList.get(left); 
-    	    freqList.set(left, freqList.get(right)); 
-    	    freqList.set(right, temp);
-    	}
-    	// figure out the bins
-     	int hiBin = 0;
-    	int loBin = 0;
-    	float freq0 = fft.indexToFreq(0);
-    	float freq = fft.indexToFreq(hiBin);
-    	IntRange ir = null;
-    	for (FloatRange r : freqList) {
-    		if (freq < freq0) continue;
-    		while (freq < r.upper) {
-    			freq = fft.indexToFreq(hiBin++);
-    		}
-    		IntRange temp = new IntRange(loBin, hiBin);
-    		if (!temp.equals(ir)) {
-    			bandList.add(temp);
-    			ir = temp;
-    		}
-    		loBin = hiBin;
-    	}
-    	// TODO maybe there's a less kludgey way to initilize, without the following correction
-    	// fix off by two error....
-    	bandList.get(bandList.size() - 1).upper = fft.specSize() - 1;
-    	// omit printing of lists
-    	calculatedBands = bandList.size();
-    	println("----- number of frequency bands = "+ calculatedBands);
-    	// don't need to do averaging, without it FFT should be faster
-    	// (minBandWidth, bandsPerOctave);
-    	return bandList;
-    }
-    
-    
-    /**
-     * not used
-     */
-    public void printEqInfo() {
-    	int ct = 0;
-    	println("-------- frequencies --------");
-    	Iterator<FloatRange> iter = this.freqList.iterator();
-    	while (iter.hasNext()) {
-    		FloatRange fr = iter.next();
-    		println("  "+ ct++ +": "+ twoPlaces.format(fr.lower) +", "+ twoPlaces.format(fr.upper));
-    	}
-    	println();
-    }
-  
+
     /**
-     * Calculates and outputs statistics for display buffer, determined by current FFT and equalizer bands. 
+     * Prints the bins of the current FFT covered by each equalizer band, and their frequencies.
      */
     public void testEq() {
-    	int slots = minBandWidth * (bandsPerOctave);
-    	ArrayList<FloatRange> freqList = new ArrayList<FloatRange>(slots);
-    	// we can obtain frequencies up to the Nyquist limit, which is half the sample rate
-    	float hiFreq = sampleRate / 2.0f, loFreq = 0;
-    	// bandsPerOctave = 3
-    	FloatRange fr;
-    	int pos = slots - 1;
-    	for (int i = 0; i < minBandWidth; i++) {
-    		loFreq = hiFreq * 0.5f;
-    		float incFreq = (hiFreq - loFreq)/bandsPerOctave;
-    		// inner loop could be more efficient
-    		for (int j = bandsPerOctave; j > 0; j--) {
-    	   		fr = new FloatRange(loFreq + (j - 1) * incFreq, loFreq + j * incFreq);
-         		freqList.add(fr);
-    		}
-     		hiFreq = loFreq;
-    	}
-    	// reverse the list
-    	for (int left = 0, right = freqList.size() - 1; left < right; left++, right--) {
-    	    // exchange the first and last
-    	    FloatRange temp = freqList.get(left); 
-    	    freqList.set(left, freqList.get(right)); 
-    	    freqList.set(right, temp);
-    	}
-    	// figure out the bins
-    	ArrayList<IntRange> theBandList = new ArrayList<IntRange>();
-    	int hiBin = 0;
-    	int loBin = 0;
-    	float freq0 = fft.indexToFreq(0);
-    	float freq = fft.indexToFreq(hiBin);
-    	IntRange ir = null;
-    	for (FloatRange r : freqList) {
-    		if (freq < freq0) continue;
-    		while (freq < r.upper) {
-    			freq = fft.indexToFreq(hiBin++);
-    		}
-    		IntRange temp = new IntRange(loBin, hiBin);
-    		if (!temp.equals(ir)) {
-    			theBandList.add(temp);
-    			ir = temp;
-    		}
-    		loBin = hiBin;
-    	}
-     	// print out the list
-    	int ct = 0;
-    	println("\n---- Frequency List ----");
-    	for (FloatRange r : freqList) {
-    		println("  "+ ct +": "+ r.toString());
-    		ct++;
-    	}
-    	ct = 0;
+    	PixelFFT fft = session.getEngine().getFFT(session.fftBlockWidth * session.fftBlockWidth);
+    	float sampleRate = GlitchSession.SAMPLE_RATE;
     	println("\n---- Band List ----");
-    	for (IntRange r : theBandList) {
-    		println("  "+ ct +": "+ r.toString());
-    		ct++;
+    	for (int i = 0; i < session.eq.length; i++) {
+    		int lo = session.bandList[2 * i];
+    		int hi = session.bandList[2 * i + 1];
+    		println("  "+ i +": ("+ lo +", "+ hi +"), "+ twoPlaces.format(fft.indexToFreq(lo, sampleRate))
+    				+" to "+ twoPlaces.format(fft.indexToFreq(hi, sampleRate)));
     	}
-    	println("  freq 0 = "+ fft.indexToFreq(0) +", freq "+ fft.specSize() +" = "+ fft.indexToFreq(fft.specSize()));
+    	println("  freq 0 = "+ fft.indexToFreq(0, sampleRate) +", freq "+ fft.specSize() +" = "+ fft.indexToFreq(fft.specSize(), sampleRate));
     	println("\n");
     }
-    
+
     /**
      * sets up audification
      */
@@ -3980,11 +2115,13 @@ public class GlitchSort extends PApplet {
     	if (null == glitchSignal) {
     		glitchSignal = new GlitchSignal();
     		out = minim.getLineOut(Minim.STEREO, 64 * 64);
-    		
+
      		out.addSignal(glitchSignal);
     	}
-    	else {
-        	int blockEdgeSize = (int) Math.sqrt(bufferSize);
+    	else if (session.hasImage()) {
+        	int blockEdgeSize = session.fftBlockWidth;
+        	// img shares the pixels of the session's image, upright
+        	showImage();
     		// update dimensions to catch rotations, new images, etc.;
     		int dw = (img.width / blockEdgeSize);
     		int dh = (img.height / blockEdgeSize);
@@ -4005,13 +2142,9 @@ public class GlitchSort extends PApplet {
 			int mapY = (inY/blockEdgeSize) * blockEdgeSize + oh;
 			if (mapX > w - blockEdgeSize + ow || mapY > h - blockEdgeSize + oh) return;
     		Zigzagger zz = new Zigzagger(blockEdgeSize);
-    		img.loadPixels();
     		int[] pix = zz.pluck(img.pixels, img.width, img.height, mapX, mapY);
     		// do something to a single block
-    		if ('g' == lastCommand) { this.sortTool.setControlState(); this.sortTool.sort(pix);}
-    		else if ('k' == lastCommand) fftStatGlitch(pix, ChannelNames.L);
-    		else if ('j' == lastCommand) fftEqGlitch(pix, ChannelNames.L);
-    		else {this.sortTool.setControlState(); this.sortTool.sort(pix);}
+    		session.glitchBlock(pix, lastCommand);
     		zz.plant(img.pixels, pix, img.width, img.height, mapX, mapY);
     		img.updatePixels();
     		// necessary to call fitPixels to show updated image
@@ -4095,7 +2228,7 @@ public class GlitchSort extends PApplet {
 				this.mapX = mx;
 				this.mapY = my;
 	    		int[] pix = getZz().pluck(img.pixels, img.width, img.height, mapX, mapY);
-	    		buf = pullChannel(pix, ChannelNames.L);
+	    		buf = GlitchEngine.pullChannel(pix, ChannelNames.L);
 	     		for (int i = 0; i < buf.length; i++) {
 	     			buf[i] = buf[i] * fac - 1.0f;
 	    			samp[i] = buf[i];
@@ -4130,259 +2263,40 @@ public class GlitchSort extends PApplet {
 		if (!r1.isInside()) {
 			return;
 		}
-		zigzagFloor = (int) r1.getArrayValue()[0];
-		zigzagCeiling = (int) r1.getArrayValue()[1];
+		session.setZigzagRange((int) r1.getArrayValue()[0], (int) r1.getArrayValue()[1]);
     }
- 
+
 	/**
-	 * Sets the value above which the current sort method will randomly interrupt, when randomBreak 
-	 * is true (the default). Each sorting method uses a distinct value from 1 to 999. Quick sort
-	 * can use very low values, down to 1.0. The other sorting methods--shell sort, insert sort, 
-	 * bubble sort--generally work best with higher values. 
-	 * @param newBreakPoint   the breakpoint to set
+	 * Sets the percentage of blocks that a zigzag sort sorts.
+	 * @param newZigzagPercent   a percentage from 1 to 100
 	 */
 	public void setZigzagPercent(float newZigzagPercent) {
-		if (newZigzagPercent == zigzagPercent) return;
-		zigzagPercent = newZigzagPercent;
+		if (newZigzagPercent == session.zigzagPercent) return;
+		session.setZigzagPercent(newZigzagPercent);
 	}
 
-    
+
     /**
      * Performs a zigzag sort, centered in the image.
-     * @param order   the width/height of each pixel block to sort
+     * @param order   the width/height of each pixel block to sort, 0 for the size of the last zigzag sort
      */
     public void zigzag(int order) {
-    	// TODO better fix: ControlP5 button press calls here with 0 for order, apparently...
-    	if (0 == order) order = zigzagBlockWidth;
-     	Zigzagger zz = new Zigzagger(order);
-    	println("Zigzag order = "+ order);
-    	int dw = (img.width / order);
-    	int dh = (img.height / order);
-     	int w = dw * order;
-       	int h = dh * order;
-       	int ow = (img.width - w) / 2;
-       	int oh = (img.height - h) / 2;
- 		backup();
-		img.loadPixels();
-		this.sortTool.setControlState();
-		println("--- "+ zigzagStyle.name() +" zigzag ----");
-		if (ZigzagStyle.PERMUTE != zigzagStyle) {
-			for (int y = 0; y < dh; y++) {
-				for (int x = 0; x < dw; x++) {
-			    	// a quick way to sort only a determined percentage of cells
-			    	if (random(100) > (int)(zigzagPercent)) continue;
-					int mx = x * order + ow;
-					int my = y * order + oh;
-					int[] pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-					this.sortTool.sort(pix);
-					zz.plant(img.pixels, pix, img.width, img.height, mx, my);
-					if (ZigzagStyle.RANDOM == zigzagStyle) {
-						if (random(1) > 0.5f) {
-							zz.flipX();
-						}
-						if (random(1) > 0.5f) {
-							zz.flipY();
-						}
-					}
-				}
-			}
-		}
-		else {
-			// permute zigzag orientation in 2x2 blocks
-			int[] perm = {0, 1, 2, 3};
-			Zigzagger[] zzList = new Zigzagger[4];
-			zzList[0] = zz;
-			zz = new Zigzagger(order);
-			zz.flipX();
-			zzList[1] = zz;
-			zz = new Zigzagger(order);
-			zz.flipX();
-			zz.flipY();
-			zzList[2] = zz;
-			zz = new Zigzagger(order);
-			zz.flipY();
-			zzList[3] = zz;
-			int dw2 = dw/2;
-			int dh2 = dh/2;
-			this.sortTool.setControlState();
-			for (int y = 0; y < dh2; y++) {
-				for (int x = 0; x < dw2; x++) {
-			    	// a quick way to sort only a determined percentage of cells
-			    	if (random(100) > (int)(zigzagPercent)) continue;
-					int mx = 2 * x * order + ow;
-					int my = 2 * y * order + oh;
-					shuffle(perm);
-					zz = zzList[perm[0]];
-					int[] pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-					this.sortTool.sort(pix);
-					zz.plant(img.pixels, pix, img.width, img.height, mx, my);
-					zz = zzList[perm[1]];
-					my += order;
-					pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-					this.sortTool.sort(pix);
-					zz.plant(img.pixels, pix, img.width, img.height, mx, my);
-					zz = zzList[perm[2]];
-					mx += order;
-					pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-					this.sortTool.sort(pix);
-					zz.plant(img.pixels, pix, img.width, img.height, mx, my);
-					zz = zzList[perm[3]];
-					my -= order;
-					pix = zz.pluck(img.pixels, img.width, img.height, mx, my);
-					this.sortTool.sort(pix);
-					zz.plant(img.pixels, pix, img.width, img.height, mx, my);
-				}
-			}
-		}
-		img.updatePixels();
-		// necessary to call fitPixels to show updated image
-		fitPixels(isFitToScreen, false);
+    	// ControlP5 button press calls here with 0 for order
+    	session.finishLiveSort();
+    	if (!session.hasImage()) {
+    		println(NO_IMAGE);
+    		return;
+    	}
+    	session.zigzag(order);
+    	if (!isDisplayDeferred) refresh();
     }
-    
+
     /**
-      * Performs a zigzag sort, centered in the image, sets the width of the square 
+      * Performs a zigzag sort, centered in the image, sets the width of the square
       * pixel blocks to a random number between zigzagFloor and zigzagCeiling + 1.
      */
     public void zigzag() {
-    	int order = (int) random(zigzagFloor, zigzagCeiling + 1);
-    	zigzagBlockWidth = order;
-    	println("zigzagFloor = "+ zigzagFloor +", zigzagCeiling = "+ zigzagCeiling +", order = "+ order);
-    	zigzag(order);
-    }
-    
-    
-    /**
-     * Facilitates the "zigzag" scanning of a square block of pixels with a variable edge dimension set by the user.
-     * This sort of scanning is used in the JPEG compression algorithm, and occasionally shows up in JPEG errors (glitches).
-     * Provides two methods for reading (pluck) and writing (plant) from an array of pixels.
-     *
-     */
-    class Zigzagger {
-    	/** x coordinates */
-    	private int[] xcoords;
-    	/** y coordinates */
-    	private int[] ycoords;
-    	/** the dimension of an edge of the square block of pixels */
-    	private int d;
-    	/** counter variable f = d + d - 1: number of diagonals in zigzag */
-    	private int f;
-
-    	/**
-    	 * @param order   the number of pixels on an edge of the scan block
-    	 */
-    	public Zigzagger(int order) {
-    		d = order;
-    		f = d + d - 1;
-    		xcoords = new int[d * d];
-    		ycoords = new int[d * d];
-    		generateCoords();
-    	}
-
-    	/**
-    	 * Generates coordinates of a block of pixels of specified dimensions, offset from (0,0).
-    	 */
-    	private void generateCoords() {
-    		int p = 0;
-    		int n = 0;
-    		for (int t = 0; t < f; t++) {
-    			if (t < d) {
-    				n++;
-    				if (n % 2 == 0) {
-    					for (int i = 0; i < n; i++) {
-    						xcoords[p] = n - i - 1;
-    						ycoords[p] = i;
-    						p++;
-    					}
-    				}
-    				else {
-    					for (int i = 0; i < n; i++) {
-    						xcoords[p] = i;
-    						ycoords[p] = n - i - 1;
-    						p++;
-    					}
-    				}
-    			}
-    			else {
-    				n--;
-    				if (n % 2 == 0) {
-    					for (int i = 0; i < n; i++) {
-    						xcoords[p] = d - i - 1 ;
-    						ycoords[p] = i + d - n;
-    						p++;
-    					}
-    				}
-    				else {
-    					for (int i = 0; i < n; i++) {
-    						xcoords[p] = i + d - n;
-    						ycoords[p] = d - i - 1;
-    						p++;
-    					}
-    				}
-    			}
-    		}
-    	}
-    	
-    	public void flipX() {
-    		int m = d - 1;
-    		for (int i = 0; i < xcoords.length; i++) {
-    			xcoords[i] = m - xcoords[i];
-    		}
-    	}
-   	
-    	public void flipY() {
-    		int m = d - 1;
-    		for (int i = 0; i < ycoords.length; i++) {
-    			ycoords[i] = m - ycoords[i];
-    		}
-    	}
-   	
-    	/**
-    	 * @param pix   an array of pixels
-    	 * @param w     width of the image represented by the array of pixels
-    	 * @param h     height of the image represented by the array of pixels
-    	 * @param x     x-coordinate of the location in the image to scan
-    	 * @param y     y-coordinate of the location in the image to scan
-    	 * @return      an array in the order determined by the zigzag scan
-    	 */
-    	public int[] pluck(int[] pix, int w, int h, int x, int y) {
-    		int len = d * d;
-    		int[] out = new int[len];
-    		for (int i = 0; i < len; i++) {
-    			int p = (y + ycoords[i]) * w + (x) + xcoords[i];
-    			if (verbose) println("x = "+ x +", y = "+ y +", i = "+ i +", p = "+ p +", zigzag = ("+ xcoords[i] +", "+ ycoords[i] +")");
-    			out[i] = pix[p];
-    		}
-    		return out;
-    	}
-    	
-    	/**
-    	 * @param pix      an array of pixels
-    	 * @param sprout   an array of d * d pixels to write to the array of pixels
-    	 * @param w        width of the image represented by the array of pixels
-    	 * @param h        height of the image represented by the array of pixels
-    	 * @param x        x-coordinate of the location in the image to write to
-    	 * @param y        y-coordinate of the location in the image to write to
-    	 */
-    	public void plant(int[] pix, int[] sprout, int w, int h, int x, int y) {
-    		for (int i = 0; i < d * d; i++) {
-     			int p = (y + ycoords[i]) * w + (x) + xcoords[i];
-    			pix[p] = sprout[i];
-    		}
-    	}
-    	
-    	/* (non-Javadoc)
-    	 * returns a list of coordinate points that define a zigzag scan of order d.
-    	 * @see java.lang.Object#toString()
-    	 */
-    	public String toString() {
-    		StringBuffer buf = new StringBuffer();
-    		buf.append("Zigzag order: "+ this.d +"\n  ");
-    		for (int i = 0; i < xcoords.length; i++) {
-    			buf.append("("+ xcoords[i] +", "+ ycoords[i] +") ");
-    		}
-    		buf.append("\n");
-    		return buf.toString();
-    	}
+    	decode('l');
     }
 
 }
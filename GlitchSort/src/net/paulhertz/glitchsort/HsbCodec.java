@@ -0,0 +1,267 @@
+package net.paulhertz.glitchsort;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Converts colors between RGB and hue, saturation and brightness in the range 0..255, with
+ * exactly the same results as PApplet. The float methods hue(), saturation() and brightness()
+ * return the values of PApplet hue(), saturation() and brightness() when the color mode has
+ * a maximum of 255, whether it is RGB or HSB, and the int methods return those values rounded
+ * with Math.round(). toColor() returns the color that PApplet color(h, s, b, 255) returns in
+ * colorMode(HSB, 255).
+ * <p>
+ * RGB to HSB is done with lookup tables built by Color.RGBtoHSB, the method that Processing
+ * calls: brightness depends only on the largest component, saturation on the largest component
+ * and the range, and hue on which component is largest and how far the other two are below it.
+ * HSB to RGB is done with tables of the factors that PGraphics.colorCalc() multiplies
+ * brightness by. The tables take about 2 MB. useMappedTable() replaces the three lookups in
+ * packHsb() with one, in a table of packed keys for all 16M colors memory mapped from a 64 MB file,
+ * which is written the first time it is used. Whether that is faster depends on how many distinct
+ * colors an image has and how well they fit in the processor's caches.
+ * <p>
+ * HsbCodec has no state that changes after the class is loaded, except for the mapped table,
+ * which is published through a volatile field and never written. All methods can be called
+ * from any thread, and none of them depend on or change the applet's colorMode().
+ */
+public final class HsbCodec {
+	/** brightness * 255 for each largest component */
+	private static final float[] brightness = new float[256];
+	/** saturation * 255, indexed by (largest component << 8 | largest - smallest) */
+	private static final float[] saturation = new float[1 << 16];
+	/** hue * 255, indexed by hueIndex() */
+	private static final float[] hue = new float[3 << 16];
+	/** saturation and hue rounded to 0..255 */
+	private static final byte[] saturationByte = new byte[saturation.length];
+	private static final byte[] hueByte = new byte[hue.length];
+	/** b / 255, as calculated by PGraphics.colorCalc() for colorMode(HSB, 255) */
+	private static final float[] unit = new float[256];
+	/**
+	 * Factors for red, green and blue, indexed by (h << 8 | s). PGraphics.colorCalc() sets each
+	 * of red, green and blue to one of b, b * (1 - s), b * (1 - s * f) or b * (1 - s * (1 - f)),
+	 * with s and b scaled to 0..1 and f the fraction of the hue's sector, depending on the sector.
+	 * These are the factors multiplying b, so toColor() does the same float arithmetic with no branches.
+	 */
+	private static final float[] redFactor = new float[1 << 16];
+	private static final float[] greenFactor = new float[1 << 16];
+	private static final float[] blueFactor = new float[1 << 16];
+	/** optional table of packHsb() for all colors, see useMappedTable() */
+	private static volatile IntBuffer mappedTable;
+
+	static {
+		float[] hsb = new float[3];
+		for (int m = 0; m < 256; m++) {
+			Color.RGBtoHSB(m, m, m, hsb);
+			brightness[m] = hsb[2] * 255;
+			for (int d = 0; d <= m; d++) {
+				Color.RGBtoHSB(m, m - d, m - d, hsb);
+				int i = m << 8 | d;
+				saturation[i] = hsb[1] * 255;
+				saturationByte[i] = (byte) Math.round(saturation[i]);
+			}
+		}
+		// one representative color with 255 as its largest component for each index,
+		// entries that no color can reach (the largest component not being largest) are left at 0
+		for (int d1 = 0; d1 < 256; d1++) {
+			for (int d2 = 0; d2 < 256; d2++) {
+				setHue(0 << 16 | d1 << 8 | d2, 255, 255 - d1, 255 - d2, hsb);
+				if (d1 > 0) setHue(1 << 16 | d1 << 8 | d2, 255 - d1, 255, 255 - d2, hsb);
+				if (d1 > 0 && d2 > 0) setHue(2 << 16 | d1 << 8 | d2, 255 - d2, 255 - d1, 255, hsb);
+			}
+		}
+		for (int v = 0; v < 256; v++) {
+			unit[v] = v / 255.0f;
+		}
+		for (int h = 0; h < 256; h++) {
+			float x = h / 255.0f;
+			float which = (x - (int) x) * 6.0f;
+			float f = which - (int) which;
+			for (int sat = 0; sat < 256; sat++) {
+				float y = sat / 255.0f;
+				int i = h << 8 | sat;
+				if (y == 0) {
+					redFactor[i] = greenFactor[i] = blueFactor[i] = 1.0f;
+					continue;
+				}
+				float p = 1.0f - y;
+				float q = 1.0f - y * f;
+				float t = 1.0f - (y * (1.0f - f));
+				switch ((int) which) {
+				case 0: { redFactor[i] = 1.0f; greenFactor[i] = t; blueFactor[i] = p; break; }
+				case 1: { redFactor[i] = q; greenFactor[i] = 1.0f; blueFactor[i] = p; break; }
+				case 2: { redFactor[i] = p; greenFactor[i] = 1.0f; blueFactor[i] = t; break; }
+				case 3: { redFactor[i] = p; greenFactor[i] = q; blueFactor[i] = 1.0f; break; }
+				case 4: { redFactor[i] = t; greenFactor[i] = p; blueFactor[i] = 1.0f; break; }
+				default: { redFactor[i] = 1.0f; greenFactor[i] = p; blueFactor[i] = q; break; }
+				}
+			}
+		}
+	}
+
+	private static void setHue(int i, int r, int g, int b, float[] hsb) {
+		Color.RGBtoHSB(r, g, b, hsb);
+		hue[i] = hsb[0] * 255;
+		hueByte[i] = (byte) Math.round(hue[i]);
+	}
+
+	private HsbCodec() {
+	}
+
+	/**
+	 * Color.RGBtoHSB() calculates hue from the differences between the largest component and the
+	 * other two, in one of three ways depending on which component is largest, checking red first,
+	 * then green. The index is that choice in bits 16..17, and the two differences in bits 0..15.
+	 * The choice is made with masks rather than branches, which mispredict on noisy images.
+	 */
+	private static int hueIndex(int r, int g, int b) {
+		int max = Math.max(r, Math.max(g, b));
+		// -1 if red is largest, -1 if green is largest and red isn't, -1 if neither is
+		int isR = ~((r - max) >> 31);
+		int isG = ~((g - max) >> 31) & ~isR;
+		int isB = ~(isR | isG);
+		return (isR & ((max - g) << 8 | (max - b)))
+				| (isG & (1 << 16 | (max - r) << 8 | (max - b)))
+				| (isB & (2 << 16 | (max - g) << 8 | (max - r)));
+	}
+
+	private static int saturationIndex(int r, int g, int b) {
+		int max = Math.max(r, Math.max(g, b));
+		return max << 8 | (max - Math.min(r, Math.min(g, b)));
+	}
+
+	private static int max(int r, int g, int b) {
+		return Math.max(r, Math.max(g, b));
+	}
+
+	/**
+	 * @param argb   a Processing color
+	 * @return       hue in the range 0..255, the same as PApplet hue(argb) with a color mode maximum of 255
+	 */
+	public static float hue(int argb) {
+		return hue[hueIndex((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF)];
+	}
+
+	/**
+	 * @param argb   a Processing color
+	 * @return       saturation in the range 0..255, the same as PApplet saturation(argb) with a color mode maximum of 255
+	 */
+	public static float saturation(int argb) {
+		return saturation[saturationIndex((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF)];
+	}
+
+	/**
+	 * @param argb   a Processing color
+	 * @return       brightness in the range 0..255, the same as PApplet brightness(argb) with a color mode maximum of 255
+	 */
+	public static float brightness(int argb) {
+		return brightness[max((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF)];
+	}
+
+	/**
+	 * @return   Math.round(hue(argb))
+	 */
+	public static int hueInt(int argb) {
+		return hueByte[hueIndex((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF)] & 0xFF;
+	}
+
+	/**
+	 * @return   Math.round(saturation(argb))
+	 */
+	public static int saturationInt(int argb) {
+		return saturationByte[saturationIndex((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF)] & 0xFF;
+	}
+
+	/**
+	 * @return   Math.round(brightness(argb)), which is always the largest of the RGB components
+	 */
+	public static int brightnessInt(int argb) {
+		return max((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF);
+	}
+
+	/**
+	 * @param argb   a Processing color
+	 * @return       rounded hue, saturation and brightness packed into an int, as 0x00HHSSBB
+	 */
+	public static int packHsb(int argb) {
+		IntBuffer table = mappedTable;
+		if (null != table) return table.get(argb & 0xFFFFFF);
+		int r = (argb >> 16) & 0xFF;
+		int g = (argb >> 8) & 0xFF;
+		int b = argb & 0xFF;
+		return (hueByte[hueIndex(r, g, b)] & 0xFF) << 16 | (saturationByte[saturationIndex(r, g, b)] & 0xFF) << 8 | max(r, g, b);
+	}
+
+	/**
+	 * Converts hue, saturation and brightness to an opaque RGB color, in the same way as
+	 * PApplet color(h, s, b, 255) in colorMode(HSB, 255).
+	 * @param h   hue, 0..255
+	 * @param s   saturation, 0..255
+	 * @param b   brightness, 0..255
+	 * @return    an opaque Processing color
+	 */
+	public static int toColor(int h, int s, int b) {
+		float z = unit[b];
+		int i = h << 8 | s;
+		return 0xFF000000 | (int) (255 * (z * redFactor[i])) << 16 | (int) (255 * (z * greenFactor[i])) << 8
+				| (int) (255 * (z * blueFactor[i]));
+	}
+
+	/**
+	 * Makes packHsb() look up keys in a table of all 16M colors, memory mapped from a file, instead of
+	 * calculating them. If the file doesn't exist it is written first, which takes a second or so.
+	 * The table isn't kept on the Java heap, and the operating system shares it between runs.
+	 * @param file   the table file, 64 MB
+	 * @return       true if the table is in use, false if it could not be written or mapped
+	 */
+	public static synchronized boolean useMappedTable(File file) {
+		if (null != mappedTable) return true;
+		long size = 4L << 24;
+		try {
+			if (!file.exists() || file.length() != size) writeTable(file);
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				// the mapping stays valid after the channel is closed
+				mappedTable = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size).asIntBuffer();
+			}
+			finally {
+				raf.close();
+			}
+			return true;
+		}
+		catch (IOException e) {
+			System.out.println("--->> could not use HSB table "+ file +": "+ e.getMessage());
+			return false;
+		}
+	}
+
+	private static void writeTable(File file) throws IOException {
+		File temp = new File(file.getPath() +".tmp");
+		RandomAccessFile raf = new RandomAccessFile(temp, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			channel.truncate(0);
+			ByteBuffer buf = ByteBuffer.allocateDirect(4 << 16);
+			IntBuffer ints = buf.asIntBuffer();
+			for (int hi = 0; hi < 256; hi++) {
+				ints.clear();
+				for (int lo = 0; lo < 1 << 16; lo++) {
+					ints.put(packHsb(hi << 16 | lo));
+				}
+				buf.clear();
+				while (buf.hasRemaining()) channel.write(buf);
+			}
+		}
+		finally {
+			raf.close();
+		}
+		if (file.exists() && !file.delete() || !temp.renameTo(file)) {
+			throw new IOException("could not rename "+ temp +" to "+ file);
+		}
+	}
+
+}
@@ -29,18 +29,28 @@ public class ImageColorQuantizer implements BufferedImageOp {
      */
     public final BufferedImage filter (BufferedImage src, BufferedImage dst) {
         if (dst == null) dst = createCompatibleDestImage(src, null);
-        tree = new Octree();
         System.out.println("-----> quantizing image with max colors: " + colorCount);
         int w = src.getWidth();
         int h = src.getHeight();
         // pop the color data into an array of packed ARGB color components
-        pixels = src.getRGB(0, 0, w, h, null, 0, w);
-        tree.quantize(pixels, w, colorCount);
+        quantize(src.getRGB(0, 0, w, h, null, 0, w), w);
         // assign the array to the destination image
         dst.setRGB(0, 0, w, h, pixels, 0, w);
         return dst;
     }
     
+    /**
+     * Replaces the colors in an array of pixels with at most colorCount colors, without a BufferedImage.
+     * The array becomes the pixels of this quantizer. Alpha is ignored, so callers supply it afterwards.
+     * @param argb    pixels of an image, changed on exit
+     * @param width   width of the image
+     */
+    public void quantize(int[] argb, int width) {
+        tree = new Octree();
+        tree.quantize(argb, width, colorCount);
+        pixels = argb;
+    }
+    
     
     int[] getPixels() {
     	if (null != pixels) return pixels;
@@ -0,0 +1,160 @@
+package net.paulhertz.glitchsort;
+
+/**
+ * A sort that runs a time slice at a time, so that the display can show it in progress.
+ * The sort runs in its own thread, but never at the same time as the thread that calls step():
+ * step() lets the sort run until its time budget is used up and the sort reaches a checkpoint,
+ * then waits for it to pause. Between steps the sorting thread is blocked inside checkpoint(),
+ * with all its loop state on its stack, so the sort picks up exactly where it stopped. Sorters
+ * call checkpoint() through AbstractColorSorter.checkpoint() at the tops of their loops.
+ * Pausing changes nothing about the sort, so the result is the same as an uninterrupted sort
+ * with the same settings and random numbers. Pixels written by the sort are safe to read
+ * after step() returns, since each handoff between the threads goes through this object's lock.
+ * Subclasses supply the sort in sortSlices().
+ */
+abstract class LiveSort {
+	/** the thread that runs sortSlices(), started by the first call to step() */
+	private Thread thread;
+	/** System.nanoTime() at which the current slice should end */
+	private long deadline;
+	/** true when the sort should run to the end without pausing */
+	private boolean isFinishing;
+	/** true while the sorting thread has its turn */
+	private boolean isRunning;
+	/** true when sortSlices() has returned */
+	private boolean isDone;
+	/** exception or error thrown by sortSlices(), if any */
+	private Throwable failure;
+	/** time spent sorting, not counting pauses */
+	private long runNanos;
+	/** System.nanoTime() at the start of the current slice */
+	private long sliceStart;
+	/** number of slices so far */
+	private int slices;
+
+	/**
+	 * Sorts, calling checkpoint() often enough for slices to end close to their time budget.
+	 * Runs in the sorting thread.
+	 */
+	protected abstract void sortSlices();
+
+	/**
+	 * Lets the sort run for one slice, and waits for it to pause or finish. Call from one thread only.
+	 * @param budgetNanos   time the sort should run for, in nanoseconds
+	 * @return              true if the sort is finished
+	 */
+	public synchronized boolean step(long budgetNanos) {
+		if (isDone) return true;
+		deadline = System.nanoTime() + budgetNanos;
+		if (null == thread) {
+			thread = new Thread("GlitchSort live sort") {
+				@Override
+				public void run() {
+					runSort();
+				}
+			};
+			thread.setDaemon(true);
+			thread.start();
+		}
+		isRunning = true;
+		notifyAll();
+		boolean isInterrupted = false;
+		while (isRunning) {
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+				isInterrupted = true;
+			}
+		}
+		if (isInterrupted) Thread.currentThread().interrupt();
+		return isDone;
+	}
+
+	/**
+	 * Runs the rest of the sort without pausing, and waits for it to finish.
+	 */
+	public synchronized void finish() {
+		isFinishing = true;
+		step(0);
+	}
+
+	/**
+	 * Called by the sorting thread: pauses the sort if its time slice is used up,
+	 * and returns when step() gives it the next slice.
+	 */
+	public void checkpoint() {
+		if (isFinishing || System.nanoTime() - deadline < 0) return;
+		synchronized (this) {
+			endSlice();
+			awaitTurn();
+		}
+	}
+
+	private void runSort() {
+		synchronized (this) {
+			awaitTurn();
+		}
+		try {
+			sortSlices();
+		}
+		catch (Throwable t) {
+			failure = t;
+		}
+		synchronized (this) {
+			isDone = true;
+			endSlice();
+		}
+	}
+
+	/** gives the turn back to the thread waiting in step(), call with the lock held */
+	private void endSlice() {
+		runNanos += System.nanoTime() - sliceStart;
+		isRunning = false;
+		notifyAll();
+	}
+
+	/** waits for step() to give the sorting thread a turn, call with the lock held */
+	private void awaitTurn() {
+		while (!isRunning) {
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+				// the sorting thread is only ever woken by step()
+			}
+		}
+		sliceStart = System.nanoTime();
+		slices++;
+	}
+
+	/**
+	 * @return true if the sort is finished
+	 */
+	public synchronized boolean isDone() {
+		return isDone;
+	}
+
+	/**
+	 * @return the exception or error that ended the sort early, or null if there was none
+	 */
+	public synchronized Throwable getFailure() {
+		return failure;
+	}
+
+	/**
+	 * @return time spent sorting so far, not counting pauses, in nanoseconds;
+	 *         up to date when called from the sorting thread
+	 */
+	public synchronized long getRunNanos() {
+		return isRunning ? runNanos + System.nanoTime() - sliceStart : runNanos;
+	}
+
+	/**
+	 * @return the number of time slices the sort has run in so far
+	 */
+	public synchronized int getSlices() {
+		return slices;
+	}
+
+}
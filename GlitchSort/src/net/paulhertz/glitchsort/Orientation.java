@@ -0,0 +1,137 @@
+package net.paulhertz.glitchsort;
+
+/**
+ * Which way an array of pixels is turned, so that an image can be rotated, or flipped, without
+ * moving its pixels. The image as it is seen, the logical image, is the stored image turned
+ * clockwise by getQuarterTurns() quarter turns, as GlitchEngine.rotateRight() turns it, then
+ * flipped left to right if isFlipped(). Pixel (x, y) of the logical image is stored at
+ * origin() + x * xStride() + y * yStride(), so a row of the logical image is a row or a column of
+ * the stored one, read forwards or backwards, and a block is a block. GlitchEngine sorts, zigzags
+ * and shifts through this mapping, see PixelView and Zigzagger; other operations want the pixels
+ * in order, which materialize() provides.
+ */
+public enum Orientation {
+	R0(0, false), R90(1, false), R180(2, false), R270(3, false),
+	FLIP_R0(0, true), FLIP_R90(1, true), FLIP_R180(2, true), FLIP_R270(3, true);
+
+	private final int quarterTurns;
+	private final boolean isFlipped;
+
+	private Orientation(int quarterTurns, boolean isFlipped) {
+		this.quarterTurns = quarterTurns;
+		this.isFlipped = isFlipped;
+	}
+
+	/**
+	 * @param quarterTurns   quarter turns clockwise, any number
+	 * @param isFlipped      true if the image is flipped left to right after turning
+	 * @return               the orientation
+	 */
+	public static Orientation get(int quarterTurns, boolean isFlipped) {
+		return values()[(isFlipped ? 4 : 0) + (quarterTurns % 4 + 4) % 4];
+	}
+
+	/**
+	 * @return quarter turns clockwise from the stored image, before any flip, 0 to 3
+	 */
+	public int getQuarterTurns() {
+		return quarterTurns;
+	}
+
+	public boolean isFlipped() {
+		return isFlipped;
+	}
+
+	/**
+	 * @return true if rows of the logical image are columns of the stored one
+	 */
+	public boolean isTransposed() {
+		return 1 == quarterTurns % 2;
+	}
+
+	/**
+	 * @param turns   quarter turns clockwise to turn the logical image, negative to turn it counterclockwise
+	 * @return        the orientation of the turned image
+	 */
+	public Orientation turn(int turns) {
+		// turning a flipped image clockwise turns the stored image counterclockwise
+		return get(isFlipped ? quarterTurns - turns : quarterTurns + turns, isFlipped);
+	}
+
+	/**
+	 * @return the orientation of the logical image flipped left to right
+	 */
+	public Orientation flip() {
+		return get(quarterTurns, !isFlipped);
+	}
+
+	/**
+	 * @return width of the logical image, for a stored image of width x height pixels
+	 */
+	public int width(int width, int height) {
+		return isTransposed() ? height : width;
+	}
+
+	/**
+	 * @return height of the logical image, for a stored image of width x height pixels
+	 */
+	public int height(int width, int height) {
+		return isTransposed() ? width : height;
+	}
+
+	/**
+	 * @return index in the stored image of pixel (0, 0) of the logical image
+	 */
+	public int origin(int width, int height) {
+		int origin;
+		switch (quarterTurns) {
+		case 1: origin = (height - 1) * width; break;
+		case 2: origin = width * height - 1; break;
+		case 3: origin = width - 1; break;
+		default: origin = 0;
+		}
+		if (isFlipped) origin += (width(width, height) - 1) * turnedXStride(width);
+		return origin;
+	}
+
+	/**
+	 * @return step in the stored image from pixel (x, y) of the logical image to pixel (x + 1, y)
+	 */
+	public int xStride(int width) {
+		return isFlipped ? -turnedXStride(width) : turnedXStride(width);
+	}
+
+	/**
+	 * @return step in the stored image from pixel (x, y) of the logical image to pixel (x, y + 1)
+	 */
+	public int yStride(int width) {
+		switch (quarterTurns) {
+		case 1: return 1;
+		case 2: return -width;
+		case 3: return -1;
+		default: return width;
+		}
+	}
+
+	/** xStride() before the flip */
+	private int turnedXStride(int width) {
+		switch (quarterTurns) {
+		case 1: return -width;
+		case 2: return -1;
+		case 3: return width;
+		default: return 1;
+		}
+	}
+
+	/**
+	 * Puts the pixels of a stored image in the order of the logical image, see PixelRotator.
+	 * @param pixels   pixels of the stored image, not changed
+	 * @param width    width of the stored image
+	 * @param height   height of the stored image
+	 * @return         a new array of the pixels of the logical image, row by row, or pixels for R0
+	 */
+	public int[] materialize(int[] pixels, int width, int height) {
+		return PixelRotator.rotate(pixels, width, height, this);
+	}
+
+}
@@ -0,0 +1,176 @@
+package net.paulhertz.glitchsort;
+
+/**
+ * A fast Fourier transform of a block of pixel values, for the FFT commands of GlitchEngine.
+ * It does in float arithmetic exactly what the Minim FFT with a rectangular window and no averages
+ * does, step for step, so images come out the same to the bit, but it needs no audio library.
+ * Only the methods the FFT commands use are here: forward(), getBand(), scaleBand() and inverse(),
+ * and indexToFreq() for dividing the spectrum into equalizer bands.
+ * A PixelFFT keeps the transform between calls, so it belongs to one thread at a time.
+ */
+public class PixelFFT {
+	/** number of samples, a power of 2 */
+	private final int timeSize;
+	private final float[] real;
+	private final float[] imag;
+	/** amplitudes of bands 0 to timeSize/2 */
+	private final float[] spectrum;
+	/** bit reversed index of each sample */
+	private final int[] reverse;
+	private final float[] sinlookup;
+	private final float[] coslookup;
+	/** copies of real and imag for reordering them in inverse() */
+	private final float[] scratchR;
+	private final float[] scratchI;
+
+	/**
+	 * @param timeSize   number of samples in a block, a power of 2
+	 */
+	public PixelFFT(int timeSize) {
+		if (timeSize < 1 || (timeSize & (timeSize - 1)) != 0) {
+			throw new IllegalArgumentException("FFT: timeSize must be a power of two, not "+ timeSize);
+		}
+		this.timeSize = timeSize;
+		real = new float[timeSize];
+		imag = new float[timeSize];
+		spectrum = new float[timeSize / 2 + 1];
+		reverse = new int[timeSize];
+		for (int limit = 1, bit = timeSize / 2; limit < timeSize; limit <<= 1, bit >>= 1) {
+			for (int i = 0; i < limit; i++) {
+				reverse[i + limit] = reverse[i] + bit;
+			}
+		}
+		scratchR = new float[timeSize];
+		scratchI = new float[timeSize];
+		sinlookup = new float[timeSize];
+		coslookup = new float[timeSize];
+		for (int i = 0; i < timeSize; i++) {
+			// same float constant and float division as Minim, so the tables match it
+			sinlookup[i] = (float) Math.sin(-3.1415927f / i);
+			coslookup[i] = (float) Math.cos(-3.1415927f / i);
+		}
+	}
+
+	/**
+	 * @return the number of samples in a block
+	 */
+	public int timeSize() {
+		return timeSize;
+	}
+
+	/**
+	 * @return the number of bands in the spectrum, timeSize/2 + 1
+	 */
+	public int specSize() {
+		return spectrum.length;
+	}
+
+	/**
+	 * The center frequency of band i, as Minim gives it, for dividing the spectrum into equalizer bands.
+	 * Band 0 and the last band are half as wide as the others, and Minim returns a frequency within them.
+	 * @param i            a band number, bands past the end of the spectrum continue the pattern
+	 * @param sampleRate   the sample rate the blocks are taken to have, rounded down to an int as Minim does
+	 * @return             the frequency of band i
+	 */
+	public float indexToFreq(int i, float sampleRate) {
+		int rate = (int) sampleRate;
+		float bandWidth = (2f / timeSize) * (rate / 2f);
+		if (0 == i) return bandWidth * 0.25f;
+		if (i == spectrum.length - 1) return (rate / 2 - bandWidth / 2) + bandWidth * 0.25f;
+		return i * bandWidth;
+	}
+
+	/**
+	 * Transforms a block of samples into frequency bands.
+	 * @param buffer   timeSize samples, not changed
+	 */
+	public void forward(float[] buffer) {
+		if (buffer.length != timeSize) {
+			throw new IllegalArgumentException("FFT.forward: the buffer has "+ buffer.length +" samples, not "+ timeSize);
+		}
+		for (int i = 0; i < timeSize; i++) {
+			real[i] = buffer[reverse[i]];
+			imag[i] = 0.0f;
+		}
+		fft();
+		for (int i = 0; i < spectrum.length; i++) {
+			spectrum[i] = (float) Math.sqrt(real[i] * real[i] + imag[i] * imag[i]);
+		}
+	}
+
+	/**
+	 * @param i   a band number, clipped to 0..specSize() - 1
+	 * @return    the amplitude of band i
+	 */
+	public float getBand(int i) {
+		if (i < 0) i = 0;
+		if (i > spectrum.length - 1) i = spectrum.length - 1;
+		return spectrum[i];
+	}
+
+	/**
+	 * Multiplies band i by s, and its mirror image in the upper half of the transform too.
+	 * Negative factors are ignored, as Minim ignores them.
+	 * @param i   a band number, from 0 to specSize() - 1
+	 * @param s   a factor, 0 or more
+	 */
+	public void scaleBand(int i, float s) {
+		if (s < 0) return;
+		real[i] *= s;
+		imag[i] *= s;
+		spectrum[i] *= s;
+		if (i != 0 && i != timeSize / 2) {
+			real[timeSize - i] = real[i];
+			imag[timeSize - i] = -imag[i];
+		}
+	}
+
+	/**
+	 * Transforms the bands back into samples.
+	 * @param buffer   array to fill with timeSize samples
+	 */
+	public void inverse(float[] buffer) {
+		if (buffer.length > timeSize) {
+			throw new IllegalArgumentException("FFT.inverse: the buffer has "+ buffer.length +" samples, more than "+ timeSize);
+		}
+		for (int i = 0; i < timeSize; i++) {
+			imag[i] *= -1.0f;
+		}
+		// put the bands in bit reversed order
+		System.arraycopy(real, 0, scratchR, 0, timeSize);
+		System.arraycopy(imag, 0, scratchI, 0, timeSize);
+		for (int i = 0; i < timeSize; i++) {
+			real[i] = scratchR[reverse[i]];
+			imag[i] = scratchI[reverse[i]];
+		}
+		fft();
+		for (int i = 0; i < buffer.length; i++) {
+			buffer[i] = real[i] / (float) real.length;
+		}
+	}
+
+	/** the butterflies, on real and imag in bit reversed order */
+	private void fft() {
+		for (int halfSize = 1; halfSize < timeSize; halfSize *= 2) {
+			float phaseShiftStepR = coslookup[halfSize];
+			float phaseShiftStepI = sinlookup[halfSize];
+			float currentPhaseShiftR = 1.0f;
+			float currentPhaseShiftI = 0.0f;
+			for (int fftStep = 0; fftStep < halfSize; fftStep++) {
+				for (int i = fftStep; i < timeSize; i += 2 * halfSize) {
+					int off = i + halfSize;
+					float tr = (currentPhaseShiftR * real[off]) - (currentPhaseShiftI * imag[off]);
+					float ti = (currentPhaseShiftR * imag[off]) + (currentPhaseShiftI * real[off]);
+					real[off] = real[i] - tr;
+					imag[off] = imag[i] - ti;
+					real[i] += tr;
+					imag[i] += ti;
+				}
+				float tmpR = currentPhaseShiftR;
+				currentPhaseShiftR = (tmpR * phaseShiftStepR) - (currentPhaseShiftI * phaseShiftStepI);
+				currentPhaseShiftI = (tmpR * phaseShiftStepI) + (currentPhaseShiftI * phaseShiftStepR);
+			}
+		}
+	}
+
+}
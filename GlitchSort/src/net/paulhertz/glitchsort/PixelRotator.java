@@ -0,0 +1,322 @@
+package net.paulhertz.glitchsort;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Rotates and flips arrays of pixels, for Orientation.materialize(), GlitchEngine.rotate() and the
+ * rotation commands of GlitchSort and GlitchSession.
+ * <p>
+ * A quarter turn reads the source a column at a time, so a row by row loop touches a new cache line
+ * for every pixel it reads, and on a large image no line is still in the cache when the next column
+ * wants it. The kernels here work on square tiles of TILE x TILE pixels: the rows of a tile of the
+ * source and of the destination all stay in the cache while the tile is done. Images of
+ * PARALLEL_THRESHOLD pixels or more are split into bands of tiles that run in the common
+ * ForkJoinPool. Every pixel is written by exactly one task, so the result is the same, to the bit,
+ * with any number of threads.
+ * </p><p>
+ * rotateInPlace() moves the pixels within the array, without allocating another one, when the shape
+ * of the image allows it: quarter turns of a square image follow the four pixel cycles of the turn,
+ * and half turns and flips of any image swap pairs of pixels.
+ * </p>
+ */
+public final class PixelRotator {
+	/** width and height of a tile in pixels: a tile of the source and one of the destination fill 32K */
+	static final int TILE = 64;
+	/** images with fewer pixels are turned in the calling thread */
+	static final int PARALLEL_THRESHOLD = 1 << 18;
+	/** the number of pixels below which a task turns its tiles instead of splitting */
+	static final int GRAIN = 1 << 16;
+
+	private PixelRotator() {
+	}
+
+	/**
+	 * @param pixels        pixels of the stored image, not changed
+	 * @param width         width of the stored image
+	 * @param height        height of the stored image
+	 * @param orientation   how the image as it is seen is turned from the stored image
+	 * @return              a new array of the pixels of the image as it is seen, row by row, or pixels for R0
+	 */
+	public static int[] rotate(int[] pixels, int width, int height, Orientation orientation) {
+		if (Orientation.R0 == orientation) return pixels;
+		int[] out = new int[width * height];
+		rotate(pixels, width, height, orientation, out);
+		return out;
+	}
+
+	/**
+	 * Writes the pixels of the image as it is seen to out, row by row.
+	 * @param pixels        pixels of the stored image, not changed
+	 * @param width         width of the stored image
+	 * @param height        height of the stored image
+	 * @param orientation   how the image as it is seen is turned from the stored image
+	 * @param out           an array of width * height pixels, not pixels
+	 */
+	public static void rotate(int[] pixels, int width, int height, Orientation orientation, int[] out) {
+		rotate(pixels, width, height, orientation, out, width * height >= PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * rotate(), in parallel or in the calling thread, for RotateBenchmark.
+	 */
+	static void rotate(int[] pixels, int width, int height, Orientation orientation, int[] out, boolean isParallel) {
+		if (out.length != width * height) {
+			throw new IllegalArgumentException("out has "+ out.length +" pixels, not "+ width * height);
+		}
+		if (out == pixels) throw new IllegalArgumentException("out is pixels, call rotateInPlace()");
+		run(new CopyTask(pixels, width, height, orientation, out, 0, tileCount(orientation.height(width, height))), isParallel);
+	}
+
+	/**
+	 * Turns an image within its array, if its shape allows: any orientation of a square image, or
+	 * one that isn't transposed, a half turn or a flip, of any image.
+	 * @param pixels        pixels of the stored image, replaced by the pixels of the image as it is seen
+	 * @param width         width of the stored image
+	 * @param height        height of the stored image
+	 * @param orientation   how the image as it is seen is turned from the stored image
+	 * @return              true if the image was turned, false if a new array is needed, see rotate()
+	 */
+	public static boolean rotateInPlace(int[] pixels, int width, int height, Orientation orientation) {
+		return rotateInPlace(pixels, width, height, orientation, width * height >= PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * rotateInPlace(), in parallel or in the calling thread, for RotateBenchmark.
+	 */
+	static boolean rotateInPlace(int[] pixels, int width, int height, Orientation orientation, boolean isParallel) {
+		if (Orientation.R0 == orientation) return true;
+		if (orientation.isTransposed() && width != height) return false;
+		if (orientation.isTransposed() && !orientation.isFlipped()) {
+			// each task turns the cycles that start in its tiles of the top left quarter
+			run(new CycleTask(pixels, width, orientation, 0, tileCount((width + 1) / 2)), isParallel);
+		}
+		else {
+			run(new SwapTask(pixels, width, height, orientation, 0, tileCount(height)), isParallel);
+		}
+		return true;
+	}
+
+	/** runs a task in the common ForkJoinPool, or all its bands in the calling thread */
+	static void run(BandTask task, boolean isParallel) {
+		if (isParallel) ForkJoinPool.commonPool().invoke(task);
+		else task.turn();
+	}
+
+	/** the number of tiles, or bands of tiles, that cover length pixels */
+	static int tileCount(int length) {
+		return (length + TILE - 1) / TILE;
+	}
+
+
+	/**
+	 * Turns bands of tiles lo to hi - 1, each a row of tiles, splitting them among threads if there
+	 * are enough pixels. Each band is turned by one task.
+	 */
+	@SuppressWarnings("serial")
+	abstract static class BandTask extends RecursiveAction {
+		int lo;
+		int hi;
+
+		BandTask(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		/** @return the number of pixels a band moves */
+		abstract long bandPixels();
+
+		/** @return a task like this one for bands lo to hi - 1 */
+		abstract BandTask bands(int lo, int hi);
+
+		/** turns the bands in the calling thread */
+		abstract void turn();
+
+		@Override
+		protected void compute() {
+			if (hi - lo > 1 && (hi - lo) * bandPixels() > GRAIN) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(bands(lo, mid), bands(mid, hi));
+			}
+			else {
+				turn();
+			}
+		}
+	}
+
+	/**
+	 * Copies the pixels of bands of tiles lo to hi - 1 of the image as it is seen, each a row of tiles.
+	 */
+	@SuppressWarnings("serial")
+	static class CopyTask extends BandTask {
+		int[] pixels;
+		int width;
+		int height;
+		Orientation orientation;
+		int[] out;
+
+		CopyTask(int[] pixels, int width, int height, Orientation orientation, int[] out, int lo, int hi) {
+			super(lo, hi);
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.orientation = orientation;
+			this.out = out;
+		}
+
+		long bandPixels() {
+			return (long) TILE * orientation.width(width, height);
+		}
+
+		BandTask bands(int lo, int hi) {
+			return new CopyTask(pixels, width, height, orientation, out, lo, hi);
+		}
+
+		void turn() {
+			int w = orientation.width(width, height);
+			int h = orientation.height(width, height);
+			int origin = orientation.origin(width, height);
+			int xs = orientation.xStride(width);
+			int ys = orientation.yStride(width);
+			// rows of the source are read forwards or backwards, no tiles are needed across them
+			int tileWidth = 1 == Math.abs(xs) ? w : TILE;
+			int yEnd = Math.min(hi * TILE, h);
+			for (int y0 = lo * TILE; y0 < yEnd; y0 += TILE) {
+				int y1 = Math.min(y0 + TILE, yEnd);
+				for (int x0 = 0; x0 < w; x0 += tileWidth) {
+					int x1 = Math.min(x0 + tileWidth, w);
+					for (int y = y0; y < y1; y++) {
+						int s = origin + y * ys + x0 * xs;
+						int d = y * w + x0;
+						int end = y * w + x1;
+						while (d < end) {
+							out[d++] = pixels[s];
+							s += xs;
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Turns a square image a quarter turn in place, one four pixel cycle at a time, for the cycles
+	 * that start in bands of tiles lo to hi - 1 of the top left quarter of the image.
+	 */
+	@SuppressWarnings("serial")
+	static class CycleTask extends BandTask {
+		int[] pixels;
+		int size;
+		Orientation orientation;
+
+		CycleTask(int[] pixels, int size, Orientation orientation, int lo, int hi) {
+			super(lo, hi);
+			this.pixels = pixels;
+			this.size = size;
+			this.orientation = orientation;
+		}
+
+		long bandPixels() {
+			// each cycle moves four pixels
+			return 4L * TILE * (size / 2);
+		}
+
+		BandTask bands(int lo, int hi) {
+			return new CycleTask(pixels, size, orientation, lo, hi);
+		}
+
+		void turn() {
+			// the cycles start at x < size / 2 and y < (size + 1) / 2, the middle pixel of an odd size stays put
+			int qw = size / 2;
+			int qh = (size + 1) / 2;
+			int n = size;
+			int last = n - 1;
+			boolean isRight = 1 == orientation.getQuarterTurns();
+			int yEnd = Math.min(hi * TILE, qh);
+			for (int y0 = lo * TILE; y0 < yEnd; y0 += TILE) {
+				int y1 = Math.min(y0 + TILE, yEnd);
+				for (int x0 = 0; x0 < qw; x0 += TILE) {
+					int x1 = Math.min(x0 + TILE, qw);
+					for (int y = y0; y < y1; y++) {
+						for (int x = x0; x < x1; x++) {
+							// pixel (x, y) of the turned image comes from (y, last - x) for a right turn
+							int i0 = y * n + x;
+							int i1 = (last - x) * n + y;
+							int i2 = (last - y) * n + last - x;
+							int i3 = x * n + last - y;
+							int p = pixels[i0];
+							if (isRight) {
+								pixels[i0] = pixels[i1];
+								pixels[i1] = pixels[i2];
+								pixels[i2] = pixels[i3];
+								pixels[i3] = p;
+							}
+							else {
+								pixels[i0] = pixels[i3];
+								pixels[i3] = pixels[i2];
+								pixels[i2] = pixels[i1];
+								pixels[i1] = p;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Turns an image in place for an orientation that is its own inverse, a half turn, a flip or, for
+	 * a square image, a flipped quarter turn, by swapping each pixel in bands of tiles lo to hi - 1
+	 * with the pixel it trades places with, if that one comes after it.
+	 */
+	@SuppressWarnings("serial")
+	static class SwapTask extends BandTask {
+		int[] pixels;
+		int width;
+		int height;
+		Orientation orientation;
+
+		SwapTask(int[] pixels, int width, int height, Orientation orientation, int lo, int hi) {
+			super(lo, hi);
+			this.pixels = pixels;
+			this.width = width;
+			this.height = height;
+			this.orientation = orientation;
+		}
+
+		long bandPixels() {
+			return (long) TILE * width;
+		}
+
+		BandTask bands(int lo, int hi) {
+			return new SwapTask(pixels, width, height, orientation, lo, hi);
+		}
+
+		void turn() {
+			// the image as it is seen has the same width and height as the stored image
+			int w = width;
+			int origin = orientation.origin(width, height);
+			int xs = orientation.xStride(width);
+			int ys = orientation.yStride(width);
+			int tileWidth = 1 == Math.abs(xs) ? w : TILE;
+			int yEnd = Math.min(hi * TILE, height);
+			for (int y0 = lo * TILE; y0 < yEnd; y0 += TILE) {
+				int y1 = Math.min(y0 + TILE, yEnd);
+				for (int x0 = 0; x0 < w; x0 += tileWidth) {
+					int x1 = Math.min(x0 + tileWidth, w);
+					for (int y = y0; y < y1; y++) {
+						int s = origin + y * ys + x0 * xs;
+						for (int d = y * w + x0, end = y * w + x1; d < end; d++, s += xs) {
+							if (s > d) {
+								int p = pixels[d];
+								pixels[d] = pixels[s];
+								pixels[s] = p;
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,168 @@
+package net.paulhertz.glitchsort;
+
+import net.paulhertz.glitchsort.constants.SortFormat;
+
+/**
+ * Divides the pixels of an image into lines to sort, following one of the SortFormat traversals:
+ * <ul>
+ * <li>ROW: each row of the image is a line, pixels left to right.</li>
+ * <li>SQUARE: the image is tiled with squares of order x order pixels, centered as zigzag blocks are, 
+ * and each square is a line, its pixels read row by row. Pixels outside the tiles are not sorted.</li>
+ * <li>DIAGONAL: each diagonal running from upper left to lower right is a line, starting with 
+ * the one through the lower left corner and ending with the one through the upper right.</li>
+ * </ul>
+ * Rows are sorted in place, a diagonal is sorted by AbstractColorSorter.sortStrided(), since its 
+ * pixels are evenly spaced in the image, and a square by AbstractColorSorter.sortBlock(), from the 
+ * index of its corner. A view holds no tables, only the size and the strides of the image, so it 
+ * costs nothing to make one for each sort, and views are immutable, so the threads of a parallel 
+ * sort share one.
+ * <p>
+ * A view can also see an image that is stored turned or flipped, see Orientation: its lines are then
+ * the lines of the image as it is seen. Its rows are then rows or columns of the stored pixels, which 
+ * AbstractColorSorter.sortStrided() sorts, unless they are rows of it read forwards, and its squares 
+ * and diagonals step through the stored pixels with the strides of the orientation.
+ */
+public final class PixelView {
+	private final SortFormat format;
+	/** width of the image as seen */
+	private final int width;
+	/** height of the image as seen */
+	private final int height;
+	private final int order;
+	private final Orientation orientation;
+	/** index in the stored pixels of pixel (0, 0) of the image as seen */
+	private final int origin;
+	/** step in the stored pixels from a pixel to the next one in its row, as seen */
+	private final int xStride;
+	/** step in the stored pixels from a pixel to the one below it, as seen */
+	private final int yStride;
+	private final int lineCount;
+	/** number of squares in a row of squares, for SQUARE */
+	private final int squaresAcross;
+	/** index in the stored pixels of the upper left pixel of the first square, for SQUARE */
+	private final int squareOrigin;
+
+	private PixelView(SortFormat format, int width, int height, int order, Orientation orientation) {
+		this.format = format;
+		this.width = width;
+		this.height = height;
+		this.order = order;
+		this.orientation = orientation;
+		// the stored image is height pixels wide if it is turned a quarter turn
+		int storedWidth = orientation.isTransposed() ? height : width;
+		int storedHeight = orientation.isTransposed() ? width : height;
+		origin = orientation.origin(storedWidth, storedHeight);
+		xStride = orientation.xStride(storedWidth);
+		yStride = orientation.yStride(storedWidth);
+		if (SortFormat.SQUARE == format) {
+			int dw = width / order;
+			int dh = height / order;
+			int ow = (width - dw * order) / 2;
+			int oh = (height - dh * order) / 2;
+			lineCount = dw * dh;
+			squaresAcross = dw;
+			squareOrigin = origin + oh * yStride + ow * xStride;
+		}
+		else {
+			lineCount = SortFormat.DIAGONAL == format ? width + height - 1 : height;
+			squaresAcross = 0;
+			squareOrigin = 0;
+		}
+	}
+	
+	/**
+	 * Returns a view of an image.
+	 * @param format   the traversal
+	 * @param width    width of the image
+	 * @param height   height of the image
+	 * @param order    edge of the squares for SQUARE, ignored by the other formats
+	 * @return         a view of an image of the given size
+	 */
+	public static PixelView get(SortFormat format, int width, int height, int order) {
+		return get(format, width, height, order, Orientation.R0);
+	}
+
+	/**
+	 * Returns a view of an image that is stored turned or flipped.
+	 * @param format        the traversal
+	 * @param width         width of the image as seen
+	 * @param height        height of the image as seen
+	 * @param order         edge of the squares for SQUARE, ignored by the other formats
+	 * @param orientation   how the image as seen is turned from the stored pixels
+	 * @return              a view of an image of the given size
+	 */
+	public static PixelView get(SortFormat format, int width, int height, int order, Orientation orientation) {
+		if (SortFormat.SQUARE != format) order = 0;
+		else if (order < 1) throw new IllegalArgumentException("squares need an order of at least 1, not "+ order);
+		return new PixelView(format, width, height, order, orientation);
+	}
+	
+	/**
+	 * @return a view of the rows of an image
+	 */
+	public static PixelView rows(int width, int height) {
+		return get(SortFormat.ROW, width, height, 0);
+	}
+	
+	/**
+	 * Sorts line k of the pixels with a sorter.
+	 * @param s        a sorter, configured for the sort
+	 * @param pixels   pixels of an image of the size of this view
+	 * @param k        a line number, from 0 to getLineCount() - 1
+	 */
+	public void sortLine(AbstractColorSorter s, int[] pixels, int k) {
+		if (SortFormat.DIAGONAL == format) {
+			// line k holds the pixels with x - y == k - (height - 1), from the top or left edge down
+			int x = Math.max(0, k - (height - 1));
+			int y = Math.max(0, (height - 1) - k);
+			s.sortStrided(pixels, origin + y * yStride + x * xStride, xStride + yStride, getLineLength(k));
+		}
+		else if (SortFormat.SQUARE == format) {
+			int corner = squareOrigin + (k / squaresAcross) * order * yStride + (k % squaresAcross) * order * xStride;
+			s.sortBlock(pixels, corner, xStride, yStride, order, order);
+		}
+		else {
+			int l = origin + k * yStride;
+			if (1 == xStride) s.sort(pixels, l, l + width - 1);
+			else s.sortStrided(pixels, l, xStride, width);
+		}
+	}
+	
+	/**
+	 * @return the number of lines in the view
+	 */
+	public int getLineCount() {
+		return lineCount;
+	}
+	
+	/**
+	 * @return the number of pixels in line k
+	 */
+	public int getLineLength(int k) {
+		if (SortFormat.DIAGONAL == format) {
+			return Math.min(width - Math.max(0, k - (height - 1)), height - Math.max(0, (height - 1) - k));
+		}
+		return SortFormat.SQUARE == format ? order * order : width;
+	}
+	
+	public SortFormat getFormat() {
+		return format;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+	
+	public int getOrder() {
+		return order;
+	}
+	
+	public Orientation getOrientation() {
+		return orientation;
+	}
+	
+}
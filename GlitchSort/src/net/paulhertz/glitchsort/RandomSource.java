@@ -0,0 +1,40 @@
+package net.paulhertz.glitchsort;
+
+/**
+ * A source of random numbers for glitch operations: breaks in sorting, shuffling rows, 
+ * choosing and orienting zigzag blocks. A RandomSource can derive independent streams 
+ * of random numbers, one for each row or block of pixels, so that results can be reproduced 
+ * from a single seed no matter what order rows and blocks are processed in, or how many 
+ * threads process them. A RandomSource is not thread-safe: each thread should use its own stream.
+ */
+public interface RandomSource {
+	/**
+	 * @param high   upper bound of the random number
+	 * @return       a random float from 0 up to but not including high, like PApplet.random(high)
+	 */
+	public float random(float high);
+	/**
+	 * @param low    lower bound of the random number
+	 * @param high   upper bound of the random number
+	 * @return       a random float from low up to but not including high, like PApplet.random(low, high)
+	 */
+	public float random(float low, float high);
+	/**
+	 * @return   a random long, useful as a seed
+	 */
+	public long nextLong();
+	/**
+	 * Splits off a new RandomSource, advancing the state of this one. A sequence of calls to split()
+	 * returns the same sequence of sources for the same seed.
+	 * @return   a new RandomSource
+	 */
+	public RandomSource split();
+	/**
+	 * Derives a stream of random numbers from the seed of this RandomSource and an id number, 
+	 * without changing the state of this RandomSource. The same id always returns the same stream.
+	 * Since it doesn't change any state, worker threads can call stream() on a shared RandomSource.
+	 * @param id   an id number, such as a row number
+	 * @return     a new RandomSource
+	 */
+	public RandomSource stream(long id);
+}
@@ -0,0 +1,76 @@
+package net.paulhertz.glitchsort;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomSource implemented with java.util.SplittableRandom, which is fast, has no locks,
+ * and is designed to be split into independent streams for parallel work.
+ */
+public class SeededRandom implements RandomSource {
+	/** the seed this source was created with, streams are derived from it */
+	private final long seed;
+	private final SplittableRandom rand;
+	
+	public SeededRandom(long seed) {
+		this.seed = seed;
+		this.rand = new SplittableRandom(seed);
+	}
+	
+	public SeededRandom() {
+		this(System.nanoTime());
+	}
+	
+	/**
+	 * @return the seed this RandomSource was created with
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	@Override
+	public float random(float high) {
+		if (high == 0 || high != high) return 0;
+		float value;
+		// same approach as PApplet.random(): rounding can produce high, which is out of range
+		do {
+			value = ((rand.nextInt() >>> 8) * 0x1.0p-24f) * high;
+		} while (value == high);
+		return value;
+	}
+
+	@Override
+	public float random(float low, float high) {
+		if (low >= high) return low;
+		return random(high - low) + low;
+	}
+
+	@Override
+	public long nextLong() {
+		return rand.nextLong();
+	}
+
+	@Override
+	public RandomSource split() {
+		return new SeededRandom(rand.nextLong());
+	}
+
+	@Override
+	public RandomSource stream(long id) {
+		return new SeededRandom(mix(seed, id));
+	}
+	
+	/**
+	 * Mixes a seed and a stream id into a new seed with the SplitMix64 finalizer, 
+	 * so that streams with consecutive ids are not correlated.
+	 * @param seed   a seed
+	 * @param id     a stream id
+	 * @return       a seed for the stream
+	 */
+	public static long mix(long seed, long id) {
+		long z = seed + (id + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+}
@@ -0,0 +1,106 @@
+package net.paulhertz.glitchsort;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Tables of gaps for ShellSorter, from the largest gap down to 1. Tables are computed once for each
+ * sequence and array length and cached, so sorting many rows of the same width does no arithmetic 
+ * to find its gaps. The sequences are:
+ * <ul>
+ * <li>RATIO: h = ratio * h + 1, starting at 1 and going up until h exceeds (n - 1) / divisor, the gaps 
+ * ShellSorter has always used. With ratio 3 and divisor 9 these are Knuth's gaps, 1, 4, 13, 40...</li>
+ * <li>CIURA: 1, 4, 10, 23, 57, 132, 301, 701, 1750, then 2.25 times the previous gap, 
+ * the best sequence known in practice.</li>
+ * <li>TOKUDA: ceil((9^k - 4^k) / (5 * 4^(k - 1))), 1, 4, 9, 20, 46, 103...</li>
+ * <li>SEDGEWICK: 1, then 4^k + 3 * 2^(k - 1) + 1, 8, 23, 77, 281...</li>
+ * <li>PRATT: all numbers 2^p * 3^q, 1, 2, 3, 4, 6, 8, 9, 12... Many more passes, each of which 
+ * moves a pixel by at most one gap, which makes for distinctive glitches.</li>
+ * </ul>
+ * Except for RATIO, which keeps its old behavior exactly, gaps are less than the length of the array.
+ */
+public class ShellGaps {
+	/** the first gaps of Ciura's sequence, later gaps are 2.25 times the gap before */
+	static final int[] CIURA_GAPS = {1, 4, 10, 23, 57, 132, 301, 701, 1750};
+	/** cached tables, see key() */
+	private static final ConcurrentHashMap<Long, int[]> tables = new ConcurrentHashMap<Long, int[]>();
+
+	/**
+	 * Returns gaps for shell sorting an array of n elements. The array returned is shared, don't change it.
+	 * @param seq       the gap sequence
+	 * @param ratio     ratio for the RATIO sequence, ignored by the others
+	 * @param divisor   divisor for the RATIO sequence, ignored by the others
+	 * @param n         number of elements to sort
+	 * @return          gaps in decreasing order, ending with 1
+	 */
+	public static int[] get(GapSequence seq, int ratio, int divisor, int n) {
+		if (GapSequence.RATIO != seq) {
+			ratio = 0;
+			divisor = 0;
+		}
+		Long key = key(seq, ratio, divisor, n);
+		int[] gaps = tables.get(key);
+		if (null == gaps) {
+			gaps = make(seq, ratio, divisor, n);
+			int[] old = tables.putIfAbsent(key, gaps);
+			if (null != old) gaps = old;
+		}
+		return gaps;
+	}
+
+	/** packs the arguments of get() into a key: 3 bits of sequence, 13 bits each of ratio and divisor, 32 of length */
+	private static Long key(GapSequence seq, int ratio, int divisor, int n) {
+		return Long.valueOf((long) seq.ordinal() << 58 | (long) (ratio & 0x1FFF) << 45 
+				| (long) (divisor & 0x1FFF) << 32 | (n & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Computes a table of gaps, see get().
+	 */
+	static int[] make(GapSequence seq, int ratio, int divisor, int n) {
+		List<Long> up = new ArrayList<Long>();
+		switch (seq) {
+		case RATIO: {
+			// the same arithmetic as the loops in ShellSorter before gap tables
+			int h;
+			for (h = 1; h <= (n - 1) / divisor; h = ratio * h + 1);
+			for ( ; h > 0; h /= ratio) up.add(0, (long) h);
+			break;
+		}
+		case CIURA: {
+			for (int i = 0; i < CIURA_GAPS.length && CIURA_GAPS[i] < n; i++) up.add((long) CIURA_GAPS[i]);
+			for (long h = (long) (CIURA_GAPS[CIURA_GAPS.length - 1] * 2.25); h < n; h = (long) (h * 2.25)) up.add(h);
+			break;
+		}
+		case TOKUDA: {
+			for (int k = 1; ; k++) {
+				double h = Math.ceil((Math.pow(9, k) - Math.pow(4, k)) / (5 * Math.pow(4, k - 1)));
+				if (h >= n) break;
+				up.add((long) h);
+			}
+			break;
+		}
+		case SEDGEWICK: {
+			up.add(1L);
+			for (long k = 1, h = 8; h < n; k++, h = (1L << (2 * k)) + 3 * (1L << (k - 1)) + 1) up.add(h);
+			break;
+		}
+		case PRATT: {
+			for (long p2 = 1; p2 < n; p2 *= 2) {
+				for (long h = p2; h < n; h *= 3) up.add(h);
+			}
+			Collections.sort(up);
+			break;
+		}
+		}
+		if (up.isEmpty()) up.add(1L);
+		int[] gaps = new int[up.size()];
+		for (int i = 0; i < gaps.length; i++) gaps[i] = (int) (long) up.get(gaps.length - 1 - i);
+		return gaps;
+	}
+
+}
@@ -0,0 +1,201 @@
+package net.paulhertz.glitchsort;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Immutable settings for a sort: the sorting method, how pixels are compared, and how the sort
+ * glitches. A SortConfig can be shared freely between threads. Pass one to
+ * SortSelector.sort(SortConfig, int[], int, int, RandomSource) or SortSelector.sortRows(SortConfig, ...)
+ * to sort without changing the state of any shared sorter. The with...() methods return a copy
+ * with one setting changed.
+ */
+public final class SortConfig {
+	private final SorterType sorterType;
+	private final CompOrder compOrder;
+	private final boolean isAscendingSort;
+	private final float breakPoint;
+	private final boolean isRandomBreak;
+	private final boolean isSwapChannels;
+	private final SwapChannel swap;
+	private final int shellRatio;
+	private final int shellDivisor;
+	private final GapSequence gapSequence;
+	private final boolean isIntroSort;
+	private final boolean isNetworkSort;
+	private final boolean isParallel;
+	private final boolean isCocktailSort;
+	private final long comparisonBudget;
+
+	/**
+	 * @param sorterType        the sorting method
+	 * @param compOrder         order of color components used to compare pixels
+	 * @param isAscendingSort   true if pixels are sorted in ascending order
+	 * @param breakPoint        value from 1..999.9 that determines how often a sort is interrupted, see AbstractColorSorter.breakTest()
+	 * @param isRandomBreak     true if the sort is interrupted at random, causing glitches
+	 * @param isSwapChannels    true if exchanged pixels also swap a pair of color channels
+	 * @param swap              the pair of channels to swap
+	 */
+	public SortConfig(SorterType sorterType, CompOrder compOrder, boolean isAscendingSort, float breakPoint,
+			boolean isRandomBreak, boolean isSwapChannels, SwapChannel swap) {
+		this(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap, 3, 9, GapSequence.RATIO, false, false, true, false, 0);
+	}
+
+	private SortConfig(SorterType sorterType, CompOrder compOrder, boolean isAscendingSort, float breakPoint,
+			boolean isRandomBreak, boolean isSwapChannels, SwapChannel swap, int shellRatio, int shellDivisor, GapSequence gapSequence,
+			boolean isIntroSort, boolean isNetworkSort, boolean isParallel, boolean isCocktailSort, long comparisonBudget) {
+		this.sorterType = sorterType;
+		this.compOrder = compOrder;
+		this.isAscendingSort = isAscendingSort;
+		this.breakPoint = breakPoint;
+		this.isRandomBreak = isRandomBreak;
+		this.isSwapChannels = isSwapChannels;
+		this.swap = swap;
+		this.shellRatio = shellRatio;
+		this.shellDivisor = shellDivisor;
+		this.gapSequence = gapSequence;
+		this.isIntroSort = isIntroSort;
+		this.isNetworkSort = isNetworkSort;
+		this.isParallel = isParallel;
+		this.isCocktailSort = isCocktailSort;
+		this.comparisonBudget = comparisonBudget;
+	}
+
+	/**
+	 * @return a copy of this config with a different sorting method
+	 */
+	public SortConfig withSorterType(SorterType newSorterType) {
+		return new SortConfig(newSorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap,
+				shellRatio, shellDivisor, gapSequence, isIntroSort, isNetworkSort, isParallel, isCocktailSort, comparisonBudget);
+	}
+
+	/**
+	 * @return a copy of this config with a different breakPoint
+	 */
+	public SortConfig withBreakPoint(float newBreakPoint) {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, newBreakPoint, isRandomBreak, isSwapChannels, swap,
+				shellRatio, shellDivisor, gapSequence, isIntroSort, isNetworkSort, isParallel, isCocktailSort, comparisonBudget);
+	}
+
+	/**
+	 * @return a copy of this config with different shell sort settings, see SortSelector.ShellSorter
+	 */
+	public SortConfig withShell(int newRatio, int newDivisor) {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap,
+				newRatio, newDivisor, gapSequence, isIntroSort, isNetworkSort, isParallel, isCocktailSort, comparisonBudget);
+	}
+
+	/**
+	 * @return a copy of this config with a different gap sequence for shell sort, see ShellGaps
+	 */
+	public SortConfig withGapSequence(GapSequence newGapSequence) {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap,
+				shellRatio, shellDivisor, newGapSequence, isIntroSort, isNetworkSort, isParallel, isCocktailSort, comparisonBudget);
+	}
+
+	/**
+	 * @return a copy of this config with safe quick sort turned on or off, see SortSelector.QuickSorter
+	 */
+	public SortConfig withIntroSort(boolean newIsIntroSort) {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap,
+				shellRatio, shellDivisor, gapSequence, newIsIntroSort, isNetworkSort, isParallel, isCocktailSort, comparisonBudget);
+	}
+
+	/**
+	 * @return a copy of this config with sorting networks for small arrays turned on or off
+	 */
+	public SortConfig withNetworkSort(boolean newIsNetworkSort) {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap,
+				shellRatio, shellDivisor, gapSequence, isIntroSort, newIsNetworkSort, isParallel, isCocktailSort, comparisonBudget);
+	}
+
+	/**
+	 * @return a copy of this config with parallel sorting of rows and long arrays turned on or off
+	 */
+	public SortConfig withParallel(boolean newIsParallel) {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap,
+				shellRatio, shellDivisor, gapSequence, isIntroSort, isNetworkSort, newIsParallel, isCocktailSort, comparisonBudget);
+	}
+
+	/**
+	 * @return a copy of this config with different bubble sort settings, see SortSelector.BubbleSorter
+	 */
+	public SortConfig withBubble(boolean newIsCocktailSort, long newComparisonBudget) {
+		return new SortConfig(sorterType, compOrder, isAscendingSort, breakPoint, isRandomBreak, isSwapChannels, swap,
+				shellRatio, shellDivisor, gapSequence, isIntroSort, isNetworkSort, isParallel, newIsCocktailSort, newComparisonBudget);
+	}
+
+	public SorterType getSorterType() {
+		return sorterType;
+	}
+
+	public CompOrder getCompOrder() {
+		return compOrder;
+	}
+
+	public boolean isAscendingSort() {
+		return isAscendingSort;
+	}
+
+	public float getBreakPoint() {
+		return breakPoint;
+	}
+
+	public boolean isRandomBreak() {
+		return isRandomBreak;
+	}
+
+	public boolean isSwapChannels() {
+		return isSwapChannels;
+	}
+
+	public SwapChannel getSwap() {
+		return swap;
+	}
+
+	public int getShellRatio() {
+		return shellRatio;
+	}
+
+	public int getShellDivisor() {
+		return shellDivisor;
+	}
+
+	public GapSequence getGapSequence() {
+		return gapSequence;
+	}
+
+	public boolean isIntroSort() {
+		return isIntroSort;
+	}
+
+	public boolean isNetworkSort() {
+		return isNetworkSort;
+	}
+
+	/**
+	 * @return true if rows, and long arrays sorted by merge sort, should be sorted in parallel
+	 */
+	public boolean isParallel() {
+		return isParallel;
+	}
+
+	/**
+	 * @return true if bubble sort should run its passes in both directions
+	 */
+	public boolean isCocktailSort() {
+		return isCocktailSort;
+	}
+
+	/**
+	 * @return the most comparisons bubble sort makes in each row or array it sorts, 0 for no limit
+	 */
+	public long getComparisonBudget() {
+		return comparisonBudget;
+	}
+
+	public String toString() {
+		return sorterType +" "+ compOrder + (isAscendingSort ? " ascending" : " descending")
+				+ (isRandomBreak ? " break "+ breakPoint : "") + (isSwapChannels ? " swap "+ swap : "");
+	}
+
+}
@@ -0,0 +1,184 @@
+package net.paulhertz.glitchsort;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.paulhertz.glitchsort.constants.SorterType;
+
+/**
+ * Keeps counts of the work done by sorters for each command (sortPixels, zigzag, audify) and
+ * SorterType: comparisons, exchanges, exchanges that swapped channels, random breaks, rows or
+ * blocks sorted, and elapsed time. Sorters count in plain fields of their own while they sort,
+ * and their counts are added here after each row or block, see add(). The totals are kept in
+ * LongAdders, so threads sorting in parallel don't wait on each other. Counts can be read as
+ * JSON, see toJSON(), or through JMX once the metrics are registered, see register().
+ */
+public class SortMetrics implements SortMetricsMBean {
+	/** name under which register() makes the metrics available to JMX clients */
+	public static final String OBJECT_NAME = "net.paulhertz.glitchsort:type=SortMetrics";
+	/** counters, by command and sorter type, with keys in the form "command/TYPE" */
+	private final ConcurrentHashMap<String, Counters> counters = new ConcurrentHashMap<String, Counters>();
+
+	/**
+	 * Counts for one command and sorter type.
+	 */
+	static class Counters {
+		final LongAdder comparisons = new LongAdder();
+		final LongAdder exchanges = new LongAdder();
+		final LongAdder swapExchanges = new LongAdder();
+		final LongAdder breaks = new LongAdder();
+		final LongAdder units = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+	}
+
+	/**
+	 * Returns the counters for a command and sorter type, creating them if they don't exist yet.
+	 */
+	Counters getCounters(String command, SorterType type) {
+		String key = command + "/" + type.name();
+		Counters c = counters.get(key);
+		if (null == c) {
+			c = new Counters();
+			Counters old = counters.putIfAbsent(key, c);
+			if (null != old) c = old;
+		}
+		return c;
+	}
+
+	/**
+	 * Adds the counts of a sorter to the totals for a command and sets the sorter's counts to zero.
+	 * @param command   name of the command the sorter worked for
+	 * @param s         a sorter that has just sorted one or more rows or blocks
+	 * @param units     number of rows or blocks sorted
+	 */
+	public void add(String command, AbstractColorSorter s, long units) {
+		Counters c = getCounters(command, s.getSorterType());
+		c.comparisons.add(s.count);
+		c.exchanges.add(s.exchCount);
+		c.swapExchanges.add(s.swapCount);
+		c.breaks.add(s.breakCount);
+		c.units.add(units);
+		s.resetCounts();
+	}
+
+	/**
+	 * Adds elapsed time to the totals for a command.
+	 * @param command   name of the command
+	 * @param type      the type of sorter used
+	 * @param nanos     elapsed time in nanoseconds
+	 */
+	public void addTime(String command, SorterType type, long nanos) {
+		getCounters(command, type).nanos.add(nanos);
+	}
+
+	/**
+	 * @return all counts as a JSON object, with an object for each command that holds an object
+	 *         for each sorter type used by the command
+	 */
+	public String toJSON() {
+		TreeMap<String, TreeMap<String, Counters>> byCommand = new TreeMap<String, TreeMap<String, Counters>>();
+		for (Map.Entry<String, Counters> e : counters.entrySet()) {
+			String key = e.getKey();
+			int slash = key.lastIndexOf('/');
+			String command = key.substring(0, slash);
+			TreeMap<String, Counters> byType = byCommand.get(command);
+			if (null == byType) {
+				byType = new TreeMap<String, Counters>();
+				byCommand.put(command, byType);
+			}
+			byType.put(key.substring(slash + 1), e.getValue());
+		}
+		StringBuffer buf = new StringBuffer("{");
+		String sep = "";
+		for (Map.Entry<String, TreeMap<String, Counters>> e : byCommand.entrySet()) {
+			buf.append(sep).append("\n  \"").append(e.getKey()).append("\": {");
+			String typeSep = "";
+			for (Map.Entry<String, Counters> t : e.getValue().entrySet()) {
+				Counters c = t.getValue();
+				buf.append(typeSep).append("\n    \"").append(t.getKey()).append("\": {");
+				buf.append("\"comparisons\": ").append(c.comparisons.sum());
+				buf.append(", \"exchanges\": ").append(c.exchanges.sum());
+				buf.append(", \"swapExchanges\": ").append(c.swapExchanges.sum());
+				buf.append(", \"breaks\": ").append(c.breaks.sum());
+				buf.append(", \"units\": ").append(c.units.sum());
+				buf.append(", \"nanos\": ").append(c.nanos.sum());
+				buf.append("}");
+				typeSep = ",";
+			}
+			buf.append("\n  }");
+			sep = ",";
+		}
+		buf.append("\n}");
+		return buf.toString();
+	}
+
+	/**
+	 * Makes the metrics available to JMX clients under OBJECT_NAME in the platform MBean server.
+	 * @return true if the metrics were registered, false otherwise (for example, if another
+	 *         SortMetrics was already registered)
+	 */
+	public boolean register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(this, new ObjectName(OBJECT_NAME));
+			return true;
+		}
+		catch (Exception e) {
+			System.out.println("SortMetrics could not be registered with JMX: "+ e.getMessage());
+			return false;
+		}
+	}
+
+	/***** SortMetricsMBean *****/
+
+	public String getJSON() {
+		return toJSON();
+	}
+
+	public long getComparisons() {
+		long sum = 0;
+		for (Counters c : counters.values()) sum += c.comparisons.sum();
+		return sum;
+	}
+
+	public long getExchanges() {
+		long sum = 0;
+		for (Counters c : counters.values()) sum += c.exchanges.sum();
+		return sum;
+	}
+
+	public long getSwapExchanges() {
+		long sum = 0;
+		for (Counters c : counters.values()) sum += c.swapExchanges.sum();
+		return sum;
+	}
+
+	public long getBreaks() {
+		long sum = 0;
+		for (Counters c : counters.values()) sum += c.breaks.sum();
+		return sum;
+	}
+
+	public long getUnits() {
+		long sum = 0;
+		for (Counters c : counters.values()) sum += c.units.sum();
+		return sum;
+	}
+
+	public long getNanos() {
+		long sum = 0;
+		for (Counters c : counters.values()) sum += c.nanos.sum();
+		return sum;
+	}
+
+	public void reset() {
+		counters.clear();
+	}
+
+}
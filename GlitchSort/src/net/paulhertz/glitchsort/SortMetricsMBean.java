@@ -0,0 +1,40 @@
+package net.paulhertz.glitchsort;
+
+/**
+ * Management interface for SortMetrics, for viewing sorting statistics with JConsole or
+ * any other JMX client. Totals are summed over all commands and sorter types.
+ */
+public interface SortMetricsMBean {
+	/**
+	 * @return all counts as JSON, by command and then by sorter type
+	 */
+	public String getJSON();
+	/**
+	 * @return total number of comparisons
+	 */
+	public long getComparisons();
+	/**
+	 * @return total number of exchanges, including those that swapped channels
+	 */
+	public long getExchanges();
+	/**
+	 * @return total number of exchanges that swapped channels
+	 */
+	public long getSwapExchanges();
+	/**
+	 * @return total number of random breaks
+	 */
+	public long getBreaks();
+	/**
+	 * @return total number of rows and blocks sorted
+	 */
+	public long getUnits();
+	/**
+	 * @return total time spent sorting, in nanoseconds
+	 */
+	public long getNanos();
+	/**
+	 * Sets all counts to zero.
+	 */
+	public void reset();
+}
@@ -1,6 +1,9 @@
 package net.paulhertz.glitchsort;
 
-import processing.core.*;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import net.paulhertz.glitchsort.constants.*;
 
 /**
@@ -13,14 +16,30 @@ class SortSelector {
 	ShellSorter shell;
 	QuickSorter quick;
 	BubbleSorter bubble;
-	GlitchSort app;
-	
-	public SortSelector(GlitchSort app) {
-		this.app = app;
-		shell = new ShellSorter(app);
-		quick = new QuickSorter(app);
-		bubble = new BubbleSorter(app);
-		insert = new InsertSorter(app);
+	RadixSorter radix;
+	MergeSorter merge;
+	/** counts of comparisons, exchanges, breaks and time spent sorting, for each command and sorter type */
+	SortMetrics metrics = new SortMetrics();
+	/** name of the command that sorting is currently done for, used to group metrics */
+	String command = "sort";
+	/** 
+	 * sorters for each thread, used by the methods that take a SortConfig. Sorters keep state 
+	 * while they sort, so a sorter must never be used by two threads at once.
+	 */
+	private static final ThreadLocal<SortSelector> localSelector = new ThreadLocal<SortSelector>() {
+		@Override
+		protected SortSelector initialValue() {
+			return new SortSelector();
+		}
+	};
+	
+	public SortSelector() {
+		shell = new ShellSorter();
+		quick = new QuickSorter();
+		bubble = new BubbleSorter();
+		insert = new InsertSorter();
+		radix = new RadixSorter();
+		merge = new MergeSorter();
 		this.sorter = quick;
 	}
 	
@@ -29,6 +48,8 @@ class SortSelector {
 		quick.setRandomBreak(isRandomBreak);
 		bubble.setRandomBreak(isRandomBreak);
 		insert.setRandomBreak(isRandomBreak);
+		radix.setRandomBreak(isRandomBreak);
+		merge.setRandomBreak(isRandomBreak);
 	}
 	
 	public QuickSorter getQuick() {
@@ -46,6 +67,14 @@ class SortSelector {
 	public InsertSorter getInsert() {
 		return insert;
 	}
+	
+	public RadixSorter getRadix() {
+		return radix;
+	}
+	
+	public MergeSorter getMerge() {
+		return merge;
+	}
 
 	public Sorter getSorter() {
 		return sorter;
@@ -57,25 +86,240 @@ class SortSelector {
 		case SHELL: { sorter = shell; break; }
 		case BUBBLE: { sorter = bubble; break; }
 		case INSERT: { sorter = insert; break; }
+		case RADIX: { sorter = radix; break; }
+		case MERGE: { sorter = merge; break; }
 		default: { sorter = quick; }
 		}
 	}
 	
-	public void setControlState() {
-		sorter.setAscendingSort(app.isAscendingSort);
-		sorter.setBreakPoint(app.breakPoint);
-		sorter.setCompOrder(app.compOrder);
-		sorter.setRandomBreak(app.randomBreak);
-		sorter.setSwapChannels(app.isSwapChannels);
-		sorter.setSwap(app.swap);
+	/**
+	 * Applies settings, such as GlitchSession.getSortConfig(), to the current sorter.
+	 */
+	public void setControlState(SortConfig config) {
+		sorter.configure(config);
 	}
 
 	public void sort(int[] a, int l, int r) {
+		long t0 = System.nanoTime();
 		sorter.sort(a, l, r);
+		metrics.add(command, sorter, 1);
+		metrics.addTime(command, sorter.getSorterType(), System.nanoTime() - t0);
 	}
 	
 	public void sort(int[] a) {
-		sorter.sort(a);
+		sort(a, 0, a.length - 1);
+	}
+	
+	/**
+	 * Sorts a[l..r] with the settings in config. Sorting is done by sorters that belong to the calling 
+	 * thread, and the state of this SortSelector is not changed (except for its metrics, which are 
+	 * thread-safe), so any number of threads can sort at once, with the same or different configs.
+	 * @param config   settings for the sort
+	 * @param a        an array of pixels
+	 * @param l        index of the first pixel to sort
+	 * @param r        index of the last pixel to sort
+	 * @param rand     source of random numbers for breaks, used by the calling thread only
+	 */
+	public void sort(SortConfig config, int[] a, int l, int r, RandomSource rand) {
+		long t0 = System.nanoTime();
+		AbstractColorSorter s = localSelector.get().getSorter(config);
+		s.setRandom(rand);
+		s.sort(a, l, r);
+		metrics.add(command, s, 1);
+		metrics.addTime(command, s.getSorterType(), System.nanoTime() - t0);
+	}
+	
+	/**
+	 * Sorts an array of pixels with the settings in config, see sort(SortConfig, int[], int, int, RandomSource).
+	 */
+	public void sort(SortConfig config, int[] a, RandomSource rand) {
+		sort(config, a, 0, a.length - 1, rand);
+	}
+	
+	/**
+	 * Returns one of this SortSelector's sorters, configured for a sort. 
+	 * @param config   settings for the sort
+	 * @return         the sorter for config.getSorterType(), with config applied
+	 */
+	public AbstractColorSorter getSorter(SortConfig config) {
+		AbstractColorSorter s;
+		switch (config.getSorterType()) {
+		case SHELL: { s = shell; break; }
+		case BUBBLE: { s = bubble; break; }
+		case INSERT: { s = insert; break; }
+		case RADIX: { s = radix; break; }
+		case MERGE: { s = merge; break; }
+		default: { s = quick; }
+		}
+		s.configure(config);
+		return s;
+	}
+	
+	/**
+	 * @return the settings of the current sorter as a SortConfig
+	 */
+	public SortConfig getConfig() {
+		return sorter.getConfig().withShell(shell.ratio, shell.divisor).withGapSequence(shell.gapSequence)
+				.withIntroSort(quick.isIntroSort).withParallel(merge.isParallel)
+				.withBubble(bubble.isCocktailSort, bubble.comparisonBudget);
+	}
+	
+	/**
+	 * @return counts of comparisons, exchanges, breaks and time spent sorting
+	 */
+	public SortMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * @param command   name of the command that following sorts are done for (sortPixels, zigzag, audify), 
+	 *                  metrics are grouped by command
+	 */
+	public void setCommand(String command) {
+		this.command = command;
+	}
+	
+	/**
+	 * Sorts rows of pixels with the current sorter, see sortRows(SortConfig, ...).
+	 */
+	public void sortRows(int[] pixels, int width, int[] rows, int lo, int hi, RandomSource rand, boolean isParallel) {
+		sortRows(getConfig().withParallel(isParallel), pixels, width, rows, lo, hi, rand);
+	}
+	
+	/**
+	 * Sorts rows of pixels with the settings in config, see sortLines(). 
+	 * @param config     settings for the sort
+	 * @param pixels     pixels of an image
+	 * @param width      width of the image
+	 * @param rows       row numbers, rows[lo] to rows[hi - 1] will be sorted
+	 * @param lo         first index in rows
+	 * @param hi         index in rows after the last row to sort
+	 * @param rand       source of random streams for breaks
+	 */
+	public void sortRows(SortConfig config, int[] pixels, int width, int[] rows, int lo, int hi, RandomSource rand) {
+		sortLines(config, pixels, PixelView.rows(width, pixels.length / width), rows, lo, hi, rand);
+	}
+	
+	/**
+	 * Sorts lines of pixels, such as rows, squares or diagonals, with the settings in config, in parallel 
+	 * if config.isParallel() is true. Each line gets its own stream of random numbers for breaks, derived 
+	 * from rand and the line number, so the results are the same whether the lines are sorted one after 
+	 * another or in parallel by any number of threads. Like sort(SortConfig, int[], int, int, RandomSource), 
+	 * this method uses sorters that belong to the threads that do the sorting, so it is thread-safe.
+	 * @param config     settings for the sort
+	 * @param pixels     pixels of an image
+	 * @param view       the lines of the image
+	 * @param lines      line numbers, lines[lo] to lines[hi - 1] will be sorted
+	 * @param lo         first index in lines
+	 * @param hi         index in lines after the last line to sort
+	 * @param rand       source of random streams for breaks
+	 */
+	public void sortLines(SortConfig config, int[] pixels, PixelView view, int[] lines, int lo, int hi, RandomSource rand) {
+		long t0 = System.nanoTime();
+		if (config.isParallel() && hi - lo > 1) {
+			ForkJoinPool.commonPool().invoke(new LineSortTask(config, pixels, view, lines, lo, hi, rand));
+		}
+		else {
+			sortLines(localSelector.get().getSorter(config), pixels, view, lines, lo, hi, rand);
+		}
+		metrics.addTime(command, config.getSorterType(), System.nanoTime() - t0);
+	}
+	
+	/**
+	 * Prepares a live sort of lines of pixels, which sorts the same lines with the same results as 
+	 * sortLines(config, ...) with config.isParallel() false, but a time slice at a time: nothing is 
+	 * sorted until the caller calls step() on the returned LiveSort, and pixels change only during 
+	 * calls to step() and finish(). The lines are sorted in one thread, by that thread's own sorters.
+	 * @return   a LiveSort, not yet started
+	 */
+	public LiveSort sortLinesLive(final SortConfig config, final int[] pixels, final PixelView view, final int[] lines, 
+			final int lo, final int hi, final RandomSource rand) {
+		return new LiveSort() {
+			@Override
+			protected void sortSlices() {
+				AbstractColorSorter s = localSelector.get().getSorter(config.withParallel(false));
+				s.setLiveSort(this);
+				try {
+					sortLines(s, pixels, view, lines, lo, hi, rand);
+				}
+				finally {
+					s.setLiveSort(null);
+				}
+				metrics.addTime(command, config.getSorterType(), getRunNanos());
+			}
+		};
+	}
+	
+	/**
+	 * Sorts lines of pixels as sortLines(config, ...) does with config.isParallel() false, recording 
+	 * every change to the pixels in log. The lines are sorted in the calling thread, by its own sorters, 
+	 * and the log's last frame is ended when the sort is done.
+	 * @param log   the log to record changes in
+	 */
+	public void sortLinesLogged(SortConfig config, int[] pixels, PixelView view, int[] lines, int lo, int hi, 
+			RandomSource rand, ExchangeLog log) {
+		long t0 = System.nanoTime();
+		AbstractColorSorter s = localSelector.get().getSorter(config.withParallel(false));
+		s.setExchangeLog(log);
+		try {
+			sortLines(s, pixels, view, lines, lo, hi, rand);
+		}
+		finally {
+			s.setExchangeLog(null);
+		}
+		log.markFrame();
+		metrics.addTime(command, config.getSorterType(), System.nanoTime() - t0);
+	}
+	
+	/**
+	 * Sorts lines of pixels with a supplied sorter.
+	 */
+	void sortLines(AbstractColorSorter s, int[] pixels, PixelView view, int[] lines, int lo, int hi, RandomSource rand) {
+		for (int i = lo; i < hi; i++) {
+			int n = lines[i];
+			s.setRandom(rand.stream(n));
+			view.sortLine(s, pixels, n);
+		}
+		metrics.add(command, s, hi - lo);
+	}
+	
+	/**
+	 * Sorts a range of lines in parallel, splitting it into smaller tasks. 
+	 * Each task that sorts lines uses the sorters of the thread it runs in.
+	 */
+	@SuppressWarnings("serial")
+	class LineSortTask extends RecursiveAction {
+		/** the number of lines below which a task sorts instead of splitting */
+		static final int THRESHOLD = 8;
+		SortConfig config;
+		int[] pixels;
+		PixelView view;
+		int[] lines;
+		int lo;
+		int hi;
+		RandomSource rand;
+		
+		public LineSortTask(SortConfig config, int[] pixels, PixelView view, int[] lines, int lo, int hi, RandomSource rand) {
+			this.config = config;
+			this.pixels = pixels;
+			this.view = view;
+			this.lines = lines;
+			this.lo = lo;
+			this.hi = hi;
+			this.rand = rand;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= THRESHOLD) {
+				sortLines(localSelector.get().getSorter(config), pixels, view, lines, lo, hi, rand);
+			}
+			else {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new LineSortTask(config, pixels, view, lines, lo, mid, rand), 
+						new LineSortTask(config, pixels, view, lines, mid, hi, rand));
+			}
+		}
 	}
 	
 	public void insertSort(int[] a, int l, int r) {
@@ -93,27 +337,42 @@ class SortSelector {
 	public void quickSort(int[] a, int l, int r) {
 		quick.sort(a, l, r);
 	}
+
+	public void radixSort(int[] a, int l, int r) {
+		radix.sort(a, l, r);
+	}
+
+	public void mergeSort(int[] a, int l, int r) {
+		merge.sort(a, l, r);
+	}
 	
 	/**
 	 * Performs an insert sort on an array of ints. Insert sort proceeds through
 	 * the array from beginning to end, comparing every number against all remaining numbers. 
 	 * It is much slower than quick sort or shell sort.
+	 * Without random breaks or channel swapping, the result is a stable sort, and the sorter 
+	 * gets there much faster by finding where each pixel goes with a binary search and moving 
+	 * the pixels above it up all at once, see binaryInsertSort().
 	 */
 	class InsertSorter extends AbstractColorSorter implements Sorter {
 		
-		public InsertSorter(PApplet app, float breakPoint) {
-			super(app);
+		public InsertSorter(float breakPoint) {
 			this.breakPoint = breakPoint;
 			this.sorterType = SorterType.INSERT;
 		}
-		public InsertSorter(PApplet app) {
-			this(app, 999.0f);
+		public InsertSorter() {
+			this(999.0f);
 		}
 
 		@Override
-		public void sort(int[] a, int l, int r) { 
+		protected void sortRange(int[] a, int l, int r) { 
+			if (!this.isRandomBreak && !this.isSwapChannels) {
+				binaryInsertSort(a, l, r);
+				return;
+			}
 			outerloop:
 				for (int i = l+1; i <= r; i++) {
+					checkpoint();
 					for (int j = i; j > l; j--) {
 						compExch(a, j-1, j); 
 						if (this.isRandomBreak) {
@@ -126,6 +385,41 @@ class SortSelector {
 				}
 		} 
 		
+		/**
+		 * Sorts a[l..r] with the same result as the exchanges in sortRange(): each pixel goes after 
+		 * all the pixels before it with keys less than or equal to its own. The insertion point is  
+		 * found by binary search, and the pixels and keys above it move up with System.arraycopy.
+		 * Only comparisons actually made are counted, but each pixel moved counts as an exchange,
+		 * as it would in sortRange().
+		 */
+		void binaryInsertSort(int[] a, int l, int r) {
+			int[] k = keys;
+			ExchangeLog log = exchangeLog;
+			for (int i = l + 1; i <= r; i++) {
+				checkpoint();
+				int v = a[i];
+				int kv = k[i - keyBase];
+				// the first position in a[l..i-1] with a key greater than kv
+				int lo = l, hi = i;
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					if (lessKey(kv, k[mid - keyBase])) hi = mid;
+					else lo = mid + 1;
+				}
+				int n = i - lo;
+				if (0 == n) continue;
+				System.arraycopy(a, lo, a, lo + 1, n);
+				System.arraycopy(k, lo - keyBase, k, lo + 1 - keyBase, n);
+				a[lo] = v;
+				k[lo - keyBase] = kv;
+				exchCount += n;
+				if (null != log) {
+					for (int j = i; j > lo; j--) log.move(j, j - 1);
+					log.set(lo, v);
+				}
+			}
+		}
+		
 	}
 	
 
@@ -136,21 +430,35 @@ class SortSelector {
 	 * over larger distances to exchange keys. It is also a very fast sorting method for disordered
 	 * arrays (most pictures, in other words) but will crawl if fed an array that is already sorted
 	 * or nearly sorted (or inverse sorted or nearly inverse sorted). 
+	 * To avoid crawling, set isIntroSort to true: the sorter then picks the median of three pixels as 
+	 * the partitioning element, keeps its own stack of subarrays instead of recursing, and falls back 
+	 * to heap sort if partitioning goes too deep and to insertion sort for small subarrays. 
+	 * A random break still leaves the two subarrays of the latest partition unsorted.
 	 */
 	class QuickSorter extends AbstractColorSorter implements Sorter {
+		/** true if the sorter should use median-of-three partitioning, a stack and fallback sorts */
+		boolean isIntroSort = false;
+		/** subarrays waiting to be sorted, three ints (left, right, depth limit) for each */
+		int[] stack = new int[3 * 64];
+		/** subarrays this small or smaller are insertion sorted, if there are no random breaks */
+		static final int CUTOFF = 16;
 
-		public QuickSorter(PApplet app, float breakPoint) {
-			super(app);
+		public QuickSorter(float breakPoint) {
 			this.breakPoint = breakPoint;
 			this.sorterType = SorterType.QUICK;
 		}
-		public QuickSorter(PApplet app) {
-			this(app, 144.0f);
+		public QuickSorter() {
+			this(144.0f);
 		}
 				
 		@Override
-		public void sort(int[] a, int l, int r) { 
+		protected void sortRange(int[] a, int l, int r) { 
+			if (isIntroSort) {
+				introSort(a, l, r);
+				return;
+			}
 			if (r <= l) return;
+			checkpoint();
 			int i = partition(a, l, r);
 			if (this.isRandomBreak) {
 				if (breakTest()) {
@@ -158,23 +466,142 @@ class SortSelector {
 					return;
 				}
 			}
-			sort(a, l, i - 1);
-			sort(a, i + 1, r);
+			sortRange(a, l, i - 1);
+			sortRange(a, i + 1, r);
 		} 
 		
 		public int partition(int[] a, int l, int r) {
 			int i = l-1;
 			int j = r; 
-			int v = a[r]; 
+			// a[r] is the partitioning element, it stays in place until the final exchange
 			for (;;) { 
-				while (less(a[++i], v)); 
-				while (less(v, a[--j])) if (j == l) break; 
+				while (lessAt(a, ++i, r)); 
+				while (lessAt(a, r, --j)) if (j == l) break; 
 				if (i >= j) break; 
 				exch(a, i, j); 
 			} 
 			exch(a, i, r); 
 			return i; 
 		}
+		
+		/**
+		 * Sorts without recursion, always working on the smaller subarray of a partition and pushing 
+		 * the larger one onto the stack, so the stack never holds more than log2(r - l) subarrays. 
+		 */
+		void introSort(int[] a, int l, int r) {
+			int[] st = stack;
+			int top = 0;
+			int depth = depthLimit(r - l + 1);
+			int cutoff = this.isRandomBreak ? 0 : CUTOFF;
+			for (;;) {
+				while (r - l > cutoff) {
+					if (depth == 0) {
+						heapSort(a, l, r);
+						break;
+					}
+					depth--;
+					checkpoint();
+					medianToRight(a, l, r);
+					int i = partition(a, l, r);
+					if (this.isRandomBreak) {
+						if (breakTest()) {
+							// if (verbose) println("random break at "+ count);
+							break;
+						}
+					}
+					if (i - l < r - i) {
+						st[top++] = i + 1; st[top++] = r; st[top++] = depth;
+						r = i - 1;
+					}
+					else {
+						st[top++] = l; st[top++] = i - 1; st[top++] = depth;
+						l = i + 1;
+					}
+				}
+				if (r - l > 0 && r - l <= cutoff) insertSort(a, l, r);
+				if (top == 0) return;
+				depth = st[--top];
+				r = st[--top];
+				l = st[--top];
+			}
+		}
+		
+		/**
+		 * @param n   number of pixels to sort
+		 * @return    depth of partitioning, 2 * log2(n), after which introSort() switches to heap sort
+		 */
+		int depthLimit(int n) {
+			return 2 * (31 - Integer.numberOfLeadingZeros(n));
+		}
+		
+		/**
+		 * Moves the median of a[l], a[mid] and a[r] to a[r], where partition() expects it. 
+		 * Only pixels that are sorted change places, so channels are not swapped.
+		 */
+		void medianToRight(int[] a, int l, int r) {
+			if (r - l < 2) return;
+			int m = (l + r) >>> 1;
+			if (lessAt(a, m, l)) swapPixels(a, l, m);
+			if (lessAt(a, r, l)) swapPixels(a, l, r);
+			// now a[l] is the least of the three, put the lesser of a[m] and a[r] at r
+			if (lessAt(a, m, r)) swapPixels(a, m, r);
+		}
+		
+		void insertSort(int[] a, int l, int r) {
+			for (int i = l + 1; i <= r; i++) {
+				for (int j = i; j > l && lessAt(a, j, j - 1); j--) {
+					exch(a, j - 1, j);
+				}
+			}
+		}
+		
+		/**
+		 * Sorts a[l..r] with heap sort. Moving the largest pixel to the end of the heap doesn't follow 
+		 * a comparison of the two pixels, so they change places without swapping channels.
+		 */
+		void heapSort(int[] a, int l, int r) {
+			int n = r - l + 1;
+			for (int k = n/2; k >= 1; k--) {
+				sink(a, l, k, n);
+			}
+			while (n > 1) {
+				swapPixels(a, l, l + n - 1);
+				n--;
+				sink(a, l, 1, n);
+			}
+		}
+		
+		/**
+		 * Moves the element at heap position k (counting from 1 at a[l]) down a heap of n elements.
+		 */
+		void sink(int[] a, int l, int k, int n) {
+			while (2 * k <= n) {
+				int j = 2 * k;
+				if (j < n && lessAt(a, l + j - 1, l + j)) j++;
+				if (!lessAt(a, l + k - 1, l + j - 1)) break;
+				exch(a, l + k - 1, l + j - 1);
+				k = j;
+			}
+		}
+
+		@Override
+		public void configure(SortConfig config) {
+			super.configure(config);
+			this.isIntroSort = config.isIntroSort();
+		}
+
+		/**
+		 * @return true if the sorter uses median-of-three partitioning, a stack and fallback sorts
+		 */
+		public boolean isIntroSort() {
+			return isIntroSort;
+		}
+		/**
+		 * @param isIntroSort   true if the sorter should use median-of-three partitioning, a stack and fallback sorts
+		 */
+		public void setIntroSort(boolean isIntroSort) {
+			this.isIntroSort = isIntroSort;
+		}
 	}
 	
 
@@ -183,36 +610,54 @@ class SortSelector {
 	 * conquer approach to sorting, partitioning the array into smaller arrays 
 	 * using a variable h to mark the boundaries of subarrays. With random breaks, 
 	 * it makes more interesting glitches than InsertSorter and different from QuickSorter.
-	 * Vary ratio and divisor to get different partitions of the pixels
+	 * Vary ratio and divisor to get different partitions of the pixels, or choose 
+	 * one of the other gap sequences in ShellGaps.
 	 */
 	class ShellSorter extends AbstractColorSorter implements Sorter {
 		int h;
 		int ratio = 3;
 		int divisor = 9;
+		/** the sequence of gaps, RATIO for gaps from ratio and divisor */
+		GapSequence gapSequence = GapSequence.RATIO;
+		/** the gaps of the last sort, and the length, sequence, ratio and divisor they were looked up for */
+		int[] gaps;
+		int gapsLength = -1;
+		GapSequence gapsSequence;
+		int gapsRatio;
+		int gapsDivisor;
 
-		public ShellSorter(PApplet app, float breakPoint) {
-			super(app);
+		public ShellSorter(float breakPoint) {
 			this.breakPoint = breakPoint;
 			this.sorterType = SorterType.SHELL;
 		}
-		public ShellSorter(PApplet app) {
-			this(app, 996.0f);
+		public ShellSorter() {
+			this(996.0f);
 		}
 		
 		@Override
-		public void sort(int[] a, int l, int r) {
-			for (h = 1; h <= (r - l)/divisor; h = ratio * h + 1);
+		protected void sortRange(int[] a, int l, int r) {
+			int[] k = keys;
+			int b = keyBase;
+			ExchangeLog log = exchangeLog;
+			int[] gaps = getGaps(r - l + 1);
 			outerloop:
-			for ( ; h > 0; h /= ratio) {
+			for (int g = 0; g < gaps.length; g++) {
+				h = gaps[g];
 				// perform an "h-sort" over the array, i.e., an insert sort of every h elements
 				for (int i = l+h; i <= r; i++) { 
+					if ((i & 1023) == 0) checkpoint();
 					int j = i; 
 					int v = a[i]; 
-					while (j >= l + h && less(v, a[j - h])) { 
+					int kv = k[i - b];
+					while (j >= l + h && lessKey(kv, k[j - h - b])) { 
 						a[j] = a[j - h]; 
+						k[j - b] = k[j - h - b];
+						if (null != log) log.move(j, j - h);
 						j -= h; 
 					} 
 					a[j] = v; 
+					k[j - b] = kv;
+					if (null != log && j != i) log.set(j, v);
 					if (this.isRandomBreak) {
 						if (breakTest()) {
 							// if (verbose) println("random break at "+ count);
@@ -223,6 +668,31 @@ class SortSelector {
 			}
 		}
 	
+		/**
+		 * Looks up the gaps in ShellGaps only when the length or the settings change: the lookup 
+		 * boxes its key, and sorting rows of the same width should allocate nothing.
+		 * @param n   number of pixels to sort
+		 * @return    gaps in decreasing order, ending with 1
+		 */
+		int[] getGaps(int n) {
+			if (n != gapsLength || gapSequence != gapsSequence || ratio != gapsRatio || divisor != gapsDivisor) {
+				gaps = ShellGaps.get(gapSequence, ratio, divisor, n);
+				gapsLength = n;
+				gapsSequence = gapSequence;
+				gapsRatio = ratio;
+				gapsDivisor = divisor;
+			}
+			return gaps;
+		}
+	
+		@Override
+		public void configure(SortConfig config) {
+			super.configure(config);
+			this.ratio = config.getShellRatio();
+			this.divisor = config.getShellDivisor();
+			this.gapSequence = config.getGapSequence();
+		}
+	
 		/**
 		 * @param ratio the ratio to set
 		 */
@@ -235,6 +705,12 @@ class SortSelector {
 		public void setDivisor(int divisor) {
 			this.divisor = divisor;
 		}
+		/**
+		 * @param gapSequence   the sequence of gaps, RATIO for gaps from ratio and divisor
+		 */
+		public void setGapSequence(GapSequence gapSequence) {
+			this.gapSequence = gapSequence;
+		}
 		
 	}
 	
@@ -245,24 +721,43 @@ class SortSelector {
 	 * each key is exchanged with the one on its left until a smaller one is encountered.
 	 * Bubble sort is very slow, but the way it operates creates some interesting glitches. 
 	 * Color-swapping also looks good with this sorting method.
+	 * The sort stops after a pass with no exchanges, since the pixels are then in order. 
+	 * With isCocktailSort true, passes alternate between right to left and left to right, 
+	 * so large keys travel right as fast as small keys travel left. A comparisonBudget 
+	 * greater than 0 stops the sort after that many comparisons in each array or row, 
+	 * which bounds the time a sort takes whether or not it breaks at random.
 	 */
 	class BubbleSorter extends AbstractColorSorter implements Sorter {
+		/** true if passes alternate direction (cocktail shaker sort) */
+		boolean isCocktailSort = false;
+		/** the most comparisons made in sorting one array, 0 for no limit */
+		long comparisonBudget = 0;
 	
-		public BubbleSorter(PApplet app, float breakPoint) {
-			super(app);
+		public BubbleSorter(float breakPoint) {
 			this.breakPoint = breakPoint;
 			this.sorterType = SorterType.BUBBLE;
 		}
-		public BubbleSorter(PApplet app) {
-			this(app, 990.0f);
+		public BubbleSorter() {
+			this(990.0f);
 		}
 		
 		@Override
-		public void sort(int[]a, int l, int r) {
+		protected void sortRange(int[]a, int l, int r) {
+			long budget = comparisonBudget > 0 ? comparisonBudget : Long.MAX_VALUE;
+			if (isCocktailSort) {
+				cocktailSort(a, l, r, budget);
+				return;
+			}
 			outerloop:
-				for (int i = l; i < r; i++) 
+				for (int i = l; i < r; i++) {
+					checkpoint();
+					boolean isSorted = true;
 					for (int j = r; j > i; j--) {
-						compExch(a, j-1, j); 		
+						if (--budget < 0) break outerloop;
+						if (lessAt(a, j, j-1)) {
+							exch(a, j-1, j);
+							isSorted = false;
+						}
 						if (this.isRandomBreak) {
 							if (breakTest()) {
 								// if (verbose) println("random break at "+ count);
@@ -270,9 +765,427 @@ class SortSelector {
 							}
 						}
 					}
+					if (isSorted) break;
+				}
+		}
+		
+		/**
+		 * Bubble sorts a[l..r] in both directions: each pass right to left carries the smallest key 
+		 * left to the bottom of the unsorted range, and each pass left to right carries the 
+		 * largest key to the top. Breaks and the budget count comparisons, as in sortRange().
+		 */
+		void cocktailSort(int[] a, int l, int r, long budget) {
+			int lo = l;
+			int hi = r;
+			outerloop:
+				while (lo < hi) {
+					checkpoint();
+					boolean isSorted = true;
+					for (int j = hi; j > lo; j--) {
+						if (--budget < 0) break outerloop;
+						if (lessAt(a, j, j-1)) {
+							exch(a, j-1, j);
+							isSorted = false;
+						}
+						if (this.isRandomBreak && breakTest()) break outerloop;
+					}
+					lo++;
+					if (isSorted) break;
+					isSorted = true;
+					for (int j = lo; j < hi; j++) {
+						if (--budget < 0) break outerloop;
+						if (lessAt(a, j+1, j)) {
+							exch(a, j, j+1);
+							isSorted = false;
+						}
+						if (this.isRandomBreak && breakTest()) break outerloop;
+					}
+					hi--;
+					if (isSorted) break;
+				}
+		}
+
+		@Override
+		public void configure(SortConfig config) {
+			super.configure(config);
+			this.isCocktailSort = config.isCocktailSort();
+			this.comparisonBudget = config.getComparisonBudget();
+		}
+
+		/**
+		 * @return true if passes alternate direction
+		 */
+		public boolean isCocktailSort() {
+			return isCocktailSort;
+		}
+		/**
+		 * @param isCocktailSort   true if passes should alternate direction (cocktail shaker sort)
+		 */
+		public void setCocktailSort(boolean isCocktailSort) {
+			this.isCocktailSort = isCocktailSort;
+		}
+
+		/**
+		 * @return the most comparisons made in sorting one array, 0 for no limit
+		 */
+		public long getComparisonBudget() {
+			return comparisonBudget;
+		}
+		/**
+		 * @param comparisonBudget   the most comparisons to make in sorting one array, 0 for no limit
+		 */
+		public void setComparisonBudget(long comparisonBudget) {
+			this.comparisonBudget = comparisonBudget;
 		}
 	}
 	
 	
 
+	/**
+	 * Performs a least significant digit radix sort on an array of ints, one byte of the sort key 
+	 * per pass. Each pass distributes the pixels into 256 buckets by one byte of the key, keeping 
+	 * their order within each bucket, so after the last pass the pixels are sorted. Passes over 
+	 * a byte that is the same for every key (such as the alpha channel) are skipped. 
+	 * Radix sort does not compare pixels, so it ignores the swap channels setting. 
+	 * With random breaks, each pixel moved into a bucket counts as a step. A break partway through 
+	 * a pass fills the rest of each bucket with the pixels that have not been moved yet, in their 
+	 * current order, and ends the sort. A break can also fall between passes.
+	 */
+	class RadixSorter extends AbstractColorSorter implements Sorter {
+		/** pixels and keys being distributed into buckets */
+		int[] tempPixels;
+		int[] tempKeys;
+		/** counts of each byte value, 256 per pass */
+		int[] counts = new int[4 * 256];
+		/** index of the next free place in each bucket */
+		int[] next = new int[256];
+
+		public RadixSorter(float breakPoint) {
+			this.breakPoint = breakPoint;
+			this.sorterType = SorterType.RADIX;
+		}
+		public RadixSorter() {
+			this(999.9f);
+		}
+		
+		@Override
+		protected void sortRange(int[] a, int l, int r) {
+			int n = r - l + 1;
+			if (null == tempPixels || tempPixels.length < n) {
+				tempPixels = new int[n];
+				tempKeys = new int[n];
+			}
+			int[] k = keys;
+			int b = l - keyBase;
+			int[] c = counts;
+			Arrays.fill(c, 0);
+			// flip the sign bit so that keys sort as unsigned ints, and count all byte values in one go
+			for (int i = 0; i < n; i++) {
+				int key = k[i + b] ^ Integer.MIN_VALUE;
+				k[i + b] = key;
+				c[key & 0xFF]++;
+				c[256 + ((key >>> 8) & 0xFF)]++;
+				c[512 + ((key >>> 16) & 0xFF)]++;
+				c[768 + (key >>> 24)]++;
+			}
+			// source and destination of each pass, with the offset of the first element
+			int[] srcPix = a, srcKeys = k, dstPix = tempPixels, dstKeys = tempKeys;
+			int srcOff = l, srcKeyOff = b, dstOff = 0, dstKeyOff = 0;
+			boolean isBroken = false;
+			boolean isFirstPass = true;
+			for (int pass = 0; pass < 4 && !isBroken; pass++) {
+				int shift = pass * 8;
+				int base = pass * 256;
+				// every key has the same byte here, the pass would not move anything
+				if (c[base + ((srcKeys[srcKeyOff] >>> shift) & 0xFF)] == n) continue;
+				if (this.isRandomBreak && !isFirstPass) {
+					if (breakTest()) {
+						// if (verbose) println("random break at "+ count);
+						break;
+					}
+				}
+				isFirstPass = false;
+				checkpoint();
+				int sum = 0;
+				for (int d = 0; d < 256; d++) {
+					next[d] = sum;
+					sum += c[base + d];
+				}
+				int m = this.isRandomBreak ? (int) breakSteps(n) : n;
+				for (int i = 0; i < m; i++) {
+					int key = srcKeys[srcKeyOff + i];
+					int pos = next[(key >>> shift) & 0xFF]++;
+					dstKeys[dstKeyOff + pos] = key;
+					dstPix[dstOff + pos] = srcPix[srcOff + i];
+				}
+				if (m < n) {
+					// random break: fill the rest of each bucket with the remaining pixels, in order
+					int i = m;
+					int end = 0;
+					for (int d = 0; d < 256; d++) {
+						end += c[base + d];
+						for (int pos = next[d]; pos < end; pos++, i++) {
+							dstKeys[dstKeyOff + pos] = srcKeys[srcKeyOff + i];
+							dstPix[dstOff + pos] = srcPix[srcOff + i];
+						}
+					}
+					isBroken = true;
+				}
+				int[] t = srcPix; srcPix = dstPix; dstPix = t;
+				t = srcKeys; srcKeys = dstKeys; dstKeys = t;
+				int o = srcOff; srcOff = dstOff; dstOff = o;
+				o = srcKeyOff; srcKeyOff = dstKeyOff; dstKeyOff = o;
+			}
+			if (srcPix != a) {
+				System.arraycopy(srcPix, srcOff, a, l, n);
+				System.arraycopy(srcKeys, srcKeyOff, k, b, n);
+			}
+			// restore the sign bit
+			for (int i = 0; i < n; i++) {
+				k[i + b] ^= Integer.MIN_VALUE;
+			}
+		}
+		
+		@Override
+		boolean isLoggingInPlace() {
+			return false;
+		}
+		
+	}
+	
+	/**
+	 * Performs a bottom-up merge sort on an array of ints. Each pass merges pairs of neighboring 
+	 * sorted runs into runs twice as long, starting from runs of one pixel, so the pixels are sorted 
+	 * in log2(n) passes whatever their order. The sort is stable. Like radix sort, it moves pixels 
+	 * rather than exchanging them, so it ignores the swap channels setting.
+	 * With random breaks, each pixel written by a merge counts as a step. A break cuts the current 
+	 * pass short: the runs from the break on are copied without merging and the sort ends, leaving 
+	 * blocks of sorted runs. When a pass will not break and the array is long enough, as when 
+	 * a whole image is sorted as one array, the merges of the pass run in parallel.
+	 */
+	class MergeSorter extends AbstractColorSorter implements Sorter {
+		/** arrays smaller than this are always merged in the calling thread */
+		static final int PARALLEL_THRESHOLD = 1 << 16;
+		/** merges smaller than this are not split further among threads */
+		static final int GRAIN = 1 << 13;
+		/** true if long arrays should be merged in parallel */
+		boolean isParallel = true;
+		/** the two buffers of pixels and keys each pass merges from and to */
+		int[] pixels0;
+		int[] pixels1;
+		int[] keys1;
+
+		public MergeSorter(float breakPoint) {
+			this.breakPoint = breakPoint;
+			this.sorterType = SorterType.MERGE;
+		}
+		public MergeSorter() {
+			this(999.9f);
+		}
+		
+		@Override
+		protected void sortRange(int[] a, int l, int r) {
+			int n = r - l + 1;
+			if (null == pixels0 || pixels0.length < n) {
+				pixels0 = new int[n];
+				pixels1 = new int[n];
+				keys1 = new int[n];
+			}
+			// keys were loaded for a[l..r], so keys[0..n-1] go with pixels0[0..n-1]
+			System.arraycopy(a, l, pixels0, 0, n);
+			int[] srcPix = pixels0, srcKeys = keys, dstPix = pixels1, dstKeys = keys1;
+			for (int w = 1; w < n; w *= 2) {
+				checkpoint();
+				int m = this.isRandomBreak ? (int) breakSteps(n) : n;
+				if (m == n && isParallel && n >= PARALLEL_THRESHOLD) {
+					MergePassTask pass = new MergePassTask(srcPix, srcKeys, dstPix, dstKeys, w, 0, (n + 2 * w - 1) / (2 * w), n);
+					ForkJoinPool.commonPool().invoke(pass);
+					// the tasks count their comparisons for themselves, they are added here once the pass is done
+					count += pass.comparisons;
+				}
+				else {
+					mergePass(srcPix, srcKeys, dstPix, dstKeys, n, w, m);
+				}
+				int[] t = srcPix; srcPix = dstPix; dstPix = t;
+				t = srcKeys; srcKeys = dstKeys; dstKeys = t;
+				if (m < n) {
+					// if (verbose) println("random break at "+ count);
+					break;
+				}
+			}
+			System.arraycopy(srcPix, 0, a, l, n);
+			if (srcKeys != keys) System.arraycopy(srcKeys, 0, keys, 0, n);
+		}
+		
+		@Override
+		boolean isLoggingInPlace() {
+			return false;
+		}
+		
+		/**
+		 * Merges pairs of runs of length w from src to dst, merging only until m pixels have been written.
+		 */
+		void mergePass(int[] sp, int[] sk, int[] dp, int[] dk, int n, int w, int m) {
+			for (int lo = 0; lo < n; lo += 2 * w) {
+				int mid = Math.min(lo + w, n);
+				int hi = Math.min(lo + 2 * w, n);
+				int i = lo, j = mid, pos = lo;
+				while (pos < m && i < mid && j < hi) {
+					// take from the right run only if it is strictly less, so the sort is stable
+					if (lessKey(sk[j], sk[i])) { dp[pos] = sp[j]; dk[pos++] = sk[j++]; }
+					else { dp[pos] = sp[i]; dk[pos++] = sk[i++]; }
+				}
+				// copy what is left of the left run and then of the right run, without merging
+				System.arraycopy(sp, i, dp, pos, mid - i);
+				System.arraycopy(sk, i, dk, pos, mid - i);
+				pos += mid - i;
+				System.arraycopy(sp, j, dp, pos, hi - j);
+				System.arraycopy(sk, j, dk, pos, hi - j);
+			}
+		}
+		
+		/**
+		 * Merges sp[i..mid-1] and sp[j..hi-1] into dp starting at pos. Called from several threads at 
+		 * once, so it compares keys directly instead of through lessKey() and returns the number of 
+		 * comparisons for the caller to count.
+		 * @return   the number of comparisons made
+		 */
+		long merge(int[] sp, int[] sk, int[] dp, int[] dk, int i, int mid, int j, int hi, int pos) {
+			long comparisons = 0;
+			while (i < mid && j < hi) {
+				comparisons++;
+				if (sk[j] < sk[i]) { dp[pos] = sp[j]; dk[pos++] = sk[j++]; }
+				else { dp[pos] = sp[i]; dk[pos++] = sk[i++]; }
+			}
+			System.arraycopy(sp, i, dp, pos, mid - i);
+			System.arraycopy(sk, i, dk, pos, mid - i);
+			pos += mid - i;
+			System.arraycopy(sp, j, dp, pos, hi - j);
+			System.arraycopy(sk, j, dk, pos, hi - j);
+			return comparisons;
+		}
+		
+		@Override
+		public void configure(SortConfig config) {
+			super.configure(config);
+			this.isParallel = config.isParallel();
+		}
+		
+		/**
+		 * @return true if long arrays are merged in parallel
+		 */
+		public boolean isParallel() {
+			return isParallel;
+		}
+		/**
+		 * @param isParallel   true if long arrays should be merged in parallel, results are the same either way
+		 */
+		public void setParallel(boolean isParallel) {
+			this.isParallel = isParallel;
+		}
+		
+		/**
+		 * Performs the merges of one pass, for the pairs of runs numbered lo to hi - 1, in parallel.
+		 * Once it is done, comparisons holds the number of comparisons made by it and its subtasks.
+		 */
+		@SuppressWarnings("serial")
+		class MergePassTask extends RecursiveAction {
+			int[] sp, sk, dp, dk;
+			int w, lo, hi, n;
+			long comparisons;
+			
+			public MergePassTask(int[] sp, int[] sk, int[] dp, int[] dk, int w, int lo, int hi, int n) {
+				this.sp = sp;
+				this.sk = sk;
+				this.dp = dp;
+				this.dk = dk;
+				this.w = w;
+				this.lo = lo;
+				this.hi = hi;
+				this.n = n;
+			}
+			
+			@Override
+			protected void compute() {
+				if (hi - lo > 1) {
+					int half = (lo + hi) >>> 1;
+					MergePassTask left = new MergePassTask(sp, sk, dp, dk, w, lo, half, n);
+					MergePassTask right = new MergePassTask(sp, sk, dp, dk, w, half, hi, n);
+					invokeAll(left, right);
+					comparisons = left.comparisons + right.comparisons;
+				}
+				else {
+					int start = lo * 2 * w;
+					int mid = Math.min(start + w, n);
+					int end = Math.min(start + 2 * w, n);
+					MergeTask merge = new MergeTask(sp, sk, dp, dk, start, mid, mid, end, start);
+					merge.compute();
+					comparisons = merge.comparisons;
+				}
+			}
+		}
+		
+		/**
+		 * Merges two runs, splitting the merge among threads if it is large. Once it is done, 
+		 * comparisons holds the number of comparisons made by it and its subtasks, in their merges
+		 * and in the searches that split them.
+		 */
+		@SuppressWarnings("serial")
+		class MergeTask extends RecursiveAction {
+			int[] sp, sk, dp, dk;
+			int i, mid, j, hi, pos;
+			long comparisons;
+			
+			public MergeTask(int[] sp, int[] sk, int[] dp, int[] dk, int i, int mid, int j, int hi, int pos) {
+				this.sp = sp;
+				this.sk = sk;
+				this.dp = dp;
+				this.dk = dk;
+				this.i = i;
+				this.mid = mid;
+				this.j = j;
+				this.hi = hi;
+				this.pos = pos;
+			}
+			
+			@Override
+			protected void compute() {
+				if ((mid - i) + (hi - j) <= GRAIN) {
+					comparisons = merge(sp, sk, dp, dk, i, mid, j, hi, pos);
+					return;
+				}
+				// split the longer run in half and find where its middle key falls in the other run, 
+				// keeping equal keys from the left run ahead of those from the right run
+				int m1, m2;
+				if (mid - i >= hi - j) {
+					m1 = (i + mid) >>> 1;
+					m2 = search(sk, j, hi, sk[m1], false);
+				}
+				else {
+					m2 = (j + hi) >>> 1;
+					m1 = search(sk, i, mid, sk[m2], true);
+				}
+				MergeTask left = new MergeTask(sp, sk, dp, dk, i, m1, j, m2, pos);
+				MergeTask right = new MergeTask(sp, sk, dp, dk, m1, mid, m2, hi, pos + (m1 - i) + (m2 - j));
+				invokeAll(left, right);
+				comparisons += left.comparisons + right.comparisons;
+			}
+			
+			/**
+			 * Binary search in sorted keys k[lo..hi-1], counting a comparison for each step.
+			 * @return   the first index whose key is greater than key if isUpper is true, 
+			 *           otherwise the first index whose key is greater than or equal to key
+			 */
+			int search(int[] k, int lo, int hi, int key, boolean isUpper) {
+				while (lo < hi) {
+					comparisons++;
+					int m = (lo + hi) >>> 1;
+					if (k[m] < key || (isUpper && k[m] == key)) lo = m + 1;
+					else hi = m;
+				}
+				return lo;
+			}
+		}
+	}
+	
 }
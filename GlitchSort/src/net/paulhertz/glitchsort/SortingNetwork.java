@@ -0,0 +1,102 @@
+package net.paulhertz.glitchsort;
+
+import java.util.Arrays;
+
+/**
+ * A sorting network for arrays whose length is a power of two, up to MAX_SIZE, built with
+ * Batcher's odd-even merge sort. A network is a fixed sequence of compare-exchange operations,
+ * arranged in layers whose comparators touch different elements, so it runs without any
+ * branches that depend on the data. Networks are built once for each size and shared.
+ * Values are sorted as longs, so a sort key and a pixel can be packed into one value, see pack().
+ */
+class SortingNetwork {
+	/** the largest array a network is built for */
+	static final int MAX_SIZE = 256;
+	/** cached networks, indexed by log2 of their size */
+	private static final SortingNetwork[] networks = new SortingNetwork[9];
+	/** number of elements sorted */
+	final int size;
+	/** comparators, as pairs of indexes (lower, upper), layer after layer */
+	final int[] pairs;
+	/** index in pairs where each layer starts, followed by the length of pairs */
+	final int[] layers;
+
+	private SortingNetwork(int size) {
+		this.size = size;
+		int[] p = new int[2 * size * size];
+		int[] lay = new int[size * size];
+		int count = 0;
+		int layer = 0;
+		for (int span = 1; span < size; span += span) {
+			for (int k = span; k > 0; k /= 2) {
+				// each (span, k) step is one layer: merge sorted runs of length span, comparing at distance k
+				lay[layer++] = count;
+				for (int j = k % span; j + k < size; j += k + k) {
+					for (int i = 0; i < k && i + j + k < size; i++) {
+						if ((i + j) / (span + span) == (i + j + k) / (span + span)) {
+							p[count++] = i + j;
+							p[count++] = i + j + k;
+						}
+					}
+				}
+			}
+		}
+		lay[layer++] = count;
+		this.pairs = Arrays.copyOf(p, count);
+		this.layers = Arrays.copyOf(lay, layer);
+	}
+
+	/**
+	 * @param n   number of elements to sort
+	 * @return    true if there is a network for arrays of length n
+	 */
+	static boolean isNetworkSize(int n) {
+		return n >= 2 && n <= MAX_SIZE && (n & (n - 1)) == 0;
+	}
+
+	/**
+	 * Returns the network for arrays of length n, building it the first time it is requested.
+	 * @param n   number of elements to sort, must satisfy isNetworkSize(n)
+	 * @return    the network
+	 */
+	static synchronized SortingNetwork get(int n) {
+		if (!isNetworkSize(n)) throw new IllegalArgumentException("no sorting network for "+ n +" elements");
+		int log = Integer.numberOfTrailingZeros(n);
+		if (null == networks[log]) networks[log] = new SortingNetwork(n);
+		return networks[log];
+	}
+
+	/**
+	 * Packs a sort key and a pixel into a long that sorts by key, the pixel is in the low 32 bits.
+	 */
+	static long pack(int key, int argb) {
+		return (long) key << 32 | (argb & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @return the number of layers in the network
+	 */
+	int layerCount() {
+		return layers.length - 1;
+	}
+
+	/**
+	 * Runs the first stop layers of the network over v[0..size-1], leaving the lesser value
+	 * of each compared pair at the lower index. With stop == layerCount() v ends up sorted.
+	 * @param v      values to sort
+	 * @param stop   number of layers to run
+	 */
+	void sort(long[] v, int stop) {
+		int[] p = pairs;
+		int end = layers[stop];
+		for (int c = 0; c < end; c += 2) {
+			int i = p[c];
+			int j = p[c + 1];
+			long x = v[i];
+			long y = v[j];
+			v[i] = Math.min(x, y);
+			v[j] = Math.max(x, y);
+		}
+	}
+
+}
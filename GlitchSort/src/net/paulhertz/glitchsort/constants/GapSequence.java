@@ -0,0 +1,6 @@
+package net.paulhertz.glitchsort.constants;
+
+/** Gap sequences for shell sort: the ratio and divisor family, or one of the published sequences, see ShellGaps */
+public enum GapSequence {
+	RATIO, CIURA, TOKUDA, SEDGEWICK, PRATT;
+}
@@ -0,0 +1,6 @@
+package net.paulhertz.glitchsort.constants;
+
+/** Ordering of pixels in subarray to be sorted, relative to source array: rows, squares or diagonals, see PixelView */
+public enum SortFormat {
+	ROW, SQUARE, DIAGONAL;
+}
@@ -2,5 +2,5 @@ package net.paulhertz.glitchsort.constants;
 
 /** List of available sorting methods */
 public enum SorterType {
-	QUICK, SHELL, BUBBLE, INSERT;
+	QUICK, SHELL, BUBBLE, INSERT, RADIX, MERGE;
 }
@@ -0,0 +1,132 @@
+package net.paulhertz.glitchsort;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Checks that a command string run as a CommandPlan gives the same image as running its characters
+ * one at a time with GlitchSession.decode(). First, some strings must compile to the steps the class
+ * comment of CommandPlan describes. Then strings with turns, backups, undo, munge, saves and reverts
+ * run on two sessions opened on the same image with the same seed, one with exec() and one character
+ * by character, each saving to its own folder. Both must end with the same image, the same size and
+ * the same saved state, and must still match after undo and munge, so the undo buffer a plan leaves
+ * behind is checked too.
+ * Run from the project directory after Eclipse has compiled src and test to bin:
+ * <pre>
+ *   java -cp bin net.paulhertz.glitchsort.CommandPlanTest
+ * </pre>
+ * Throws an exception at the first failure.
+ */
+public class CommandPlanTest {
+	static final long SEED = 20130616L;
+	static final int RUNS = 150;
+	/** command strings and the steps they compile to, see CommandPlan.toString() */
+	static final String[][] PLANS = {
+		{"ltltltlt", "~l @90 ~l @90 ~l @90 l @90"},
+		{"tktktktk", "@90 ~k @90 ~k @90 ~k @90 k"},
+		{"tttt", "@0"},
+		{"tT", "@0"},
+		{"ttt", "@270"},
+		{"t1t", "1 @180"},
+		{"t1tk", "1 @180 k"},
+		{"ldzm", "~l d z m"},
+		{"lgz", "~l g z"},
+	};
+	static final String[] FIXED = {"ltltltlt", "tktktktk", "lstlttt", "dzmdzmdzm", "nskl stlttt sttltt stttltmc", "tttt", "tT",
+		"ttzm", "lcstlctttsttlcttstttlcts", "lmtltttmttlttmtttltm", "kkkktkkkkttt", "gsrgrtgz"};
+	/** commands that change the image, the undo buffer, the saved file or a setting */
+	static final String COMMANDS = "tttTTTtTgglkjdp9,.zzmnuy[]12acx#bi{}sr";
+
+	public static void main(String[] args) throws IOException {
+		int checks = 0;
+		for (String[] plan : PLANS) {
+			String steps = CommandPlan.compile(plan[0]).toString();
+			if (!steps.equals(plan[1])) {
+				throw new IllegalStateException("\""+ plan[0] +"\" compiles to \""+ steps +"\", not \""+ plan[1] +"\"");
+			}
+			checks++;
+		}
+		SeededRandom rand = new SeededRandom(SEED);
+		File image = File.createTempFile("commandplan", ".png");
+		image.deleteOnExit();
+		int w = 41;
+		int h = 29;
+		int[] pixels = new int[w * h];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		GlitchSession.writePNG(pixels, w, h, image);
+		File planDir = makeDir();
+		File charDir = makeDir();
+		for (int run = 0; run < FIXED.length + RUNS; run++) {
+			String cmd;
+			if (run < FIXED.length) {
+				cmd = FIXED[run];
+			}
+			else {
+				StringBuilder sb = new StringBuilder();
+				int n = 1 + (int) rand.random(24);
+				for (int i = 0; i < n; i++) {
+					sb.append(COMMANDS.charAt((int) rand.random(COMMANDS.length())));
+				}
+				cmd = sb.toString();
+			}
+			long seed = rand.nextLong();
+			GlitchSession planned = makeSession(image, planDir, seed);
+			GlitchSession oneByOne = makeSession(image, charDir, seed);
+			planned.exec(cmd);
+			for (char ch : cmd.toCharArray()) {
+				oneByOne.decode(ch);
+			}
+			same(oneByOne, planned, cmd, "");
+			// undo, then munge with the undo buffer
+			for (char ch : "zm".toCharArray()) {
+				planned.decode(ch);
+				oneByOne.decode(ch);
+				same(oneByOne, planned, cmd, " then '"+ ch +"'");
+			}
+			checks++;
+		}
+		for (File dir : new File[] {planDir, charDir}) {
+			for (File file : dir.listFiles()) {
+				file.delete();
+			}
+			dir.delete();
+		}
+		System.out.println("command plans give the same images as running one character at a time: "+ checks +" checks passed");
+	}
+
+	static GlitchSession makeSession(File image, File outputDir, long seed) throws IOException {
+		GlitchSession session = new GlitchSession() {
+			@Override
+			protected void log(String msg) {
+			}
+		};
+		session.setZigzagRange(4, 12);
+		session.setFFTBlockWidth(8);
+		session.setOutputDir(outputDir);
+		session.setTimestamp("test");
+		session.setRandomSeed(seed);
+		session.open(image);
+		return session;
+	}
+
+	static void same(GlitchSession expected, GlitchSession actual, String cmd, String after) {
+		if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()
+				|| !Arrays.equals(expected.getPixels(), actual.getPixels())) {
+			throw new IllegalStateException("\""+ cmd +"\""+ after +": the plan "+ CommandPlan.compile(cmd) +" gives a different image");
+		}
+		if (expected.isSaved() != actual.isSaved()) {
+			throw new IllegalStateException("\""+ cmd +"\""+ after +": the plan "+ CommandPlan.compile(cmd) +" leaves the image "
+					+ (actual.isSaved() ? "saved" : "not saved"));
+		}
+	}
+
+	static File makeDir() throws IOException {
+		File dir = File.createTempFile("commandplan", "");
+		if (!dir.delete() || !dir.mkdir()) throw new IOException("can't make a folder at "+ dir);
+		return dir;
+	}
+
+}
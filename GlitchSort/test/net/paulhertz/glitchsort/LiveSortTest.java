@@ -0,0 +1,116 @@
+package net.paulhertz.glitchsort;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Checks that a live sort, which pauses at checkpoints between time slices so the display can show it,
+ * gives the same pixels as a sort that runs to the end without pausing. First, for every sorter, with
+ * and without channel swapping and random breaks, SortSelector.sortLinesLive() stepped a few hundred
+ * microseconds at a time, and sometimes finished at once partway, must give what SortSelector.sortRows()
+ * gives with the same random numbers. Then command strings that sort rows, squares and diagonals, turned
+ * and in cycles, run on two sessions opened on the same image with the same seed, one with live sorting
+ * on, stepping each live sort to the end, and one with it off. Both must end with the same image.
+ * Run from the project directory after Eclipse has compiled src and test to bin:
+ * <pre>
+ *   java -cp bin net.paulhertz.glitchsort.LiveSortTest
+ * </pre>
+ * Throws an exception at the first failure.
+ */
+public class LiveSortTest {
+	static final long SEED = 20130618L;
+	/** time slice for stepping live sorts, in nanoseconds */
+	static final long BUDGET = 200000;
+	/** strings of sorting commands and settings that change how 'g' sorts */
+	static final String[] COMMANDS = {"g", "gg", "tg", "Tgtg", "#g", "##g", "#tg", "3g", "4g", "2xg", "5bg", "6ag",
+		"]]]ggg", "y]]]gggg", "#y]]gtgg", "1qg", "0(3g", "wg"};
+
+	public static void main(String[] args) throws IOException {
+		SortSelector selector = new SortSelector();
+		int w = 600;
+		int h = 40;
+		int[] rows = new int[h];
+		for (int i = 0; i < h; i++) {
+			rows[(i * 7) % h] = i;
+		}
+		SeededRandom rand = new SeededRandom(SEED);
+		int[] image = makeImage(rand, w, h);
+		int checks = 0;
+		for (SorterType type : SorterType.values()) {
+			for (int v = 0; v < 4; v++) {
+				boolean isSwap = 1 == (v & 1);
+				boolean isBreak = 2 == (v & 2);
+				SortConfig config = new SortConfig(type, CompOrder.values()[(type.ordinal() * 3 + v) % CompOrder.values().length],
+						isSwap, SorterType.QUICK == type ? 300 : 999.5f, isBreak, isSwap, SwapChannel.GB)
+						.withIntroSort(3 == v).withParallel(false);
+				int[] expected = image.clone();
+				selector.sortRows(config, expected, w, rows, 0, h, new SeededRandom(v));
+				int[] actual = image.clone();
+				LiveSort live = selector.sortLinesLive(config.withParallel(true), actual, PixelView.rows(w, h), rows, 0, h, new SeededRandom(v));
+				// finish some sorts at once partway, as a key command does
+				int finishAt = 1 == v ? 5 : Integer.MAX_VALUE;
+				for (int steps = 1; !live.step(BUDGET); steps++) {
+					if (steps == finishAt) {
+						live.finish();
+						break;
+					}
+				}
+				if (null != live.getFailure()) {
+					throw new IllegalStateException(type +", variant "+ v +": live sort failed: "+ live.getFailure());
+				}
+				if (!Arrays.equals(expected, actual)) {
+					throw new IllegalStateException(type +", variant "+ v +": live sort in "+ live.getSlices() +" slices gives different pixels");
+				}
+				checks++;
+			}
+		}
+		File file = File.createTempFile("livesort", ".png");
+		file.deleteOnExit();
+		int fw = 97;
+		int fh = 61;
+		GlitchSession.writePNG(makeImage(rand, fw, fh), fw, fh, file);
+		for (String cmd : COMMANDS) {
+			long seed = rand.nextLong();
+			GlitchSession blocking = makeSession(false, file, seed);
+			GlitchSession stepped = makeSession(true, file, seed);
+			for (char ch : cmd.toCharArray()) {
+				blocking.decode(ch);
+				stepped.decode(ch);
+				while (!stepped.stepLiveSort(BUDGET)) {
+					// the display would draw the pixels sorted so far here
+				}
+			}
+			if (blocking.getWidth() != stepped.getWidth() || !Arrays.equals(blocking.getPixels(), stepped.getPixels())) {
+				throw new IllegalStateException("\""+ cmd +"\": live sorting gives a different image");
+			}
+			checks++;
+		}
+		file.delete();
+		System.out.println("live sorts give the same pixels as blocking sorts: "+ checks +" checks passed");
+	}
+
+	static GlitchSession makeSession(boolean isLive, File file, long seed) throws IOException {
+		GlitchSession session = new GlitchSession() {
+			@Override
+			protected void log(String msg) {
+			}
+		};
+		session.setLiveSort(isLive);
+		session.setZigzagBlockWidth(8);
+		session.setRandomSeed(seed);
+		session.open(file);
+		return session;
+	}
+
+	static int[] makeImage(SeededRandom rand, int w, int h) {
+		int[] pixels = new int[w * h];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		return pixels;
+	}
+
+}
@@ -0,0 +1,181 @@
+package net.paulhertz.glitchsort;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Checks that GlitchSession, which turns the image by changing its Orientation and works on it through
+ * strides, gives the same images as turning the pixels themselves, as the applet used to.
+ * First, for every orientation and many image sizes, Orientation.materialize(), PixelRotator.rotate()
+ * and PixelRotator.rotateInPlace() must put the pixels where turning them pixel by pixel and flipping
+ * them puts them. Then command strings with turns in them run on two sessions opened on the same image
+ * with the same seed: one as it is, and one that stores its image and undo buffer upright after every
+ * turn, so the commands that follow see the pixels in order. Both must end with the same image, and
+ * so must the first session running the string as one CommandPlan, with its turns folded together.
+ * Run from the project directory after Eclipse has compiled src and test to bin:
+ * <pre>
+ *   java -cp bin net.paulhertz.glitchsort.OrientationTest
+ * </pre>
+ * Throws an exception at the first failure.
+ */
+public class OrientationTest {
+	static final long SEED = 20130614L;
+	static final int RUNS = 120;
+	/** strings that turn the image before each kind of command that works through strides */
+	static final String[] FIXED = {"tg", "Tg", "ttg", "tgtgtg", "tl", "TL", "tktk", "TjTj", "t,t.", "T<T>", "tgzTg", "tnTgum", "tttt", "tT"};
+	/** commands that change the image or a setting without reading or writing a file */
+	static final String COMMANDS = "tTtTtTgGlLkKjJ,<.>zZmnuy[]12345acxb#i{}9pd";
+
+	public static void main(String[] args) throws IOException {
+		SeededRandom rand = new SeededRandom(SEED);
+		int checks = 0;
+		for (int h = 1; h < 10; h++) {
+			for (int w = 1; w < 10; w++) {
+				checkRotations(makeImage(rand, w, h), w, h);
+				checks++;
+			}
+		}
+		checkRotations(makeImage(rand, 131, 67), 131, 67);
+		checkRotations(makeImage(rand, 96, 96), 96, 96);
+		checks += 2;
+		File[] files = {makeFile(rand, 37, 23), makeFile(rand, 24, 24)};
+		int fixedRuns = FIXED.length * SortFormat.values().length * files.length;
+		for (int run = 0; run < fixedRuns + RUNS; run++) {
+			String cmd;
+			if (run < fixedRuns) {
+				cmd = FIXED[run / (SortFormat.values().length * files.length)];
+			}
+			else {
+				StringBuilder sb = new StringBuilder();
+				int n = 1 + (int) rand.random(16);
+				for (int i = 0; i < n; i++) {
+					sb.append(COMMANDS.charAt((int) rand.random(COMMANDS.length())));
+				}
+				cmd = sb.toString();
+			}
+			long seed = rand.nextLong();
+			SortFormat format = SortFormat.values()[run % SortFormat.values().length];
+			File file = files[(run / SortFormat.values().length) % files.length];
+			GlitchSession strided = makeSession(false, file, seed, format);
+			GlitchSession turned = makeSession(true, file, seed, format);
+			GlitchSession planned = makeSession(false, file, seed, format);
+			for (char ch : cmd.toCharArray()) {
+				strided.decode(ch);
+				turned.decode(ch);
+			}
+			planned.exec(cmd);
+			same(turned, strided, "strides", cmd);
+			same(turned, planned, "folded turns", cmd);
+			checks++;
+		}
+		for (File file : files) {
+			file.delete();
+		}
+		System.out.println("turning through strides gives the same images as turning pixels: "+ checks +" checks passed");
+	}
+
+	/**
+	 * Checks every orientation of a stored image against turning and flipping its pixels one by one.
+	 */
+	static void checkRotations(int[] pixels, int w, int h) {
+		for (Orientation o : Orientation.values()) {
+			int[] expected = pixels;
+			int ew = w;
+			int eh = h;
+			for (int k = 0; k < o.getQuarterTurns(); k++) {
+				int[] turned = new int[expected.length];
+				for (int y = 0; y < eh; y++) {
+					for (int x = 0; x < ew; x++) {
+						turned[x * eh + (eh - 1 - y)] = expected[y * ew + x];
+					}
+				}
+				expected = turned;
+				int t = ew;
+				ew = eh;
+				eh = t;
+			}
+			if (o.isFlipped()) {
+				int[] flipped = new int[expected.length];
+				for (int y = 0; y < eh; y++) {
+					for (int x = 0; x < ew; x++) {
+						flipped[y * ew + x] = expected[y * ew + ew - 1 - x];
+					}
+				}
+				expected = flipped;
+			}
+			if (ew != o.width(w, h) || eh != o.height(w, h)) {
+				throw new IllegalStateException(o +", "+ w +" x "+ h +": turned image is "+ o.width(w, h) +" x "+ o.height(w, h));
+			}
+			if (!Arrays.equals(expected, o.materialize(pixels, w, h))) {
+				throw new IllegalStateException(o +", "+ w +" x "+ h +": materialize() moved the pixels to the wrong places");
+			}
+			if (!Arrays.equals(expected, PixelRotator.rotate(pixels, w, h, o))) {
+				throw new IllegalStateException(o +", "+ w +" x "+ h +": rotate() moved the pixels to the wrong places");
+			}
+			int[] inPlace = pixels.clone();
+			if (PixelRotator.rotateInPlace(inPlace, w, h, o) && !Arrays.equals(expected, inPlace)) {
+				throw new IllegalStateException(o +", "+ w +" x "+ h +": rotateInPlace() moved the pixels to the wrong places");
+			}
+		}
+	}
+
+	/**
+	 * @param isTurningPixels   true to store the image and the undo buffer upright after every turn
+	 */
+	static GlitchSession makeSession(boolean isTurningPixels, File file, long seed, SortFormat format) throws IOException {
+		GlitchSession session;
+		if (isTurningPixels) {
+			session = new GlitchSession() {
+				@Override
+				protected void log(String msg) {
+				}
+				@Override
+				void turn(int quarterTurns, int count) {
+					super.turn(quarterTurns, count);
+					upright();
+					uprightUndo();
+				}
+			};
+		}
+		else {
+			session = new GlitchSession() {
+				@Override
+				protected void log(String msg) {
+				}
+			};
+		}
+		session.setSortFormat(format);
+		session.setZigzagBlockWidth(8);
+		session.setZigzagRange(4, 12);
+		session.setFFTBlockWidth(8);
+		session.setRandomSeed(seed);
+		session.open(file);
+		return session;
+	}
+
+	static void same(GlitchSession expected, GlitchSession actual, String what, String cmd) {
+		if (expected.getWidth() != actual.getWidth() || expected.getHeight() != actual.getHeight()
+				|| !Arrays.equals(expected.getPixels(), actual.getPixels())) {
+			throw new IllegalStateException("\""+ cmd +"\": turning through "+ what +" gives a different image");
+		}
+	}
+
+	static int[] makeImage(SeededRandom rand, int w, int h) {
+		int[] pixels = new int[w * h];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		return pixels;
+	}
+
+	static File makeFile(SeededRandom rand, int w, int h) throws IOException {
+		File file = File.createTempFile("orientation", ".png");
+		file.deleteOnExit();
+		GlitchSession.writePNG(makeImage(rand, w, h), w, h, file);
+		return file;
+	}
+
+}
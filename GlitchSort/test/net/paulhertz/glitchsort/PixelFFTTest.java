@@ -0,0 +1,71 @@
+package net.paulhertz.glitchsort;
+
+import ddf.minim.analysis.FFT;
+
+/**
+ * Checks that PixelFFT gives the same results as the Minim FFT, to the bit, so that the FFT commands
+ * of GlitchEngine glitch images as they did when they used Minim. For each block size the FFT block
+ * width slider offers, blocks of channel values 0..255 go through forward(), getBand(), scaleBand()
+ * and inverse() on both, as equalize and analyze do, and every band, every sample and indexToFreq()
+ * for every band must have the same float bits. Needs minim.jar on the classpath.
+ * Run from the project directory after Eclipse has compiled src and test to bin:
+ * <pre>
+ *   java -cp bin:minim.jar net.paulhertz.glitchsort.PixelFFTTest
+ * </pre>
+ * Throws an exception at the first failure.
+ */
+public class PixelFFTTest {
+	static final long SEED = 20130612L;
+	static final int BLOCKS = 50;
+
+	public static void main(String[] args) {
+		SeededRandom rand = new SeededRandom(SEED);
+		int checks = 0;
+		for (int timeSize = 8; timeSize <= 512; timeSize *= 2) {
+			PixelFFT pixelFFT = new PixelFFT(timeSize);
+			FFT minimFFT = new FFT(timeSize, GlitchSession.SAMPLE_RATE);
+			if (pixelFFT.specSize() != minimFFT.specSize()) {
+				throw new IllegalStateException("timeSize "+ timeSize +": specSize "+ pixelFFT.specSize() +", Minim "+ minimFFT.specSize());
+			}
+			for (int i = 0; i < pixelFFT.specSize(); i++) {
+				same(pixelFFT.indexToFreq(i, GlitchSession.SAMPLE_RATE), minimFFT.indexToFreq(i), timeSize, "indexToFreq", i);
+			}
+			checks++;
+			float[] pixelBuf = new float[timeSize];
+			float[] minimBuf = new float[timeSize];
+			for (int block = 0; block < BLOCKS; block++) {
+				for (int i = 0; i < timeSize; i++) {
+					pixelBuf[i] = minimBuf[i] = (float) (rand.nextLong() & 0xFF);
+				}
+				pixelFFT.forward(pixelBuf);
+				minimFFT.forward(minimBuf);
+				for (int i = 0; i < pixelFFT.specSize(); i++) {
+					same(pixelFFT.getBand(i), minimFFT.getBand(i), timeSize, "band", i);
+				}
+				// cut, boost and leave bands alone, with factors from 0 to 3.5
+				for (int i = 0; i < pixelFFT.specSize(); i++) {
+					float s = (rand.nextLong() & 7) / 2.0f;
+					pixelFFT.scaleBand(i, s);
+					minimFFT.scaleBand(i, s);
+				}
+				for (int i = 0; i < pixelFFT.specSize(); i++) {
+					same(pixelFFT.getBand(i), minimFFT.getBand(i), timeSize, "scaled band", i);
+				}
+				pixelFFT.inverse(pixelBuf);
+				minimFFT.inverse(minimBuf);
+				for (int i = 0; i < timeSize; i++) {
+					same(pixelBuf[i], minimBuf[i], timeSize, "sample", i);
+				}
+				checks++;
+			}
+		}
+		System.out.println("PixelFFT gives the same bands and samples as the Minim FFT: "+ checks +" checks passed");
+	}
+
+	static void same(float actual, float expected, int timeSize, String what, int i) {
+		if (Float.floatToIntBits(actual) != Float.floatToIntBits(expected)) {
+			throw new IllegalStateException("timeSize "+ timeSize +": "+ what +" "+ i +" is "+ actual +", Minim gives "+ expected);
+		}
+	}
+
+}
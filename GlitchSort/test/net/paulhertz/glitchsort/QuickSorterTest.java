@@ -0,0 +1,103 @@
+package net.paulhertz.glitchsort;
+
+import java.util.Arrays;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Checks that QuickSorter in introsort mode keeps the colors of a row when it falls back to heap sort
+ * with channel swapping on. The swaps RR and GG trade one channel between the two pixels last
+ * compared and leave the others in place, so every channel of the sorted row must hold the same values
+ * as the input, in some order; an exchange made with the colors of another comparison breaks that.
+ * BB and the mixed swaps move values from one channel to another, and partition() swaps channels with
+ * the colors of its comparison with the partitioning element, as they always have, so the depth limit
+ * is forced to 0 and heap sort does all the work. Without channel swapping, the row must also come out
+ * as a permutation of the input, in order.
+ * Run from the project directory after Eclipse has compiled src and test to bin:
+ * <pre>
+ *   java -cp bin net.paulhertz.glitchsort.QuickSorterTest
+ * </pre>
+ * Throws an exception at the first failure.
+ */
+public class QuickSorterTest {
+	static final long SEED = 20130606L;
+
+	public static void main(String[] args) {
+		SortSelector selector = new SortSelector();
+		int checks = 0;
+		for (int length : new int[] {17, 100, 1000, 4097}) {
+			int[] input = makeRow(length);
+			for (SwapChannel swap : new SwapChannel[] {SwapChannel.RR, SwapChannel.GG}) {
+				int[] row = sort(selector, 0, true, swap, input);
+				for (int shift = 0; shift <= 16; shift += 8) {
+					if (!Arrays.equals(channel(input, shift), channel(row, shift))) {
+						throw new IllegalStateException("swap "+ swap +", length "+ length
+								+": channel at bit "+ shift +" is not a permutation of the input");
+					}
+				}
+				checks++;
+			}
+			// without channel swapping, partitioning and heap sort share the work for depth limits above 0
+			for (int depth = 0; depth < 3; depth++) {
+				int[] row = sort(selector, depth, false, SwapChannel.RR, input);
+				int[] expected = input.clone();
+				int[] actual = row.clone();
+				Arrays.sort(expected);
+				Arrays.sort(actual);
+				if (!Arrays.equals(expected, actual)) {
+					throw new IllegalStateException("depth limit "+ depth +", length "+ length +": output is not a permutation of the input");
+				}
+				ColorKey key = ColorKey.get(CompOrder.RGB, false);
+				for (int i = 1; i < row.length; i++) {
+					if (key.key(row[i]) < key.key(row[i - 1])) {
+						throw new IllegalStateException("depth limit "+ depth +", length "+ length +": output is not sorted at "+ i);
+					}
+				}
+				checks++;
+			}
+		}
+		System.out.println("QuickSorter heap sort fallback keeps the colors of the row: "+ checks +" checks passed");
+	}
+
+	/**
+	 * Sorts a copy of input with an introsort QuickSorter whose depth limit is depth.
+	 */
+	static int[] sort(SortSelector selector, final int depth, boolean isSwapChannels, SwapChannel swap, int[] input) {
+		SortSelector.QuickSorter quick = selector.new QuickSorter() {
+			@Override
+			int depthLimit(int n) {
+				return depth;
+			}
+		};
+		quick.setIntroSort(true);
+		quick.setRandomBreak(false);
+		quick.setCompOrder(CompOrder.RGB);
+		quick.setSwapChannels(isSwapChannels);
+		quick.setSwap(swap);
+		int[] row = input.clone();
+		quick.sort(row);
+		return row;
+	}
+
+	/**
+	 * @return the values of the 8 bit channel at shift in the pixels, in order
+	 */
+	static int[] channel(int[] pixels, int shift) {
+		int[] values = new int[pixels.length];
+		for (int i = 0; i < pixels.length; i++) {
+			values[i] = (pixels[i] >> shift) & 0xFF;
+		}
+		Arrays.sort(values);
+		return values;
+	}
+
+	static int[] makeRow(int length) {
+		SeededRandom rand = new SeededRandom(SEED + length);
+		int[] row = new int[length];
+		for (int i = 0; i < length; i++) {
+			row[i] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		return row;
+	}
+
+}
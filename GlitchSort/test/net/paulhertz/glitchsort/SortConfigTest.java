@@ -0,0 +1,127 @@
+package net.paulhertz.glitchsort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.paulhertz.glitchsort.constants.*;
+
+/**
+ * Checks that sorts with different SortConfigs can share one SortSelector from many threads at once,
+ * as GlitchBatch jobs do, and give the same pixels as the same sorts run one after another.
+ * A SortConfig for every sorter, with and without channel swapping and with random breaks, sorts the
+ * rows, squares and diagonals of an image in the calling thread for reference. Then all of the sorts
+ * run again, several times over, on a pool of threads, some of them sorting their lines in parallel
+ * as well, and each must give its reference pixels. Sorting with the selector's own settings, set to
+ * match one of the configs, must also give that config's pixels.
+ * Run from the project directory after Eclipse has compiled src and test to bin:
+ * <pre>
+ *   java -cp bin net.paulhertz.glitchsort.SortConfigTest
+ * </pre>
+ * Throws an exception at the first failure.
+ */
+public class SortConfigTest {
+	static final long SEED = 20130620L;
+	static final int THREADS = 6;
+	static final int REPEATS = 3;
+
+	public static void main(String[] args) throws Exception {
+		final SortSelector selector = new SortSelector();
+		final int w = 300;
+		final int h = 120;
+		final int[] rows = new int[h];
+		for (int i = 0; i < h; i++) {
+			rows[i] = i;
+		}
+		final List<SortConfig> configs = new ArrayList<SortConfig>();
+		for (SorterType type : SorterType.values()) {
+			for (boolean isSwap : new boolean[] {false, true}) {
+				configs.add(new SortConfig(type, CompOrder.values()[type.ordinal() * 2 + (isSwap ? 1 : 0)], isSwap,
+						SorterType.QUICK == type ? 300 : 999.5f, true, isSwap, SwapChannel.GB)
+						.withShell(2, 5).withIntroSort(isSwap).withNetworkSort(isSwap));
+			}
+		}
+		final SortFormat[] formats = SortFormat.values();
+		final List<int[]> expected = new ArrayList<int[]>();
+		for (int i = 0; i < configs.size(); i++) {
+			for (SortFormat format : formats) {
+				int[] pixels = makeImage(i, w, h);
+				sort(selector, configs.get(i).withParallel(false), format, pixels, w, h, rows, i);
+				expected.add(pixels);
+			}
+		}
+		int checks = 0;
+		// the selector's own settings, as GlitchSort sets them, for the shell sort with channel swapping
+		int shellIndex = SorterType.SHELL.ordinal() * 2 + 1;
+		selector.setSorter(SorterType.SHELL);
+		selector.getShell().setRatio(2);
+		selector.getShell().setDivisor(5);
+		selector.sorter.configure(configs.get(shellIndex));
+		int[] own = makeImage(shellIndex, w, h);
+		selector.sortRows(own, w, rows, 0, h, new SeededRandom(shellIndex), false);
+		if (!Arrays.equals(own, expected.get(shellIndex * formats.length + SortFormat.ROW.ordinal()))) {
+			throw new IllegalStateException("sorting with the selector's own settings gives different pixels from its SortConfig");
+		}
+		checks++;
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<int[]>> futures = new ArrayList<Future<int[]>>();
+			for (int rep = 0; rep < REPEATS; rep++) {
+				for (int i = 0; i < configs.size(); i++) {
+					for (int f = 0; f < formats.length; f++) {
+						final int k = i;
+						final SortFormat format = formats[f];
+						final SortConfig config = configs.get(i).withParallel(0 == (rep + i) % 2);
+						futures.add(pool.submit(new Callable<int[]>() {
+							public int[] call() {
+								int[] pixels = makeImage(k, w, h);
+								sort(selector, config, format, pixels, w, h, rows, k);
+								return pixels;
+							}
+						}));
+					}
+				}
+			}
+			for (int j = 0; j < futures.size(); j++) {
+				int k = j % expected.size();
+				if (!Arrays.equals(expected.get(k), futures.get(j).get())) {
+					throw new IllegalStateException(configs.get(k / formats.length).getSorterType() +", "+ formats[k % formats.length]
+							+", sort "+ j +": sorting at the same time as other configs gives different pixels");
+				}
+				checks++;
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+		System.out.println("concurrent sorts with different SortConfigs give the same pixels as sequential sorts: "+ checks +" checks passed");
+	}
+
+	static void sort(SortSelector selector, SortConfig config, SortFormat format, int[] pixels, int w, int h, int[] rows, long seed) {
+		if (SortFormat.ROW == format) {
+			selector.sortRows(config, pixels, w, rows, 0, h, new SeededRandom(seed));
+		}
+		else {
+			PixelView view = PixelView.get(format, w, h, 16);
+			int[] lines = new int[view.getLineCount()];
+			for (int i = 0; i < lines.length; i++) {
+				lines[i] = i;
+			}
+			selector.sortLines(config, pixels, view, lines, 0, lines.length, new SeededRandom(seed));
+		}
+	}
+
+	static int[] makeImage(long seed, int w, int h) {
+		SeededRandom rand = new SeededRandom(SEED + seed);
+		int[] pixels = new int[w * h];
+		for (int i = 0; i < pixels.length; i++) {
+			pixels[i] = 0xFF000000 | (int) (rand.nextLong() & 0xFFFFFF);
+		}
+		return pixels;
+	}
+
+}